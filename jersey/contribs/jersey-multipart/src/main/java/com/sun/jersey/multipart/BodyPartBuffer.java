@@ -0,0 +1,531 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.multipart;
+
+import com.sun.jersey.core.util.BufferPool;
+import com.sun.jersey.core.util.ReaderWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The bytes of a body part entity held outside of the Java heap.
+ * <p>
+ * The bytes are held in direct byte buffers, of size {@link #CHUNK_SIZE},
+ * acquired from a {@link DirectBufferPool} whose budget bounds the amount of
+ * direct memory utilized by all buffers sharing the pool. When the pool is
+ * exhausted the bytes are written to a temporary file, the direct byte
+ * buffers are returned to the pool, and once all the bytes have been read
+ * the temporary file is memory-mapped.
+ * <p>
+ * The bytes may be read, any number of times, from the input stream returned
+ * by {@link #getInputStream() } or the byte buffers returned by
+ * {@link #getByteBuffers() }. The bytes may be transferred without copying
+ * through the Java heap, using {@link #transferTo(WritableByteChannel) } or
+ * {@link #writeTo(OutputStream) } with a {@link FileOutputStream}, for
+ * example:
+ * <blockquote><pre>
+ *     FileOutputStream out = new FileOutputStream(file);
+ *     try {
+ *         buffer.transferTo(out.getChannel());
+ *     } finally {
+ *         out.close();
+ *     }
+ * </pre></blockquote>
+ * <p>
+ * The temporary file, if any, is deleted when {@link #release() } is called.
+ * The direct byte buffers are returned to the pool when this buffer is
+ * released and every input stream returned by {@link #getInputStream() }
+ * is closed, thus an input stream may be read after this buffer is released.
+ * If this buffer is garbage collected without being released, or with input
+ * streams not closed, then the direct byte buffers are not reused and
+ * their size is deducted from the bytes allocated by the pool. The memory
+ * mapping of the temporary file is released when the mapped byte buffer is
+ * garbage collected.
+ */
+public final class BodyPartBuffer implements Closeable {
+
+    /**
+     * The size, in bytes, of the direct byte buffers, 64 KiB.
+     */
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * A pool of direct byte buffers whose total size is bounded by a budget.
+     * <p>
+     * Direct byte buffers are allocated on demand, up to the budget, and
+     * are retained by the pool for reuse when released.
+     */
+    public static final class DirectBufferPool {
+        private final long budget;
+
+        private final AtomicLong allocated = new AtomicLong();
+
+        private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<ByteBuffer>();
+
+        /**
+         * Create a pool.
+         *
+         * @param budget the maximum number of bytes of direct memory that
+         *        may be allocated. A value of 0 declares that no direct memory
+         *        is allocated and all bytes are held in memory-mapped files.
+         * @throws IllegalArgumentException if the budget is negative.
+         */
+        public DirectBufferPool(long budget) {
+            if (budget < 0)
+                throw new IllegalArgumentException("Negative budget: " + budget);
+            this.budget = budget;
+        }
+
+        /**
+         * Get the budget.
+         *
+         * @return the maximum number of bytes of direct memory that may be
+         *         allocated.
+         */
+        public long getBudget() {
+            return budget;
+        }
+
+        /**
+         * Get the number of bytes of direct memory allocated.
+         *
+         * @return the number of bytes allocated.
+         */
+        public long getAllocated() {
+            return allocated.get();
+        }
+
+        private ByteBuffer acquire() {
+            final ByteBuffer b = free.poll();
+            if (b != null)
+                return b;
+
+            for (;;) {
+                final long a = allocated.get();
+                if (a + CHUNK_SIZE > budget)
+                    return null;
+                if (allocated.compareAndSet(a, a + CHUNK_SIZE))
+                    return ByteBuffer.allocateDirect(CHUNK_SIZE);
+            }
+        }
+
+        private void release(ByteBuffer b) {
+            b.clear();
+            free.offer(b);
+        }
+
+        private void discard(ByteBuffer b) {
+            allocated.addAndGet(-b.capacity());
+        }
+    }
+
+    private final DirectBufferPool pool;
+
+    private List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+
+    private long size;
+
+    private File file;
+
+    private RandomAccessFile raf;
+
+    private ByteBuffer mapped;
+
+    private boolean released;
+
+    /**
+     * The number of references to the direct byte buffers, that of this
+     * buffer until released and those of the input streams until closed.
+     * Guarded by this.
+     */
+    private int references = 1;
+
+    private BodyPartBuffer(DirectBufferPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Create a buffer containing all the bytes read from an input stream.
+     * The input stream is not closed.
+     *
+     * @param in the input stream to read from.
+     * @param pool the pool from which direct byte buffers are acquired.
+     * @return the buffer.
+     * @throws IOException if there is an error reading or buffering bytes.
+     */
+    public static BodyPartBuffer readFrom(InputStream in, DirectBufferPool pool) throws IOException {
+        final BodyPartBuffer b = new BodyPartBuffer(pool);
+        try {
+            b.read(in);
+        } catch (IOException ex) {
+            b.release();
+            throw ex;
+        }
+        return b;
+    }
+
+    private void read(InputStream in) throws IOException {
+        final byte[] bytes = BufferPool.BYTES.acquire(ReaderWriter.BUFFER_SIZE);
+        try {
+            for (int n; (n = in.read(bytes)) != -1; )
+                write(bytes, n);
+        } finally {
+            BufferPool.BYTES.release(bytes);
+        }
+
+        if (raf == null) {
+            for (ByteBuffer chunk : chunks)
+                chunk.flip();
+        } else if (size <= Integer.MAX_VALUE) {
+            mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    private void write(byte[] bytes, int len) throws IOException {
+        int off = 0;
+        while (raf == null && off < len) {
+            ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+            if (chunk == null || !chunk.hasRemaining()) {
+                chunk = pool.acquire();
+                if (chunk == null) {
+                    spill();
+                    break;
+                }
+                chunks.add(chunk);
+            }
+            final int n = Math.min(len - off, chunk.remaining());
+            chunk.put(bytes, off, n);
+            off += n;
+            size += n;
+        }
+
+        if (raf != null && off < len) {
+            raf.write(bytes, off, len - off);
+            size += len - off;
+        }
+    }
+
+    private void spill() throws IOException {
+        file = File.createTempFile("jersey-multipart", null);
+        raf = new RandomAccessFile(file, "rw");
+        final FileChannel channel = raf.getChannel();
+        for (ByteBuffer chunk : chunks) {
+            chunk.flip();
+            while (chunk.hasRemaining())
+                channel.write(chunk);
+        }
+        releaseChunks();
+    }
+
+    /**
+     * Get the number of bytes buffered.
+     *
+     * @return the number of bytes buffered.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Get the temporary file holding the buffered bytes.
+     *
+     * @return the temporary file, or null if the bytes are held in direct
+     *         byte buffers.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Get read-only byte buffers of the buffered bytes.
+     * <p>
+     * The byte buffers are views of the direct byte buffers of this buffer,
+     * and MUST NOT be utilized after this buffer is released, at which point
+     * the direct byte buffers may be reused by another buffer. Use
+     * {@link #getInputStream() } to read the bytes independently of the
+     * lifecycle of this buffer.
+     *
+     * @return the direct byte buffers, or the memory-mapped byte buffer, in
+     *         order, each positioned at its first byte.
+     * @throws IllegalStateException if the buffer is released, or if the
+     *         temporary file is too large to be memory-mapped.
+     */
+    public synchronized ByteBuffer[] getByteBuffers() {
+        if (released)
+            throw new IllegalStateException("Buffer released");
+
+        if (raf == null) {
+            final ByteBuffer[] bs = new ByteBuffer[chunks.size()];
+            for (int i = 0; i < bs.length; i++)
+                bs[i] = chunks.get(i).asReadOnlyBuffer();
+            return bs;
+        } else if (mapped != null) {
+            return new ByteBuffer[] {mapped.asReadOnlyBuffer()};
+        } else {
+            throw new IllegalStateException("Temporary file " + file + " too large to be memory-mapped");
+        }
+    }
+
+    /**
+     * Get an input stream of the buffered bytes. Each call returns an
+     * independent input stream positioned at the first buffered byte.
+     * <p>
+     * The input stream may be read after this buffer is released, and
+     * should be closed such that the direct byte buffers can be reused.
+     *
+     * @return the input stream.
+     * @throws IOException if the buffer is released or there is an error
+     *         opening the temporary file.
+     */
+    public synchronized InputStream getInputStream() throws IOException {
+        if (released)
+            throw new IOException("Buffer released");
+
+        if (raf != null && mapped == null)
+            return new FileInputStream(file);
+
+        final InputStream in = new ByteBuffersInputStream(getByteBuffers());
+        references++;
+        return in;
+    }
+
+    private synchronized void unreference() {
+        if (--references == 0)
+            releaseChunks();
+    }
+
+    /**
+     * Transfer the buffered bytes to a channel.
+     * <p>
+     * Bytes held in a temporary file are transferred using
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel) },
+     * which may be performed by the operating system without copying the bytes
+     * into memory, for example when the channel is a file or socket channel.
+     * Bytes held in direct byte buffers are written to the channel.
+     *
+     * @param target the channel to write to.
+     * @return the number of bytes transferred.
+     * @throws IOException if the buffer is released or there is an error
+     *         transferring the bytes.
+     */
+    public synchronized long transferTo(WritableByteChannel target) throws IOException {
+        if (released)
+            throw new IOException("Buffer released");
+
+        if (raf != null) {
+            final FileChannel channel = raf.getChannel();
+            long position = 0;
+            while (position < size)
+                position += channel.transferTo(position, size - position, target);
+        } else {
+            for (ByteBuffer b : getByteBuffers()) {
+                while (b.hasRemaining())
+                    target.write(b);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Write the buffered bytes to an output stream.
+     * <p>
+     * If the output stream is a {@link FileOutputStream} the bytes are
+     * transferred to its channel, otherwise the bytes are copied to the
+     * output stream using a pooled byte array.
+     *
+     * @param out the output stream to write to.
+     * @throws IOException if the buffer is released or there is an error
+     *         writing the bytes.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (out instanceof FileOutputStream) {
+            transferTo(((FileOutputStream) out).getChannel());
+            return;
+        }
+
+        final InputStream in = getInputStream();
+        try {
+            ReaderWriter.writeTo(in, out);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Delete the temporary file, if any, and return the direct byte buffers
+     * to the pool once all input streams of this buffer are closed. Any
+     * subsequent call to obtain the bytes from this buffer will result in an
+     * exception.
+     */
+    public synchronized void release() {
+        if (released)
+            return;
+        released = true;
+        unreference();
+        mapped = null;
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException ex) {
+                // Ignore, the file is deleted
+            }
+        }
+        if (file != null && !file.delete())
+            file.deleteOnExit();
+    }
+
+    private void releaseChunks() {
+        for (ByteBuffer chunk : chunks)
+            pool.release(chunk);
+        chunks.clear();
+    }
+
+    /**
+     * Defer to {@link #release}.
+     */
+    public void close() {
+        release();
+    }
+
+    @Override
+    @SuppressWarnings("FinalizeDeclaration")
+    protected void finalize() throws Throwable {
+        // This buffer and its input streams are unreachable. The direct
+        // byte buffers are not returned to the pool, as reuse must only occur
+        // when explicitly released, but their size is returned to the budget
+        synchronized (this) {
+            for (ByteBuffer chunk : chunks)
+                pool.discard(chunk);
+            chunks.clear();
+            references = -1;
+        }
+        release();
+        super.finalize();
+    }
+
+    /**
+     * An input stream of the direct byte buffers, or the memory-mapped byte
+     * buffer, that references this buffer such that the direct byte buffers
+     * are not reused until the input stream is closed.
+     */
+    private final class ByteBuffersInputStream extends InputStream {
+        private final ByteBuffer[] buffers;
+
+        private int index;
+
+        private boolean closed;
+
+        ByteBuffersInputStream(ByteBuffer[] buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            unreference();
+        }
+
+        private ByteBuffer current() throws IOException {
+            if (closed)
+                throw new IOException("Stream closed");
+
+            while (index < buffers.length && !buffers[index].hasRemaining())
+                index++;
+            return (index < buffers.length) ? buffers[index] : null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final ByteBuffer b = current();
+            return (b == null) ? -1 : b.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            final ByteBuffer b = current();
+            if (b == null)
+                return -1;
+            len = Math.min(len, b.remaining());
+            b.get(bytes, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            ByteBuffer b;
+            while (skipped < n && (b = current()) != null) {
+                final int s = (int) Math.min(n - skipped, b.remaining());
+                b.position(b.position() + s);
+                skipped += s;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (closed)
+                return 0;
+            long a = 0;
+            for (int i = index; i < buffers.length; i++)
+                a += buffers[i].remaining();
+            return (int) Math.min(a, Integer.MAX_VALUE);
+        }
+    }
+}
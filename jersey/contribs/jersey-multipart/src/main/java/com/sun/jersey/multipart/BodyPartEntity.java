@@ -40,6 +40,7 @@
 
 package com.sun.jersey.multipart;
 
+import com.sun.jersey.core.util.SpillingBuffer;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -53,10 +54,25 @@ import org.jvnet.mimepull.MIMEPart;
  * However, it also transparently deals with storing the data in a temporary disk
  * file, if it is larger than a configurable size; otherwise, the data is stored
  * in memory for faster processing.
+ * <p>
+ * The entity of a body part read by a {@link StreamingMultiPart} is not
+ * stored, its input stream reads the data directly from the multipart
+ * entity and may be read only once.
+ * <p>
+ * The entity of a body part may also be stored in direct byte buffers or a
+ * memory-mapped temporary file, see {@link MultiPartConfig#getDirectBufferBudget()},
+ * in which case the {@link BodyPartBuffer} may be obtained from
+ * {@link #getBodyPartBuffer() } to transfer the data without copying.
  */
 public class BodyPartEntity implements Closeable {
     private final MIMEPart mimePart;
 
+    private final SpillingBuffer buffer;
+
+    private final InputStream stream;
+
+    private final BodyPartBuffer partBuffer;
+
     /**
      * Construct a new {@link BodyPartEntity} with a {@link MIMEPart}.
      *
@@ -65,6 +81,59 @@ public class BodyPartEntity implements Closeable {
      */
     public BodyPartEntity(MIMEPart mimePart) {
         this.mimePart = mimePart;
+        this.buffer = null;
+        this.stream = null;
+        this.partBuffer = null;
+    }
+
+    /**
+     * Construct a new {@link BodyPartEntity} with a buffer.
+     *
+     * @param buffer <code>SpillingBuffer</code> containing the bytes of
+     *        this body part entity.
+     */
+    public BodyPartEntity(SpillingBuffer buffer) {
+        this.mimePart = null;
+        this.buffer = buffer;
+        this.stream = null;
+        this.partBuffer = null;
+    }
+
+    /**
+     * Construct a new {@link BodyPartEntity} with an input stream that
+     * may be read only once.
+     *
+     * @param stream the input stream of this body part entity.
+     */
+    public BodyPartEntity(InputStream stream) {
+        this.mimePart = null;
+        this.buffer = null;
+        this.stream = stream;
+        this.partBuffer = null;
+    }
+
+    /**
+     * Construct a new {@link BodyPartEntity} with a buffer held outside
+     * of the Java heap.
+     *
+     * @param partBuffer <code>BodyPartBuffer</code> containing the bytes of
+     *        this body part entity.
+     */
+    public BodyPartEntity(BodyPartBuffer partBuffer) {
+        this.mimePart = null;
+        this.buffer = null;
+        this.stream = null;
+        this.partBuffer = partBuffer;
+    }
+
+    /**
+     * Get the buffer held outside of the Java heap containing the bytes of
+     * this body part entity.
+     *
+     * @return the buffer, or null if the bytes are not held in such a buffer.
+     */
+    public BodyPartBuffer getBodyPartBuffer() {
+        return partBuffer;
     }
 
 
@@ -74,14 +143,42 @@ public class BodyPartEntity implements Closeable {
      * @return the input stream of the body part entity.
      */
     public InputStream getInputStream() {
-        return mimePart.read();
+        if (mimePart != null) {
+            return mimePart.read();
+        } else if (buffer != null) {
+            try {
+                return buffer.getInputStream();
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        } else if (partBuffer != null) {
+            try {
+                return partBuffer.getInputStream();
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        } else {
+            return stream;
+        }
     }
 
     /**
      * Clean up temporary file(s), if any were utilized.
      */
     public void cleanup() {
-        mimePart.close();
+        if (mimePart != null) {
+            mimePart.close();
+        } else if (buffer != null) {
+            buffer.release();
+        } else if (partBuffer != null) {
+            partBuffer.release();
+        } else {
+            try {
+                stream.close();
+            } catch (IOException ex) {
+                // Pass through
+            }
+        }
     }
     
     // Closeable
@@ -93,4 +190,4 @@ public class BodyPartEntity implements Closeable {
     public void close() throws IOException {
         cleanup();
     }
-}
\ No newline at end of file
+}
@@ -85,6 +85,20 @@ public class MultiPartConfig {
     public static final String BUFFER_THRESHOLD_NAME = "bufferThreshold";
 
 
+    /**
+     * <p>Name of the resource property for the <code>maxPartSize</code>
+     * property.</p>
+     */
+    public static final String MAX_PART_SIZE_NAME = "maxPartSize";
+
+
+    /**
+     * <p>Name of the resource property for the <code>directBufferBudget</code>
+     * property.</p>
+     */
+    public static final String DIRECT_BUFFER_BUDGET_NAME = "directBufferBudget";
+
+
     // ------------------------------------------------------ Instance Variables
 
 
@@ -95,6 +109,21 @@ public class MultiPartConfig {
     private int bufferThreshold = 4096;
 
 
+    /**
+     * <p>The maximum size (in bytes) of the entity of a body part that is
+     * streamed, or -1 if unlimited.</p>
+     */
+    private long maxPartSize = -1;
+
+
+    /**
+     * <p>The maximum size (in bytes) of direct memory holding body part
+     * entities, or -1 if body part entities are not held outside of the
+     * Java heap.</p>
+     */
+    private long directBufferBudget = -1;
+
+
     // ---------------------------------------------------------- Public Methods
 
 
@@ -108,6 +137,35 @@ public class MultiPartConfig {
     }
 
 
+    /**
+     * <p>Return the maximum size (in bytes) of the entity of an incoming
+     * {@link BodyPart} that is read by a {@link StreamingMultiPart}, or that
+     * is held outside of the Java heap (see {@link #getDirectBufferBudget()}), above
+     * which the request is rejected with a 413 (Request Entity Too Large)
+     * status code.  If not customized, the default value is -1, declaring
+     * that the size is unlimited.</p>
+     */
+    public long getMaxPartSize() {
+        return maxPartSize;
+    }
+
+
+    /**
+     * <p>Return the maximum size (in bytes) of the direct memory shared by
+     * the entities of incoming {@link BodyPart}s, when received as part of a
+     * {@link MultiPart} entity, above which entities are held in memory-mapped
+     * temporary files.  The entities are then held in {@link BodyPartBuffer}s
+     * rather than buffered on the Java heap or read from temporary files
+     * with streams, and the buffer threshold does not apply.  A value of 0
+     * declares that all entities are held in memory-mapped temporary files.
+     * If not customized, the default value is -1, declaring that entities
+     * are buffered using the buffer threshold.</p>
+     */
+    public long getDirectBufferBudget() {
+        return directBufferBudget;
+    }
+
+
     // --------------------------------------------------------- Private Methods
 
 
@@ -142,6 +200,14 @@ public class MultiPartConfig {
                 System.out.println("Setting bufferThreshold to " + value);
                 this.bufferThreshold = Integer.valueOf(value);
             }
+            value = props.getProperty(MAX_PART_SIZE_NAME);
+            if (value != null) {
+                this.maxPartSize = Long.valueOf(value);
+            }
+            value = props.getProperty(DIRECT_BUFFER_BUDGET_NAME);
+            if (value != null) {
+                this.directBufferBudget = Long.valueOf(value);
+            }
         } catch (IOException e) {
             throw new IllegalArgumentException(e);
         } finally {
@@ -0,0 +1,518 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.multipart;
+
+import com.sun.jersey.core.header.MediaTypes;
+import com.sun.jersey.core.util.BufferPool;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import com.sun.jersey.core.util.ReaderWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.Providers;
+
+/**
+ * A multipart entity whose body parts are parsed lazily, one at a time,
+ * from the input stream of the entity.
+ * <p>
+ * In contrast to a {@link MultiPart}, whose body parts are all read, and
+ * buffered in memory or temporary files, before it is returned, the entity
+ * of a body part obtained from {@link #next() } is a {@link BodyPartEntity}
+ * whose input stream reads the data of the body part directly from the
+ * input stream of the multipart entity. The input stream of a body part
+ * entity may be read only once and only until the next body part is
+ * obtained; any bytes of the body part that have not been read are then
+ * skipped.
+ * <p>
+ * The parts of a <code>multipart/form-data</code> entity are instances of
+ * {@link FormDataBodyPart}.
+ * <p>
+ * If the entity of a body part is larger than the maximum part size then
+ * a {@link WebApplicationException} with a 413 (Request Entity Too Large)
+ * status code is thrown when reading or skipping the entity. If the
+ * multipart entity is malformed then a {@link WebApplicationException} with
+ * a 400 (Bad Request) status code is thrown.
+ * <p>
+ * A resource method may declare a parameter of this type as the entity
+ * parameter. The instance is closed after the request has been processed.
+ */
+public class StreamingMultiPart implements Iterator<BodyPart>, Closeable {
+
+    private static final int MAX_HEADERS_SIZE = 16 * 1024;
+
+    private final InputStream in;
+
+    private final MediaType mediaType;
+
+    private final boolean formData;
+
+    private final boolean fileNameFix;
+
+    private final long maxPartSize;
+
+    private final byte[] delimiter;
+
+    private final MultivaluedMap<String, String> headers = new MultivaluedMapImpl();
+
+    private Providers providers;
+
+    private byte[] buf;
+
+    private int pos;
+
+    private int limit;
+
+    private boolean eof;
+
+    // The preamble and then the entity of the last body part
+    private PartInputStream current;
+
+    private BodyPart next;
+
+    private boolean last;
+
+    /**
+     * Create a streaming multipart entity.
+     *
+     * @param in the input stream of the multipart entity.
+     * @param mediaType the media type of the multipart entity, which
+     *        must declare the "boundary" parameter.
+     * @param maxPartSize the maximum size, in bytes, of the entity of a
+     *        body part, or -1 if unlimited.
+     * @throws IllegalArgumentException if the media type does not declare
+     *         a boundary.
+     */
+    public StreamingMultiPart(InputStream in, MediaType mediaType, long maxPartSize) {
+        this(in, mediaType, maxPartSize, false);
+    }
+
+    /**
+     * Create a streaming multipart entity.
+     *
+     * @param in the input stream of the multipart entity.
+     * @param mediaType the media type of the multipart entity, which
+     *        must declare the "boundary" parameter.
+     * @param maxPartSize the maximum size, in bytes, of the entity of a
+     *        body part, or -1 if unlimited.
+     * @param fileNameFix if set to <code>true</code>, header parser will not
+     *        treat backslash as an escape character in the file name of a
+     *        <code>multipart/form-data</code> body part.
+     * @throws IllegalArgumentException if the media type does not declare
+     *         a boundary.
+     */
+    public StreamingMultiPart(InputStream in, MediaType mediaType, long maxPartSize,
+            boolean fileNameFix) {
+        String boundary = mediaType.getParameters().get("boundary");
+        if (boundary == null || boundary.length() == 0)
+            throw new IllegalArgumentException("The media type " + mediaType + " does not declare a boundary");
+        if (boundary.startsWith("\"") && boundary.endsWith("\"") && boundary.length() > 1)
+            boundary = boundary.substring(1, boundary.length() - 1);
+
+        this.in = in;
+        this.mediaType = mediaType;
+        this.formData = MediaTypes.typeEquals(mediaType, MediaType.MULTIPART_FORM_DATA_TYPE);
+        this.fileNameFix = fileNameFix;
+        this.maxPartSize = maxPartSize;
+        try {
+            this.delimiter = ("\r\n--" + boundary).getBytes("ISO-8859-1");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        this.buf = BufferPool.BYTES.acquire(Math.max(ReaderWriter.BUFFER_SIZE, 4 * delimiter.length));
+        // The first delimiter need not be preceded by a CRLF
+        buf[limit++] = '\r';
+        buf[limit++] = '\n';
+        this.current = new PartInputStream(-1);
+    }
+
+    /**
+     * Get the media type of the multipart entity.
+     *
+     * @return the media type.
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Get the mutable HTTP headers of the multipart entity.
+     *
+     * @return the HTTP headers.
+     */
+    public MultivaluedMap<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Get the providers that are set on the body parts, for use by
+     * {@link BodyPart#getEntityAs(java.lang.Class) }.
+     *
+     * @return the providers.
+     */
+    public Providers getProviders() {
+        return providers;
+    }
+
+    /**
+     * Set the providers that are set on the body parts.
+     *
+     * @param providers the providers.
+     */
+    public void setProviders(Providers providers) {
+        this.providers = providers;
+    }
+
+    /**
+     * Skip the unread bytes of the previous body part, if any, and parse the
+     * headers of the next body part.
+     *
+     * @return true if there is a next body part.
+     * @throws WebApplicationException if the multipart entity is malformed,
+     *         if the previous body part is too large, or if there is an
+     *         error reading the multipart entity.
+     */
+    public boolean hasNext() {
+        if (next != null)
+            return true;
+        if (last || buf == null)
+            return false;
+
+        try {
+            current.drain();
+            if (last)
+                return false;
+
+            next = readBodyPart();
+            return true;
+        } catch (IOException ex) {
+            throw new WebApplicationException(ex);
+        }
+    }
+
+    /**
+     * Get the next body part.
+     *
+     * @return the next body part, whose entity is a {@link BodyPartEntity}.
+     * @throws NoSuchElementException if there are no more body parts.
+     * @throws WebApplicationException if the multipart entity is malformed,
+     *         if the previous body part is too large, or if there is an
+     *         error reading the multipart entity.
+     */
+    public BodyPart next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        final BodyPart bodyPart = next;
+        next = null;
+        return bodyPart;
+    }
+
+    /**
+     * Unsupported.
+     *
+     * @throws UnsupportedOperationException
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Close this multipart entity, any further body parts are not read.
+     * The input stream of the multipart entity is not closed.
+     */
+    public void close() {
+        if (buf != null) {
+            BufferPool.BYTES.release(buf);
+            buf = null;
+        }
+    }
+
+    private BodyPart readBodyPart() throws IOException {
+        final BodyPart bodyPart = formData ? new FormDataBodyPart(fileNameFix) : new BodyPart();
+        bodyPart.setProviders(providers);
+
+        int size = 0;
+        String header = null;
+        for (String line; (line = readLine()).length() > 0; ) {
+            size += line.length();
+            if (size > MAX_HEADERS_SIZE)
+                throw badRequest("The headers of a body part are too large");
+
+            if (header != null && (line.charAt(0) == ' ' || line.charAt(0) == '\t')) {
+                // Folded header
+                header += ' ' + line.trim();
+                continue;
+            }
+            addHeader(bodyPart, header);
+            header = line;
+        }
+        addHeader(bodyPart, header);
+
+        try {
+            final String contentType = bodyPart.getHeaders().getFirst("Content-Type");
+            if (contentType != null)
+                bodyPart.setMediaType(MediaType.valueOf(contentType));
+
+            bodyPart.getContentDisposition();
+        } catch (IllegalArgumentException ex) {
+            throw new WebApplicationException(ex, Status.BAD_REQUEST);
+        }
+
+        current = new PartInputStream(maxPartSize);
+        bodyPart.setEntity(new BodyPartEntity(current));
+        return bodyPart;
+    }
+
+    private static void addHeader(BodyPart bodyPart, String header) {
+        if (header == null)
+            return;
+        final int colon = header.indexOf(':');
+        if (colon > 0)
+            bodyPart.getHeaders().add(header.substring(0, colon).trim(), header.substring(colon + 1).trim());
+    }
+
+    private String readLine() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        while (true) {
+            for (int i = pos; i < limit; i++) {
+                if (buf[i] == '\n') {
+                    sb.append(new String(buf, pos, i - pos, "ISO-8859-1"));
+                    pos = i + 1;
+                    final int end = sb.length() - 1;
+                    if (end >= 0 && sb.charAt(end) == '\r')
+                        sb.setLength(end);
+                    return sb.toString();
+                }
+            }
+            sb.append(new String(buf, pos, limit - pos, "ISO-8859-1"));
+            pos = limit;
+            if (sb.length() > MAX_HEADERS_SIZE)
+                throw badRequest("The headers of a body part are too large");
+            if (!fill())
+                throw badRequest("Unexpected end of the multipart entity in the headers of a body part");
+        }
+    }
+
+    private boolean ensure(int n) throws IOException {
+        while (limit - pos < n) {
+            if (!fill())
+                return false;
+        }
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        if (buf == null)
+            throw new IOException("The multipart entity is closed");
+        if (eof)
+            return false;
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        final int n = in.read(buf, limit, buf.length - limit);
+        if (n == -1) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    private int indexOfDelimiter() {
+        final int end = limit - delimiter.length;
+        final byte first = delimiter[0];
+        outer:
+        for (int i = pos; i <= end; i++) {
+            if (buf[i] != first)
+                continue;
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buf[i + j] != delimiter[j])
+                    continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the number of bytes of the current body part entity that
+     * may be read from the buffer without blocking.
+     */
+    private int buffered() {
+        final int i = indexOfDelimiter();
+        return (i != -1) ? i - pos : Math.max(0, limit - pos - (delimiter.length - 1));
+    }
+
+    /**
+     * Get the number of bytes of the current body part entity that may
+     * be read from the buffer, reading more bytes if necessary.
+     *
+     * @return the number of bytes, or 0 if the buffer is positioned at
+     *         a delimiter.
+     */
+    private int readable() throws IOException {
+        while (true) {
+            if (buf == null)
+                throw new IOException("The multipart entity is closed");
+            final int i = indexOfDelimiter();
+            if (i != -1)
+                return i - pos;
+            final int n = limit - pos - (delimiter.length - 1);
+            if (n > 0)
+                return n;
+            if (!fill())
+                throw badRequest("Unexpected end of the multipart entity, the closing boundary is missing");
+        }
+    }
+
+    /**
+     * Consume a delimiter and the following transport padding and line
+     * break, or the closing "--".
+     */
+    private void consumeDelimiter() throws IOException {
+        pos += delimiter.length;
+        if (!ensure(2))
+            throw badRequest("Unexpected end of the multipart entity after a boundary");
+        if (buf[pos] == '-' && buf[pos + 1] == '-') {
+            pos += 2;
+            last = true;
+            return;
+        }
+        while (buf[pos] == ' ' || buf[pos] == '\t') {
+            pos++;
+            if (!ensure(1))
+                throw badRequest("Unexpected end of the multipart entity after a boundary");
+        }
+        if (buf[pos] == '\r') {
+            pos++;
+            if (!ensure(1))
+                throw badRequest("Unexpected end of the multipart entity after a boundary");
+        }
+        if (buf[pos] != '\n')
+            throw badRequest("A boundary is not followed by a line break");
+        pos++;
+    }
+
+    private static WebApplicationException badRequest(String message) {
+        return new WebApplicationException(new IOException(message), Status.BAD_REQUEST);
+    }
+
+    private final class PartInputStream extends InputStream {
+        private final long max;
+
+        private long count;
+
+        private boolean done;
+
+        PartInputStream(long max) {
+            this.max = max;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return (read(b, 0, 1) == -1) ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done)
+                return -1;
+            if (len == 0)
+                return 0;
+
+            final int n = Math.min(advance(len), len);
+            if (n == 0)
+                return -1;
+            System.arraycopy(buf, pos - n, b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (done || n <= 0)
+                return 0;
+            return advance(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (done || buf == null) ? 0 : buffered();
+        }
+
+        void drain() throws IOException {
+            while (!done)
+                advance(Long.MAX_VALUE);
+        }
+
+        /**
+         * Advance the position over at most n readable bytes, or consume
+         * the delimiter if there are no readable bytes.
+         *
+         * @return the number of bytes advanced over.
+         */
+        private int advance(long n) throws IOException {
+            final int r = readable();
+            if (r == 0) {
+                done = true;
+                consumeDelimiter();
+                return 0;
+            }
+            final int a = (int) Math.min(r, n);
+            count += a;
+            if (max >= 0 && count > max)
+                throw new WebApplicationException(
+                        new IOException("The entity of a body part is larger than " + max + " bytes"),
+                        413);
+            pos += a;
+            return a;
+        }
+    }
+}
@@ -48,10 +48,13 @@ import com.sun.jersey.core.header.FormDataContentDisposition;
 import com.sun.jersey.core.reflection.ReflectionHelper;
 import com.sun.jersey.core.spi.component.ComponentScope;
 import com.sun.jersey.core.util.MultivaluedMapImpl;
+import com.sun.jersey.core.util.SpillingBuffer;
 import com.sun.jersey.multipart.BodyPartEntity;
 import com.sun.jersey.multipart.FormDataBodyPart;
 import com.sun.jersey.multipart.FormDataMultiPart;
 import com.sun.jersey.multipart.FormDataParam;
+import com.sun.jersey.multipart.MultiPartConfig;
+import com.sun.jersey.multipart.StreamingMultiPart;
 import com.sun.jersey.server.impl.inject.AbstractHttpContextInjectable;
 import com.sun.jersey.server.impl.inject.InjectableValuesProvider;
 import com.sun.jersey.server.impl.model.method.dispatch.AbstractResourceMethodDispatchProvider;
@@ -59,6 +62,7 @@ import com.sun.jersey.spi.container.JavaMethodInvoker;
 import com.sun.jersey.spi.container.JavaMethodInvokerFactory;
 import com.sun.jersey.server.impl.model.parameter.multivalued.MultivaluedParameterExtractor;
 import com.sun.jersey.server.impl.model.parameter.multivalued.MultivaluedParameterExtractorProvider;
+import com.sun.jersey.spi.CloseableService;
 import com.sun.jersey.spi.MessageBodyWorkers;
 import com.sun.jersey.spi.dispatch.RequestDispatcher;
 import com.sun.jersey.spi.inject.Injectable;
@@ -67,7 +71,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
@@ -76,6 +82,15 @@ import javax.ws.rs.ext.MessageBodyReader;
 /**
  * <p>Support <code>@FormDataParam</code> injection into method parameters from
  * a {@link FormDataMultiPart} entity.</p>
+ * <p>If exactly one <code>@FormDataParam</code> parameter is of type
+ * {@link InputStream}, and the method has no {@link FormDataMultiPart} entity
+ * parameter, then the entity is read as a {@link StreamingMultiPart}: body
+ * parts that are not referenced by a parameter are skipped, the referenced
+ * body parts are buffered, except for the body part of the
+ * <code>InputStream</code> parameter, which is read directly from the request
+ * entity if the body parts of all other single valued parameters precede it.
+ * This supports the common case of an upload of a large file following a
+ * number of small fields without buffering the file.</p>
  */
 public class FormDataMultiPartDispatchProvider extends AbstractResourceMethodDispatchProvider {
     private static final String FORM_MULTIPART_PROPERTY = "com.sun.jersey.api.representation.form.multipart";
@@ -86,6 +101,12 @@ public class FormDataMultiPartDispatchProvider extends AbstractResourceMethodDis
     @Context
     private MultivaluedParameterExtractorProvider mpep;
 
+    @Context
+    private MultiPartConfig config;
+
+    @Context
+    private CloseableService closeableService;
+
 
     @Override
     public RequestDispatcher create(AbstractResourceMethod abstractResourceMethod) {
@@ -126,6 +147,67 @@ public class FormDataMultiPartDispatchProvider extends AbstractResourceMethodDis
         }
     }
 
+    private final class StreamingFormDataInjectableValuesProvider extends InjectableValuesProvider {
+        private final String streamedName;
+
+        private final Set<String> names;
+
+        private final Set<String> singleValuedNames;
+
+        public StreamingFormDataInjectableValuesProvider(List<Injectable> is, String streamedName,
+                Set<String> names, Set<String> singleValuedNames) {
+            super(is);
+            this.streamedName = streamedName;
+            this.names = names;
+            this.singleValuedNames = singleValuedNames;
+        }
+
+        @Override
+        public Object[] getInjectableValues(HttpContext context) {
+            StreamingMultiPart parts = context.getRequest().getEntity(StreamingMultiPart.class);
+
+            FormDataMultiPart form = new FormDataMultiPart();
+            form.setProviders(parts.getProviders());
+            form.getHeaders().putAll(parts.getHeaders());
+            closeableService.add(form);
+
+            // The body part of the stream need not be buffered if all other
+            // parameters are single valued and their body parts precede it
+            boolean canStream = singleValuedNames.size() == names.size() - 1;
+            Set<String> pending = new HashSet<String>(singleValuedNames);
+            boolean streamed = false;
+            while (parts.hasNext()) {
+                FormDataBodyPart part = (FormDataBodyPart) parts.next();
+                String name = part.getName();
+                if (name == null || !names.contains(name))
+                    continue;
+
+                form.bodyPart(part);
+                if (!streamed && name.equals(streamedName)) {
+                    streamed = true;
+                    if (canStream && pending.isEmpty())
+                        break;
+                } else {
+                    pending.remove(name);
+                }
+                buffer(part);
+            }
+            context.getProperties().put(FORM_MULTIPART_PROPERTY, form);
+
+            return super.getInjectableValues(context);
+        }
+
+        private void buffer(FormDataBodyPart part) {
+            try {
+                part.setEntity(new BodyPartEntity(SpillingBuffer.readFrom(
+                        ((BodyPartEntity) part.getEntity()).getInputStream(),
+                        config.getBufferThreshold())));
+            } catch (IOException e) {
+                throw new ContainerException(e);
+            }
+        }
+    }
+
     @Override
     protected InjectableValuesProvider getInjectableValuesProvider(AbstractResourceMethod method) {
         if (method.getParameters().isEmpty()) {
@@ -141,9 +223,64 @@ public class FormDataMultiPartDispatchProvider extends AbstractResourceMethodDis
         if (!hasFormParam)
             return null;
 
+        Parameter streamed = getStreamedParameter(method);
+        if (streamed != null) {
+            Set<String> names = new HashSet<String>();
+            Set<String> singleValuedNames = new HashSet<String>();
+            for (Parameter p : method.getParameters()) {
+                if (p.getAnnotation() != null && p.getAnnotation().annotationType() == FormDataParam.class) {
+                    names.add(p.getSourceName());
+                    if (!p.getSourceName().equals(streamed.getSourceName())
+                            && !Collection.class.isAssignableFrom(p.getParameterClass()))
+                        singleValuedNames.add(p.getSourceName());
+                }
+            }
+            // A name may be of both a single valued and a multi-valued parameter
+            for (Parameter p : method.getParameters()) {
+                if (p.getAnnotation() != null && p.getAnnotation().annotationType() == FormDataParam.class
+                        && Collection.class.isAssignableFrom(p.getParameterClass()))
+                    singleValuedNames.remove(p.getSourceName());
+            }
+            return new StreamingFormDataInjectableValuesProvider(getInjectables(method),
+                    streamed.getSourceName(), names, singleValuedNames);
+        }
+
         return new FormDataInjectableValuesProvider(getInjectables(method));
     }
 
+    /**
+     * Get the only <code>@FormDataParam</code> parameter of type
+     * {@link InputStream}, whose body part may be streamed.
+     *
+     * @return the parameter, or null if the entity cannot be streamed.
+     */
+    private Parameter getStreamedParameter(AbstractResourceMethod method) {
+        Parameter streamed = null;
+        for (Parameter p : method.getParameters()) {
+            if (Parameter.Source.ENTITY == p.getSource()) {
+                if (FormDataMultiPart.class.isAssignableFrom(p.getParameterClass()))
+                    return null;
+            } else if (p.getAnnotation() != null && p.getAnnotation().annotationType() == FormDataParam.class
+                    && InputStream.class == p.getParameterClass()) {
+                if (streamed != null)
+                    return null;
+                streamed = p;
+            }
+        }
+        if (streamed == null)
+            return null;
+
+        // The body part may be otherwise referenced only for its content disposition
+        for (Parameter p : method.getParameters()) {
+            if (p != streamed && p.getAnnotation() != null
+                    && p.getAnnotation().annotationType() == FormDataParam.class
+                    && p.getSourceName().equals(streamed.getSourceName())
+                    && FormDataContentDisposition.class != p.getParameterClass())
+                return null;
+        }
+        return streamed;
+    }
+
     private List<Injectable> getInjectables(AbstractResourceMethod method) {
         List<Injectable> list = new ArrayList<Injectable>(method.getParameters().size());
         for (int i = 0; i < method.getParameters().size(); i++) {
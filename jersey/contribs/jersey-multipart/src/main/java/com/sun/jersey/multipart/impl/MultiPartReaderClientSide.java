@@ -67,11 +67,13 @@ import org.jvnet.mimepull.MIMEPart;
 
 import com.sun.jersey.core.header.MediaTypes;
 import com.sun.jersey.multipart.BodyPart;
+import com.sun.jersey.multipart.BodyPartBuffer;
 import com.sun.jersey.multipart.BodyPartEntity;
 import com.sun.jersey.multipart.FormDataBodyPart;
 import com.sun.jersey.multipart.FormDataMultiPart;
 import com.sun.jersey.multipart.MultiPart;
 import com.sun.jersey.multipart.MultiPartConfig;
+import com.sun.jersey.multipart.StreamingMultiPart;
 import com.sun.jersey.spi.inject.ClientSide;
 import com.sun.jersey.spi.inject.ConstrainedTo;
 
@@ -96,6 +98,12 @@ public class MultiPartReaderClientSide implements MessageBodyReader<MultiPart> {
 
     private final MIMEConfig mimeConfig;
 
+    /**
+     * <p>The pool of direct byte buffers holding body part entities, or
+     * <code>null</code> if body part entities are buffered by mimepull.</p>
+     */
+    private final BodyPartBuffer.DirectBufferPool directBuffers;
+
     /**
      * <p>Accept constructor injection of the configuration parameters for this
      * application.</p>
@@ -110,6 +118,9 @@ public class MultiPartReaderClientSide implements MessageBodyReader<MultiPart> {
 
         mimeConfig = new MIMEConfig();
         mimeConfig.setMemoryThreshold(config.getBufferThreshold());
+
+        directBuffers = (config.getDirectBufferBudget() < 0) ? null
+                : new BodyPartBuffer.DirectBufferPool(config.getDirectBufferBudget());
     }
 
 
@@ -152,7 +163,6 @@ public class MultiPartReaderClientSide implements MessageBodyReader<MultiPart> {
                                       MultivaluedMap<String, String> headers,
                                       InputStream stream) throws IOException, MIMEParsingException {
         mediaType = unquoteMediaTypeParameters(mediaType, "boundary");
-        MIMEMessage mm = new MIMEMessage(stream, mediaType.getParameters().get("boundary"), mimeConfig);
 
         boolean formData = false;
         MultiPart multiPart;
@@ -184,6 +194,12 @@ public class MultiPartReaderClientSide implements MessageBodyReader<MultiPart> {
             fileNameFix = userAgent != null && userAgent.contains(" MSIE ");
         }
 
+        if (directBuffers != null) {
+            readBodyPartBuffers(multiPart, new StreamingMultiPart(stream, mediaType, config.getMaxPartSize(), fileNameFix));
+            return multiPart;
+        }
+
+        MIMEMessage mm = new MIMEMessage(stream, mediaType.getParameters().get("boundary"), mimeConfig);
         for (MIMEPart mp : mm.getAttachments()) {
             BodyPart bodyPart = formData ? new FormDataBodyPart(fileNameFix) : new BodyPart();
 
@@ -214,6 +230,30 @@ public class MultiPartReaderClientSide implements MessageBodyReader<MultiPart> {
         return multiPart;
     }
 
+    /**
+     * <p>Read the body parts, holding the entity of each body part in a
+     * {@link BodyPartBuffer}.</p>
+     */
+    private void readBodyPartBuffers(MultiPart multiPart, StreamingMultiPart parts) throws IOException {
+        parts.setProviders(providers);
+        try {
+            while (parts.hasNext()) {
+                BodyPart bodyPart = parts.next();
+                InputStream in = ((BodyPartEntity) bodyPart.getEntity()).getInputStream();
+                bodyPart.setEntity(new BodyPartEntity(BodyPartBuffer.readFrom(in, directBuffers)));
+                multiPart.getBodyParts().add(bodyPart);
+            }
+        } catch (IOException ex) {
+            multiPart.cleanup();
+            throw ex;
+        } catch (RuntimeException ex) {
+            multiPart.cleanup();
+            throw ex;
+        } finally {
+            parts.close();
+        }
+    }
+
     protected static MediaType unquoteMediaTypeParameters(final MediaType mediaType, final String... parameters) {
         if (parameters == null || parameters.length == 0) {
             return mediaType;
@@ -195,6 +195,13 @@ public class MultiPartWriter implements MessageBodyWriter<MultiPart> {
                         new IllegalArgumentException("Missing body part entity of type '" + bodyMediaType + "'"));
             }
 
+            if (bodyEntity instanceof BodyPartEntity
+                    && ((BodyPartEntity) bodyEntity).getBodyPartBuffer() != null) {
+                // Write the buffered bytes without copying through an input stream
+                ((BodyPartEntity) bodyEntity).getBodyPartBuffer().writeTo(stream);
+                continue;
+            }
+
             Class bodyClass = bodyEntity.getClass();
             if (bodyEntity instanceof BodyPartEntity) {
                 bodyClass = InputStream.class;
@@ -0,0 +1,121 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.multipart.impl;
+
+import com.sun.jersey.multipart.MultiPartConfig;
+import com.sun.jersey.multipart.StreamingMultiPart;
+import com.sun.jersey.spi.CloseableService;
+import com.sun.jersey.spi.inject.ConstrainedTo;
+import com.sun.jersey.spi.inject.ServerSide;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
+
+/**
+ * <p>{@link Provider} {@link MessageBodyReader} implementation for
+ * {@link StreamingMultiPart} entities.</p>
+ */
+@ConstrainedTo(ServerSide.class)
+@Consumes("multipart/*")
+public class StreamingMultiPartReader implements MessageBodyReader<StreamingMultiPart> {
+
+    private final Providers providers;
+
+    private final MultiPartConfig config;
+
+    private final CloseableService closeableService;
+
+    public StreamingMultiPartReader(@Context Providers providers, @Context MultiPartConfig config,
+            @Context CloseableService closeableService) {
+        if (config == null) {
+            throw new IllegalArgumentException("The MultiPartConfig instance we expected is not present.  Have you registered the MultiPartConfigProvider class?");
+        }
+        this.providers = providers;
+        this.config = config;
+        this.closeableService = closeableService;
+    }
+
+    public boolean isReadable(Class<?> type, Type genericType,
+                              Annotation[] annotations, MediaType mediaType) {
+        return type == StreamingMultiPart.class;
+    }
+
+    public StreamingMultiPart readFrom(Class<StreamingMultiPart> type, Type genericType,
+                                       Annotation[] annotations, MediaType mediaType,
+                                       MultivaluedMap<String, String> headers,
+                                       InputStream stream) throws IOException, WebApplicationException {
+        // see if the User-Agent header corresponds to some version of MS Internet Explorer
+        // if so, need to set fileNameFix to true to handle issue http://java.net/jira/browse/JERSEY-759
+        final String userAgent = headers.getFirst(HttpHeaders.USER_AGENT);
+        final boolean fileNameFix = userAgent != null && userAgent.contains(" MSIE ");
+
+        final StreamingMultiPart multiPart;
+        try {
+            multiPart = new StreamingMultiPart(stream, mediaType, config.getMaxPartSize(), fileNameFix);
+        } catch (IllegalArgumentException ex) {
+            throw new WebApplicationException(ex, Status.BAD_REQUEST);
+        }
+        multiPart.setProviders(providers);
+
+        final MultivaluedMap<String, String> mpHeaders = multiPart.getHeaders();
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            for (String value : entry.getValue()) {
+                mpHeaders.add(entry.getKey(), value);
+            }
+        }
+
+        closeableService.add(multiPart);
+        return multiPart;
+    }
+}
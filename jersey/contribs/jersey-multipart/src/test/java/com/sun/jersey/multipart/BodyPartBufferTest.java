@@ -0,0 +1,233 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.sun.jersey.multipart;
+
+import com.sun.jersey.core.impl.provider.header.MediaTypeProvider;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import com.sun.jersey.core.util.ReaderWriter;
+import com.sun.jersey.multipart.impl.MultiPartReaderClientSide;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import javax.ws.rs.core.MediaType;
+import junit.framework.TestCase;
+
+/**
+ * <p>Test case for {@link BodyPartBuffer}.</p>
+ */
+public class BodyPartBufferTest extends TestCase {
+
+    private static byte[] bytes(int n) {
+        byte[] b = new byte[n];
+        new Random(n).nextBytes(b);
+        return b;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReaderWriter.writeTo(in, out);
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] read(ByteBuffer[] bs) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (ByteBuffer b : bs) {
+            assertTrue(b.isReadOnly());
+            byte[] a = new byte[b.remaining()];
+            b.get(a);
+            out.write(a, 0, a.length);
+        }
+        return out.toByteArray();
+    }
+
+    public void testDirect() throws IOException {
+        BodyPartBuffer.DirectBufferPool pool = new BodyPartBuffer.DirectBufferPool(1024 * 1024);
+        byte[] data = bytes(100 * 1024 + 1);
+
+        BodyPartBuffer b = BodyPartBuffer.readFrom(new ByteArrayInputStream(data), pool);
+        assertNull(b.getFile());
+        assertEquals(data.length, b.size());
+        assertEquals(2 * BodyPartBuffer.CHUNK_SIZE, pool.getAllocated());
+        assertTrue(Arrays.equals(data, read(b.getInputStream())));
+        assertTrue(Arrays.equals(data, read(b.getInputStream())));
+        assertTrue(Arrays.equals(data, read(b.getByteBuffers())));
+        b.release();
+
+        // The direct byte buffers are reused
+        b = BodyPartBuffer.readFrom(new ByteArrayInputStream(data), pool);
+        assertEquals(2 * BodyPartBuffer.CHUNK_SIZE, pool.getAllocated());
+        assertTrue(Arrays.equals(data, read(b.getInputStream())));
+        b.release();
+
+        try {
+            b.getInputStream();
+            fail();
+        } catch (IOException ex) {
+        }
+    }
+
+    public void testStreamAfterRelease() throws IOException {
+        BodyPartBuffer.DirectBufferPool pool = new BodyPartBuffer.DirectBufferPool(BodyPartBuffer.CHUNK_SIZE);
+        byte[] data = bytes(10);
+        byte[] other = bytes(20);
+
+        BodyPartBuffer a = BodyPartBuffer.readFrom(new ByteArrayInputStream(data), pool);
+        InputStream in = a.getInputStream();
+        a.release();
+
+        // The direct byte buffer is referenced by the input stream
+        BodyPartBuffer b = BodyPartBuffer.readFrom(new ByteArrayInputStream(other), pool);
+        assertNotNull(b.getFile());
+        assertTrue(Arrays.equals(other, read(b.getInputStream())));
+        b.release();
+
+        assertTrue(Arrays.equals(data, read(in)));
+        try {
+            in.read();
+            fail();
+        } catch (IOException ex) {
+        }
+
+        // The direct byte buffer is reused after the input stream is closed
+        BodyPartBuffer c = BodyPartBuffer.readFrom(new ByteArrayInputStream(other), pool);
+        assertNull(c.getFile());
+        assertTrue(Arrays.equals(other, read(c.getInputStream())));
+        c.release();
+        assertEquals(BodyPartBuffer.CHUNK_SIZE, pool.getAllocated());
+    }
+
+    public void testMapped() throws IOException {
+        BodyPartBuffer.DirectBufferPool pool = new BodyPartBuffer.DirectBufferPool(BodyPartBuffer.CHUNK_SIZE);
+        byte[] data = bytes(3 * BodyPartBuffer.CHUNK_SIZE + 7);
+
+        BodyPartBuffer b = BodyPartBuffer.readFrom(new ByteArrayInputStream(data), pool);
+        File f = b.getFile();
+        assertNotNull(f);
+        assertEquals(data.length, f.length());
+        assertEquals(data.length, b.size());
+        assertEquals(BodyPartBuffer.CHUNK_SIZE, pool.getAllocated());
+        assertEquals(1, b.getByteBuffers().length);
+        assertTrue(Arrays.equals(data, read(b.getByteBuffers())));
+        assertTrue(Arrays.equals(data, read(b.getInputStream())));
+
+        b.release();
+        assertFalse(f.exists());
+    }
+
+    public void testZeroBudget() throws IOException {
+        BodyPartBuffer.DirectBufferPool pool = new BodyPartBuffer.DirectBufferPool(0);
+        byte[] data = bytes(10);
+
+        BodyPartBuffer b = BodyPartBuffer.readFrom(new ByteArrayInputStream(data), pool);
+        assertNotNull(b.getFile());
+        assertEquals(0, pool.getAllocated());
+        assertTrue(Arrays.equals(data, read(b.getInputStream())));
+        b.release();
+    }
+
+    public void testTransferToFile() throws IOException {
+        for (long budget : new long[] {0, 1024 * 1024}) {
+            BodyPartBuffer.DirectBufferPool pool = new BodyPartBuffer.DirectBufferPool(budget);
+            byte[] data = bytes(2 * BodyPartBuffer.CHUNK_SIZE + 3);
+            BodyPartBuffer b = BodyPartBuffer.readFrom(new ByteArrayInputStream(data), pool);
+
+            File f = File.createTempFile("test", null);
+            try {
+                FileOutputStream out = new FileOutputStream(f);
+                try {
+                    b.writeTo(out);
+                } finally {
+                    out.close();
+                }
+                assertTrue(Arrays.equals(data, read(new FileInputStream(f))));
+
+                ByteArrayOutputStream bout = new ByteArrayOutputStream();
+                b.writeTo(bout);
+                assertTrue(Arrays.equals(data, bout.toByteArray()));
+            } finally {
+                f.delete();
+                b.release();
+            }
+        }
+    }
+
+    public void testMultiPartReader() throws IOException {
+        MultiPartConfig config = new MultiPartConfig() {
+            @Override
+            public long getDirectBufferBudget() {
+                return BodyPartBuffer.CHUNK_SIZE;
+            }
+        };
+        MultiPartReaderClientSide reader = new MultiPartReaderClientSide(null, config);
+
+        byte[] large = bytes(2 * BodyPartBuffer.CHUNK_SIZE);
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        message.write("--b\r\nContent-Type: text/plain\r\n\r\nsmall\r\n--b\r\nContent-Type: application/octet-stream\r\n\r\n".getBytes("US-ASCII"));
+        message.write(large);
+        message.write("\r\n--b--\r\n".getBytes("US-ASCII"));
+
+        MediaType mediaType = new MediaTypeProvider().fromString("multipart/mixed; boundary=b");
+        MultiPart mp = reader.readFrom(MultiPart.class, MultiPart.class, null, mediaType,
+                new MultivaluedMapImpl(), new ByteArrayInputStream(message.toByteArray()));
+        try {
+            assertEquals(2, mp.getBodyParts().size());
+
+            BodyPartEntity small = (BodyPartEntity) mp.getBodyParts().get(0).getEntity();
+            assertNull(small.getBodyPartBuffer().getFile());
+            assertEquals("small", new String(read(small.getInputStream()), "US-ASCII"));
+
+            BodyPart part = mp.getBodyParts().get(1);
+            assertEquals(MediaType.APPLICATION_OCTET_STREAM_TYPE, part.getMediaType());
+            BodyPartEntity entity = (BodyPartEntity) part.getEntity();
+            assertNotNull(entity.getBodyPartBuffer().getFile());
+            assertTrue(Arrays.equals(large, read(entity.getInputStream())));
+        } finally {
+            mp.cleanup();
+        }
+    }
+}
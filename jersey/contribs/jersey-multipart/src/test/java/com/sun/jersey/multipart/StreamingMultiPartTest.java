@@ -0,0 +1,223 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.multipart;
+
+import com.sun.jersey.core.util.ReaderWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import junit.framework.TestCase;
+
+/**
+ * <p>Test case for {@link StreamingMultiPart}.</p>
+ */
+public class StreamingMultiPartTest extends TestCase {
+
+    private static final MediaType MIXED = MediaType.valueOf("multipart/mixed; boundary=\"simple boundary\"");
+
+    private static final String MESSAGE =
+            "This is the preamble.\r\n" +
+            "--simple boundary\r\n" +
+            "\r\n" +
+            "This is implicitly typed plain ASCII text.\r\n" +
+            "It does NOT end with a linebreak.\r\n" +
+            "--simple boundary  \r\n" +
+            "Content-type: text/plain;\r\n" +
+            "  charset=us-ascii\r\n" +
+            "X-Header: a\r\n" +
+            "\r\n" +
+            "This is explicitly typed plain ASCII text.\r\n" +
+            "--simple boundary\r\n" +
+            "\r\n" +
+            "\r\n" +
+            "--simple boundary--\r\n" +
+            "This is the epilogue.\r\n";
+
+    public StreamingMultiPartTest(String testName) {
+        super(testName);
+    }
+
+    public void testParts() throws IOException {
+        StreamingMultiPart mp = new StreamingMultiPart(stream(MESSAGE.getBytes("US-ASCII"), 7), MIXED, -1);
+
+        assertTrue(mp.hasNext());
+        BodyPart p = mp.next();
+        assertTrue(p.getHeaders().isEmpty());
+        assertEquals("This is implicitly typed plain ASCII text.\r\nIt does NOT end with a linebreak.", read(p));
+
+        p = mp.next();
+        assertEquals(MediaType.valueOf("text/plain; charset=us-ascii"), p.getMediaType());
+        assertEquals("a", p.getHeaders().getFirst("X-Header"));
+        assertEquals("This is explicitly typed plain ASCII text.", read(p));
+        assertEquals(-1, entity(p).read());
+
+        p = mp.next();
+        assertEquals("", read(p));
+
+        assertFalse(mp.hasNext());
+        try {
+            mp.next();
+            fail();
+        } catch (NoSuchElementException ex) {
+        }
+        mp.close();
+    }
+
+    public void testSkipUnreadParts() throws IOException {
+        StreamingMultiPart mp = new StreamingMultiPart(stream(MESSAGE.getBytes("US-ASCII"), 1), MIXED, -1);
+        BodyPart p = mp.next();
+        assertEquals('T', entity(p).read());
+        p = mp.next();
+        assertEquals("a", p.getHeaders().getFirst("X-Header"));
+        mp.next();
+        assertFalse(mp.hasNext());
+    }
+
+    public void testLargePart() throws IOException {
+        byte[] data = new byte[100000];
+        new Random(1).nextBytes(data);
+        // Include a partial delimiter in the data
+        System.arraycopy("\r\n--boundar".getBytes("US-ASCII"), 0, data, 50000, 11);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("--boundary\r\nContent-Type: application/octet-stream\r\n\r\n".getBytes("US-ASCII"));
+        out.write(data);
+        out.write("\r\n--boundary--".getBytes("US-ASCII"));
+
+        for (int chunk : new int[] {1, 100, 1 << 20}) {
+            StreamingMultiPart mp = new StreamingMultiPart(stream(out.toByteArray(), chunk),
+                    MediaType.valueOf("multipart/mixed; boundary=boundary"), data.length);
+            ByteArrayOutputStream entity = new ByteArrayOutputStream();
+            ReaderWriter.writeTo(entity(mp.next()), entity);
+            assertTrue(Arrays.equals(data, entity.toByteArray()));
+            assertFalse(mp.hasNext());
+        }
+    }
+
+    public void testFormData() throws IOException {
+        String message = "--AaB03x\r\n" +
+                "Content-Disposition: form-data; name=\"submit-name\"\r\n" +
+                "\r\n" +
+                "Larry\r\n" +
+                "--AaB03x\r\n" +
+                "Content-Disposition: form-data; name=\"files\"; filename=\"file1.txt\"\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "\r\n" +
+                "... contents of file1.txt ...\r\n" +
+                "--AaB03x--\r\n";
+        StreamingMultiPart mp = new StreamingMultiPart(stream(message.getBytes("US-ASCII"), 5),
+                MediaType.valueOf("multipart/form-data; boundary=AaB03x"), -1);
+
+        FormDataBodyPart p = (FormDataBodyPart) mp.next();
+        assertEquals("submit-name", p.getName());
+        assertEquals("Larry", read(p));
+
+        p = (FormDataBodyPart) mp.next();
+        assertEquals("files", p.getName());
+        assertEquals("file1.txt", p.getFormDataContentDisposition().getFileName());
+        assertEquals(MediaType.TEXT_PLAIN_TYPE, p.getMediaType());
+        assertEquals("... contents of file1.txt ...", read(p));
+        assertFalse(mp.hasNext());
+    }
+
+    public void testMaxPartSize() throws IOException {
+        String message = "--b\r\n\r\n0123456789\r\n--b\r\n\r\n01234567890\r\n--b--";
+        StreamingMultiPart mp = new StreamingMultiPart(stream(message.getBytes("US-ASCII"), 3),
+                MediaType.valueOf("multipart/mixed; boundary=b"), 10);
+        assertEquals("0123456789", read(mp.next()));
+
+        BodyPart p = mp.next();
+        try {
+            read(p);
+            fail();
+        } catch (WebApplicationException ex) {
+            assertEquals(413, ex.getResponse().getStatus());
+        }
+    }
+
+    public void testMissingClosingBoundary() throws IOException {
+        String message = "--b\r\n\r\n0123456789\r\n";
+        StreamingMultiPart mp = new StreamingMultiPart(stream(message.getBytes("US-ASCII"), 3),
+                MediaType.valueOf("multipart/mixed; boundary=b"), -1);
+        BodyPart p = mp.next();
+        try {
+            read(p);
+            fail();
+        } catch (WebApplicationException ex) {
+            assertEquals(400, ex.getResponse().getStatus());
+        }
+    }
+
+    public void testMissingBoundaryParameter() {
+        try {
+            new StreamingMultiPart(stream(new byte[0], 1), MediaType.valueOf("multipart/mixed"), -1);
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    private static InputStream entity(BodyPart p) {
+        return ((BodyPartEntity) p.getEntity()).getInputStream();
+    }
+
+    private static String read(BodyPart p) throws IOException {
+        return ReaderWriter.readFromAsString(entity(p), MediaType.TEXT_PLAIN_TYPE);
+    }
+
+    /**
+     * Get an input stream that returns at most chunk bytes per read.
+     */
+    private static InputStream stream(byte[] b, final int chunk) {
+        return new FilterInputStream(new ByteArrayInputStream(b)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        };
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.multipart.impl;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.core.header.FormDataContentDisposition;
+import com.sun.jersey.core.util.SpillingBuffer;
+import com.sun.jersey.multipart.BodyPart;
+import com.sun.jersey.multipart.BodyPartEntity;
+import com.sun.jersey.multipart.FormDataBodyPart;
+import com.sun.jersey.multipart.FormDataMultiPart;
+import com.sun.jersey.multipart.FormDataParam;
+import com.sun.jersey.multipart.MultiPart;
+import com.sun.jersey.multipart.StreamingMultiPart;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+public class StreamingMultiPartReaderTest extends AbstractGrizzlyServerTester {
+
+    private static final byte[] FILE = new byte[1024 * 1024];
+
+    static {
+        Arrays.fill(FILE, (byte) 'x');
+    }
+
+    public StreamingMultiPartReaderTest(String testName) {
+        super(testName);
+    }
+
+    private static long count(InputStream in) throws IOException {
+        long n = 0;
+        byte[] b = new byte[4096];
+        for (int r; (r = in.read(b)) != -1; )
+            n += r;
+        return n;
+    }
+
+    @Path("/")
+    public static class StreamingResource {
+
+        @Path("upload")
+        @POST
+        @Consumes("multipart/form-data")
+        @Produces("text/plain")
+        public String upload(@FormDataParam("name") String name,
+                @FormDataParam("file") InputStream file,
+                @FormDataParam("file") FormDataContentDisposition disposition) throws IOException {
+            return name + ":" + disposition.getFileName() + ":" + count(file) + ":"
+                    + ((file instanceof SpillingBuffer.Input) ? "buffered" : "streamed");
+        }
+
+        @Path("parts")
+        @POST
+        @Consumes("multipart/*")
+        @Produces("text/plain")
+        public String parts(StreamingMultiPart parts) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            while (parts.hasNext()) {
+                BodyPart p = parts.next();
+                sb.append(p.getMediaType()).append('=');
+                // Read only the entity of text parts
+                if (p.getMediaType().equals(MediaType.TEXT_PLAIN_TYPE))
+                    sb.append(count(((BodyPartEntity) p.getEntity()).getInputStream()));
+                sb.append(';');
+            }
+            return sb.toString();
+        }
+    }
+
+    private WebResource.Builder upload() {
+        startServer(StreamingResource.class);
+        return Client.create().resource(getUri()).path("upload").
+                accept("text/plain").type(MediaType.MULTIPART_FORM_DATA_TYPE);
+    }
+
+    private static FormDataBodyPart file() {
+        return new FormDataBodyPart(FormDataContentDisposition.name("file").fileName("file.bin").build(),
+                FILE, MediaType.APPLICATION_OCTET_STREAM_TYPE);
+    }
+
+    public void testFileAfterFields() {
+        FormDataMultiPart form = new FormDataMultiPart();
+        form.field("name", "jersey").field("ignored", "value");
+        form.bodyPart(file());
+
+        assertEquals("jersey:file.bin:" + FILE.length + ":streamed", upload().post(String.class, form));
+    }
+
+    public void testFileBeforeFields() {
+        FormDataMultiPart form = new FormDataMultiPart();
+        form.bodyPart(file());
+        form.field("name", "jersey");
+
+        assertEquals("jersey:file.bin:" + FILE.length + ":buffered", upload().post(String.class, form));
+    }
+
+    public void testSkippedParts() {
+        FormDataMultiPart form = new FormDataMultiPart();
+        form.bodyPart(new FormDataBodyPart("other", FILE, MediaType.APPLICATION_OCTET_STREAM_TYPE));
+        form.field("name", "jersey");
+        form.bodyPart(file());
+        form.bodyPart(new FormDataBodyPart("after", FILE, MediaType.APPLICATION_OCTET_STREAM_TYPE));
+
+        assertEquals("jersey:file.bin:" + FILE.length + ":streamed", upload().post(String.class, form));
+    }
+
+    public void testStreamingMultiPart() {
+        startServer(StreamingResource.class);
+
+        MultiPart mp = new MultiPart().
+                bodyPart("one", MediaType.TEXT_PLAIN_TYPE).
+                bodyPart(FILE, MediaType.APPLICATION_OCTET_STREAM_TYPE).
+                bodyPart("three", MediaType.TEXT_PLAIN_TYPE);
+        String s = Client.create().resource(getUri()).path("parts").
+                type(new MediaType("multipart", "mixed")).post(String.class, mp);
+        assertEquals("text/plain=3;application/octet-stream=;text/plain=5;", s);
+    }
+}
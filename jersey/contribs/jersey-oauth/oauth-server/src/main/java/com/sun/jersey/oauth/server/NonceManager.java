@@ -40,17 +40,28 @@
 
 package com.sun.jersey.oauth.server;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Tracks the nonces for a given consumer key and/or token. Automagically
  * ensures timestamp is monotonically increasing and tracks all nonces
  * for a given timestamp.
+ * <p>
+ * Nonces are held in a ring of buckets, one per timestamp (in seconds),
+ * spanning twice the maximum age. Verification does not lock: the nonces of
+ * a bucket are held in a concurrent map and a bucket is replaced atomically.
+ * The bucket of an expired timestamp is recycled when its slot in the ring
+ * is required for a new timestamp, and all expired buckets are cleared by
+ * garbage collection, performed on average every <code>gcPeriod</code>
+ * verifications without blocking concurrent verifications.
+ * <p>
+ * A timestamp that is older, or further in the future, than the maximum age
+ * is invalid. The number of nonces tracked for each timestamp may be bounded,
+ * in which case further nonces for that timestamp are invalid, thus the
+ * memory utilized is bounded without accepting replayed nonces.
  *
  * @author Paul C. Bryan
  * @author Martin Matula (martin.matula at oracle.com)
@@ -67,29 +78,67 @@ public final class NonceManager {
      */
     private final int gcPeriod;
 
+    /**
+     * The maximum number of nonces tracked for a timestamp.
+     */
+    private final int maxNonces;
+
     /**
      * Counts number of verification requests performed to schedule garbage collection.
      */
-    private int gcCounter = 0;
+    private final AtomicInteger gcCounter = new AtomicInteger();
 
     /**
-     * Maps timestamps to key-nonce pairs.
+     * Ring of buckets of key-nonce pairs, indexed by timestamp in seconds.
      */
-    private final SortedMap<Long, Map<String, Set<String>>> tsToKeyNoncePairs = new TreeMap<Long, Map<String, Set<String>>>();
+    private final AtomicReferenceArray<Bucket> buckets;
 
     /**
-     * TODO: Description.
+     * The key-nonce pairs of a timestamp.
+     */
+    private static final class Bucket {
+        final long stamp;
+
+        final ConcurrentMap<String, Boolean> keyNoncePairs = new ConcurrentHashMap<String, Boolean>();
+
+        final AtomicInteger size = new AtomicInteger();
+
+        Bucket(long stamp) {
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * Create a nonce manager that tracks an unbounded number of nonces
+     * for each timestamp.
      *
      * @param maxAge   the maximum valid age of a nonce timestamp, in milliseconds.
      * @param gcPeriod verifications to perform on average before performing garbage collection.
      */
     public NonceManager(long maxAge, int gcPeriod) {
-        if (maxAge <= 0 || gcPeriod <= 0) {
+        this(maxAge, gcPeriod, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Create a nonce manager.
+     *
+     * @param maxAge    the maximum valid age of a nonce timestamp, in milliseconds.
+     * @param gcPeriod  verifications to perform on average before performing garbage collection.
+     * @param maxNonces the maximum number of nonces tracked for a timestamp.
+     */
+    public NonceManager(long maxAge, int gcPeriod, int maxNonces) {
+        if (maxAge <= 0 || gcPeriod <= 0 || maxNonces <= 0) {
             throw new IllegalArgumentException();
         }
 
         this.maxAge = maxAge;
         this.gcPeriod = gcPeriod;
+        this.maxNonces = maxNonces;
+
+        // Timestamps within maxAge either side of now, with a slot to spare
+        // so that the bucket of a valid timestamp is never recycled
+        long seconds = (maxAge + 999) / 1000;
+        this.buckets = new AtomicReferenceArray<Bucket>((int) Math.min(2 * seconds + 3, Integer.MAX_VALUE));
     }
 
     /**
@@ -101,33 +150,32 @@ public final class NonceManager {
      * @param nonce     the oauth_nonce value for a given consumer request.
      * @return true if the timestamp/nonce are valid.
      */
-    public synchronized boolean verify(String key, String timestamp, String nonce) {
+    public boolean verify(String key, String timestamp, String nonce) {
         long now = System.currentTimeMillis();
 
         // convert timestamp to milliseconds since epoch to deal with uniformly
         long stamp = longValue(timestamp) * 1000;
 
         // invalid timestamp supplied; automatically invalid
-        if (stamp + maxAge < now) {
+        if (stamp + maxAge < now || stamp - maxAge > now) {
             return false;
         }
 
-        Map<String, Set<String>> keyToNonces = tsToKeyNoncePairs.get(stamp);
-        if (keyToNonces == null) {
-            keyToNonces = new HashMap<String, Set<String>>();
-            tsToKeyNoncePairs.put(stamp, keyToNonces);
+        Bucket bucket = bucket(stamp, now);
+        if (bucket == null) {
+            return false;
         }
 
-        Set<String> nonces = keyToNonces.get(key);
-        if (nonces == null) {
-            nonces = new HashSet<String>();
-            keyToNonces.put(key, nonces);
+        boolean result = false;
+        if (bucket.size.incrementAndGet() <= maxNonces) {
+            result = bucket.keyNoncePairs.putIfAbsent(keyNoncePair(key, nonce), Boolean.TRUE) == null;
+        }
+        if (!result) {
+            bucket.size.decrementAndGet();
         }
-
-        boolean result = nonces.add(nonce);
 
         // perform garbage collection if counter is up to established number of passes
-        if (++gcCounter >= gcPeriod) {
+        if (gcCounter.incrementAndGet() >= gcPeriod) {
             gc(now);
         }
 
@@ -135,6 +183,32 @@ public final class NonceManager {
         return result;
     }
 
+    /**
+     * Get the bucket of a valid timestamp, recycling the slot of an
+     * expired timestamp.
+     *
+     * @param stamp the timestamp in milliseconds since epoch.
+     * @param now milliseconds since epoch representing "now".
+     * @return the bucket, or null if the slot is occupied by a valid timestamp,
+     *         which cannot occur unless the system clock is set back.
+     */
+    private Bucket bucket(long stamp, long now) {
+        int i = (int) ((stamp / 1000) % buckets.length());
+        for (;;) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.stamp == stamp) {
+                return bucket;
+            }
+            if (bucket != null && bucket.stamp + maxAge >= now) {
+                return null;
+            }
+            Bucket b = new Bucket(stamp);
+            if (buckets.compareAndSet(i, bucket, b)) {
+                return b;
+            }
+        }
+    }
+
     /**
      * Deletes all nonces older than maxAge.
      * This method is package private (instead of private) for testability purposes.
@@ -142,8 +216,13 @@ public final class NonceManager {
      * @param now milliseconds since epoch representing "now"
      */
     void gc(long now) {
-        gcCounter = 0;
-        tsToKeyNoncePairs.headMap(now - maxAge).clear();
+        gcCounter.set(0);
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.stamp < now - maxAge) {
+                buckets.compareAndSet(i, bucket, null);
+            }
+        }
     }
 
     /**
@@ -152,12 +231,20 @@ public final class NonceManager {
      */
     long size() {
         long size = 0;
-        for (Map<String, Set<String>> keyToNonces : tsToKeyNoncePairs.values()) {
-            size += keyToNonces.values().size();
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null) {
+                size += bucket.keyNoncePairs.size();
+            }
         }
         return size;
     }
 
+    private static String keyNoncePair(String key, String nonce) {
+        // prefix the key with its length so distinct pairs never collide
+        return (key == null) ? "-" + nonce : key.length() + ":" + key + nonce;
+    }
+
     private static long longValue(String value) {
         try {
             return Long.valueOf(value);
@@ -166,4 +253,3 @@ public final class NonceManager {
         }
     }
 }
-
@@ -103,6 +103,9 @@ public class OAuthServerFilter implements ContainerRequestFilter {
     public static final String PROPERTY_MAX_AGE = "com.sun.jersey.config.property.oauth.maxAge";
     /** Property that can be set to frequency of collecting nonces exceeding max. age (default = 100 = every 100 requests). */
     public static final String PROPERTY_GC_PERIOD = "com.sun.jersey.config.property.oauth.gcPeriod";
+    /** Can be set to max. number of nonces that should be tracked for each timestamp (default = unbounded); requests
+     * with further nonces for that timestamp are rejected. */
+    public static final String PROPERTY_MAX_NONCES = "com.sun.jersey.config.property.oauth.maxNonces";
     /** If set to true makes the correct OAuth authentication optional - i.e. instead of returning the appropriate status code
      * ({@link Response.Status#BAD_REQUEST} or {@link Response.Status#UNAUTHORIZED}) the filter
      * will ignore this request (as if it was not authenticated) and let the web application deal with it. */
@@ -144,10 +147,11 @@ public class OAuthServerFilter implements ContainerRequestFilter {
         String realm = defaultInitParam(rc, PROPERTY_REALM, "default");
         maxAge = intValue(defaultInitParam(rc, PROPERTY_MAX_AGE, "300000")); // 5 minutes
         gcPeriod = intValue(defaultInitParam(rc, PROPERTY_GC_PERIOD, "100")); // every 100 on average
+        int maxNonces = intValue(defaultInitParam(rc, PROPERTY_MAX_NONCES, Integer.toString(Integer.MAX_VALUE))); // unbounded
         ignorePathPattern = pattern(defaultInitParam(rc, PROPERTY_IGNORE_PATH_PATTERN, null)); // no pattern
         optional = rc.getFeature(FEATURE_NO_FAIL);
 
-        nonces = new NonceManager(maxAge, gcPeriod);
+        nonces = new NonceManager(maxAge, gcPeriod, maxNonces);
 
         // www-authenticate header for the life of the object
         wwwAuthenticateHeader = "OAuth realm=\"" + realm + "\"";
@@ -40,6 +40,13 @@
 
 package com.sun.jersey.oauth.server;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -141,4 +148,59 @@ public class NonceManagerTest {
         nonces.gc(System.currentTimeMillis());
         assertEquals(0, nonces.size());
     }
+
+    @Test
+    public void testFutureNonce() {
+        NonceManager nonces = new NonceManager(10000, 50);
+
+        assertTrue(nonces.verify("nonce-key", stamp(-5000), "nonce"));
+        assertFalse(nonces.verify("nonce-key", stamp(-20000), "nonce"));
+        assertEquals(1, nonces.size());
+    }
+
+    @Test
+    public void testMaxNonces() {
+        NonceManager nonces = new NonceManager(1000, 50, 2);
+
+        String stamp = stamp();
+
+        assertTrue(nonces.verify("nonce-key", stamp, "1"));
+        assertFalse(nonces.verify("nonce-key", stamp, "1"));
+        assertTrue(nonces.verify("other-key", stamp, "1"));
+        assertFalse(nonces.verify("nonce-key", stamp, "2"));
+        assertEquals(2, nonces.size());
+    }
+
+    @Test
+    public void testConcurrentDuplicateNonces() throws Exception {
+        final NonceManager nonces = new NonceManager(60000, 100);
+        final String stamp = stamp();
+        final AtomicInteger accepted = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() {
+                        for (int i = 0; i < 1000; i++) {
+                            if (nonces.verify("nonce-key", stamp, Integer.toString(i))) {
+                                accepted.incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // each nonce is accepted exactly once
+        assertEquals(1000, accepted.get());
+        assertEquals(1000, nonces.size());
+    }
 }
@@ -40,10 +40,15 @@
 
 package com.sun.jersey.simple.impl.container;
 
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 import java.util.Map;
 
@@ -55,6 +60,7 @@ import org.simpleframework.http.core.Container;
 
 import com.sun.jersey.api.container.ContainerException;
 import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.core.util.FileRegionWriter;
 import com.sun.jersey.spi.container.ContainerListener;
 import com.sun.jersey.spi.container.ContainerRequest;
 import com.sun.jersey.spi.container.ContainerResponse;
@@ -78,6 +84,59 @@ public final class SimpleContainer implements Container, ContainerListener {
         this.application = application;
     }
 
+    /**
+     * An output stream that transfers regions of files directly to the
+     * byte channel of the response.
+     */
+    private final static class FileRegionOutputStream extends OutputStream implements FileRegionWriter {
+        final Response response;
+        final OutputStream out;
+
+        FileRegionOutputStream(Response response) throws IOException {
+            this.response = response;
+            this.out = response.getOutputStream();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        public void writeFileRegion(File file, long position, long count) throws IOException {
+            out.flush();
+
+            final WritableByteChannel channel = response.getByteChannel();
+            final FileInputStream in = new FileInputStream(file);
+            try {
+                final FileChannel fc = in.getChannel();
+                while (count > 0) {
+                    final long n = fc.transferTo(position, count, channel);
+                    if (n <= 0 && position >= fc.size())
+                        throw new EOFException("End of file " + file + " reached at position " + position);
+                    position += n;
+                    count -= n;
+                }
+            } finally {
+                in.close();
+            }
+        }
+    }
+
     private final static class Writer implements ContainerResponseWriter {
         final Response response;
         final Request request;
@@ -103,7 +162,7 @@ public final class SimpleContainer implements Container, ContainerListener {
                     response.setValue(e.getKey(), ContainerResponse.getHeaderValue(value));
                 }
             }
-            return response.getOutputStream();
+            return new FileRegionOutputStream(response);
         }
 
         public void finish() throws IOException {
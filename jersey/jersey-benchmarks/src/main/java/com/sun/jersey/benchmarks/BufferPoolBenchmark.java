@@ -0,0 +1,140 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.sun.jersey.benchmarks;
+
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.core.util.ReaderWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+/**
+ * Copying of small entities with {@link ReaderWriter}, whose buffers are
+ * pooled, compared with copying using a newly allocated buffer, and a
+ * round trip of a text entity. Run with "-prof gc" to compare allocation
+ * rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BufferPoolBenchmark {
+
+    @Path("/echo")
+    public static class EchoResource {
+        @POST
+        @Consumes("text/plain")
+        @Produces("text/plain")
+        public String post(String s) {
+            return s;
+        }
+    }
+
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private final byte[] bytes = new byte[1024];
+
+    private final String text = new String(new char[1024]).replace('\0', 'x');
+
+    private InMemoryApplication application;
+
+    @Setup
+    public void setup() throws IOException {
+        application = new InMemoryApplication(new DefaultResourceConfig(EchoResource.class));
+        application.check(200, "POST", "echo", text.getBytes("UTF-8"), "Content-Type", "text/plain");
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.destroy();
+    }
+
+    @Benchmark
+    public void copyPooled() throws IOException {
+        ReaderWriter.writeTo(new ByteArrayInputStream(bytes), DISCARD);
+    }
+
+    @Benchmark
+    public void copyUnpooled() throws IOException {
+        final InputStream in = new ByteArrayInputStream(bytes);
+        final byte[] data = new byte[ReaderWriter.BUFFER_SIZE];
+        int read;
+        while ((read = in.read(data)) != -1)
+            DISCARD.write(data, 0, read);
+    }
+
+    @Benchmark
+    public String readAsString() throws IOException {
+        return ReaderWriter.readFromAsString(new StringReader(text));
+    }
+
+    @Benchmark
+    public InMemoryApplication.Response roundTrip() throws IOException {
+        return application.handle("POST", "echo", text.getBytes("UTF-8"), "Content-Type", "text/plain");
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.benchmarks;
+
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Param;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * JAXB bean round trips, reading and writing XML or JSON.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityBenchmark {
+
+    @XmlRootElement
+    public static class Item {
+        public String name;
+
+        public int quantity;
+
+        public double price;
+    }
+
+    @XmlRootElement
+    public static class Order {
+        public String id;
+
+        public String customer;
+
+        public List<Item> items = new ArrayList<Item>();
+    }
+
+    @Path("/orders")
+    public static class OrderResource {
+        @GET
+        @Produces({"application/xml", "application/json"})
+        public Order get() {
+            return createOrder();
+        }
+
+        @POST
+        @Consumes({"application/xml", "application/json"})
+        @Produces({"application/xml", "application/json"})
+        public Order post(Order order) {
+            return order;
+        }
+    }
+
+    static Order createOrder() {
+        final Order order = new Order();
+        order.id = "4711";
+        order.customer = "Jersey";
+        for (int i = 0; i < 10; i++) {
+            final Item item = new Item();
+            item.name = "item" + i;
+            item.quantity = i;
+            item.price = i * 1.5;
+            order.items.add(item);
+        }
+        return order;
+    }
+
+    @Param({"application/xml", "application/json"})
+    public String mediaType;
+
+    private InMemoryApplication application;
+
+    private byte[] entity;
+
+    @Setup
+    public void setup() throws IOException {
+        application = new InMemoryApplication(new DefaultResourceConfig(OrderResource.class));
+        entity = application.check(200, "GET", "orders", null, "Accept", mediaType).getEntity();
+        application.check(200, "POST", "orders", entity, "Content-Type", mediaType, "Accept", mediaType);
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.destroy();
+    }
+
+    @Benchmark
+    public InMemoryApplication.Response get() throws IOException {
+        return application.handle("GET", "orders", "Accept", mediaType);
+    }
+
+    @Benchmark
+    public InMemoryApplication.Response roundTrip() throws IOException {
+        return application.handle("POST", "orders", entity, "Content-Type", mediaType, "Accept", mediaType);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.benchmarks;
+
+import com.sun.jersey.api.container.ContainerFactory;
+import com.sun.jersey.api.container.grizzly2.GrizzlyServerFactory;
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.api.core.ResourceConfig;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+
+/**
+ * A load harness comparing the Grizzly 2 container processing requests on
+ * the Grizzly worker threads with processing requests using an executor
+ * (see {@link GrizzlyServerFactory#PROPERTY_EXECUTOR}).
+ * <p>
+ * A number of slow clients repeatedly send a request entity in several
+ * chunks separated by a delay, while a few fast clients repeatedly send
+ * requests without an entity, to a server with a small worker thread pool.
+ * The number of requests completed by each kind of client is reported.
+ * This is not a JMH benchmark, it is run with:
+ * <blockquote><pre>
+ *     java -cp target/benchmarks.jar com.sun.jersey.benchmarks.GrizzlyLoadHarness [slow clients] [chunks] [delay] [seconds]
+ * </pre></blockquote>
+ */
+public final class GrizzlyLoadHarness {
+
+    private static final int PORT = 9998;
+
+    private static final int WORKER_THREADS = 4;
+
+    private static final int FAST_CLIENTS = 4;
+
+    @Path("/echo")
+    public static class EchoResource {
+        @GET
+        @Produces("text/plain")
+        public String get() {
+            return "0";
+        }
+
+        @POST
+        @Produces("text/plain")
+        public String post(String entity) {
+            return Integer.toString(entity.length());
+        }
+    }
+
+    private static HttpServer createServer(ExecutorService executor) throws IOException {
+        final ResourceConfig rc = new DefaultResourceConfig(EchoResource.class);
+        if (executor != null) {
+            rc.getProperties().put(GrizzlyServerFactory.PROPERTY_EXECUTOR, executor);
+        }
+        final HttpHandler handler = ContainerFactory.createContainer(HttpHandler.class, rc);
+
+        final HttpServer server = new HttpServer();
+        final NetworkListener listener = new NetworkListener("grizzly", "localhost", PORT);
+        listener.getTransport().setWorkerThreadPoolConfig(ThreadPoolConfig.defaultConfig().
+                setCorePoolSize(WORKER_THREADS).setMaxPoolSize(WORKER_THREADS));
+        server.addListener(listener);
+        server.getServerConfiguration().addHttpHandler(handler, "/");
+        server.start();
+        return server;
+    }
+
+    private static int request(int chunks, long delay) throws Exception {
+        final byte[] chunk = new byte[100];
+        final Socket s = new Socket("localhost", PORT);
+        try {
+            final OutputStream out = s.getOutputStream();
+            if (chunks == 0) {
+                out.write("GET /echo HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes("US-ASCII"));
+            } else {
+                out.write(("POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Type: text/plain\r\n"
+                        + "Connection: close\r\nContent-Length: " + chunks * chunk.length + "\r\n\r\n").getBytes("US-ASCII"));
+            }
+            out.flush();
+            for (int i = 0; i < chunks; i++) {
+                Thread.sleep(delay);
+                Arrays.fill(chunk, (byte) ('a' + i % 26));
+                out.write(chunk);
+                out.flush();
+            }
+
+            final InputStream in = s.getInputStream();
+            final StringBuilder sb = new StringBuilder();
+            int b;
+            while ((b = in.read()) != -1) {
+                sb.append((char) b);
+            }
+            return Integer.parseInt(sb.substring(9, 12));
+        } finally {
+            s.close();
+        }
+    }
+
+    private static Runnable client(final AtomicBoolean running, final AtomicInteger completed,
+            final AtomicInteger failed, final int chunks, final long delay) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                while (running.get()) {
+                    try {
+                        if (request(chunks, delay) == 200) {
+                            completed.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    } catch (Exception ex) {
+                        if (running.get()) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    private static void run(String mode, ExecutorService executor, int slowClients,
+            int chunks, long delay, int seconds) throws Exception {
+        final HttpServer server = createServer(executor);
+        final ExecutorService clientPool = Executors.newFixedThreadPool(slowClients + FAST_CLIENTS);
+        try {
+            // Warm up
+            request(1, 0);
+
+            final AtomicBoolean running = new AtomicBoolean(true);
+            final AtomicInteger slow = new AtomicInteger();
+            final AtomicInteger fast = new AtomicInteger();
+            final AtomicInteger failed = new AtomicInteger();
+            for (int i = 0; i < slowClients; i++) {
+                clientPool.execute(client(running, slow, failed, chunks, delay));
+            }
+            for (int i = 0; i < FAST_CLIENTS; i++) {
+                clientPool.execute(client(running, fast, failed, 0, 0));
+            }
+            Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+            running.set(false);
+
+            System.out.printf("%-8s %d slow clients, %d fast clients, %d worker threads: "
+                    + "%.1f slow requests/s, %.1f fast requests/s, %d failed%n",
+                    mode, slowClients, FAST_CLIENTS, WORKER_THREADS,
+                    (double) slow.get() / seconds, (double) fast.get() / seconds, failed.get());
+        } finally {
+            clientPool.shutdown();
+            clientPool.awaitTermination(seconds, TimeUnit.SECONDS);
+            server.stop();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int slowClients = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        final int chunks = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+        final long delay = (args.length > 2) ? Long.parseLong(args[2]) : 20;
+        final int seconds = (args.length > 3) ? Integer.parseInt(args[3]) : 10;
+
+        run("blocking", null, slowClients, chunks, delay, seconds);
+        run("executor", Executors.newFixedThreadPool(WORKER_THREADS), slowClients, chunks, delay, seconds);
+    }
+}
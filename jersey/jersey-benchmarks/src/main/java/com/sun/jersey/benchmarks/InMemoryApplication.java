@@ -0,0 +1,203 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.benchmarks;
+
+import com.sun.jersey.api.core.ResourceConfig;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+import com.sun.jersey.spi.container.WebApplication;
+import com.sun.jersey.spi.container.WebApplicationFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * A web application whose requests are handled in memory, without a
+ * container or any network I/O, so that benchmarks measure the server
+ * request pipeline only.
+ * <p>
+ * Features may be enabled or disabled for all benchmarks by declaring
+ * system properties whose names start with "com.sun.jersey.config.feature.",
+ * for example:
+ * <blockquote><pre>
+ *     java -jar target/benchmarks.jar -jvmArgs -Dcom.sun.jersey.config.feature.AutomataMatching=true
+ * </pre></blockquote>
+ */
+public final class InMemoryApplication {
+
+    private static final String FEATURE_PREFIX = "com.sun.jersey.config.feature.";
+
+    private static final URI BASE_URI = URI.create("http://localhost/");
+
+    private static final byte[] NO_ENTITY = new byte[0];
+
+    private final WebApplication application;
+
+    /**
+     * A response to an in-memory request.
+     */
+    public static final class Response {
+        private final int status;
+
+        private final byte[] entity;
+
+        Response(int status, byte[] entity) {
+            this.status = status;
+            this.entity = entity;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public byte[] getEntity() {
+            return entity;
+        }
+    }
+
+    private static final class ResponseWriter implements ContainerResponseWriter {
+        final ByteArrayOutputStream entity = new ByteArrayOutputStream();
+
+        public OutputStream writeStatusAndHeaders(long contentLength,
+                ContainerResponse response) throws IOException {
+            return entity;
+        }
+
+        public void finish() throws IOException {
+        }
+    }
+
+    /**
+     * Create and initiate the web application.
+     *
+     * @param resourceConfig the resource configuration.
+     */
+    public InMemoryApplication(ResourceConfig resourceConfig) {
+        for (Map.Entry<Object, Object> e : System.getProperties().entrySet()) {
+            final String name = e.getKey().toString();
+            if (name.startsWith(FEATURE_PREFIX)) {
+                resourceConfig.getFeatures().put(name, Boolean.valueOf(e.getValue().toString()));
+            }
+        }
+
+        application = WebApplicationFactory.createWebApplication();
+        application.initiate(resourceConfig);
+    }
+
+    /**
+     * Handle a request without an entity.
+     *
+     * @param method the HTTP method.
+     * @param path the request path, relative to the base URI.
+     * @param headers the request header names and values.
+     * @return the response.
+     * @throws IOException if an error occurs handling the request.
+     */
+    public Response handle(String method, String path, String... headers) throws IOException {
+        return handle(method, path, null, headers);
+    }
+
+    /**
+     * Handle a request.
+     *
+     * @param method the HTTP method.
+     * @param path the request path, relative to the base URI.
+     * @param entity the request entity, may be null.
+     * @param headers the request header names and values.
+     * @return the response.
+     * @throws IOException if an error occurs handling the request.
+     */
+    public Response handle(String method, String path, byte[] entity, String... headers) throws IOException {
+        final InBoundHeaders requestHeaders = new InBoundHeaders();
+        for (int i = 0; i < headers.length; i += 2) {
+            requestHeaders.add(headers[i], headers[i + 1]);
+        }
+
+        final ContainerRequest request = new ContainerRequest(application, method,
+                BASE_URI, BASE_URI.resolve(path), requestHeaders,
+                new ByteArrayInputStream((entity != null) ? entity : NO_ENTITY));
+        final ResponseWriter writer = new ResponseWriter();
+        final ContainerResponse response = new ContainerResponse(application, request, writer);
+
+        application.handleRequest(request, response);
+        return new Response(response.getStatus(), writer.entity.toByteArray());
+    }
+
+    /**
+     * Handle a request and check that the response status is the expected
+     * status.
+     * <p>
+     * Benchmarks use this method when setting up so that a benchmark
+     * measuring an unexpected error response fails rather than reports
+     * misleading results.
+     *
+     * @param status the expected response status.
+     * @param method the HTTP method.
+     * @param path the request path, relative to the base URI.
+     * @param entity the request entity, may be null.
+     * @param headers the request header names and values.
+     * @return the response.
+     * @throws IOException if an error occurs handling the request.
+     * @throws IllegalStateException if the response status is not the
+     *         expected status.
+     */
+    public Response check(int status, String method, String path, byte[] entity, String... headers)
+            throws IOException {
+        final Response r = handle(method, path, entity, headers);
+        if (r.getStatus() != status) {
+            throw new IllegalStateException(method + " " + path + " returned the status "
+                    + r.getStatus() + " rather than " + status + ": " + new String(r.getEntity(), "UTF-8"));
+        }
+        return r;
+    }
+
+    /**
+     * Destroy the web application.
+     */
+    public void destroy() {
+        application.destroy();
+    }
+}
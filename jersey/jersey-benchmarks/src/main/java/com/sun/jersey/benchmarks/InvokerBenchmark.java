@@ -0,0 +1,110 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.benchmarks;
+
+import com.sun.jersey.server.impl.model.method.dispatch.GeneratedJavaMethodInvokerFactory;
+import com.sun.jersey.spi.container.JavaMethodInvoker;
+import com.sun.jersey.spi.container.JavaMethodInvokerFactory;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the reflective {@link JavaMethodInvoker} with the invoker
+ * generated by {@link GeneratedJavaMethodInvokerFactory}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvokerBenchmark {
+
+    public static class Resource {
+        public String get(String id, int count) {
+            return id;
+        }
+    }
+
+    private Resource resource;
+
+    private Method method;
+
+    private JavaMethodInvoker reflective;
+
+    private JavaMethodInvoker generated;
+
+    private Object[] parameters;
+
+    @Setup
+    public void setup() throws Exception {
+        resource = new Resource();
+        method = Resource.class.getMethod("get", String.class, int.class);
+        reflective = JavaMethodInvokerFactory.getDefault();
+        generated = new GeneratedJavaMethodInvokerFactory().getInvoker(method);
+        parameters = new Object[] {"id", 1};
+    }
+
+    @Benchmark
+    public Object direct() {
+        return resource.get((String) parameters[0], (Integer) parameters[1]);
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        return reflective.invoke(method, resource, parameters);
+    }
+
+    @Benchmark
+    public Object generated() throws Exception {
+        return generated.invoke(method, resource, parameters);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.benchmarks;
+
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Param;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+
+/**
+ * GET requests to an application with many root resources, measuring
+ * the cost of matching the request path against the root resource
+ * URI templates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ManyRootResourcesBenchmark {
+
+    public static class Resource {
+        @GET
+        @Produces("text/plain")
+        public String get() {
+            return "resource";
+        }
+
+        @GET
+        @Path("{id}")
+        @Produces("text/plain")
+        public String get(@PathParam("id") String id) {
+            return id;
+        }
+    }
+
+    @Param({"500"})
+    public int resources;
+
+    private InMemoryApplication application;
+
+    private String first;
+
+    private String middle;
+
+    private String last;
+
+    @Setup
+    public void setup() throws IOException {
+        final DefaultResourceConfig rc = new DefaultResourceConfig();
+        for (int i = 0; i < resources; i++) {
+            rc.getExplicitRootResources().put("application" + i + "/resource", Resource.class);
+        }
+        application = new InMemoryApplication(rc);
+
+        first = "application0/resource/id";
+        middle = "application" + (resources / 2) + "/resource/id";
+        last = "application" + (resources - 1) + "/resource/id";
+        application.check(200, "GET", first, null);
+        application.check(200, "GET", middle, null);
+        application.check(200, "GET", last, null);
+        application.check(404, "GET", "unknown/resource/id", null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.destroy();
+    }
+
+    @Benchmark
+    public InMemoryApplication.Response getFirst() throws IOException {
+        return application.handle("GET", first);
+    }
+
+    @Benchmark
+    public InMemoryApplication.Response getMiddle() throws IOException {
+        return application.handle("GET", middle);
+    }
+
+    @Benchmark
+    public InMemoryApplication.Response getLast() throws IOException {
+        return application.handle("GET", last);
+    }
+
+    @Benchmark
+    public InMemoryApplication.Response getNotFound() throws IOException {
+        return application.handle("GET", "unknown/resource/id");
+    }
+}
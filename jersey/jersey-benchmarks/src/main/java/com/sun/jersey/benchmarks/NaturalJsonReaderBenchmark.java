@@ -0,0 +1,144 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.benchmarks;
+
+import com.sun.jersey.api.json.JSONConfiguration;
+import com.sun.jersey.api.json.JSONJAXBContext;
+import com.sun.jersey.json.impl.Stax2JsonFactory;
+import com.sun.jersey.json.impl.reader.NaturalJsonBinder;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Unmarshalling of a bean with a large array from JSON in the natural
+ * notation, using the XML stream reader over the JSON tokens or binding
+ * the JSON tokens directly.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NaturalJsonReaderBenchmark {
+
+    public static class Point {
+        @XmlAttribute
+        public String id;
+
+        public double x;
+
+        public double y;
+
+        public List<String> tags = new ArrayList<String>();
+    }
+
+    @XmlRootElement
+    public static class Track {
+        public String name;
+
+        public List<Point> points = new ArrayList<Point>();
+    }
+
+    @Param({"10", "10000"})
+    public int size;
+
+    private final JSONConfiguration config = JSONConfiguration.natural().build();
+
+    private JSONJAXBContext context;
+
+    private Unmarshaller unmarshaller;
+
+    private String json;
+
+    @Setup
+    public void setup() throws Exception {
+        context = new JSONJAXBContext(config, Track.class);
+        unmarshaller = context.createUnmarshaller();
+
+        final Track track = new Track();
+        track.name = "track";
+        for (int i = 0; i < size; i++) {
+            final Point p = new Point();
+            p.id = "p" + i;
+            p.x = i * 0.5;
+            p.y = i * 1.5;
+            p.tags.add("a");
+            p.tags.add("b" + i);
+            track.points.add(p);
+        }
+        final StringWriter writer = new StringWriter();
+        context.createJSONMarshaller().marshallToJSON(track, writer);
+        json = writer.toString();
+
+        if (!NaturalJsonBinder.isSupported(context, unmarshaller, Track.class)) {
+            throw new IllegalStateException();
+        }
+    }
+
+    @Benchmark
+    public Track xmlStreamReader() throws Exception {
+        return unmarshaller.unmarshal(Stax2JsonFactory.createReader(
+                new StringReader(json), config, "track", Track.class, context), Track.class).getValue();
+    }
+
+    @Benchmark
+    public Track direct() throws Exception {
+        return NaturalJsonBinder.unmarshal(new StringReader(json), config, context, Track.class);
+    }
+}
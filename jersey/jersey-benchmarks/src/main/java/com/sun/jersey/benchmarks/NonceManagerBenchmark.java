@@ -0,0 +1,151 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.benchmarks;
+
+import com.sun.jersey.oauth.server.NonceManager;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Verification of nonces by {@link NonceManager}, shared by all threads,
+ * compared with the previous implementation synchronized over a sorted map.
+ * Run with "-t 1", "-t 2", "-t 4" etc. to compare scaling across cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NonceManagerBenchmark {
+
+    /**
+     * The previous implementation of {@link NonceManager#verify}.
+     */
+    static final class SynchronizedNonceManager {
+        private final long maxAge;
+
+        private final int gcPeriod;
+
+        private int gcCounter = 0;
+
+        private final SortedMap<Long, Map<String, Set<String>>> tsToKeyNoncePairs = new TreeMap<Long, Map<String, Set<String>>>();
+
+        SynchronizedNonceManager(long maxAge, int gcPeriod) {
+            this.maxAge = maxAge;
+            this.gcPeriod = gcPeriod;
+        }
+
+        synchronized boolean verify(String key, String timestamp, String nonce) {
+            long now = System.currentTimeMillis();
+            long stamp = Long.valueOf(timestamp) * 1000;
+            if (stamp + maxAge < now) {
+                return false;
+            }
+
+            Map<String, Set<String>> keyToNonces = tsToKeyNoncePairs.get(stamp);
+            if (keyToNonces == null) {
+                keyToNonces = new HashMap<String, Set<String>>();
+                tsToKeyNoncePairs.put(stamp, keyToNonces);
+            }
+
+            Set<String> nonces = keyToNonces.get(key);
+            if (nonces == null) {
+                nonces = new HashSet<String>();
+                keyToNonces.put(key, nonces);
+            }
+
+            boolean result = nonces.add(nonce);
+            if (++gcCounter >= gcPeriod) {
+                gcCounter = 0;
+                tsToKeyNoncePairs.headMap(now - maxAge).clear();
+            }
+            return result;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        private static final AtomicInteger IDS = new AtomicInteger();
+
+        private final String key = "consumer-" + IDS.incrementAndGet();
+
+        private long counter;
+
+        String timestamp() {
+            return Long.toString(System.currentTimeMillis() / 1000);
+        }
+
+        String nonce() {
+            return Long.toString(counter++);
+        }
+    }
+
+    // A maximum age of 5 seconds bounds the number of nonces tracked
+    private final NonceManager nonces = new NonceManager(5000, 100);
+
+    private final SynchronizedNonceManager synchronizedNonces = new SynchronizedNonceManager(5000, 100);
+
+    @Benchmark
+    public boolean verify(Client client) {
+        return nonces.verify(client.key, client.timestamp(), client.nonce());
+    }
+
+    @Benchmark
+    public boolean verifySynchronized(Client client) {
+        return synchronizedNonces.verify(client.key, client.timestamp(), client.nonce());
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.benchmarks;
+
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+/**
+ * GET requests matched through several levels of sub-resource locators,
+ * each declaring path parameters.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubResourceLocatorBenchmark {
+
+    @Path("/customers/{customer}")
+    public static class CustomerResource {
+        @PathParam("customer") String customer;
+
+        @Path("orders/{order: [0-9]+}")
+        public OrderResource getOrder(@PathParam("order") int order) {
+            return new OrderResource(customer, order);
+        }
+
+        @GET
+        @Produces("text/plain")
+        public String get() {
+            return customer;
+        }
+    }
+
+    public static class OrderResource {
+        private final String customer;
+
+        private final int order;
+
+        OrderResource(String customer, int order) {
+            this.customer = customer;
+            this.order = order;
+        }
+
+        @Path("items/{item}")
+        public ItemResource getItem(@PathParam("item") String item) {
+            return new ItemResource(customer, order, item);
+        }
+    }
+
+    public static class ItemResource {
+        private final String customer;
+
+        private final int order;
+
+        private final String item;
+
+        ItemResource(String customer, int order, String item) {
+            this.customer = customer;
+            this.order = order;
+            this.item = item;
+        }
+
+        @GET
+        @Produces("text/plain")
+        public String get(@QueryParam("detail") boolean detail) {
+            return customer + "/" + order + "/" + item + (detail ? "/detail" : "");
+        }
+
+        @GET
+        @Path("{property}/{version}")
+        @Produces("text/plain")
+        public String getProperty(@PathParam("property") String property,
+                @PathParam("version") int version) {
+            return item + "/" + property + "/" + version;
+        }
+    }
+
+    private InMemoryApplication application;
+
+    @Setup
+    public void setup() throws IOException {
+        application = new InMemoryApplication(new DefaultResourceConfig(CustomerResource.class));
+        application.check(200, "GET", "customers/jersey/orders/4711/items/42?detail=true", null);
+        application.check(200, "GET", "customers/jersey/orders/4711/items/42/price/3", null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.destroy();
+    }
+
+    @Benchmark
+    public InMemoryApplication.Response getItem() throws IOException {
+        return application.handle("GET", "customers/jersey/orders/4711/items/42?detail=true");
+    }
+
+    @Benchmark
+    public InMemoryApplication.Response getItemProperty() throws IOException {
+        return application.handle("GET", "customers/jersey/orders/4711/items/42/price/3");
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.benchmarks;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.UriBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Common {@link UriBuilder} chains, as utilized when building links, with
+ * and without template variables.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UriBuilderBenchmark {
+
+    private final URI base = URI.create("http://localhost:8080/app/");
+
+    private final Map<String, Object> values = new HashMap<String, Object>();
+
+    {
+        values.put("id", 123);
+        values.put("orderId", "a b");
+        values.put("q", "x&y");
+    }
+
+    @Benchmark
+    public URI pathTemplate() {
+        return UriBuilder.fromPath("/users/{id}").build(123);
+    }
+
+    @Benchmark
+    public URI linkChain() {
+        return UriBuilder.fromUri(base).path("users/{id}").path("orders/{orderId}").
+                queryParam("q", "{q}").build(123, "a b", "x&y");
+    }
+
+    @Benchmark
+    public URI linkChainFromMap() {
+        return UriBuilder.fromUri(base).path("users/{id}").path("orders/{orderId}").
+                queryParam("q", "{q}").buildFromMap(values);
+    }
+
+    @Benchmark
+    public URI regexTemplate() {
+        return UriBuilder.fromUri(base).path("users/{id: [0-9]+}/orders/{orderId}").build(123, "a b");
+    }
+
+    @Benchmark
+    public URI noTemplate() {
+        return UriBuilder.fromUri(base).path("users").path("123").queryParam("q", "x").build();
+    }
+}
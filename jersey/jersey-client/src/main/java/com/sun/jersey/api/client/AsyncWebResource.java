@@ -87,6 +87,8 @@ public class AsyncWebResource extends Filterable implements
         AsyncUniformInterface {
     private static final Logger LOGGER = Logger.getLogger(AsyncWebResource.class.getName());
 
+    private final Client client;
+
     private final ExecutorService executorService;
 
     private final URI u;
@@ -95,6 +97,7 @@ public class AsyncWebResource extends Filterable implements
 
     protected AsyncWebResource(Client c,  CopyOnWriteHashMap<String, Object> properties, URI u) {
         super((ClientHandler)c);
+        this.client = c;
         this.executorService = c.getExecutorService();
         this.u = u;
         this.properties = properties.clone();
@@ -102,6 +105,7 @@ public class AsyncWebResource extends Filterable implements
 
     protected AsyncWebResource(AsyncWebResource that, UriBuilder ub) {
         super(that);
+        this.client = that.client;
         this.executorService = that.executorService;
         this.u = ub.build();
     }
@@ -792,6 +796,15 @@ public class AsyncWebResource extends Filterable implements
 
     public Future<ClientResponse> handle(final ClientRequest request, final FutureListener<ClientResponse> l) {
         setProperties(request);
+
+        // Requests without filters are invoked directly on an asynchronous
+        // root client handler rather than blocking a thread of the executor
+        if (getHeadHandler() == client) {
+            final Future<ClientResponse> f = client.handle(request, l);
+            if (f != null)
+                return f;
+        }
+
         Callable<ClientResponse> c = new Callable<ClientResponse>() {
             public ClientResponse call() throws Exception {
                 return getHeadHandler().handle(request);
@@ -39,6 +39,8 @@
  */
 package com.sun.jersey.api.client;
 
+import com.sun.jersey.api.client.async.AsyncClientHandler;
+import com.sun.jersey.api.client.async.FutureListener;
 import com.sun.jersey.api.client.config.ClientConfig;
 import com.sun.jersey.api.client.config.DefaultClientConfig;
 import com.sun.jersey.api.client.filter.ClientFilter;
@@ -119,6 +121,8 @@ public class Client extends Filterable implements ClientHandler {
 
     private static final Logger LOGGER = Logger.getLogger(Client.class.getName());
 
+    private final ClientHandler root;
+
     private ProviderFactory componentProviderFactory;
 
     private Providers providers;
@@ -183,6 +187,7 @@ public class Client extends Filterable implements ClientHandler {
             final IoCComponentProviderFactory provider) {
         // Defer instantiation of root to component provider
         super(root);
+        this.root = root;
 
         Errors.processWithErrors(new Errors.Closure<Void>() {
             @Override
@@ -267,7 +272,9 @@ public class Client extends Filterable implements ClientHandler {
 
         // Obtain all message body readers/writers
         final MessageBodyFactory bodyContext = new MessageBodyFactory(providerServices,
-                config.getFeature(FeaturesAndProperties.FEATURE_PRE_1_4_PROVIDER_PRECEDENCE));
+                config.getFeature(FeaturesAndProperties.FEATURE_PRE_1_4_PROVIDER_PRECEDENCE),
+                config.getFeature(FeaturesAndProperties.FEATURE_ENABLE_MESSAGE_BODY_WORKERS_CACHE)
+                        ? MessageBodyFactory.DEFAULT_CACHE_SIZE : 0);
         workers = bodyContext;
         // Allow injection of message body context
         injectableFactory.add(new ContextInjectableProvider<MessageBodyWorkers>(
@@ -651,6 +658,26 @@ public class Client extends Filterable implements ClientHandler {
         return response;
     }
 
+    /**
+     * Invoke an asynchronous request on the root client handler, without
+     * the use of the executor service, if the root client handler is an
+     * {@link AsyncClientHandler} and no filters are added to this client.
+     *
+     * @param request the client request.
+     * @param l the future listener.
+     * @return the future, otherwise null if the request cannot be invoked
+     *         on the root client handler.
+     */
+    Future<ClientResponse> handle(final ClientRequest request, final FutureListener<ClientResponse> l) {
+        if (!(root instanceof AsyncClientHandler) || getHeadHandler() != root)
+            return null;
+
+        request.getProperties().putAll(properties);
+        request.getProperties().put(Client.class.getName(), this);
+
+        return ((AsyncClientHandler) root).handle(request, l);
+    }
+
     /**
      * Inject client-side bindings on an instance.
      *
@@ -40,9 +40,10 @@
 
 package com.sun.jersey.api.client;
 
+import com.sun.jersey.api.client.config.ClientConfig;
 import com.sun.jersey.core.header.InBoundHeaders;
 import com.sun.jersey.core.provider.CompletableReader;
-import com.sun.jersey.core.util.ReaderWriter;
+import com.sun.jersey.core.util.SpillingBuffer;
 import com.sun.jersey.spi.MessageBodyWorkers;
 
 import javax.ws.rs.core.EntityTag;
@@ -55,8 +56,6 @@ import javax.ws.rs.core.Response.StatusType;
 import javax.ws.rs.ext.MessageBodyReader;
 import javax.ws.rs.ext.RuntimeDelegate;
 import javax.ws.rs.ext.RuntimeDelegate.HeaderDelegate;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -331,6 +330,8 @@ public class ClientResponse {
 
     private boolean isEntityBuffered;
 
+    private SpillingBuffer entityBuffer;
+
     private InputStream entity;
 
     private MessageBodyWorkers workers;
@@ -561,7 +562,7 @@ public class ClientResponse {
                 c, type,
                 EMPTY_ANNOTATIONS, mediaType);
         if (br == null) {
-            close();
+            closeEntity();
             String message = "A message body reader for Java class " + c.getName() +
                     ", and Java type " + type +
                     ", and MIME media type " + mediaType + " was not found";
@@ -579,11 +580,11 @@ public class ClientResponse {
                 t = ((CompletableReader<T>)br).complete(t);
             }
             if (!(t instanceof Closeable)) {
-                close();
+                closeEntity();
             }
             return t;
         } catch (IOException ex) {
-            close();
+            closeEntity();
             throw new ClientHandlerException(ex);
         }
     }
@@ -592,35 +593,74 @@ public class ClientResponse {
      * Buffer the entity.
      * <p>
      * All the bytes of the original entity input stream will be read
-     * and stored in memory. The original entity input stream will
-     * then be closed.
+     * and stored in memory or, if the number of bytes exceeds the threshold
+     * declared by the client property
+     * {@link ClientConfig#PROPERTY_BUFFER_ENTITY_THRESHOLD}, in a temporary
+     * file. The original entity input stream will then be closed.
+     * <p>
+     * The buffered entity input stream supports mark and reset and may be
+     * read again after being closed, and the entity may be read again
+     * using the <code>getEntity</code> methods. The buffered bytes are
+     * released, and the temporary file, if any, deleted, when this response
+     * is {@link #close() closed}.
+     *
      * @throws ClientHandlerException if there is an error processing the response.
+     * @see SpillingBuffer
      */
     public void bufferEntity() throws ClientHandlerException {
         if (isEntityBuffered)
             return;
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final SpillingBuffer buffer;
         try {
-            ReaderWriter.writeTo(entity, baos);
+            buffer = SpillingBuffer.readFrom(entity, getBufferThreshold());
         } catch(IOException ex) {
             throw new ClientHandlerException(ex);
         } finally {
-            close();
+            closeEntity();
         }
 
-        entity = new ByteArrayInputStream(baos.toByteArray());
+        try {
+            entity = buffer.getInputStream();
+        } catch(IOException ex) {
+            buffer.release();
+            throw new ClientHandlerException(ex);
+        }
+        entityBuffer = buffer;
         isEntityBuffered = true;
     }
 
+    private int getBufferThreshold() {
+        final Client c = getClient();
+        if (c != null) {
+            final Object v = c.getProperties().get(ClientConfig.PROPERTY_BUFFER_ENTITY_THRESHOLD);
+            if (v instanceof Integer)
+                return Math.max((Integer)v, 0);
+        }
+        return SpillingBuffer.THRESHOLD;
+    }
+
     /**
      * Close the response.
      * <p>
-     * The entity input stream is closed.
+     * The entity input stream is closed. If the entity is
+     * {@link #bufferEntity() buffered} then the buffer is released and the
+     * entity can no longer be read.
      *
      * @throws ClientHandlerException if there is an error closing the response.
      */
     public void close() throws ClientHandlerException {
+        try {
+            closeEntity();
+        } finally {
+            if (entityBuffer != null) {
+                entityBuffer.release();
+                entityBuffer = null;
+            }
+        }
+    }
+
+    private void closeEntity() throws ClientHandlerException {
         try {
             entity.close();
         } catch (IOException e) {
@@ -128,6 +128,20 @@ public interface ClientConfig extends FeaturesAndProperties {
     public static final String PROPERTY_BUFFER_RESPONSE_ENTITY_ON_EXCEPTION =
             "com.sun.jersey.client.property.bufferResponseEntityOnException";
 
+    /**
+     * Buffer entity threshold property.
+     *
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     *
+     * The value declares the number of bytes of a response entity that
+     * {@link com.sun.jersey.api.client.ClientResponse#bufferEntity() } holds
+     * in memory; a larger entity is buffered in a temporary file.
+     * If the property is absent then the value of
+     * {@link com.sun.jersey.core.util.SpillingBuffer#THRESHOLD} is utilized.
+     */
+    public static final String PROPERTY_BUFFER_ENTITY_THRESHOLD =
+            "com.sun.jersey.client.property.bufferEntityThreshold";
+
     /**
      * Threadpool size property.
      *
@@ -0,0 +1,463 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pool of HTTP/1.1 persistent connections utilized by
+ * {@link PooledClientHandler}.
+ * <p>
+ * Connections are pooled per route, the scheme, host and port of the origin
+ * server. The number of connections, leased or idle, of a route is
+ * bounded by the maximum number of connections per route and the number of
+ * connections of all routes is bounded by the maximum number of
+ * connections. When a bound is reached a request waits for a connection to
+ * be released. Idle connections that have not been used for longer than the
+ * idle timeout are closed, and an idle connection that has been closed by the
+ * server is detected and closed before it is reused.
+ * <p>
+ * The pool of a {@link PooledClientHandler} is available from the property
+ * {@link PooledClientHandler#PROPERTY_CONNECTION_POOL} of the client
+ * configuration, and the methods of this class may be used to obtain
+ * statistics about the pool.
+ */
+public final class ConnectionPool {
+
+    private static final long MAX_SWEEP_INTERVAL = 1000;
+
+    private static final class RouteEntry {
+        /**
+         * The idle connections, the most recently used first.
+         */
+        final LinkedList<PooledConnection> idle = new LinkedList<PooledConnection>();
+
+        /**
+         * The number of leased connections, including connections that are
+         * being opened.
+         */
+        int leased;
+    }
+
+    private final int maxConnectionsPerRoute;
+
+    private final int maxConnections;
+
+    private final long idleTimeout;
+
+    private final Map<Route, RouteEntry> routes = new HashMap<Route, RouteEntry>();
+
+    private int leased;
+
+    private int idle;
+
+    private long created;
+
+    private long reused;
+
+    private long evicted;
+
+    private long lastSweep;
+
+    private boolean closed;
+
+    /**
+     * Create a connection pool.
+     *
+     * @param maxConnectionsPerRoute the maximum number of connections per
+     *        route.
+     * @param maxConnections the maximum number of connections.
+     * @param idleTimeout the time, in milliseconds, after which an idle
+     *        connection is closed. A value &lt;= 0 declares that idle
+     *        connections are not closed by the pool.
+     * @throws IllegalArgumentException if the maximum number of connections
+     *         per route, or the maximum number of connections, is &lt;= 0.
+     */
+    public ConnectionPool(int maxConnectionsPerRoute, int maxConnections, long idleTimeout) {
+        if (maxConnectionsPerRoute <= 0)
+            throw new IllegalArgumentException("The maximum number of connections per route must be greater than 0");
+        if (maxConnections <= 0)
+            throw new IllegalArgumentException("The maximum number of connections must be greater than 0");
+
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        this.maxConnections = maxConnections;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Lease a connection, reusing an idle connection of the route if
+     * available, otherwise opening a new connection.
+     *
+     * @param route the route.
+     * @param connectTimeout the connect timeout, in milliseconds, if a new
+     *        connection is opened.
+     * @param waitTimeout the maximum time, in milliseconds, to wait for a
+     *        connection if the pool bounds are reached, 0 to wait
+     *        indefinitely.
+     * @return the connection.
+     * @throws IOException if the wait timed out, was interrupted, or the
+     *         connection could not be opened.
+     */
+    PooledConnection lease(Route route, int connectTimeout, long waitTimeout) throws IOException {
+        final long deadline = (waitTimeout > 0)
+                ? System.currentTimeMillis() + waitTimeout
+                : 0;
+
+        while (true) {
+            final List<PooledConnection> toClose = new ArrayList<PooledConnection>();
+            PooledConnection c = null;
+            try {
+                synchronized (this) {
+                    while (true) {
+                        if (closed)
+                            throw new IllegalStateException("The connection pool is closed");
+
+                        final long now = System.currentTimeMillis();
+                        sweep(now, toClose);
+
+                        RouteEntry e = routes.get(route);
+                        if (e == null) {
+                            e = new RouteEntry();
+                            routes.put(route, e);
+                        }
+
+                        if (!e.idle.isEmpty()) {
+                            c = e.idle.removeFirst();
+                            idle--;
+                            e.leased++;
+                            leased++;
+                            break;
+                        }
+
+                        if (e.leased < maxConnectionsPerRoute) {
+                            if (leased + idle >= maxConnections) {
+                                final PooledConnection lru = removeLeastRecentlyUsed();
+                                if (lru != null) {
+                                    toClose.add(lru);
+                                }
+                            }
+                            if (leased + idle < maxConnections) {
+                                e.leased++;
+                                leased++;
+                                break;
+                            }
+                        }
+
+                        final long wait = (deadline > 0) ? deadline - now : 0;
+                        if (deadline > 0 && wait <= 0) {
+                            if (e.leased == 0 && e.idle.isEmpty()) {
+                                routes.remove(route);
+                            }
+                            throw new SocketTimeoutException("Timeout waiting for a connection to " + route);
+                        }
+                        try {
+                            wait(wait);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Interrupted waiting for a connection to " + route);
+                        }
+                    }
+                }
+            } finally {
+                close(toClose);
+            }
+
+            if (c == null) {
+                try {
+                    c = PooledConnection.open(this, route, connectTimeout);
+                } catch (IOException ex) {
+                    removeLeased(route);
+                    throw ex;
+                } catch (RuntimeException ex) {
+                    removeLeased(route);
+                    throw ex;
+                }
+                synchronized (this) {
+                    created++;
+                }
+                return c;
+            }
+
+            if (!c.isStale()) {
+                c.setReused(true);
+                synchronized (this) {
+                    reused++;
+                }
+                return c;
+            }
+
+            synchronized (this) {
+                evicted++;
+            }
+            discard(c);
+        }
+    }
+
+    /**
+     * Release a leased connection. If the connection may be kept alive it
+     * is returned to the pool, otherwise it is closed.
+     *
+     * @param c the connection.
+     */
+    void release(PooledConnection c) {
+        final List<PooledConnection> toClose = new ArrayList<PooledConnection>();
+        synchronized (this) {
+            final long now = System.currentTimeMillis();
+            final RouteEntry e = routes.get(c.getRoute());
+            e.leased--;
+            leased--;
+            if (!closed && c.isKeepAlive()) {
+                c.setLastUsed(now);
+                e.idle.addFirst(c);
+                idle++;
+            } else {
+                toClose.add(c);
+                if (e.leased == 0 && e.idle.isEmpty()) {
+                    routes.remove(c.getRoute());
+                }
+            }
+            sweep(now, toClose);
+            notifyAll();
+        }
+        close(toClose);
+    }
+
+    /**
+     * Close a leased connection.
+     *
+     * @param c the connection.
+     */
+    void discard(PooledConnection c) {
+        removeLeased(c.getRoute());
+        c.close();
+    }
+
+    private synchronized void removeLeased(Route route) {
+        final RouteEntry e = routes.get(route);
+        e.leased--;
+        leased--;
+        if (e.leased == 0 && e.idle.isEmpty()) {
+            routes.remove(route);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Close the idle connections that have exceeded the idle timeout.
+     */
+    private void sweep(long now, List<PooledConnection> toClose) {
+        if (idleTimeout <= 0 || now - lastSweep < Math.min(idleTimeout, MAX_SWEEP_INTERVAL))
+            return;
+
+        lastSweep = now;
+        for (Iterator<RouteEntry> i = routes.values().iterator(); i.hasNext(); ) {
+            final RouteEntry e = i.next();
+            while (!e.idle.isEmpty() && now - e.idle.getLast().getLastUsed() >= idleTimeout) {
+                toClose.add(e.idle.removeLast());
+                idle--;
+                evicted++;
+            }
+            if (e.leased == 0 && e.idle.isEmpty()) {
+                i.remove();
+            }
+        }
+    }
+
+    private PooledConnection removeLeastRecentlyUsed() {
+        RouteEntry lru = null;
+        for (RouteEntry e : routes.values()) {
+            if (!e.idle.isEmpty() && (lru == null
+                    || e.idle.getLast().getLastUsed() < lru.idle.getLast().getLastUsed())) {
+                lru = e;
+            }
+        }
+        if (lru == null)
+            return null;
+
+        final PooledConnection c = lru.idle.removeLast();
+        idle--;
+        evicted++;
+        if (lru.leased == 0 && lru.idle.isEmpty()) {
+            routes.remove(c.getRoute());
+        }
+        return c;
+    }
+
+    private static void close(List<PooledConnection> connections) {
+        for (PooledConnection c : connections) {
+            c.close();
+        }
+    }
+
+    /**
+     * Close the pool. Idle connections are closed immediately and leased
+     * connections are closed when released. A connection cannot be leased
+     * from a closed pool.
+     */
+    public void close() {
+        final List<PooledConnection> toClose = new ArrayList<PooledConnection>();
+        synchronized (this) {
+            closed = true;
+            for (Iterator<RouteEntry> i = routes.values().iterator(); i.hasNext(); ) {
+                final RouteEntry e = i.next();
+                toClose.addAll(e.idle);
+                e.idle.clear();
+                if (e.leased == 0) {
+                    i.remove();
+                }
+            }
+            idle = 0;
+            notifyAll();
+        }
+        close(toClose);
+    }
+
+    /**
+     * @return the maximum number of connections per route.
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * @return the maximum number of connections.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return the time, in milliseconds, after which an idle connection is
+     *         closed.
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * @return the number of connections that are currently leased for
+     *         requests.
+     */
+    public synchronized int getLeasedConnections() {
+        return leased;
+    }
+
+    /**
+     * @return the number of idle connections.
+     */
+    public synchronized int getIdleConnections() {
+        return idle;
+    }
+
+    /**
+     * Get the number of connections that are currently leased for requests
+     * to an origin server.
+     *
+     * @param uri the URI, of which only the scheme, host and port are
+     *        considered.
+     * @return the number of leased connections.
+     */
+    public synchronized int getLeasedConnections(URI uri) {
+        int n = 0;
+        for (Map.Entry<Route, RouteEntry> e : routes.entrySet()) {
+            if (e.getKey().matches(uri)) {
+                n += e.getValue().leased;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Get the number of idle connections to an origin server.
+     *
+     * @param uri the URI, of which only the scheme, host and port are
+     *        considered.
+     * @return the number of idle connections.
+     */
+    public synchronized int getIdleConnections(URI uri) {
+        int n = 0;
+        for (Map.Entry<Route, RouteEntry> e : routes.entrySet()) {
+            if (e.getKey().matches(uri)) {
+                n += e.getValue().idle.size();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return the number of connections that have been opened.
+     */
+    public synchronized long getCreatedConnections() {
+        return created;
+    }
+
+    /**
+     * @return the number of times an idle connection was reused for a
+     *         request.
+     */
+    public synchronized long getReusedConnections() {
+        return reused;
+    }
+
+    /**
+     * @return the number of idle connections that have been closed because
+     *         they exceeded the idle timeout, were closed by the server or
+     *         were required to open a connection to another route.
+     */
+    public synchronized long getEvictedConnections() {
+        return evicted;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ConnectionPool[leased=" + leased + ", idle=" + idle + ", created=" + created +
+                ", reused=" + reused + ", evicted=" + evicted + "]";
+    }
+}
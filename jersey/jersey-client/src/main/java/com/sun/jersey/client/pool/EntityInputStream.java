@@ -0,0 +1,313 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The input stream of a response entity that returns the connection to the
+ * pool when the end of the entity is reached, or when the stream is closed.
+ * <p>
+ * If the stream is closed before the end of the entity is reached then the
+ * remaining bytes are read, so that the connection can be reused, if there
+ * are not more than {@link #MAX_DRAIN_SIZE} bytes. Otherwise the connection
+ * is closed.
+ */
+abstract class EntityInputStream extends InputStream {
+
+    static final int MAX_DRAIN_SIZE = 64 * 1024;
+
+    protected final PooledConnection c;
+
+    protected final InputStream in;
+
+    private boolean eof;
+
+    private boolean closed;
+
+    protected EntityInputStream(PooledConnection c) {
+        this.c = c;
+        this.in = c.getInputStream();
+    }
+
+    /**
+     * Create the input stream of an entity whose length is declared by
+     * the Content-Length header.
+     */
+    static EntityInputStream fixedLength(PooledConnection c, long length) {
+        return new FixedLength(c, length);
+    }
+
+    /**
+     * Create the input stream of an entity with the chunked transfer coding.
+     */
+    static EntityInputStream chunked(PooledConnection c) {
+        return new Chunked(c);
+    }
+
+    /**
+     * Create the input stream of an entity that is terminated by the
+     * server closing the connection.
+     */
+    static EntityInputStream untilClose(PooledConnection c) {
+        c.setKeepAlive(false);
+        return new UntilClose(c);
+    }
+
+    /**
+     * Read bytes of the entity.
+     *
+     * @return the number of bytes read, or -1 if the end of the entity has
+     *         been reached.
+     */
+    protected abstract int readEntity(byte[] b, int off, int len) throws IOException;
+
+    /**
+     * @return the number of bytes of the entity that remain to be read,
+     *         or -1 if not known.
+     */
+    protected abstract long remaining();
+
+    /**
+     * @return the number of bytes of the current chunk, or entity, that may
+     *         be read without blocking.
+     */
+    protected abstract int availableEntity() throws IOException;
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        int n;
+        do {
+            n = read(b, 0, 1);
+        } while (n == 0);
+        return (n == -1) ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed)
+            throw new IOException("The response entity input stream is closed");
+        if (eof)
+            return -1;
+        if (len == 0)
+            return 0;
+
+        try {
+            final int n = readEntity(b, off, len);
+            if (n == -1) {
+                eof = true;
+                c.release();
+            }
+            return n;
+        } catch (IOException ex) {
+            eof = true;
+            c.discard();
+            throw ex;
+        } catch (RuntimeException ex) {
+            eof = true;
+            c.discard();
+            throw ex;
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (closed || eof) ? 0 : availableEntity();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+
+        closed = true;
+        if (eof)
+            return;
+
+        eof = true;
+        final long remaining = remaining();
+        if (c.isKeepAlive() && remaining <= MAX_DRAIN_SIZE) {
+            try {
+                final byte[] b = new byte[4096];
+                long drained = 0;
+                int n;
+                while ((n = readEntity(b, 0, b.length)) != -1) {
+                    drained += n;
+                    if (drained > MAX_DRAIN_SIZE)
+                        break;
+                }
+                if (n == -1) {
+                    c.release();
+                    return;
+                }
+            } catch (IOException ex) {
+                // Close the connection
+            } catch (RuntimeException ex) {
+                c.discard();
+                throw ex;
+            }
+        }
+        c.discard();
+    }
+
+    private static final class FixedLength extends EntityInputStream {
+
+        private long remaining;
+
+        FixedLength(PooledConnection c, long length) {
+            super(c);
+            this.remaining = length;
+        }
+
+        @Override
+        protected int readEntity(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0)
+                return -1;
+
+            final int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n == -1)
+                throw new IOException("Premature end of the response entity, " + remaining + " bytes were not received");
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        protected long remaining() {
+            return remaining;
+        }
+
+        @Override
+        protected int availableEntity() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+    }
+
+    private static final class Chunked extends EntityInputStream {
+
+        private long chunkRemaining;
+
+        private boolean first = true;
+
+        private boolean done;
+
+        Chunked(PooledConnection c) {
+            super(c);
+        }
+
+        @Override
+        protected int readEntity(byte[] b, int off, int len) throws IOException {
+            if (done)
+                return -1;
+
+            if (chunkRemaining == 0) {
+                if (!first) {
+                    final String line = c.readLine();
+                    if (line == null)
+                        throw new IOException("Premature end of the response entity");
+                    if (line.length() != 0)
+                        throw new IOException("Invalid chunk, a chunk is not terminated by CRLF");
+                }
+                first = false;
+
+                chunkRemaining = readChunkSize();
+                if (chunkRemaining == 0) {
+                    // Ignore any trailer
+                    String line;
+                    do {
+                        line = c.readLine();
+                        if (line == null)
+                            throw new IOException("Premature end of the response entity");
+                    } while (line.length() > 0);
+                    done = true;
+                    return -1;
+                }
+            }
+
+            final int n = in.read(b, off, (int) Math.min(len, chunkRemaining));
+            if (n == -1)
+                throw new IOException("Premature end of the response entity");
+            chunkRemaining -= n;
+            return n;
+        }
+
+        private long readChunkSize() throws IOException {
+            final String line = c.readLine();
+            if (line == null)
+                throw new IOException("Premature end of the response entity");
+
+            return HttpMessages.getChunkSize(line);
+        }
+
+        @Override
+        protected long remaining() {
+            return -1;
+        }
+
+        @Override
+        protected int availableEntity() throws IOException {
+            return (int) Math.min(in.available(), chunkRemaining);
+        }
+    }
+
+    private static final class UntilClose extends EntityInputStream {
+
+        UntilClose(PooledConnection c) {
+            super(c);
+        }
+
+        @Override
+        protected int readEntity(byte[] b, int off, int len) throws IOException {
+            return in.read(b, off, len);
+        }
+
+        @Override
+        protected long remaining() {
+            return -1;
+        }
+
+        @Override
+        protected int availableEntity() throws IOException {
+            return in.available();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The output stream of a request entity. Closing the stream completes the
+ * request entity but does not close the connection.
+ */
+abstract class EntityOutputStream extends OutputStream {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+
+    protected final OutputStream out;
+
+    private boolean closed;
+
+    protected EntityOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Create the output stream of an entity whose length is declared by the
+     * Content-Length header.
+     */
+    static EntityOutputStream fixedLength(OutputStream out, long length) {
+        return new FixedLength(out, length);
+    }
+
+    /**
+     * Create the output stream of an entity with the chunked transfer
+     * coding.
+     */
+    static EntityOutputStream chunked(OutputStream out, int chunkSize) {
+        return new Chunked(out, chunkSize);
+    }
+
+    protected abstract void writeEntity(byte[] b, int off, int len) throws IOException;
+
+    protected abstract void finish() throws IOException;
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed)
+            throw new IOException("The request entity output stream is closed");
+        if (len > 0)
+            writeEntity(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!closed)
+            out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+
+        closed = true;
+        finish();
+        out.flush();
+    }
+
+    private static final class FixedLength extends EntityOutputStream {
+
+        private long remaining;
+
+        FixedLength(OutputStream out, long length) {
+            super(out);
+            this.remaining = length;
+        }
+
+        @Override
+        protected void writeEntity(byte[] b, int off, int len) throws IOException {
+            if (len > remaining)
+                throw new IOException("The request entity is longer than the declared Content-Length");
+            out.write(b, off, len);
+            remaining -= len;
+        }
+
+        @Override
+        protected void finish() throws IOException {
+            if (remaining != 0)
+                throw new IOException("The request entity is shorter than the declared Content-Length");
+        }
+    }
+
+    private static final class Chunked extends EntityOutputStream {
+
+        private final byte[] chunk;
+
+        private int count;
+
+        Chunked(OutputStream out, int chunkSize) {
+            super(out);
+            this.chunk = new byte[chunkSize];
+        }
+
+        @Override
+        protected void writeEntity(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == 0 && len >= chunk.length) {
+                    // Write directly without copying
+                    writeChunk(b, off, chunk.length);
+                    off += chunk.length;
+                    len -= chunk.length;
+                    continue;
+                }
+
+                final int n = Math.min(len, chunk.length - count);
+                System.arraycopy(b, off, chunk, count, n);
+                count += n;
+                off += n;
+                len -= n;
+                if (count == chunk.length) {
+                    writeChunk(chunk, 0, count);
+                    count = 0;
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                writeChunk(chunk, 0, count);
+                count = 0;
+            }
+            super.flush();
+        }
+
+        @Override
+        protected void finish() throws IOException {
+            if (count > 0) {
+                writeChunk(chunk, 0, count);
+                count = 0;
+            }
+            out.write(LAST_CHUNK);
+        }
+
+        private void writeChunk(byte[] b, int off, int len) throws IOException {
+            out.write(Integer.toHexString(len).getBytes("US-ASCII"));
+            out.write(CRLF);
+            out.write(b, off, len);
+            out.write(CRLF);
+        }
+    }
+}
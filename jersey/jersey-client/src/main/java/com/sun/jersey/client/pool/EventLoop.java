@@ -0,0 +1,423 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An event loop of the {@link NioClientHandler}, a thread that selects
+ * ready non-blocking connections, writes requests, parses responses and
+ * completes exchanges.
+ * <p>
+ * Each route is owned by one event loop, which queues the exchanges of the
+ * route until a connection is available. The state of the routes and their
+ * connections is only accessed by the thread of the event loop, other
+ * threads submit tasks to the event loop.
+ */
+final class EventLoop implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(EventLoop.class.getName());
+
+    /**
+     * The interval, in milliseconds, at which timeouts are checked.
+     */
+    private static final long TIMEOUT_INTERVAL = 100;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The exchanges and connections of a route.
+     */
+    private static final class RouteState {
+        final ArrayDeque<Exchange> pending = new ArrayDeque<Exchange>();
+
+        final ArrayDeque<NioConnection> idle = new ArrayDeque<NioConnection>();
+
+        int connections;
+    }
+
+    private final NioClientHandler handler;
+
+    private final int maxConnectionsPerRoute;
+
+    private final int idleTimeout;
+
+    private final int maxEntitySize;
+
+    private final Selector selector;
+
+    private final Thread thread;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+    private final Map<Route, RouteState> routes = new HashMap<Route, RouteState>();
+
+    private final Set<NioConnection> connections = new LinkedHashSet<NioConnection>();
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    private volatile boolean closed;
+
+    private long lastTimeoutCheck;
+
+    EventLoop(NioClientHandler handler, String name, int maxConnectionsPerRoute, int idleTimeout,
+              int maxEntitySize) throws IOException {
+        this.handler = handler;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        this.idleTimeout = idleTimeout;
+        this.maxEntitySize = maxEntitySize;
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Check if the current thread is the thread of the event loop.
+     */
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Close the event loop. Exchanges in progress and subsequently
+     * submitted exchanges fail.
+     */
+    void close() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    private void execute(Runnable task) {
+        tasks.add(task);
+        if (!inEventLoop()) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Submit an exchange.
+     */
+    void submit(final Exchange e) {
+        e.setEventLoop(this);
+        execute(new Runnable() {
+            public void run() {
+                if (closed) {
+                    e.fail(new IllegalStateException("The client handler is closed"));
+                    return;
+                }
+                if (e.isDone())
+                    return;
+
+                final RouteState s = getRouteState(e.getRoute());
+                s.pending.addLast(e);
+                dispatch(e.getRoute(), s, System.currentTimeMillis());
+            }
+        });
+    }
+
+    /**
+     * Abort a cancelled exchange.
+     */
+    void abort(final Exchange e) {
+        execute(new Runnable() {
+            public void run() {
+                final RouteState s = routes.get(e.getRoute());
+                if (s == null)
+                    return;
+
+                if (!s.pending.remove(e)) {
+                    final NioConnection c = e.getConnection();
+                    if (c == null)
+                        return;
+                    close(c);
+                }
+                dispatch(e.getRoute(), s, System.currentTimeMillis());
+            }
+        });
+    }
+
+    public void run() {
+        try {
+            while (!closed) {
+                selector.select(TIMEOUT_INTERVAL);
+                final long now = System.currentTimeMillis();
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+
+                processSelectedKeys(now);
+
+                if (now - lastTimeoutCheck >= TIMEOUT_INTERVAL) {
+                    lastTimeoutCheck = now;
+                    checkTimeouts(now);
+                }
+            }
+        } catch (Throwable t) {
+            LOGGER.log(Level.SEVERE, "The event loop " + thread.getName() + " terminated unexpectedly", t);
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void processSelectedKeys(long now) {
+        final Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+        while (i.hasNext()) {
+            final SelectionKey key = i.next();
+            i.remove();
+
+            final NioConnection c = (NioConnection) key.attachment();
+            try {
+                if (!key.isValid())
+                    continue;
+                if (key.isConnectable()) {
+                    c.finishConnect(now);
+                } else if (key.isWritable()) {
+                    c.write(now);
+                } else if (key.isReadable()) {
+                    read(c, now);
+                }
+            } catch (IOException ex) {
+                failed(c, ex, now);
+            } catch (RuntimeException ex) {
+                failed(c, new IOException(ex), now);
+            }
+        }
+    }
+
+    private void read(NioConnection c, long now) throws IOException {
+        while (true) {
+            final int n = c.read(buffer, now);
+            if (n == 0)
+                return;
+
+            if (c.getExchange() == null) {
+                // The server closed an idle connection or sent unexpected data
+                close(c);
+                return;
+            }
+
+            final ResponseParser p = c.getParser();
+            if (n == -1) {
+                if (!p.close())
+                    throw new IOException(p.isReceived()
+                            ? "Premature end of the response"
+                            : "The connection was closed by the server before a response was received");
+                completed(c, false, now);
+                return;
+            }
+
+            if (p.parse(buffer)) {
+                // Bytes following the response are not expected
+                completed(c, p.isKeepAlive() && !buffer.hasRemaining(), now);
+                return;
+            }
+
+            if (n < buffer.capacity())
+                return;
+        }
+    }
+
+    private void completed(NioConnection c, boolean keepAlive, long now) {
+        final ResponseParser p = c.getParser();
+        final RouteState s = routes.get(c.getRoute());
+
+        final Exchange e;
+        if (keepAlive && !c.getExchange().isClose()) {
+            e = c.finish(now);
+            s.idle.addFirst(c);
+        } else {
+            e = close(c);
+        }
+
+        // Dispatch pending exchanges before the completion of the exchange
+        // invokes the listener
+        dispatch(c.getRoute(), s, now);
+        handler.onResponse(e, p);
+    }
+
+    private void failed(NioConnection c, IOException ex, long now) {
+        final boolean retry = c.isReused() && c.getExchange() != null
+                && !c.getParser().isReceived() && !(ex instanceof SocketTimeoutException);
+        final Exchange e = close(c);
+        final RouteState s = routes.get(c.getRoute());
+        if (e != null) {
+            if (retry && !e.isDone() && e.retry()) {
+                s.pending.addFirst(e);
+            } else {
+                e.fail(ex);
+            }
+        }
+        dispatch(c.getRoute(), s, now);
+    }
+
+    private void dispatch(Route route, RouteState s, long now) {
+        while (!s.pending.isEmpty()) {
+            final Exchange e = s.pending.peekFirst();
+            if (e.isDone()) {
+                s.pending.removeFirst();
+                continue;
+            }
+
+            NioConnection c = s.idle.pollFirst();
+            if (c == null) {
+                if (s.connections >= maxConnectionsPerRoute)
+                    return;
+
+                try {
+                    c = NioConnection.open(route, e.getAddress(), selector);
+                } catch (IOException ex) {
+                    s.pending.removeFirst();
+                    e.fail(ex);
+                    continue;
+                }
+                s.connections++;
+                connections.add(c);
+            }
+
+            s.pending.removeFirst();
+            try {
+                c.start(e, maxEntitySize, now);
+            } catch (IOException ex) {
+                final boolean retry = c.isReused();
+                close(c);
+                if (retry && e.retry()) {
+                    s.pending.addFirst(e);
+                } else {
+                    e.fail(ex);
+                }
+            }
+        }
+    }
+
+    private Exchange close(NioConnection c) {
+        if (c.isClosed())
+            return c.close();
+
+        connections.remove(c);
+        final RouteState s = routes.get(c.getRoute());
+        s.idle.remove(c);
+        s.connections--;
+        return c.close();
+    }
+
+    private void checkTimeouts(long now) {
+        for (NioConnection c : new ArrayList<NioConnection>(connections)) {
+            if (c.getExchange() != null) {
+                if (c.getDeadline() > 0 && now >= c.getDeadline()) {
+                    failed(c, new SocketTimeoutException(c.isConnected() ? "Read timed out" : "connect timed out"), now);
+                }
+            } else if (idleTimeout > 0 && now - c.getIdleSince() >= idleTimeout) {
+                close(c);
+            }
+        }
+
+        final Iterator<RouteState> i = routes.values().iterator();
+        while (i.hasNext()) {
+            final RouteState s = i.next();
+            if (s.connections == 0 && s.pending.isEmpty()) {
+                i.remove();
+            }
+        }
+    }
+
+    private RouteState getRouteState(Route route) {
+        RouteState s = routes.get(route);
+        if (s == null) {
+            s = new RouteState();
+            routes.put(route, s);
+        }
+        return s;
+    }
+
+    private void shutdown() {
+        closed = true;
+        final IllegalStateException ex = new IllegalStateException("The client handler is closed");
+
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Exception caught when shutting down the event loop", e);
+            }
+        }
+
+        for (NioConnection c : new ArrayList<NioConnection>(connections)) {
+            final Exchange e = close(c);
+            if (e != null) {
+                e.fail(ex);
+            }
+        }
+        for (RouteState s : routes.values()) {
+            for (Exchange e : s.pending) {
+                e.fail(ex);
+            }
+        }
+        routes.clear();
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.async.FutureListener;
+import com.sun.jersey.api.client.config.ClientConfig;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A request and response exchange of the {@link NioClientHandler}, which
+ * is also the future of the response.
+ * <p>
+ * Other than the future state, the state of an exchange is only modified
+ * by the thread preparing the exchange or, once submitted, by the thread of
+ * the event loop of the route of the exchange.
+ */
+final class Exchange extends FutureTask<ClientResponse> {
+
+    private static final Logger LOGGER = Logger.getLogger(Exchange.class.getName());
+
+    private static final Callable<ClientResponse> NOT_RUNNABLE = new Callable<ClientResponse>() {
+        public ClientResponse call() throws Exception {
+            throw new IllegalStateException("An exchange is completed by an event loop");
+        }
+    };
+
+    private final NioClientHandler handler;
+
+    private final ClientRequest request;
+
+    private final FutureListener<ClientResponse> listener;
+
+    private final boolean followRedirects;
+
+    private final int connectTimeout;
+
+    private final int readTimeout;
+
+    private final boolean close;
+
+    private boolean acquired;
+
+    private URI uri;
+
+    private String method;
+
+    private Route route;
+
+    private InetSocketAddress address;
+
+    private ByteBuffer data;
+
+    private int redirects;
+
+    private boolean retried;
+
+    private NioConnection connection;
+
+    private volatile EventLoop loop;
+
+    Exchange(NioClientHandler handler, ClientRequest request, FutureListener<ClientResponse> listener) {
+        super(NOT_RUNNABLE);
+        this.handler = handler;
+        this.request = request;
+        this.listener = listener;
+
+        final Boolean f = (Boolean) request.getProperties().get(ClientConfig.PROPERTY_FOLLOW_REDIRECTS);
+        this.followRedirects = f == null || f;
+        final Integer ct = (Integer) request.getProperties().get(ClientConfig.PROPERTY_CONNECT_TIMEOUT);
+        this.connectTimeout = (ct != null) ? ct : 0;
+        final Integer rt = (Integer) request.getProperties().get(ClientConfig.PROPERTY_READ_TIMEOUT);
+        this.readTimeout = (rt != null) ? rt : 0;
+        this.close = HttpMessages.isClose(request.getHeaders());
+        this.uri = request.getURI();
+        this.method = request.getMethod();
+    }
+
+    ClientRequest getRequest() {
+        return request;
+    }
+
+    void setAcquired() {
+        this.acquired = true;
+    }
+
+    /**
+     * Set the target of the exchange.
+     *
+     * @param data the bytes of the request.
+     */
+    void setTarget(URI uri, String method, Route route, InetSocketAddress address, ByteBuffer data) {
+        this.uri = uri;
+        this.method = method;
+        this.route = route;
+        this.address = address;
+        this.data = data;
+    }
+
+    URI getURI() {
+        return uri;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    Route getRoute() {
+        return route;
+    }
+
+    /**
+     * Set the resolved address of the route.
+     */
+    void setAddress(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Get the bytes of the request to be written to a connection.
+     */
+    ByteBuffer getData() {
+        return data.duplicate();
+    }
+
+    int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * Check if the request declares that the connection is to be closed
+     * after the response.
+     */
+    boolean isClose() {
+        return close;
+    }
+
+    boolean isFollowRedirects() {
+        return followRedirects;
+    }
+
+    int getRedirects() {
+        return redirects;
+    }
+
+    void redirected() {
+        redirects++;
+    }
+
+    /**
+     * Check if the exchange may be retried once after a failure on a
+     * reused connection before a response was received.
+     */
+    boolean retry() {
+        if (retried || request.getEntity() != null)
+            return false;
+        retried = true;
+        return true;
+    }
+
+    NioConnection getConnection() {
+        return connection;
+    }
+
+    void setConnection(NioConnection connection) {
+        this.connection = connection;
+    }
+
+    EventLoop getEventLoop() {
+        return loop;
+    }
+
+    void setEventLoop(EventLoop loop) {
+        this.loop = loop;
+    }
+
+    /**
+     * Complete the exchange with a response.
+     */
+    void complete(ClientResponse response) {
+        set(response);
+    }
+
+    /**
+     * Complete the exchange with a failure, which is wrapped in a
+     * {@link ClientHandlerException}, if not already an instance of.
+     */
+    void fail(Throwable t) {
+        setException((t instanceof ClientHandlerException) ? t : new ClientHandlerException(t));
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!super.cancel(false))
+            return false;
+
+        final EventLoop l = loop;
+        if (l != null) {
+            l.abort(this);
+        }
+        return true;
+    }
+
+    @Override
+    protected void done() {
+        if (acquired) {
+            handler.release();
+        }
+
+        if (listener != null) {
+            try {
+                listener.onComplete(this);
+            } catch (Throwable t) {
+                LOGGER.log(Level.SEVERE,
+                        "Throwable caught on call to FutureListener.onComplete",
+                        t);
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility methods to write HTTP/1.1 requests and to interpret HTTP/1.1
+ * responses, shared by the blocking and the non-blocking client handlers.
+ */
+final class HttpMessages {
+
+    /**
+     * The length of a response entity with the chunked transfer coding.
+     */
+    static final long CHUNKED = -2;
+
+    /**
+     * The length of a response entity delimited by the closing of the
+     * connection.
+     */
+    static final long UNTIL_CLOSE = -1;
+
+    private static final int MAX_REDIRECTS = 20;
+
+    private HttpMessages() {
+    }
+
+    /**
+     * Get the request line and headers.
+     *
+     * @param contentLength the length of the request entity, otherwise -1
+     *        if the length is not declared.
+     * @param chunked true if the request entity is written with the chunked
+     *        transfer coding.
+     */
+    static String getHead(MultivaluedMap<String, Object> headers,
+            Route route, URI uri, String method, long contentLength, boolean chunked) {
+        final StringBuilder sb = new StringBuilder();
+
+        final String path = uri.getRawPath();
+        sb.append(method).append(' ').append((path == null || path.length() == 0) ? "/" : path);
+        if (uri.getRawQuery() != null) {
+            sb.append('?').append(uri.getRawQuery());
+        }
+        sb.append(" HTTP/1.1\r\n");
+
+        boolean host = false;
+        for (Map.Entry<String, List<Object>> e : headers.entrySet()) {
+            final String name = e.getKey();
+            if (name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Transfer-Encoding"))
+                continue;
+            host |= name.equalsIgnoreCase("Host");
+
+            sb.append(name).append(": ");
+            boolean add = false;
+            for (Object v : e.getValue()) {
+                if (add) sb.append(',');
+                add = true;
+                sb.append(ClientRequest.getHeaderValue(v));
+            }
+            sb.append("\r\n");
+        }
+        if (!host) {
+            sb.append("Host: ").append(route.getHostHeader()).append("\r\n");
+        }
+
+        if (contentLength >= 0) {
+            sb.append("Content-Length: ").append(contentLength).append("\r\n");
+        } else if (chunked) {
+            sb.append("Transfer-Encoding: chunked\r\n");
+        }
+        sb.append("\r\n");
+        return sb.toString();
+    }
+
+    /**
+     * Get the status code of a status line.
+     */
+    static int getStatus(String statusLine) throws IOException {
+        if (!statusLine.startsWith("HTTP/") || statusLine.length() < 12 || statusLine.charAt(8) != ' ')
+            throw new IOException("Invalid status line: " + statusLine);
+
+        try {
+            return Integer.parseInt(statusLine.substring(9, 12));
+        } catch (NumberFormatException ex) {
+            throw new IOException("Invalid status line: " + statusLine);
+        }
+    }
+
+    /**
+     * Check if a status code is that of an informational response that is
+     * followed by the final response.
+     */
+    static boolean isInformational(int status) {
+        return status >= 100 && status < 200 && status != 101;
+    }
+
+    /**
+     * Check if the connection may be reused after a response.
+     */
+    static boolean isKeepAlive(String statusLine, InBoundHeaders headers) {
+        final String connection = headers.getFirst("Connection");
+        return !statusLine.startsWith("HTTP/1.0")
+                ? !containsToken(connection, "close")
+                : containsToken(connection, "keep-alive");
+    }
+
+    /**
+     * Get the length of the response entity.
+     *
+     * @return the length of the entity, 0 if there is no entity,
+     *         {@link #CHUNKED} or {@link #UNTIL_CLOSE}.
+     */
+    static long getEntityLength(String method, int status, InBoundHeaders headers) throws IOException {
+        if (method.equals("HEAD") || status == 204 || status == 304)
+            return 0;
+
+        final String transferEncoding = headers.getFirst("Transfer-Encoding");
+        if (transferEncoding != null && !transferEncoding.trim().equalsIgnoreCase("identity")) {
+            if (!transferEncoding.trim().toLowerCase().endsWith("chunked"))
+                throw new IOException("Unsupported transfer coding: " + transferEncoding);
+            return CHUNKED;
+        }
+
+        final String contentLength = headers.getFirst("Content-Length");
+        if (contentLength == null)
+            return UNTIL_CLOSE;
+        try {
+            final long length = Long.parseLong(contentLength.trim());
+            if (length < 0)
+                throw new NumberFormatException();
+            return length;
+        } catch (NumberFormatException ex) {
+            throw new IOException("Invalid Content-Length: " + contentLength);
+        }
+    }
+
+    /**
+     * Get the size of a chunk from a chunk size line.
+     */
+    static long getChunkSize(String line) throws IOException {
+        final int semicolon = line.indexOf(';');
+        final String size = ((semicolon != -1) ? line.substring(0, semicolon) : line).trim();
+        try {
+            final long l = Long.parseLong(size, 16);
+            if (l < 0)
+                throw new NumberFormatException();
+            return l;
+        } catch (NumberFormatException ex) {
+            throw new IOException("Invalid chunk size: " + line);
+        }
+    }
+
+    /**
+     * Get the URI a response redirects to.
+     *
+     * @param redirects the number of redirects already followed.
+     * @return the URI to redirect to, otherwise null if the response is
+     *         not a redirect that is followed. A redirect of a request other
+     *         than GET or HEAD is only followed for a status code of 303,
+     *         in which case the redirected request uses the GET method.
+     */
+    static URI getRedirect(URI uri, String method, int status, String location, int redirects) {
+        if (location == null || redirects >= MAX_REDIRECTS
+                || !(status == 301 || status == 302 || status == 303 || status == 307 || status == 308))
+            return null;
+
+        final URI redirect = uri.resolve(location);
+        // As for HttpURLConnection redirects to another scheme are not followed
+        if (!uri.getScheme().equalsIgnoreCase(redirect.getScheme()))
+            return null;
+
+        if (!method.equals("GET") && !method.equals("HEAD") && status != 303)
+            return null;
+        return redirect;
+    }
+
+    /**
+     * Get the method of a redirected request.
+     */
+    static String getRedirectMethod(String method) {
+        return (method.equals("GET") || method.equals("HEAD")) ? method : "GET";
+    }
+
+    /**
+     * Check if the request headers declare that the connection is to be
+     * closed after the response.
+     */
+    static boolean isClose(MultivaluedMap<String, Object> headers) {
+        final List<Object> values = headers.get("Connection");
+        if (values != null) {
+            for (Object v : values) {
+                if (containsToken(ClientRequest.getHeaderValue(v), "close"))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsToken(String value, String token) {
+        if (value == null)
+            return false;
+        for (String t : value.split(",")) {
+            if (t.trim().equalsIgnoreCase(token))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parses the header lines of a response, which may be supplied as they
+     * are received.
+     */
+    static final class HeaderParser {
+        private final InBoundHeaders headers = new InBoundHeaders();
+
+        private String name;
+
+        private StringBuilder value;
+
+        /**
+         * Parse a header line.
+         *
+         * @param line the line, without the line terminator.
+         * @return true if the line is the empty line terminating the headers.
+         */
+        boolean parse(String line) throws IOException {
+            if (line.length() == 0) {
+                if (name != null) {
+                    headers.add(name, value.toString());
+                    name = null;
+                }
+                return true;
+            }
+
+            if (line.charAt(0) == ' ' || line.charAt(0) == '\t') {
+                // Continuation of a folded header value
+                if (value == null)
+                    throw new IOException("Invalid header: " + line);
+                value.append(' ').append(line.trim());
+                return false;
+            }
+
+            if (name != null) {
+                headers.add(name, value.toString());
+            }
+
+            final int colon = line.indexOf(':');
+            if (colon <= 0)
+                throw new IOException("Invalid header: " + line);
+            name = line.substring(0, colon).trim();
+            value = new StringBuilder(line.substring(colon + 1).trim());
+            return false;
+        }
+
+        InBoundHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.core.spi.component.ioc.IoCComponentProviderFactory;
+
+/**
+ * A {@link Client} that utilizes a {@link NioClientHandler} to send and
+ * receive HTTP requests and responses over non-blocking, persistent
+ * connections.
+ * <p>
+ * Asynchronous requests invoked using an
+ * {@link com.sun.jersey.api.client.AsyncWebResource} of this client, when
+ * no filters are added, do not block a thread of the executor service of
+ * the client and the listeners of such requests are called from an event
+ * loop of the handler, see {@link NioClientHandler}.
+ * <p>
+ * The event loops of the handler are stopped when the client is destroyed.
+ */
+public class NioClient extends Client {
+
+    private final NioClientHandler handler;
+
+    /**
+     * Create a new client instance.
+     */
+    public NioClient() {
+        this(new DefaultClientConfig());
+    }
+
+    /**
+     * Create a new client instance with a client configuration.
+     *
+     * @param config the client configuration.
+     */
+    public NioClient(ClientConfig config) {
+        this(new NioClientHandler(config), config, null);
+    }
+
+    /**
+     * Create a new instance with a client handler, a client configuration
+     * and a component provider.
+     *
+     * @param root the non-blocking client handler.
+     * @param config the client configuration.
+     * @param provider the IoC component provider factory.
+     */
+    public NioClient(NioClientHandler root, ClientConfig config,
+            IoCComponentProviderFactory provider) {
+        super(root, config, provider);
+        this.handler = root;
+    }
+
+    /**
+     * Get the non-blocking client handler.
+     *
+     * @return the non-blocking client handler.
+     */
+    public NioClientHandler getClientHandler() {
+        return handler;
+    }
+
+    /**
+     * Destroy the client and close the non-blocking client handler.
+     */
+    @Override
+    public void destroy() {
+        try {
+            super.destroy();
+        } finally {
+            handler.close();
+        }
+    }
+
+    /**
+     * Create a default client.
+     *
+     * @return a default client.
+     */
+    public static NioClient create() {
+        return new NioClient();
+    }
+
+    /**
+     * Create a default client with client configuration.
+     *
+     * @param cc the client configuration.
+     * @return a default client.
+     */
+    public static NioClient create(ClientConfig cc) {
+        return new NioClient(cc);
+    }
+}
@@ -0,0 +1,472 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.TerminatingClientHandler;
+import com.sun.jersey.api.client.async.AsyncClientHandler;
+import com.sun.jersey.api.client.async.FutureListener;
+import com.sun.jersey.api.client.config.ClientConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A terminating client handler that sends HTTP/1.1 requests over
+ * non-blocking, persistent connections, without blocking a thread per
+ * request.
+ * <p>
+ * Connections are managed by a small number of event loops, each a thread
+ * with a {@link java.nio.channels.Selector}. An asynchronous request, for
+ * example invoked using an {@link com.sun.jersey.api.client.AsyncWebResource}
+ * of a client without filters, is handed to the event loop of its route
+ * (scheme, host and port) and the {@link FutureListener}, and hence any
+ * {@link com.sun.jersey.api.client.async.TypeListener}, is called from the
+ * thread of the event loop when the response is complete.
+ * Listeners MUST therefore not block, in particular blocking requests MUST
+ * NOT be invoked from a listener. Asynchronous requests of a client with
+ * filters are invoked by the executor service of the client, as for other
+ * client handlers.
+ * <p>
+ * The number of requests in flight, queued for a connection or in progress,
+ * is bounded. When the bound is reached the invocation of a request blocks
+ * until a request completes; if invoked from the thread of an event loop
+ * the request fails with a {@link RejectedExecutionException}. The handler
+ * is configured with the following properties, which are only supported at
+ * construction of this class:
+ * <ul>
+ * <li>{@link #PROPERTY_EVENT_LOOPS}</li>
+ * <li>{@link #PROPERTY_MAX_IN_FLIGHT_REQUESTS}</li>
+ * <li>{@link #PROPERTY_MAX_RESPONSE_ENTITY_SIZE}</li>
+ * <li>{@link PooledClientHandler#PROPERTY_MAX_CONNECTIONS_PER_ROUTE}</li>
+ * <li>{@link PooledClientHandler#PROPERTY_IDLE_TIMEOUT}</li>
+ * </ul>
+ * The properties {@link ClientConfig#PROPERTY_CONNECT_TIMEOUT},
+ * {@link ClientConfig#PROPERTY_READ_TIMEOUT} and
+ * {@link ClientConfig#PROPERTY_FOLLOW_REDIRECTS} are supported per request.
+ * Timeouts are checked at an interval of 100 milliseconds.
+ * <p>
+ * The address of a host is resolved by the thread invoking the request, or,
+ * for a request invoked from the thread of an event loop or a redirect, by a
+ * resolver thread, so that an event loop is not blocked by the resolution.
+ * <p>
+ * Request entities are serialized, and response entities are buffered, in
+ * memory. The memory buffered for responses is bounded by the maximum number
+ * of requests in flight and the maximum size of a response entity. HTTPS and proxies are not supported, use
+ * {@link PooledClientHandler} instead.
+ */
+public final class NioClientHandler extends TerminatingClientHandler implements AsyncClientHandler {
+
+    /**
+     * The number of event loops.
+     * <p>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent then the default value is the number of
+     * available processors, at most 4.
+     */
+    public static final String PROPERTY_EVENT_LOOPS =
+            "com.sun.jersey.client.property.eventLoops";
+
+    /**
+     * The maximum number of requests in flight.
+     * <p>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent then the default value is 1024.
+     */
+    public static final String PROPERTY_MAX_IN_FLIGHT_REQUESTS =
+            "com.sun.jersey.client.property.maxInFlightRequests";
+
+    /**
+     * The maximum size, in bytes, of a response entity. A request whose
+     * response entity is larger fails.
+     * <p>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent then the size is not limited, other than
+     * by the maximum size of an array.
+     */
+    public static final String PROPERTY_MAX_RESPONSE_ENTITY_SIZE =
+            "com.sun.jersey.client.property.maxResponseEntitySize";
+
+    private static final int DEFAULT_MAX_EVENT_LOOPS = 4;
+
+    private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 1024;
+
+    private static final int DEFAULT_MAX_RESPONSE_ENTITY_SIZE = Integer.MAX_VALUE;
+
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
+    private static final int DEFAULT_IDLE_TIMEOUT = 30000;
+
+    private static final long RESOLVER_KEEP_ALIVE = 60;
+
+    private static final class EntityBuffer extends ByteArrayOutputStream {
+        void writeTo(ByteBuffer b) {
+            b.put(buf, 0, count);
+        }
+    }
+
+    private final EventLoop[] loops;
+
+    private final ThreadPoolExecutor resolver;
+
+    private final Semaphore inFlight;
+
+    private final int maxInFlight;
+
+    private volatile boolean closed;
+
+    /**
+     * Construct a new instance with the default configuration.
+     */
+    public NioClientHandler() {
+        this(null);
+    }
+
+    /**
+     * Construct a new instance configured from the properties of a client
+     * configuration.
+     *
+     * @param config the client configuration, may be null.
+     */
+    public NioClientHandler(ClientConfig config) {
+        final Map<String, Object> properties = (config != null) ? config.getProperties() : null;
+        final int n = PooledClientHandler.getInteger(properties, PROPERTY_EVENT_LOOPS,
+                Math.min(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_EVENT_LOOPS));
+        final int maxConnectionsPerRoute = PooledClientHandler.getInteger(properties,
+                PooledClientHandler.PROPERTY_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+        final int idleTimeout = PooledClientHandler.getInteger(properties,
+                PooledClientHandler.PROPERTY_IDLE_TIMEOUT, DEFAULT_IDLE_TIMEOUT);
+        this.maxInFlight = PooledClientHandler.getInteger(properties,
+                PROPERTY_MAX_IN_FLIGHT_REQUESTS, DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+        final int maxEntitySize = PooledClientHandler.getInteger(properties,
+                PROPERTY_MAX_RESPONSE_ENTITY_SIZE, DEFAULT_MAX_RESPONSE_ENTITY_SIZE);
+        if (n <= 0)
+            throw new IllegalArgumentException("The number of event loops must be greater than 0");
+        if (maxConnectionsPerRoute <= 0)
+            throw new IllegalArgumentException("The maximum number of connections per route must be greater than 0");
+        if (maxInFlight <= 0)
+            throw new IllegalArgumentException("The maximum number of in-flight requests must be greater than 0");
+        if (maxEntitySize < 0)
+            throw new IllegalArgumentException("The maximum size of a response entity must not be negative");
+
+        this.inFlight = new Semaphore(maxInFlight);
+        this.resolver = new ThreadPoolExecutor(n, n, RESOLVER_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        final Thread t = new Thread(r, "jersey-client-nio-resolver");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        this.resolver.allowCoreThreadTimeOut(true);
+        this.loops = new EventLoop[n];
+        try {
+            for (int i = 0; i < n; i++) {
+                loops[i] = new EventLoop(this, "jersey-client-nio-" + i, maxConnectionsPerRoute, idleTimeout,
+                        maxEntitySize);
+            }
+        } catch (IOException ex) {
+            close();
+            throw new ClientHandlerException(ex);
+        }
+        for (EventLoop l : loops) {
+            l.start();
+        }
+    }
+
+    /**
+     * Get the number of requests in flight.
+     *
+     * @return the number of requests in flight.
+     */
+    public int getInFlightRequests() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * Close the handler. The event loops are stopped, connections are closed
+     * and requests in flight fail.
+     */
+    public void close() {
+        closed = true;
+        // Exchanges waiting for resolution fail when submitted to the
+        // closed event loops
+        resolver.shutdown();
+        for (EventLoop l : loops) {
+            if (l != null) {
+                l.close();
+            }
+        }
+    }
+
+    /**
+     * ClientRequest handler.
+     * <p>
+     * The request is invoked asynchronously and the calling thread waits
+     * for the response.
+     *
+     * @param ro ClientRequest
+     * @return Server response represented as ClientResponse
+     */
+    public ClientResponse handle(ClientRequest ro) {
+        if (isEventLoop())
+            throw new ClientHandlerException("A blocking request must not be invoked from an event loop");
+
+        final Future<ClientResponse> f = handle(ro, null);
+        try {
+            return f.get();
+        } catch (InterruptedException ex) {
+            f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ClientHandlerException(ex);
+        } catch (ExecutionException ex) {
+            final Throwable t = ex.getCause();
+            if (t instanceof ClientHandlerException)
+                throw (ClientHandlerException) t;
+            throw new ClientHandlerException(t);
+        }
+    }
+
+    // AsyncClientHandler
+
+    public Future<ClientResponse> handle(ClientRequest ro, FutureListener<ClientResponse> l) {
+        final Exchange e = new Exchange(this, ro, l);
+        if (!acquire(e))
+            return e;
+
+        try {
+            prepare(e, ro.getURI(), ro.getMethod());
+        } catch (Exception ex) {
+            e.fail(ex);
+            return e;
+        }
+        submit(e);
+        return e;
+    }
+
+    private boolean acquire(Exchange e) {
+        if (closed) {
+            e.fail(new IllegalStateException("The client handler is closed"));
+            return false;
+        }
+
+        if (isEventLoop()) {
+            if (!inFlight.tryAcquire()) {
+                e.fail(new RejectedExecutionException("The maximum number of in-flight requests, " +
+                        maxInFlight + ", is reached"));
+                return false;
+            }
+        } else {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                e.fail(ex);
+                return false;
+            }
+        }
+        e.setAcquired();
+        return true;
+    }
+
+    /**
+     * Release the in-flight permit of a completed exchange.
+     */
+    void release() {
+        inFlight.release();
+    }
+
+    private boolean isEventLoop() {
+        for (EventLoop l : loops) {
+            if (l.inEventLoop())
+                return true;
+        }
+        return false;
+    }
+
+    private EventLoop getEventLoop(Route route) {
+        return loops[(route.hashCode() & Integer.MAX_VALUE) % loops.length];
+    }
+
+    /**
+     * Submit a prepared exchange to the event loop of its route, resolving
+     * the address of the route if it is not known. The address is not
+     * resolved by the thread of an event loop since resolution may block.
+     */
+    private void submit(final Exchange e) {
+        if (e.getAddress() != null) {
+            getEventLoop(e.getRoute()).submit(e);
+        } else if (!isEventLoop()) {
+            resolveAndSubmit(e);
+        } else {
+            try {
+                resolver.execute(new Runnable() {
+                    public void run() {
+                        resolveAndSubmit(e);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                e.fail(new IllegalStateException("The client handler is closed"));
+            }
+        }
+    }
+
+    private void resolveAndSubmit(Exchange e) {
+        final Route route = e.getRoute();
+        final InetSocketAddress address = new InetSocketAddress(route.getHost(), route.getPort());
+        if (address.isUnresolved()) {
+            e.fail(new UnknownHostException(route.getHost()));
+            return;
+        }
+        e.setAddress(address);
+        getEventLoop(route).submit(e);
+    }
+
+    /**
+     * Prepare an exchange to be submitted to the event loop of its route.
+     * The address of the route is retained if the route is not changed,
+     * otherwise the address is resolved when the exchange is submitted.
+     */
+    private void prepare(Exchange e, URI uri, String method) throws IOException {
+        final Route route = new Route(uri, null);
+        if (route.isSecure())
+            throw new IllegalArgumentException("The scheme of the URI " + uri +
+                    " is not supported by the non-blocking client handler");
+
+        final InetSocketAddress address = (route.equals(e.getRoute()))
+                ? e.getAddress()
+                : null;
+
+        final ClientRequest ro = e.getRequest();
+        EntityBuffer entity = null;
+        if (ro.getEntity() != null) {
+            final EntityBuffer b = entity = new EntityBuffer();
+            writeRequestEntity(ro, new RequestEntityWriterListener() {
+                public void onRequestEntitySize(long size) {
+                }
+
+                public OutputStream onGetOutputStream() throws IOException {
+                    return b;
+                }
+            });
+        }
+
+        final long contentLength = (entity != null)
+                ? entity.size()
+                : (method.equals("POST") || method.equals("PUT")) ? 0 : -1;
+        final byte[] head = HttpMessages.getHead(ro.getHeaders(), route, uri, method, contentLength, false)
+                .getBytes("ISO-8859-1");
+
+        final ByteBuffer data = ByteBuffer.allocate(head.length + ((entity != null) ? entity.size() : 0));
+        data.put(head);
+        if (entity != null) {
+            entity.writeTo(data);
+        }
+        data.flip();
+
+        e.setTarget(uri, method, route, address, data);
+    }
+
+    /**
+     * Complete an exchange with the response, or follow a redirect.
+     * <p>
+     * Called by the thread of an event loop.
+     */
+    void onResponse(Exchange e, ResponseParser p) {
+        try {
+            // A request with an entity is not redirected, as for the
+            // pooled client handler
+            if (e.isFollowRedirects() && e.getRequest().getEntity() == null) {
+                final URI redirect = HttpMessages.getRedirect(e.getURI(), e.getMethod(), p.getStatus(),
+                        p.getHeaders().getFirst("Location"), e.getRedirects());
+                if (redirect != null) {
+                    e.redirected();
+                    prepare(e, redirect, HttpMessages.getRedirectMethod(e.getMethod()));
+                    submit(e);
+                    return;
+                }
+            }
+
+            final ClientResponse r = new NioClientResponse(p, e);
+            final Object client = e.getRequest().getProperties().get(Client.class.getName());
+            if (client != null) {
+                r.getProperties().put(Client.class.getName(), client);
+            }
+            e.complete(r);
+        } catch (Exception ex) {
+            e.fail(ex);
+        }
+    }
+
+    private final class NioClientResponse extends ClientResponse {
+        private final String method;
+        private final URI uri;
+
+        NioClientResponse(ResponseParser p, Exchange e) {
+            super(p.getStatus(), p.getHeaders(), p.getEntity(), getMessageBodyWorkers());
+            this.method = e.getMethod();
+            this.uri = e.getURI();
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + uri + " returned a response status of " + this.getStatus() +
+                    " " + this.getClientResponseStatus();
+        }
+    }
+}
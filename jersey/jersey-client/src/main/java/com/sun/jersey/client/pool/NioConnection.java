@@ -0,0 +1,252 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A non-blocking connection to an origin server, owned by an
+ * {@link EventLoop}.
+ * <p>
+ * A connection is used by one exchange at a time, requests are never
+ * pipelined. All methods MUST be called by the thread of the event loop.
+ */
+final class NioConnection {
+
+    private final Route route;
+
+    private final SocketChannel channel;
+
+    private final SelectionKey key;
+
+    private boolean connected;
+
+    private boolean reused;
+
+    private boolean closed;
+
+    private Exchange exchange;
+
+    private ResponseParser parser;
+
+    private ByteBuffer data;
+
+    private long deadline;
+
+    private long idleSince;
+
+    private NioConnection(Route route, SocketChannel channel, Selector selector, boolean connected)
+            throws IOException {
+        this.route = route;
+        this.channel = channel;
+        this.connected = connected;
+        this.key = channel.register(selector, 0, this);
+    }
+
+    /**
+     * Open a new connection, the connection is established asynchronously.
+     *
+     * @param route the route of the connection.
+     * @param address the resolved address of the origin server.
+     * @param selector the selector of the event loop.
+     * @return the connection.
+     */
+    static NioConnection open(Route route, InetSocketAddress address, Selector selector) throws IOException {
+        final SocketChannel channel = SocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            final boolean connected = channel.connect(address);
+            return new NioConnection(route, channel, selector, connected);
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        } catch (RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    Route getRoute() {
+        return route;
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Check if the connection was used for a previous exchange.
+     */
+    boolean isReused() {
+        return reused;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    Exchange getExchange() {
+        return exchange;
+    }
+
+    ResponseParser getParser() {
+        return parser;
+    }
+
+    /**
+     * Get the time, in milliseconds, at which the current exchange times
+     * out, otherwise 0 if the exchange does not time out.
+     */
+    long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Get the time, in milliseconds, since which the connection is idle.
+     */
+    long getIdleSince() {
+        return idleSince;
+    }
+
+    /**
+     * Start an exchange on the connection.
+     */
+    void start(Exchange e, int maxEntitySize, long now) throws IOException {
+        exchange = e;
+        parser = new ResponseParser(e.getMethod(), maxEntitySize);
+        data = e.getData();
+        e.setConnection(this);
+
+        if (!connected) {
+            deadline = (e.getConnectTimeout() > 0) ? now + e.getConnectTimeout() : 0;
+            key.interestOps(SelectionKey.OP_CONNECT);
+        } else {
+            write(now);
+        }
+    }
+
+    /**
+     * Finish the connecting of the connection and write the request.
+     */
+    void finishConnect(long now) throws IOException {
+        if (channel.finishConnect()) {
+            connected = true;
+            write(now);
+        }
+    }
+
+    /**
+     * Write the request. Once the request is written the connection waits
+     * to read the response.
+     */
+    void write(long now) throws IOException {
+        channel.write(data);
+        deadline = (exchange.getReadTimeout() > 0) ? now + exchange.getReadTimeout() : 0;
+        key.interestOps(data.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    /**
+     * Read from the connection.
+     *
+     * @param buffer the buffer to read into, which is flipped for reading.
+     * @return the number of bytes read, otherwise -1 if the connection was
+     *         closed by the server.
+     */
+    int read(ByteBuffer buffer, long now) throws IOException {
+        buffer.clear();
+        final int n = channel.read(buffer);
+        buffer.flip();
+        if (n > 0 && exchange != null) {
+            deadline = (exchange.getReadTimeout() > 0) ? now + exchange.getReadTimeout() : 0;
+        }
+        return n;
+    }
+
+    /**
+     * Finish the current exchange, the connection becomes idle.
+     *
+     * @return the finished exchange.
+     */
+    Exchange finish(long now) {
+        final Exchange e = exchange;
+        e.setConnection(null);
+        exchange = null;
+        parser = null;
+        data = null;
+        deadline = 0;
+        reused = true;
+        idleSince = now;
+        if (!closed) {
+            // Idle connections are read to detect the closing by the server
+            key.interestOps(SelectionKey.OP_READ);
+        }
+        return e;
+    }
+
+    /**
+     * Close the connection.
+     *
+     * @return the exchange in progress, if any.
+     */
+    Exchange close() {
+        final Exchange e = exchange;
+        if (e != null) {
+            e.setConnection(null);
+            exchange = null;
+        }
+        if (!closed) {
+            closed = true;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                // Ignore
+            }
+        }
+        return e;
+    }
+}
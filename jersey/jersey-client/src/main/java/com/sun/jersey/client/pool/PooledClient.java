@@ -0,0 +1,143 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.core.spi.component.ioc.IoCComponentProviderFactory;
+
+/**
+ * A {@link Client} that utilizes a {@link PooledClientHandler} to send and
+ * receive HTTP requests and responses over pooled, persistent connections.
+ * <p>
+ * The connection pool is configured from the properties of the client
+ * configuration, see {@link PooledClientHandler}, and is closed when the
+ * client is destroyed.
+ * <p>
+ * If a {@link com.sun.jersey.api.client.ClientResponse} is obtained and an
+ * entity is not read from the response then
+ * {@link com.sun.jersey.api.client.ClientResponse#close() } MUST be called
+ * after processing the response to release the connection.
+ */
+public class PooledClient extends Client {
+
+    private final PooledClientHandler handler;
+
+    /**
+     * Create a new client instance.
+     */
+    public PooledClient() {
+        this(new DefaultClientConfig());
+    }
+
+    /**
+     * Create a new client instance with a client configuration.
+     *
+     * @param config the client configuration.
+     */
+    public PooledClient(ClientConfig config) {
+        this(new PooledClientHandler(config), config, null);
+    }
+
+    /**
+     * Create a new instance with a client handler, a client configuration
+     * and a component provider.
+     *
+     * @param root the pooled client handler.
+     * @param config the client configuration.
+     * @param provider the IoC component provider factory.
+     */
+    public PooledClient(PooledClientHandler root, ClientConfig config,
+            IoCComponentProviderFactory provider) {
+        super(root, config, provider);
+        this.handler = root;
+    }
+
+    /**
+     * Get the pooled client handler.
+     *
+     * @return the pooled client handler.
+     */
+    public PooledClientHandler getClientHandler() {
+        return handler;
+    }
+
+    /**
+     * Get the connection pool.
+     *
+     * @return the connection pool.
+     */
+    public ConnectionPool getConnectionPool() {
+        return handler.getConnectionPool();
+    }
+
+    /**
+     * Destroy the client and close the connection pool.
+     */
+    @Override
+    public void destroy() {
+        try {
+            super.destroy();
+        } finally {
+            handler.getConnectionPool().close();
+        }
+    }
+
+    /**
+     * Create a default client.
+     *
+     * @return a default client.
+     */
+    public static PooledClient create() {
+        return new PooledClient();
+    }
+
+    /**
+     * Create a default client with client configuration.
+     *
+     * @param cc the client configuration.
+     * @return a default client.
+     */
+    public static PooledClient create(ClientConfig cc) {
+        return new PooledClient(cc);
+    }
+}
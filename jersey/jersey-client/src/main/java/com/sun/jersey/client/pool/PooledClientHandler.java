@@ -0,0 +1,433 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.CommittingOutputStream;
+import com.sun.jersey.api.client.TerminatingClientHandler;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.client.urlconnection.HTTPSProperties;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * A terminating client handler that sends HTTP/1.1 requests over pooled,
+ * persistent connections managed by a {@link ConnectionPool}.
+ * <p>
+ * Unlike {@link com.sun.jersey.client.urlconnection.URLConnectionClientHandler},
+ * which relies on the keep-alive cache of the JDK, the number of connections
+ * per route (scheme, host and port) and in total is bounded, idle connections
+ * are closed after an idle timeout and the state of the pool may be
+ * inspected. The pool is configured with the following properties, which are
+ * only supported at construction of this class:
+ * <ul>
+ * <li>{@link #PROPERTY_MAX_CONNECTIONS_PER_ROUTE}</li>
+ * <li>{@link #PROPERTY_MAX_CONNECTIONS}</li>
+ * <li>{@link #PROPERTY_IDLE_TIMEOUT}</li>
+ * </ul>
+ * The properties {@link ClientConfig#PROPERTY_CONNECT_TIMEOUT},
+ * {@link ClientConfig#PROPERTY_READ_TIMEOUT},
+ * {@link ClientConfig#PROPERTY_FOLLOW_REDIRECTS},
+ * {@link ClientConfig#PROPERTY_CHUNKED_ENCODING_SIZE},
+ * {@link #PROPERTY_CONNECTION_WAIT_TIMEOUT} and
+ * {@link HTTPSProperties#PROPERTY_HTTPS_PROPERTIES} are supported per request.
+ * Proxies are not supported.
+ * <p>
+ * A connection is returned to the pool when the response entity has been
+ * completely read or the {@link ClientResponse} is closed. If a
+ * {@link ClientResponse} is obtained and the entity is not read then
+ * {@link ClientResponse#close() } MUST be called to release the connection.
+ * <p>
+ * Requests are not pipelined. If a request without an entity fails on a
+ * reused connection before a response is received, for example because
+ * the server closed the connection, the request is retried once on another
+ * connection.
+ */
+public final class PooledClientHandler extends TerminatingClientHandler {
+
+    /**
+     * The maximum number of connections per route.
+     * <p>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent then the default value is 20.
+     */
+    public static final String PROPERTY_MAX_CONNECTIONS_PER_ROUTE =
+            "com.sun.jersey.client.property.maxConnectionsPerRoute";
+
+    /**
+     * The maximum number of connections.
+     * <p>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent then the default value is 200.
+     */
+    public static final String PROPERTY_MAX_CONNECTIONS =
+            "com.sun.jersey.client.property.maxConnections";
+
+    /**
+     * The time, in milliseconds, after which an idle connection is closed.
+     * <p>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent then the default value is 30000. A value
+     * &lt;= 0 declares that idle connections are not closed by the pool.
+     */
+    public static final String PROPERTY_IDLE_TIMEOUT =
+            "com.sun.jersey.client.property.idleTimeout";
+
+    /**
+     * The maximum time, in milliseconds, to wait for a connection when the
+     * maximum number of connections is reached.
+     * <p>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * If the property is absent then the default value is an interval of
+     * infinity. A value of 0 is equivalent to an interval of infinity.
+     */
+    public static final String PROPERTY_CONNECTION_WAIT_TIMEOUT =
+            "com.sun.jersey.client.property.connectionWaitTimeout";
+
+    /**
+     * The {@link ConnectionPool} of the handler, set by the handler as a
+     * property of the client configuration it is constructed with.
+     */
+    public static final String PROPERTY_CONNECTION_POOL =
+            "com.sun.jersey.client.property.connectionPool";
+
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
+    private static final int DEFAULT_MAX_CONNECTIONS = 200;
+
+    private static final int DEFAULT_IDLE_TIMEOUT = 30000;
+
+    private static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private final class PooledClientResponse extends ClientResponse {
+        private final String method;
+        private final URI uri;
+        private final boolean hasEntity;
+
+        PooledClientResponse(int status, InBoundHeaders headers, InputStream entity,
+                String method, URI uri, boolean hasEntity) {
+            super(status, headers, entity, getMessageBodyWorkers());
+            this.method = method;
+            this.uri = uri;
+            this.hasEntity = hasEntity;
+        }
+
+        @Override
+        public boolean hasEntity() {
+            return hasEntity;
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + uri + " returned a response status of " + this.getStatus() +
+                    " " + this.getClientResponseStatus();
+        }
+    }
+
+    private final ConnectionPool pool;
+
+    /**
+     * Construct a new instance with a connection pool of the default
+     * configuration.
+     */
+    public PooledClientHandler() {
+        this((ClientConfig) null);
+    }
+
+    /**
+     * Construct a new instance with a connection pool configured from
+     * the properties of a client configuration.
+     * <p>
+     * The connection pool is set as the property
+     * {@link #PROPERTY_CONNECTION_POOL} of the client configuration.
+     *
+     * @param config the client configuration, may be null.
+     */
+    public PooledClientHandler(ClientConfig config) {
+        final Map<String, Object> properties = (config != null) ? config.getProperties() : null;
+        this.pool = new ConnectionPool(
+                getInteger(properties, PROPERTY_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_PER_ROUTE),
+                getInteger(properties, PROPERTY_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS),
+                getInteger(properties, PROPERTY_IDLE_TIMEOUT, DEFAULT_IDLE_TIMEOUT));
+        if (properties != null) {
+            properties.put(PROPERTY_CONNECTION_POOL, pool);
+        }
+    }
+
+    /**
+     * Construct a new instance with a connection pool, which may be shared
+     * with other instances.
+     *
+     * @param pool the connection pool.
+     */
+    public PooledClientHandler(ConnectionPool pool) {
+        if (pool == null)
+            throw new IllegalArgumentException("The connection pool must not be null");
+        this.pool = pool;
+    }
+
+    static int getInteger(Map<String, Object> properties, String name, int defaultValue) {
+        final Object v = (properties != null) ? properties.get(name) : null;
+        if (v == null)
+            return defaultValue;
+        if (v instanceof Integer)
+            return (Integer) v;
+        if (v instanceof String)
+            return Integer.parseInt((String) v);
+        throw new IllegalArgumentException("The property " + name + " must be an instance of " +
+                Integer.class.getName());
+    }
+
+    /**
+     * Get the connection pool.
+     *
+     * @return the connection pool.
+     */
+    public ConnectionPool getConnectionPool() {
+        return pool;
+    }
+
+    /**
+     * ClientRequest handler.
+     *
+     * @param ro ClientRequest
+     * @return Server response represented as ClientResponse
+     */
+    public ClientResponse handle(ClientRequest ro) {
+        try {
+            return _invoke(ro);
+        } catch (Exception ex) {
+            throw new ClientHandlerException(ex);
+        }
+    }
+
+    private ClientResponse _invoke(final ClientRequest ro) throws IOException {
+        final Boolean followRedirects = (Boolean) ro.getProperties().get(
+                ClientConfig.PROPERTY_FOLLOW_REDIRECTS);
+
+        URI uri = ro.getURI();
+        String method = ro.getMethod();
+        int redirects = 0;
+        while (true) {
+            final ClientResponse r = execute(ro, uri, method);
+
+            if ((followRedirects != null && !followRedirects) || ro.getEntity() != null)
+                return r;
+
+            final URI redirect = HttpMessages.getRedirect(uri, method, r.getStatus(),
+                    r.getHeaders().getFirst("Location"), redirects);
+            if (redirect == null)
+                return r;
+
+            method = HttpMessages.getRedirectMethod(method);
+            r.close();
+            uri = redirect;
+            redirects++;
+        }
+    }
+
+    private ClientResponse execute(final ClientRequest ro, final URI uri, final String method) throws IOException {
+        final Route route = new Route(uri, (HTTPSProperties) ro.getProperties().get(
+                HTTPSProperties.PROPERTY_HTTPS_PROPERTIES));
+        final Integer connectTimeout = (Integer) ro.getProperties().get(
+                ClientConfig.PROPERTY_CONNECT_TIMEOUT);
+        final Integer readTimeout = (Integer) ro.getProperties().get(
+                ClientConfig.PROPERTY_READ_TIMEOUT);
+        final Integer waitTimeout = (Integer) ro.getProperties().get(
+                PROPERTY_CONNECTION_WAIT_TIMEOUT);
+
+        boolean retry = ro.getEntity() == null;
+        while (true) {
+            final PooledConnection c = pool.lease(route,
+                    (connectTimeout != null) ? connectTimeout : 0,
+                    (waitTimeout != null) ? waitTimeout : 0);
+            boolean responded = false;
+            try {
+                c.setReadTimeout((readTimeout != null) ? readTimeout : 0);
+                final boolean close = writeRequest(ro, c, uri, method);
+
+                final String statusLine = c.readLine();
+                if (statusLine == null)
+                    throw new IOException("The connection was closed by the server before a response was received");
+                responded = true;
+
+                return readResponse(c, statusLine, uri, method, close);
+            } catch (IOException ex) {
+                c.discard();
+                if (retry && !responded && c.isReused() && !(ex instanceof SocketTimeoutException)) {
+                    retry = false;
+                    continue;
+                }
+                throw ex;
+            } catch (RuntimeException ex) {
+                c.discard();
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Write the request.
+     *
+     * @return true if the request declares that the connection is to be
+     *         closed after the response.
+     */
+    private boolean writeRequest(final ClientRequest ro, final PooledConnection c,
+            final URI uri, final String method) throws IOException {
+        final OutputStream out = c.getOutputStream();
+        final MultivaluedMap<String, Object> headers = ro.getHeaders();
+
+        if (ro.getEntity() == null) {
+            final long contentLength = (method.equals("POST") || method.equals("PUT")) ? 0 : -1;
+            writeHead(out, headers, c.getRoute(), uri, method, contentLength, false);
+            out.flush();
+            return HttpMessages.isClose(headers);
+        }
+
+        final Integer chunkedEncodingSize = (Integer) ro.getProperties().get(
+                ClientConfig.PROPERTY_CHUNKED_ENCODING_SIZE);
+
+        writeRequestEntity(ro, new RequestEntityWriterListener() {
+            private long size;
+
+            public void onRequestEntitySize(long size) {
+                this.size = size;
+            }
+
+            public OutputStream onGetOutputStream() throws IOException {
+                if (size == -1 && chunkedEncodingSize == null) {
+                    // Buffer the entity to declare the Content-Length
+                    return new ByteArrayOutputStream() {
+                        private boolean closed;
+
+                        @Override
+                        public void close() throws IOException {
+                            if (closed)
+                                return;
+                            closed = true;
+                            writeHead(out, headers, c.getRoute(), uri, method, size(), false);
+                            writeTo(out);
+                            out.flush();
+                        }
+                    };
+                }
+
+                return new CommittingOutputStream() {
+                    @Override
+                    protected OutputStream getOutputStream() throws IOException {
+                        return (size != -1)
+                                ? EntityOutputStream.fixedLength(out, size)
+                                : EntityOutputStream.chunked(out, (chunkedEncodingSize > 0)
+                                    ? chunkedEncodingSize : DEFAULT_CHUNK_SIZE);
+                    }
+
+                    @Override
+                    public void commit() throws IOException {
+                        writeHead(out, headers, c.getRoute(), uri, method, size, size == -1);
+                    }
+                };
+            }
+        });
+        return HttpMessages.isClose(headers);
+    }
+
+    private static void writeHead(OutputStream out, MultivaluedMap<String, Object> headers,
+            Route route, URI uri, String method, long contentLength, boolean chunked) throws IOException {
+        out.write(HttpMessages.getHead(headers, route, uri, method, contentLength, chunked).getBytes("ISO-8859-1"));
+    }
+
+    private ClientResponse readResponse(PooledConnection c, String statusLine,
+            URI uri, String method, boolean close) throws IOException {
+        while (true) {
+            final int status = HttpMessages.getStatus(statusLine);
+            final InBoundHeaders headers = readHeaders(c);
+
+            if (HttpMessages.isInformational(status)) {
+                // Ignore informational responses
+                statusLine = c.readLine();
+                if (statusLine == null)
+                    throw new IOException("The connection was closed by the server before a response was received");
+                continue;
+            }
+
+            c.setKeepAlive(!close && HttpMessages.isKeepAlive(statusLine, headers));
+
+            final long length = HttpMessages.getEntityLength(method, status, headers);
+            final InputStream entity;
+            if (length == HttpMessages.CHUNKED) {
+                entity = EntityInputStream.chunked(c);
+            } else if (length == HttpMessages.UNTIL_CLOSE) {
+                entity = EntityInputStream.untilClose(c);
+            } else {
+                entity = (length > 0) ? EntityInputStream.fixedLength(c, length) : null;
+            }
+
+            if (entity == null) {
+                c.release();
+                return new PooledClientResponse(status, headers,
+                        new ByteArrayInputStream(new byte[0]), method, uri, false);
+            }
+            return new PooledClientResponse(status, headers, entity, method, uri, true);
+        }
+    }
+
+    private static InBoundHeaders readHeaders(PooledConnection c) throws IOException {
+        final HttpMessages.HeaderParser parser = new HttpMessages.HeaderParser();
+        String line;
+        do {
+            line = c.readLine();
+            if (line == null)
+                throw new IOException("Premature end of the response headers");
+        } while (!parser.parse(line));
+        return parser.getHeaders();
+    }
+}
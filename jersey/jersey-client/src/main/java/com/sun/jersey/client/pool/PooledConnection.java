@@ -0,0 +1,291 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import com.sun.jersey.client.urlconnection.HTTPSProperties;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * A connection to an origin server that may be pooled and reused for
+ * subsequent requests with the same {@link Route}.
+ * <p>
+ * A connection is used by one request at a time. Requests are never
+ * pipelined; a connection is only returned to the pool once the response
+ * entity has been completely read.
+ */
+final class PooledConnection {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private final ConnectionPool pool;
+
+    private final Route route;
+
+    private final Socket socket;
+
+    private final InputStream in;
+
+    private final OutputStream out;
+
+    private long lastUsed;
+
+    private boolean reused;
+
+    private boolean keepAlive;
+
+    private PooledConnection(ConnectionPool pool, Route route, Socket socket) throws IOException {
+        this.pool = pool;
+        this.route = route;
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+        this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+    }
+
+    /**
+     * Open a new connection.
+     *
+     * @param pool the pool the connection belongs to.
+     * @param route the route of the connection.
+     * @param connectTimeout the connect timeout in milliseconds, 0 for an
+     *        infinite timeout.
+     * @return the connection.
+     * @throws IOException if the connection cannot be established.
+     */
+    static PooledConnection open(ConnectionPool pool, Route route, int connectTimeout) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(route.getHost(), route.getPort()), connectTimeout);
+            if (route.isSecure()) {
+                socket = secure(route, socket);
+            }
+            return new PooledConnection(pool, route, socket);
+        } catch (IOException ex) {
+            close(socket);
+            throw ex;
+        } catch (RuntimeException ex) {
+            close(socket);
+            throw ex;
+        }
+    }
+
+    private static Socket secure(Route route, Socket socket) throws IOException {
+        final HTTPSProperties p = route.getHTTPSProperties();
+        final SSLContext c = (p != null) ? p.getSSLContext() : null;
+        final SSLSocketFactory f = (c != null)
+                ? c.getSocketFactory()
+                : (SSLSocketFactory) SSLSocketFactory.getDefault();
+
+        final SSLSocket s = (SSLSocket) f.createSocket(socket, route.getHost(), route.getPort(), true);
+        final HostnameVerifier hv = (p != null) ? p.getHostnameVerifier() : null;
+        if (hv == null) {
+            // Verify the host name as part of the handshake
+            final SSLParameters sp = s.getSSLParameters();
+            sp.setEndpointIdentificationAlgorithm("HTTPS");
+            s.setSSLParameters(sp);
+        }
+        s.startHandshake();
+
+        if (hv != null && !hv.verify(route.getHost(), s.getSession())) {
+            throw new SSLPeerUnverifiedException("The host name " + route.getHost() +
+                    " was not verified by the hostname verifier");
+        }
+        return s;
+    }
+
+    ConnectionPool getPool() {
+        return pool;
+    }
+
+    Route getRoute() {
+        return route;
+    }
+
+    InputStream getInputStream() {
+        return in;
+    }
+
+    OutputStream getOutputStream() {
+        return out;
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    void setLastUsed(long lastUsed) {
+        this.lastUsed = lastUsed;
+    }
+
+    /**
+     * @return true if this connection was previously used for another
+     *         request.
+     */
+    boolean isReused() {
+        return reused;
+    }
+
+    void setReused(boolean reused) {
+        this.reused = reused;
+    }
+
+    /**
+     * @return true if this connection may be reused once the current
+     *         response has been read.
+     */
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    void setReadTimeout(int readTimeout) throws IOException {
+        socket.setSoTimeout(readTimeout);
+    }
+
+    /**
+     * Check if an idle connection has been closed by the server, or has
+     * received unexpected bytes, and cannot be reused.
+     *
+     * @return true if the connection cannot be reused.
+     */
+    boolean isStale() {
+        if (socket.isClosed() || socket.isInputShutdown() || socket.isOutputShutdown())
+            return true;
+
+        try {
+            if (in.available() > 0)
+                return true;
+
+            final int soTimeout = socket.getSoTimeout();
+            try {
+                socket.setSoTimeout(1);
+                // The end of the stream, or any unsolicited byte, means the
+                // connection cannot be reused
+                in.read();
+                return true;
+            } catch (SocketTimeoutException ex) {
+                return false;
+            } finally {
+                socket.setSoTimeout(soTimeout);
+            }
+        } catch (IOException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * Read a line terminated by LF, or CRLF, decoded as ISO-8859-1.
+     *
+     * @return the line, without the line terminator, or null if the end of
+     *         the stream is reached before any bytes are read.
+     * @throws IOException if the line cannot be read, the end of the stream
+     *         is reached before the line terminator or the line is too long.
+     */
+    String readLine() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                if (sb.length() == 0)
+                    return null;
+                throw new IOException("Premature end of the response");
+            }
+            if (sb.length() == MAX_LINE_LENGTH)
+                throw new IOException("The response line or header is too long");
+            sb.append((char) b);
+        }
+
+        final int l = sb.length();
+        if (l > 0 && sb.charAt(l - 1) == '\r')
+            sb.setLength(l - 1);
+        return sb.toString();
+    }
+
+    /**
+     * Return this connection to the pool once the response has been read.
+     */
+    void release() {
+        pool.release(this);
+    }
+
+    /**
+     * Close this connection and remove it from the pool.
+     */
+    void discard() {
+        pool.discard(this);
+    }
+
+    void close() {
+        close(socket);
+    }
+
+    private static void close(Socket s) {
+        try {
+            s.close();
+        } catch (IOException ex) {
+            // Ignore
+        }
+    }
+
+    @Override
+    public String toString() {
+        return route + " " + socket.getLocalPort();
+    }
+}
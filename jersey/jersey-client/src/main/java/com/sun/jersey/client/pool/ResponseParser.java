@@ -0,0 +1,283 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import com.sun.jersey.core.header.InBoundHeaders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An incremental parser of an HTTP/1.1 response, to which the bytes of the
+ * response are supplied as they are read from a non-blocking channel.
+ * <p>
+ * The response entity, if any, is buffered in memory.
+ */
+final class ResponseParser {
+
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private static final int INITIAL_ENTITY_CAPACITY = 8192;
+
+    private static final int MAX_INITIAL_ENTITY_CAPACITY = 64 * 1024;
+
+    private static final int MAX_ENTITY_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final int STATUS_LINE = 0;
+
+    private static final int HEADERS = 1;
+
+    private static final int FIXED_LENGTH = 2;
+
+    private static final int CHUNK_SIZE = 3;
+
+    private static final int CHUNK_DATA = 4;
+
+    private static final int CHUNK_END = 5;
+
+    private static final int TRAILERS = 6;
+
+    private static final int UNTIL_CLOSE = 7;
+
+    private static final int DONE = 8;
+
+    private final String method;
+
+    private final int maxEntitySize;
+
+    private final StringBuilder line = new StringBuilder();
+
+    private int state = STATUS_LINE;
+
+    private boolean received;
+
+    private String statusLine;
+
+    private int status;
+
+    private HttpMessages.HeaderParser headers;
+
+    private long remaining;
+
+    private byte[] entity = EMPTY;
+
+    private int size;
+
+    /**
+     * @param method the method of the request.
+     * @param maxEntitySize the maximum size, in bytes, of the response
+     *        entity. Larger entities fail the parsing.
+     */
+    ResponseParser(String method, int maxEntitySize) {
+        this.method = method;
+        this.maxEntitySize = Math.min(maxEntitySize, MAX_ENTITY_CAPACITY);
+    }
+
+    /**
+     * Parse bytes of the response.
+     *
+     * @param b the bytes. Bytes following the end of the response are not
+     *        consumed.
+     * @return true if the response is complete.
+     */
+    boolean parse(ByteBuffer b) throws IOException {
+        received |= b.hasRemaining();
+        while (state != DONE && b.hasRemaining()) {
+            String l;
+            switch (state) {
+                case STATUS_LINE:
+                    if ((l = readLine(b)) == null)
+                        return false;
+                    // Tolerate empty lines preceding the status line
+                    if (l.length() > 0) {
+                        statusLine = l;
+                        status = HttpMessages.getStatus(l);
+                        headers = new HttpMessages.HeaderParser();
+                        state = HEADERS;
+                    }
+                    break;
+                case HEADERS:
+                    if ((l = readLine(b)) == null)
+                        return false;
+                    if (headers.parse(l)) {
+                        onHeaders();
+                    }
+                    break;
+                case FIXED_LENGTH:
+                    remaining -= append(b, remaining);
+                    if (remaining == 0)
+                        state = DONE;
+                    break;
+                case CHUNK_SIZE:
+                    if ((l = readLine(b)) == null)
+                        return false;
+                    remaining = HttpMessages.getChunkSize(l);
+                    state = (remaining > 0) ? CHUNK_DATA : TRAILERS;
+                    break;
+                case CHUNK_DATA:
+                    remaining -= append(b, remaining);
+                    if (remaining == 0)
+                        state = CHUNK_END;
+                    break;
+                case CHUNK_END:
+                    if ((l = readLine(b)) == null)
+                        return false;
+                    if (l.length() != 0)
+                        throw new IOException("Invalid chunk, a chunk is not terminated by CRLF");
+                    state = CHUNK_SIZE;
+                    break;
+                case TRAILERS:
+                    // Ignore any trailer
+                    if ((l = readLine(b)) == null)
+                        return false;
+                    if (l.length() == 0)
+                        state = DONE;
+                    break;
+                case UNTIL_CLOSE:
+                    append(b, b.remaining());
+                    break;
+            }
+        }
+        return state == DONE;
+    }
+
+    private void onHeaders() throws IOException {
+        if (HttpMessages.isInformational(status)) {
+            // Ignore informational responses
+            state = STATUS_LINE;
+            return;
+        }
+
+        final long length = HttpMessages.getEntityLength(method, status, headers.getHeaders());
+        if (length == HttpMessages.CHUNKED) {
+            state = CHUNK_SIZE;
+        } else if (length == HttpMessages.UNTIL_CLOSE) {
+            state = UNTIL_CLOSE;
+        } else if (length == 0) {
+            state = DONE;
+        } else {
+            if (length > maxEntitySize)
+                throw new IOException("The response entity of " + length
+                        + " bytes exceeds the maximum size of " + maxEntitySize + " bytes");
+            entity = new byte[(int) Math.min(length, MAX_INITIAL_ENTITY_CAPACITY)];
+            remaining = length;
+            state = FIXED_LENGTH;
+        }
+    }
+
+    /**
+     * Signal that the connection was closed by the server.
+     *
+     * @return true if the response is complete, otherwise false if the
+     *         response is incomplete.
+     */
+    boolean close() {
+        if (state == UNTIL_CLOSE) {
+            state = DONE;
+        }
+        return state == DONE;
+    }
+
+    /**
+     * Check if any bytes of the response have been received.
+     */
+    boolean isReceived() {
+        return received;
+    }
+
+    /**
+     * Check if the connection may be reused after the complete response.
+     */
+    boolean isKeepAlive() {
+        return state == DONE && statusLine != null
+                && HttpMessages.isKeepAlive(statusLine, headers.getHeaders());
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    InBoundHeaders getHeaders() {
+        return headers.getHeaders();
+    }
+
+    InputStream getEntity() {
+        return new ByteArrayInputStream(entity, 0, size);
+    }
+
+    private String readLine(ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) {
+            final int c = b.get() & 0xFF;
+            if (c == '\n') {
+                final int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                final String l = line.toString();
+                line.setLength(0);
+                return l;
+            }
+            if (line.length() == MAX_LINE_LENGTH)
+                throw new IOException("The response line or header is too long");
+            line.append((char) c);
+        }
+        return null;
+    }
+
+    private int append(ByteBuffer b, long max) throws IOException {
+        final int n = (int) Math.min(b.remaining(), max);
+        if (size + n > entity.length) {
+            if ((long) size + n > maxEntitySize)
+                throw new IOException("The response entity exceeds the maximum size of " + maxEntitySize + " bytes");
+            final byte[] e = new byte[(int) Math.min(maxEntitySize,
+                    Math.max((long) size + n, Math.max(INITIAL_ENTITY_CAPACITY, 2L * entity.length)))];
+            System.arraycopy(entity, 0, e, 0, size);
+            entity = e;
+        }
+        b.get(entity, size, n);
+        size += n;
+        return n;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.client.pool;
+
+import com.sun.jersey.client.urlconnection.HTTPSProperties;
+
+import java.net.URI;
+
+/**
+ * The route of a connection, namely the scheme, host and port of the
+ * origin server and, for HTTPS, the SSL configuration used to connect.
+ * <p>
+ * Connections are only reused for requests with the same route.
+ */
+final class Route {
+
+    private final String scheme;
+
+    private final String host;
+
+    private final int port;
+
+    private final HTTPSProperties httpsProperties;
+
+    Route(URI uri, HTTPSProperties httpsProperties) {
+        this.scheme = uri.getScheme().toLowerCase();
+        if (!scheme.equals("http") && !scheme.equals("https"))
+            throw new IllegalArgumentException("The scheme of the URI " + uri + " is not supported");
+
+        this.host = uri.getHost();
+        if (host == null)
+            throw new IllegalArgumentException("The URI " + uri + " does not declare a host");
+
+        this.port = (uri.getPort() != -1)
+                ? uri.getPort()
+                : isSecure() ? 443 : 80;
+        this.httpsProperties = isSecure() ? httpsProperties : null;
+    }
+
+    String getScheme() {
+        return scheme;
+    }
+
+    String getHost() {
+        return host;
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    boolean isSecure() {
+        return scheme.equals("https");
+    }
+
+    HTTPSProperties getHTTPSProperties() {
+        return httpsProperties;
+    }
+
+    /**
+     * Get the value of the Host request header.
+     */
+    String getHostHeader() {
+        final boolean defaultPort = isSecure() ? port == 443 : port == 80;
+        final String h = (host.indexOf(':') != -1 && !host.startsWith("["))
+                ? "[" + host + "]"
+                : host;
+        return defaultPort ? h : h + ":" + port;
+    }
+
+    boolean matches(URI uri) {
+        final int p = (uri.getPort() != -1)
+                ? uri.getPort()
+                : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        return scheme.equalsIgnoreCase(uri.getScheme())
+                && host.equalsIgnoreCase(uri.getHost())
+                && port == p;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Route))
+            return false;
+
+        final Route that = (Route) o;
+        return port == that.port
+                && scheme.equals(that.scheme)
+                && host.equalsIgnoreCase(that.host)
+                && httpsProperties == that.httpsProperties;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = scheme.hashCode();
+        hash = 31 * hash + host.toLowerCase().hashCode();
+        hash = 31 * hash + port;
+        hash = 31 * hash + System.identityHashCode(httpsProperties);
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return scheme + "://" + getHostHeader();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+/**
+ * Provides support for the Client API that sends and receives HTTP requests
+ * and responses over pooled, persistent HTTP/1.1 connections.
+ * <p>
+ * The pooled client can be used as follows to make simple GET and POST
+ * requests to a Web resource, with at most 50 connections to each origin
+ * server:
+ * <blockquote><pre>
+ *     ClientConfig cc = new DefaultClientConfig();
+ *     cc.getProperties().put(PooledClientHandler.PROPERTY_MAX_CONNECTIONS_PER_ROUTE, 50);
+ *     PooledClient c = PooledClient.create(cc);
+ *     WebResource r = c.resource("http://host/base");
+ *     String s = r.get(String.class);
+ *     s = r.post(String.class, s);
+ * </pre></blockquote>
+ * <p>
+ * The statistics of the connection pool may be obtained from the
+ * {@link com.sun.jersey.client.pool.ConnectionPool}, which is also available
+ * as the property
+ * {@link com.sun.jersey.client.pool.PooledClientHandler#PROPERTY_CONNECTION_POOL}
+ * of the client configuration:
+ * <blockquote><pre>
+ *     ConnectionPool pool = c.getConnectionPool();
+ *     int leased = pool.getLeasedConnections();
+ *     long reused = pool.getReusedConnections();
+ * </pre></blockquote>
+ * <p>
+ * The non-blocking client sends requests over non-blocking connections
+ * managed by a small number of event loops, such that asynchronous
+ * requests do not block a thread per request. At most 256 requests are in
+ * flight in the following example and listeners are called from an event
+ * loop:
+ * <blockquote><pre>
+ *     ClientConfig cc = new DefaultClientConfig();
+ *     cc.getProperties().put(NioClientHandler.PROPERTY_MAX_IN_FLIGHT_REQUESTS, 256);
+ *     NioClient c = NioClient.create(cc);
+ *     AsyncWebResource r = c.asyncResource("http://host/base");
+ *     Future&lt;String&gt; f = r.get(new TypeListener&lt;String&gt;(String.class) {
+ *         public void onComplete(Future&lt;String&gt; f) throws InterruptedException {
+ *             ...
+ *         }
+ *     });
+ * </pre></blockquote>
+ */
+package com.sun.jersey.client.pool;
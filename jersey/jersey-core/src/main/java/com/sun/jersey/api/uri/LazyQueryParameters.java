@@ -0,0 +1,310 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.api.uri;
+
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * The query parameters of a query component, whose names and values are
+ * decoded when first looked up by name.
+ * <p>
+ * The query component is indexed, without decoding, on construction. The
+ * values of a query parameter are decoded, and cached, when the parameter is
+ * first looked up using {@link #get(Object) }, {@link #getFirst(String) } or
+ * {@link #containsKey(Object) }. Any other operation decodes all the query
+ * parameters into a {@link MultivaluedMapImpl}, to which all subsequent
+ * operations defer. The lists of values returned before that are retained.
+ * <p>
+ * Query parameter names are always decoded, the same as
+ * {@link UriComponent#decodeQuery(String, boolean) }.
+ */
+final class LazyQueryParameters implements MultivaluedMap<String, String> {
+
+    private final String q;
+
+    private final boolean decode;
+
+    /**
+     * The start and end of the name, and the start and end of the value
+     * of each query parameter. The start of the value is -1 if there is
+     * no '=' character.
+     */
+    private int[] index = new int[16];
+
+    private int size;
+
+    private String[] names;
+
+    private Map<String, List<String>> values;
+
+    private MultivaluedMapImpl map;
+
+    LazyQueryParameters(String q, boolean decode) {
+        this.q = q;
+        this.decode = decode;
+
+        if (q == null) {
+            return;
+        }
+
+        int s = 0;
+        final int n = q.length();
+        while (s < n) {
+            int e = q.indexOf('&', s);
+            if (e == -1) {
+                e = n;
+            }
+            if (e > s) {
+                final int equals = q.indexOf('=', s);
+                if (equals == -1 || equals >= e) {
+                    add(s, e, -1, -1);
+                } else if (equals > s) {
+                    add(s, equals, equals + 1, e);
+                }
+                // no key declared, ignore
+            }
+            s = e + 1;
+        }
+    }
+
+    private void add(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        final int i = size * 4;
+        if (i == index.length) {
+            final int[] a = new int[index.length * 2];
+            System.arraycopy(index, 0, a, 0, index.length);
+            index = a;
+        }
+        index[i] = nameStart;
+        index[i + 1] = nameEnd;
+        index[i + 2] = valueStart;
+        index[i + 3] = valueEnd;
+        size++;
+    }
+
+    private static boolean isEncoded(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c == '%' || c == '+') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String name(int p) {
+        if (names == null) {
+            names = new String[size];
+        }
+        String name = names[p];
+        if (name == null) {
+            name = names[p] = UriComponent.decodeQueryParameter(q, index[p * 4], index[p * 4 + 1], true);
+        }
+        return name;
+    }
+
+    private boolean nameEquals(int p, String name) {
+        final int start = index[p * 4];
+        final int end = index[p * 4 + 1];
+        if (names == null || names[p] == null) {
+            if (!isEncoded(q, start, end)) {
+                return end - start == name.length() && q.regionMatches(start, name, 0, end - start);
+            }
+        }
+        return name(p).equals(name);
+    }
+
+    private String value(int p) {
+        final int start = index[p * 4 + 2];
+        return (start == -1) ? "" : UriComponent.decodeQueryParameter(q, start, index[p * 4 + 3], decode);
+    }
+
+    private List<String> lookup(String name) {
+        List<String> l = (values != null) ? values.get(name) : null;
+        if (l != null) {
+            return l;
+        }
+
+        for (int p = 0; p < size; p++) {
+            if (nameEquals(p, name)) {
+                if (l == null) {
+                    l = new LinkedList<String>();
+                }
+                l.add(value(p));
+            }
+        }
+
+        if (l != null) {
+            if (values == null) {
+                values = new HashMap<String, List<String>>();
+            }
+            values.put(name, l);
+        }
+        return l;
+    }
+
+    private MultivaluedMapImpl map() {
+        if (map != null) {
+            return map;
+        }
+
+        final MultivaluedMapImpl m = new MultivaluedMapImpl();
+        for (int p = 0; p < size; p++) {
+            final String name = name(p);
+            final List<String> l = (values != null) ? values.get(name) : null;
+            if (l != null) {
+                // The values already looked up, which may have been modified
+                if (!m.containsKey(name)) {
+                    m.put(name, l);
+                }
+            } else {
+                m.add(name, value(p));
+            }
+        }
+        values = null;
+        return map = m;
+    }
+
+    // MultivaluedMap
+
+    @Override
+    public List<String> get(Object key) {
+        if (map != null) {
+            return map.get(key);
+        }
+        return (key instanceof String) ? lookup((String) key) : null;
+    }
+
+    @Override
+    public String getFirst(String key) {
+        final List<String> l = get(key);
+        return (l != null && !l.isEmpty()) ? l.get(0) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (map != null) {
+            return map.containsKey(key);
+        }
+        return get(key) != null;
+    }
+
+    @Override
+    public void putSingle(String key, String value) {
+        map().putSingle(key, value);
+    }
+
+    @Override
+    public void add(String key, String value) {
+        map().add(key, value);
+    }
+
+    @Override
+    public int size() {
+        return map().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (map != null) ? map.isEmpty() : size == 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return map().containsValue(value);
+    }
+
+    @Override
+    public List<String> put(String key, List<String> value) {
+        return map().put(key, value);
+    }
+
+    @Override
+    public List<String> remove(Object key) {
+        return map().remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends List<String>> m) {
+        map().putAll(m);
+    }
+
+    @Override
+    public void clear() {
+        map().clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return map().keySet();
+    }
+
+    @Override
+    public Collection<List<String>> values() {
+        return map().values();
+    }
+
+    @Override
+    public Set<Entry<String, List<String>>> entrySet() {
+        return map().entrySet();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return map().equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return map().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return map().toString();
+    }
+}
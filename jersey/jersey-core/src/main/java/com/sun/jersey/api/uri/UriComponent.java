@@ -566,22 +566,63 @@ public class UriComponent {
         return queryParameters;
     }
 
+    /**
+     * Decode the query component of a URI, deferring the decoding of each
+     * query parameter until the parameter is looked up.
+     * <p>
+     * The query component is indexed, but not decoded, when this method is
+     * called. The values of a query parameter are decoded when the parameter
+     * is first looked up by name using {@link MultivaluedMap#get(Object) },
+     * {@link MultivaluedMap#getFirst(Object) } or
+     * {@link MultivaluedMap#containsKey(Object) }. Any other operation decodes
+     * all the query parameters. Query parameter names in the returned map are
+     * always decoded.
+     * </p>
+     *
+     * @param q      the query component in encoded form.
+     * @param decode {@code true} if the returned query parameter values of the query component
+     *               should be in decoded form.
+     * @return the multivalued map of query parameters.
+     */
+    public static MultivaluedMap<String, String> decodeQueryLazily(String q, boolean decode) {
+        return new LazyQueryParameters(q, decode);
+    }
+
     @SuppressWarnings("StatementWithEmptyBody")
     private static void decodeQueryParam(MultivaluedMap<String, String> params,
                                          String param, boolean decodeNames, boolean decodeValues) {
+        int equals = param.indexOf('=');
+        if (equals > 0) {
+            params.add(
+                    decodeQueryParameter(param, 0, equals, decodeNames),
+                    decodeQueryParameter(param, equals + 1, param.length(), decodeValues));
+        } else if (equals == 0) {
+            // no key declared, ignore
+        } else if (param.length() > 0) {
+            params.add(
+                    decodeQueryParameter(param, 0, param.length(), true),
+                    "");
+        }
+    }
+
+    /**
+     * Decode the name or value of a query parameter using
+     * {@link URLDecoder}, unless there are no characters to decode.
+     *
+     * @param q      the query component in encoded form.
+     * @param start  the index of the first character of the name or value.
+     * @param end    the index after the last character of the name or value.
+     * @param decode {@code true} if the name or value should be decoded.
+     * @return the name or value.
+     */
+    static String decodeQueryParameter(String q, int start, int end, boolean decode) {
+        final String s = (start == 0 && end == q.length()) ? q : q.substring(start, end);
+        if (!decode || (s.indexOf('%') < 0 && s.indexOf('+') < 0)) {
+            return s;
+        }
+
         try {
-            int equals = param.indexOf('=');
-            if (equals > 0) {
-                params.add(
-                        (decodeNames) ? URLDecoder.decode(param.substring(0, equals), "UTF-8") : param.substring(0, equals),
-                        (decodeValues) ? URLDecoder.decode(param.substring(equals + 1), "UTF-8") : param.substring(equals + 1));
-            } else if (equals == 0) {
-                // no key declared, ignore
-            } else if (param.length() > 0) {
-                params.add(
-                        URLDecoder.decode(param, "UTF-8"),
-                        "");
-            }
+            return URLDecoder.decode(s, "UTF-8");
         } catch (UnsupportedEncodingException ex) {
             // This should never occur
             throw new IllegalArgumentException(ex);
@@ -592,15 +633,19 @@ public class UriComponent {
 
         private static final PathSegment EMPTY_PATH_SEGMENT = new PathSegmentImpl("", false);
         private final String path;
-        private final MultivaluedMap<String, String> matrixParameters;
+        private final boolean decode;
+        // The path segment in encoded form if the matrix parameters are not decoded
+        private String segment;
+        private MultivaluedMap<String, String> matrixParameters;
 
         PathSegmentImpl(String path, boolean decode) {
-            this(path, decode, new MultivaluedMapImpl());
+            this(path, decode, null);
         }
 
-        PathSegmentImpl(String path, boolean decode, MultivaluedMap<String, String> matrixParameters) {
+        PathSegmentImpl(String path, boolean decode, String segment) {
             this.path = (decode) ? UriComponent.decode(path, UriComponent.Type.PATH_SEGMENT) : path;
-            this.matrixParameters = matrixParameters;
+            this.decode = decode;
+            this.segment = segment;
         }
 
         @Override
@@ -610,6 +655,11 @@ public class UriComponent {
 
         @Override
         public MultivaluedMap<String, String> getMatrixParameters() {
+            if (matrixParameters == null) {
+                // Decode the matrix parameters on first access
+                matrixParameters = (segment != null) ? decodeMatrix(segment, decode) : new MultivaluedMapImpl();
+                segment = null;
+            }
             return matrixParameters;
         }
 
@@ -693,7 +743,7 @@ public class UriComponent {
             segments.add(new PathSegmentImpl(
                     (colon == 0) ? "" : segment.substring(0, colon),
                     decode,
-                    decodeMatrix(segment, decode)));
+                    segment));
         } else {
             segments.add(new PathSegmentImpl(
                     segment,
@@ -40,6 +40,8 @@
 
 package com.sun.jersey.api.uri;
 
+import com.sun.jersey.core.util.ConcurrentBoundedCache;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -784,6 +786,48 @@ public class UriTemplate {
         return sb.toString();
     }
 
+    /**
+     * The maximum number of compiled URI component templates that are cached.
+     */
+    private static final int COMPONENT_CACHE_SIZE = 1024;
+
+    /**
+     * Compiled URI component templates, keyed by the template. A compiled
+     * template is an array of alternating literals and template variable
+     * names, beginning and ending with a literal.
+     */
+    private static final ConcurrentBoundedCache<String, String[]> COMPONENT_CACHE =
+            new ConcurrentBoundedCache<String, String[]>(COMPONENT_CACHE_SIZE);
+
+    /**
+     * Compile a URI component template, normalizing template variables
+     * that declare regular expressions.
+     *
+     * @param template the URI component template.
+     * @return the compiled template.
+     */
+    private static String[] compileURIComponent(final String template) {
+        String[] compiled = COMPONENT_CACHE.get(template);
+        if (compiled != null) {
+            return compiled;
+        }
+
+        final String normalized = new UriTemplateParser(template).getNormalizedTemplate();
+        final List<String> parts = new ArrayList<String>();
+        final Matcher m = TEMPLATE_NAMES_PATTERN.matcher(normalized);
+        int i = 0;
+        while (m.find()) {
+            parts.add(normalized.substring(i, m.start()));
+            parts.add(m.group(1));
+            i = m.end();
+        }
+        parts.add(normalized.substring(i));
+
+        compiled = parts.toArray(new String[parts.size()]);
+        COMPONENT_CACHE.put(template, compiled);
+        return compiled;
+    }
+
     private static int createURIComponent(final UriComponent.Type t,
             String template,
             final String[] values, final int offset,
@@ -796,13 +840,11 @@ public class UriTemplate {
         }
 
         // Find all template variables
-        template = new UriTemplateParser(template).getNormalizedTemplate();
-        final Matcher m = TEMPLATE_NAMES_PATTERN.matcher(template);
+        final String[] compiled = compileURIComponent(template);
         int v = offset;
-        int i = 0;
-        while(m.find()) {
-            b.append(template, i, m.start());
-            final String tVariable = m.group(1);
+        b.append(compiled[0]);
+        for (int i = 1; i < compiled.length; i += 2) {
+            final String tVariable = compiled[i];
             // Check if a template variable has already occurred
             // If so use the value to ensure that two or more declarations of
             // a template variable have the same value
@@ -817,9 +859,8 @@ public class UriTemplate {
             } else {
                 throw templateVariableHasNoValue(tVariable);
             }
-            i = m.end();
+            b.append(compiled[i + 1]);
         }
-        b.append(template, i, template.length());
         return v;
     }
 
@@ -44,12 +44,14 @@ import com.sun.jersey.core.provider.AbstractMessageReaderWriterProvider;
 import com.sun.jersey.core.util.ReaderWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import javax.activation.DataSource;
+import javax.activation.FileDataSource;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
@@ -168,6 +170,12 @@ public class DataSourceProvider extends AbstractMessageReaderWriterProvider<Data
             MediaType mediaType, 
             MultivaluedMap<String, Object> httpHeaders,
             OutputStream entityStream) throws IOException {
+        if (t instanceof FileDataSource) {
+            final File f = ((FileDataSource) t).getFile();
+            ReaderWriter.writeTo(f, 0, f.length(), entityStream);
+            return;
+        }
+
         InputStream in = t.getInputStream();
         try {
             writeTo(in, entityStream);
@@ -42,10 +42,8 @@ package com.sun.jersey.core.impl.provider.entity;
 
 import com.sun.jersey.core.provider.AbstractMessageReaderWriterProvider;
 import com.sun.jersey.core.util.ReaderWriter;
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -98,12 +96,7 @@ public final class FileProvider extends AbstractMessageReaderWriterProvider<File
             MediaType mediaType, 
             MultivaluedMap<String, Object> httpHeaders,
             OutputStream entityStream) throws IOException {
-        InputStream in = new BufferedInputStream(new FileInputStream(t), ReaderWriter.BUFFER_SIZE);
-        try {
-            writeTo(in, entityStream);
-        } finally {
-            in.close();
-        }
+        ReaderWriter.writeTo(t, 0, t.length(), entityStream);
     }
 
     @Override
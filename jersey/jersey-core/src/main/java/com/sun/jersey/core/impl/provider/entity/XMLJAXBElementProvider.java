@@ -106,6 +106,11 @@ public class XMLJAXBElementProvider extends AbstractJAXBElementProvider {
         }
     }
     
+    @Override
+    protected boolean isPoolingSupported() {
+        return true;
+    }
+
     protected final JAXBElement<?> readFrom(Class<?> type, MediaType mediaType,
             Unmarshaller u, InputStream entityStream)
             throws JAXBException {
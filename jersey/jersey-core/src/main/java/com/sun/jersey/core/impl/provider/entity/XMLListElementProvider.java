@@ -47,6 +47,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ws.rs.Consumes;
@@ -112,6 +113,11 @@ public class XMLListElementProvider extends AbstractListElementProvider {
         }
     }
 
+    @Override
+    protected boolean isPoolingSupported() {
+        return true;
+    }
+
     @Override
     protected final XMLStreamReader getXMLStreamReader(Class<?> elementType, 
             MediaType mediaType,
@@ -126,6 +132,14 @@ public class XMLListElementProvider extends AbstractListElementProvider {
             MediaType mediaType, Charset c,
             Marshaller m, OutputStream entityStream)
             throws JAXBException, IOException {
+        writeList(elementType, t.iterator(), mediaType, c, m, entityStream);
+    }
+
+    @Override
+    public final void writeList(Class<?> elementType, Iterator<?> t,
+            MediaType mediaType, Charset c,
+            Marshaller m, OutputStream entityStream)
+            throws JAXBException, IOException {
         final String rootElement = getRootElementName(elementType);
         final String cName = c.name();
 
@@ -153,8 +167,11 @@ public class XMLListElementProvider extends AbstractListElementProvider {
             entityStream.write(header.getBytes(cName));
         }
         entityStream.write(String.format("<%s>", rootElement).getBytes(cName));
-        for (Object o : t)
-            m.marshal(o, entityStream);
+        for (int i = 1; t.hasNext(); i++) {
+            m.marshal(t.next(), entityStream);
+            if (i % FLUSH_INTERVAL == 0)
+                entityStream.flush();
+        }
 
         entityStream.write(String.format("</%s>", rootElement).getBytes(cName));
     }
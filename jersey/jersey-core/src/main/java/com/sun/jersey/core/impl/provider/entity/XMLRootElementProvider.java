@@ -106,6 +106,11 @@ public class XMLRootElementProvider extends AbstractRootElementProvider {
         }
     }
 
+    @Override
+    protected boolean isPoolingSupported() {
+        return true;
+    }
+
     @Override
     protected Object readFrom(Class<Object> type, MediaType mediaType,
             Unmarshaller u, InputStream entityStream)
@@ -59,6 +59,7 @@ import javax.ws.rs.ext.Providers;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.UnmarshalException;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.parsers.SAXParserFactory;
 
 /**
@@ -131,13 +132,16 @@ public class XMLRootObjectProvider extends AbstractJAXBProvider<Object> {
             MediaType mediaType, 
             MultivaluedMap<String, String> httpHeaders, 
             InputStream entityStream) throws IOException {        
+        Unmarshaller u = null;
         try {
-            return getUnmarshaller(type, mediaType).
-                    unmarshal(getSAXSource(spf.getValue(), entityStream));
+            u = getUnmarshaller(type, mediaType);
+            return u.unmarshal(getSAXSource(spf.getValue(), entityStream));
         } catch (UnmarshalException ex) {
             throw new WebApplicationException(ex, Status.BAD_REQUEST);
         } catch (JAXBException ex) {
             throw new WebApplicationException(ex, Status.INTERNAL_SERVER_ERROR);
+        } finally {
+            releaseUnmarshaller(type, u);
         }
     }
 
@@ -43,8 +43,13 @@ package com.sun.jersey.core.provider.jaxb;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.ref.WeakReference;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Queue;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -69,13 +74,170 @@ import com.sun.jersey.core.util.FeaturesAndProperties;
 
 /**
  * A base class for implementing JAXB-based readers and writers.
+ * <p>
+ * JAXB contexts created for JAXB types are cached by each provider, and
+ * if {@link #isPoolingSupported() } returns true the marshallers and
+ * unmarshallers created from those contexts are pooled. A marshaller
+ * obtained using {@link #getMarshaller(java.lang.Class, javax.ws.rs.core.MediaType) }
+ * should be returned to the pool, after use, using
+ * {@link #releaseMarshaller(java.lang.Class, javax.xml.bind.Marshaller) },
+ * and similarly for unmarshallers.
  *
  * @author Paul Sandoz (paul.sandoz at oracle.com)
  */
 public abstract class AbstractJAXBProvider<T> extends AbstractMessageReaderWriterProvider<T> {
-    private static final Map<Class<?>, WeakReference<JAXBContext>> jaxbContexts =
+    /**
+     * The maximum number of cached JAXB contexts.
+     */
+    private static final int MAX_CACHED_CONTEXTS = 1024;
+
+    /**
+     * The maximum number of pooled marshallers, and the maximum number of
+     * pooled unmarshallers, per cached JAXB context.
+     */
+    private static final int MAX_POOL_SIZE = 16;
+
+    /**
+     * Marshaller properties, with a default value of null, that cannot be
+     * reset to null.
+     */
+    private static final String[] NULL_DEFAULT_PROPERTIES = {
+            Marshaller.JAXB_SCHEMA_LOCATION,
+            Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION,
+            "com.sun.xml.bind.xmlHeaders",
+            "com.sun.xml.internal.bind.xmlHeaders"
+    };
+
+    /**
+     * JAXB contexts shared by all providers, which do not reference the
+     * JAXB types, and the class loaders of those types, once the providers
+     * no longer reference the JAXB contexts.
+     */
+    private static final Map<Class<?>, WeakReference<JAXBContext>> sharedJAXBContexts =
             new WeakHashMap<Class<?>, WeakReference<JAXBContext>>();
 
+    /**
+     * A cached JAXB context and the pools of marshallers and unmarshallers
+     * created from that context.
+     */
+    private static final class ContextEntry {
+        final JAXBContext context;
+
+        private final Queue<Marshaller> marshallers = new ConcurrentLinkedQueue<Marshaller>();
+
+        private final AtomicInteger marshallersSize = new AtomicInteger();
+
+        private final Queue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<Unmarshaller>();
+
+        private final AtomicInteger unmarshallersSize = new AtomicInteger();
+
+        // The marshallers and unmarshallers created from the context,
+        // so that only those are accepted back into the pools
+        private final Map<Object, Boolean> created =
+                Collections.synchronizedMap(new WeakHashMap<Object, Boolean>());
+
+        ContextEntry(JAXBContext context) {
+            this.context = context;
+        }
+
+        Marshaller getMarshaller() throws JAXBException {
+            Marshaller m = marshallers.poll();
+            if (m != null) {
+                marshallersSize.decrementAndGet();
+                return m;
+            }
+
+            m = context.createMarshaller();
+            created.put(m, Boolean.TRUE);
+            return m;
+        }
+
+        void releaseMarshaller(Marshaller m) {
+            if (!created.containsKey(m) || !reset(m)) {
+                return;
+            }
+            if (marshallersSize.incrementAndGet() <= MAX_POOL_SIZE) {
+                marshallers.offer(m);
+            } else {
+                marshallersSize.decrementAndGet();
+            }
+        }
+
+        Unmarshaller getUnmarshaller() throws JAXBException {
+            Unmarshaller u = unmarshallers.poll();
+            if (u != null) {
+                unmarshallersSize.decrementAndGet();
+                return u;
+            }
+
+            u = context.createUnmarshaller();
+            created.put(u, Boolean.TRUE);
+            return u;
+        }
+
+        void releaseUnmarshaller(Unmarshaller u) {
+            if (!created.containsKey(u) || !reset(u)) {
+                return;
+            }
+            if (unmarshallersSize.incrementAndGet() <= MAX_POOL_SIZE) {
+                unmarshallers.offer(u);
+            } else {
+                unmarshallersSize.decrementAndGet();
+            }
+        }
+
+        /**
+         * Reset the properties that may be set on a marshaller by readers
+         * and writers.
+         *
+         * @return true if the marshaller was reset, otherwise false if the
+         *         marshaller cannot be reused.
+         */
+        private static boolean reset(Marshaller m) {
+            try {
+                for (String p : NULL_DEFAULT_PROPERTIES) {
+                    try {
+                        if (m.getProperty(p) != null) {
+                            return false;
+                        }
+                    } catch (PropertyException e) {
+                        // Not supported by this JAXB implementation
+                    }
+                }
+                m.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+                m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
+                m.setProperty(Marshaller.JAXB_FRAGMENT, false);
+                m.setEventHandler(null);
+                m.setListener(null);
+                m.setSchema(null);
+                m.setAttachmentMarshaller(null);
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        private static boolean reset(Unmarshaller u) {
+            try {
+                u.setEventHandler(null);
+                u.setListener(null);
+                u.setSchema(null);
+                u.setAttachmentUnmarshaller(null);
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * The JAXB contexts cached by this provider, and the pools of marshallers
+     * and unmarshallers of those contexts, which are released with this
+     * provider, and thus with the application or client of this provider.
+     */
+    private final ConcurrentHashMap<Class<?>, ContextEntry> jaxbContexts =
+            new ConcurrentHashMap<Class<?>, ContextEntry>();
+
     private final Providers ps;
 
     private final boolean fixedMediaType;
@@ -118,6 +280,38 @@ public abstract class AbstractJAXBProvider<T> extends AbstractMessageReaderWrite
         return true;
     }
 
+    /**
+     * Determine whether the marshallers and unmarshallers obtained by this
+     * provider may be pooled.
+     * <p>
+     * A pooled marshaller is reset, when released, with respect to the
+     * encoding, formatted output and fragment properties, the event handler,
+     * listener, schema and attachment marshaller, and a pooled unmarshaller
+     * is similarly reset with respect to the event handler, listener, schema
+     * and attachment unmarshaller. A marshaller whose schema location or XML
+     * header properties are set is not reused. A provider that configures any
+     * other state, such as adapters or JAXB implementation specific
+     * properties, must not pool.
+     *
+     * @return true if the marshallers and unmarshallers may be pooled. The
+     *         default implementation returns false.
+     */
+    protected boolean isPoolingSupported() {
+        return false;
+    }
+
+    /**
+     * Get an unmarshaller for a JAXB type.
+     * <p>
+     * The unmarshaller should be released, after use, using
+     * {@link #releaseUnmarshaller(java.lang.Class, javax.xml.bind.Unmarshaller) }
+     * and then no longer used.
+     *
+     * @param type the JAXB type.
+     * @param mt the media type.
+     * @return the unmarshaller.
+     * @throws JAXBException if the unmarshaller cannot be created.
+     */
     protected final Unmarshaller getUnmarshaller(Class type, MediaType mt) throws JAXBException {
         if (fixedMediaType)
             return getUnmarshaller(type);
@@ -128,7 +322,7 @@ public abstract class AbstractJAXBProvider<T> extends AbstractMessageReaderWrite
             if (u != null) return u;
         }
 
-        return getJAXBContext(type, mt).createUnmarshaller();
+        return createUnmarshaller(type, getJAXBContext(type, mt));
     }
 
     private Unmarshaller getUnmarshaller(Class type) throws JAXBException {
@@ -137,9 +331,43 @@ public abstract class AbstractJAXBProvider<T> extends AbstractMessageReaderWrite
             if (u != null) return u;
         }
 
-        return getJAXBContext(type).createUnmarshaller();
+        return createUnmarshaller(type, getJAXBContext(type));
+    }
+
+    private Unmarshaller createUnmarshaller(Class type, JAXBContext c) throws JAXBException {
+        final ContextEntry e = isPoolingSupported() ? jaxbContexts.get(type) : null;
+        return (e != null && e.context == c) ? e.getUnmarshaller() : c.createUnmarshaller();
+    }
+
+    /**
+     * Release an unmarshaller obtained from
+     * {@link #getUnmarshaller(java.lang.Class, javax.ws.rs.core.MediaType) }
+     * so that it may be reused.
+     *
+     * @param type the JAXB type the unmarshaller was obtained for.
+     * @param u the unmarshaller, may be null.
+     */
+    protected final void releaseUnmarshaller(Class type, Unmarshaller u) {
+        if (u == null || !isPoolingSupported()) return;
+
+        final ContextEntry e = jaxbContexts.get(type);
+        if (e != null) {
+            e.releaseUnmarshaller(u);
+        }
     }
 
+    /**
+     * Get a marshaller for a JAXB type.
+     * <p>
+     * The marshaller should be released, after use, using
+     * {@link #releaseMarshaller(java.lang.Class, javax.xml.bind.Marshaller) }
+     * and then no longer used.
+     *
+     * @param type the JAXB type.
+     * @param mt the media type.
+     * @return the marshaller.
+     * @throws JAXBException if the marshaller cannot be created.
+     */
     protected final Marshaller getMarshaller(Class type, MediaType mt) throws JAXBException {
         if (fixedMediaType)
             return getMarshaller(type);
@@ -150,7 +378,7 @@ public abstract class AbstractJAXBProvider<T> extends AbstractMessageReaderWrite
             if (m != null) return m;
         }
 
-        Marshaller m = getJAXBContext(type, mt).createMarshaller();
+        Marshaller m = createMarshaller(type, getJAXBContext(type, mt));
         if(formattedOutput)
             m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formattedOutput);
         return m;
@@ -163,12 +391,34 @@ public abstract class AbstractJAXBProvider<T> extends AbstractMessageReaderWrite
             if (u != null) return u;
         }
 
-        Marshaller m = getJAXBContext(type).createMarshaller();
+        Marshaller m = createMarshaller(type, getJAXBContext(type));
         if(formattedOutput)
             m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formattedOutput);
         return m;
     }
 
+    private Marshaller createMarshaller(Class type, JAXBContext c) throws JAXBException {
+        final ContextEntry e = isPoolingSupported() ? jaxbContexts.get(type) : null;
+        return (e != null && e.context == c) ? e.getMarshaller() : c.createMarshaller();
+    }
+
+    /**
+     * Release a marshaller obtained from
+     * {@link #getMarshaller(java.lang.Class, javax.ws.rs.core.MediaType) }
+     * so that it may be reused.
+     *
+     * @param type the JAXB type the marshaller was obtained for.
+     * @param m the marshaller, may be null.
+     */
+    protected final void releaseMarshaller(Class type, Marshaller m) {
+        if (m == null || !isPoolingSupported()) return;
+
+        final ContextEntry e = jaxbContexts.get(type);
+        if (e != null) {
+            e.releaseMarshaller(m);
+        }
+    }
+
     private JAXBContext getJAXBContext(Class type, MediaType mt) throws JAXBException {
         final ContextResolver<JAXBContext> cr = ps.getContextResolver(JAXBContext.class, mt);
         if (cr != null) {
@@ -189,12 +439,28 @@ public abstract class AbstractJAXBProvider<T> extends AbstractMessageReaderWrite
     }
 
     protected JAXBContext getStoredJAXBContext(Class type) throws JAXBException {
-        synchronized (jaxbContexts) {
-            final WeakReference<JAXBContext> ref = jaxbContexts.get(type);
+        ContextEntry e = jaxbContexts.get(type);
+        if (e == null) {
+            if (jaxbContexts.size() >= MAX_CACHED_CONTEXTS) {
+                jaxbContexts.clear();
+            }
+
+            final ContextEntry newEntry = new ContextEntry(getSharedJAXBContext(type));
+            e = jaxbContexts.putIfAbsent(type, newEntry);
+            if (e == null) {
+                e = newEntry;
+            }
+        }
+        return e.context;
+    }
+
+    private static JAXBContext getSharedJAXBContext(Class type) throws JAXBException {
+        synchronized (sharedJAXBContexts) {
+            final WeakReference<JAXBContext> ref = sharedJAXBContexts.get(type);
             JAXBContext c = (ref != null) ? ref.get() : null;
             if (c == null) {
                 c = JAXBContext.newInstance(type);
-                jaxbContexts.put(type, new WeakReference(c));
+                sharedJAXBContexts.put(type, new WeakReference<JAXBContext>(c));
             }
             return c;
         }
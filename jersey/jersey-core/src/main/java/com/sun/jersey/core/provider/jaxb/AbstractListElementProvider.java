@@ -57,6 +57,7 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlType;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -71,6 +72,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Stack;
@@ -95,6 +97,14 @@ import javax.xml.bind.JAXBElement;
  * <code>T</code> must be a JAXB type annotated with
  * {@link XmlRootElement}.
  * <p>
+ * {@link Iterator Iterator&lt;T&gt;} and {@link Iterable Iterable&lt;T&gt;}
+ * may also be written, such that the elements of a long list, for example
+ * the rows of a database query, are marshalled and sent as they are produced
+ * rather than being held in a collection. The entity stream is flushed every
+ * {@link #FLUSH_INTERVAL} elements. An iterator or iterable that implements
+ * {@link Closeable} is closed when the list is written, as is the iterator
+ * of an iterable.
+ * <p>
  * Implementing classes may extend this class to provide specific marshalling
  * and unmarshalling behaviour.
  * <p>
@@ -112,6 +122,12 @@ import javax.xml.bind.JAXBElement;
  * @author Martin Matula
  */
 public abstract class AbstractListElementProvider extends AbstractJAXBProvider<Object> {
+    /**
+     * The number of elements after which the entity stream is flushed when
+     * writing a list.
+     */
+    public static final int FLUSH_INTERVAL = 64;
+
     private static final Class[] DEFAULT_IMPLS = new Class[] {
         ArrayList.class,
         LinkedList.class,
@@ -157,7 +173,7 @@ public abstract class AbstractListElementProvider extends AbstractJAXBProvider<O
 
     @Override
     public boolean isWriteable(Class<?> type, Type genericType, Annotation annotations[], MediaType mediaType) {
-        if (Collection.class.isAssignableFrom(type)) {
+        if (Iterable.class.isAssignableFrom(type) || Iterator.class.isAssignableFrom(type)) {
             return verifyGenericType(genericType) && isSupported(mediaType);
         } else if (type.isArray()) {
             return verifyArrayType(type) && isSupported(mediaType);
@@ -247,23 +263,46 @@ public abstract class AbstractListElementProvider extends AbstractJAXBProvider<O
             MediaType mediaType,
             MultivaluedMap<String, Object> httpHeaders,
             OutputStream entityStream) throws IOException {
+        final Class elementType = getElementClass(type, genericType);
+        Marshaller m = null;
+        Iterator<?> i = null;
         try {
-            final Collection c = (type.isArray())
-                    ? Arrays.asList((Object[])t)
-                    : (Collection)t;
-            final Class elementType = getElementClass(type, genericType);
+            if (type.isArray()) {
+                i = Arrays.asList((Object[]) t).iterator();
+            } else if (t instanceof Iterable) {
+                i = ((Iterable<?>) t).iterator();
+            } else {
+                i = (Iterator<?>) t;
+            }
             final Charset charset = getCharset(mediaType);
             final String charsetName = charset.name();
 
-            final Marshaller m = getMarshaller(elementType, mediaType);
+            m = getMarshaller(elementType, mediaType);
             m.setProperty(Marshaller.JAXB_FRAGMENT, true);
             if (charset != UTF8) {
                 m.setProperty(Marshaller.JAXB_ENCODING, charsetName);
             }
             setHeader(m, annotations);
-            writeList(elementType, c, mediaType, charset, m, entityStream);
+            writeList(elementType, i, mediaType, charset, m, entityStream);
         } catch (JAXBException ex) {
             throw new WebApplicationException(ex, Status.INTERNAL_SERVER_ERROR);
+        } finally {
+            releaseMarshaller(elementType, m);
+            close(i);
+            if (t != i) {
+                close(t);
+            }
+        }
+    }
+
+    private static void close(final Object o) {
+        if (o instanceof Closeable) {
+            try {
+                ((Closeable) o).close();
+            } catch (IOException ex) {
+                Logger.getLogger(AbstractListElementProvider.class.getName()).log(Level.FINE,
+                        "Error closing the list written", ex);
+            }
         }
     }
 
@@ -284,6 +323,36 @@ public abstract class AbstractListElementProvider extends AbstractJAXBProvider<O
             Marshaller m, OutputStream entityStream)
             throws JAXBException, IOException;
 
+    /**
+     * Write the JAXB objects of an iterator as child elements of the root
+     * element.
+     * <p>
+     * Implementing classes should override this method to marshal the
+     * objects as they are iterated and flush the entity stream every
+     * {@link #FLUSH_INTERVAL} objects. The default implementation collects
+     * the objects and calls
+     * {@link #writeList(Class, Collection, MediaType, Charset, Marshaller, OutputStream)}.
+     *
+     * @param elementType the element type in the iterator.
+     * @param t the iterator of the objects to marshall
+     * @param mediaType the media type
+     * @param c the charset
+     * @param m the marshaller
+     * @param entityStream the output stream to marshall the objects
+     * @throws javax.xml.bind.JAXBException
+     * @throws IOException
+     */
+    public void writeList(Class<?> elementType, Iterator<?> t,
+            MediaType mediaType, Charset c,
+            Marshaller m, OutputStream entityStream)
+            throws JAXBException, IOException {
+        final List<Object> l = new ArrayList<Object>();
+        while (t.hasNext()) {
+            l.add(t.next());
+        }
+        writeList(elementType, l, mediaType, c, m, entityStream);
+    }
+
     @Override
     public final Object readFrom(
             Class<Object> type,
@@ -292,9 +361,10 @@ public abstract class AbstractListElementProvider extends AbstractJAXBProvider<O
             MediaType mediaType,
             MultivaluedMap<String, String> httpHeaders,
             InputStream entityStream) throws IOException {
+        final Class elementType = getElementClass(type, genericType);
+        Unmarshaller u = null;
         try {
-            final Class elementType = getElementClass(type, genericType);
-            final Unmarshaller u = getUnmarshaller(elementType, mediaType);
+            u = getUnmarshaller(elementType, mediaType);
             final XMLStreamReader r = getXMLStreamReader(elementType, mediaType, u, entityStream);
             boolean jaxbElement = false;
 
@@ -357,6 +427,8 @@ public abstract class AbstractListElementProvider extends AbstractJAXBProvider<O
             throw new WebApplicationException(ex, Status.BAD_REQUEST);
         } catch (JAXBException ex) {
             throw new WebApplicationException(ex, Status.INTERNAL_SERVER_ERROR);
+        } finally {
+            releaseUnmarshaller(elementType, u);
         }
     }
 
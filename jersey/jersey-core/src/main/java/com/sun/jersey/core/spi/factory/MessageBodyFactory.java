@@ -44,6 +44,7 @@ import com.sun.jersey.core.header.MediaTypes;
 import com.sun.jersey.core.reflection.ReflectionHelper;
 import com.sun.jersey.core.reflection.ReflectionHelper.DeclaringClassInterfacePair;
 import com.sun.jersey.core.spi.component.ProviderServices;
+import com.sun.jersey.core.util.ConcurrentBoundedCache;
 import com.sun.jersey.core.util.KeyComparator;
 import com.sun.jersey.core.util.KeyComparatorHashMap;
 import com.sun.jersey.core.util.KeyComparatorLinkedHashMap;
@@ -52,13 +53,17 @@ import com.sun.jersey.spi.MessageBodyWorkers;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyReader;
 import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -90,9 +95,25 @@ public class MessageBodyFactory implements MessageBodyWorkers {
         }        
     };
     
+    /**
+     * The default maximum number of entries in each of the reader and
+     * writer resolution caches, when the caches are enabled with
+     * {@link com.sun.jersey.core.util.FeaturesAndProperties#FEATURE_ENABLE_MESSAGE_BODY_WORKERS_CACHE}.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private static final MessageBodyReader NULL_MESSAGE_BODY_READER = new NullMessageBodyReader();
+
+    private static final MessageBodyWriter NULL_MESSAGE_BODY_WRITER = new NullMessageBodyWriter();
+
     private final ProviderServices providerServices;
 
     private final boolean deprecatedProviderPrecedence;
+
+    // Null if readers and writers are not cached
+    private final ConcurrentBoundedCache<WorkerKey, MessageBodyReader> readerCache;
+
+    private final ConcurrentBoundedCache<WorkerKey, MessageBodyWriter> writerCache;
     
     private Map<MediaType, List<MessageBodyReader>> readerProviders;
     
@@ -117,9 +138,125 @@ public class MessageBodyFactory implements MessageBodyWorkers {
         }
     }
     
+    /**
+     * The key of a resolved reader or writer.
+     * <p>
+     * The hash code is computed from the annotation types rather than
+     * the annotation instances, since the hash code of an annotation instance
+     * is computed reflectively from its members. Equality is based on the
+     * annotation instances.
+     */
+    private static final class WorkerKey {
+        private final Class c;
+
+        private final Type t;
+
+        private final Annotation[] as;
+
+        private final MediaType m;
+
+        private final int hash;
+
+        WorkerKey(Class c, Type t, Annotation[] as, MediaType m) {
+            this.c = c;
+            this.t = t;
+            this.as = as;
+            this.m = m;
+
+            int h = (c != null) ? c.hashCode() : 0;
+            h = 31 * h + (t != null ? t.hashCode() : 0);
+            h = 31 * h + (m != null ? m.hashCode() : 0);
+            if (as != null) {
+                for (Annotation a : as) {
+                    h = 31 * h + a.annotationType().hashCode();
+                }
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof WorkerKey)) {
+                return false;
+            }
+            final WorkerKey other = (WorkerKey) obj;
+            return hash == other.hash
+                    && c == other.c
+                    && (t == other.t || (t != null && t.equals(other.t)))
+                    && (m == other.m || (m != null && m.equals(other.m)))
+                    && (as == other.as || Arrays.equals(as, other.as));
+        }
+    }
+
+    private static final class NullMessageBodyReader implements MessageBodyReader<Object> {
+        public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return false;
+        }
+
+        public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations,
+                MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class NullMessageBodyWriter implements MessageBodyWriter<Object> {
+        public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return false;
+        }
+
+        public long getSize(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return -1;
+        }
+
+        public void writeTo(Object t, Class<?> type, Type genericType, Annotation[] annotations,
+                MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Create a message body factory that resolves readers and writers for
+     * every call to {@link #getMessageBodyReader} and
+     * {@link #getMessageBodyWriter}.
+     *
+     * @param providerServices the provider services.
+     * @param deprecatedProviderPrecedence if true, provider precedence will
+     *        work as it did prior to Jersey version 1.4.
+     */
     public MessageBodyFactory(ProviderServices providerServices, boolean deprecatedProviderPrecedence) {
+        this(providerServices, deprecatedProviderPrecedence, 0);
+    }
+
+    /**
+     * Create a message body factory.
+     *
+     * @param providerServices the provider services.
+     * @param deprecatedProviderPrecedence if true, provider precedence will
+     *        work as it did prior to Jersey version 1.4.
+     * @param cacheSize the maximum number of entries in each of the reader and
+     *        writer resolution caches. If zero or less then readers and writers are
+     *        resolved for every call to {@link #getMessageBodyReader} and
+     *        {@link #getMessageBodyWriter}.
+     */
+    public MessageBodyFactory(ProviderServices providerServices, boolean deprecatedProviderPrecedence,
+            int cacheSize) {
         this.providerServices = providerServices;
         this.deprecatedProviderPrecedence = deprecatedProviderPrecedence;
+        if (cacheSize > 0) {
+            this.readerCache = new ConcurrentBoundedCache<WorkerKey, MessageBodyReader>(cacheSize);
+            this.writerCache = new ConcurrentBoundedCache<WorkerKey, MessageBodyWriter>(cacheSize);
+        } else {
+            this.readerCache = null;
+            this.writerCache = null;
+        }
     }
 
     private static class DistanceComparator<T> implements Comparator<T> {
@@ -161,6 +298,10 @@ public class MessageBodyFactory implements MessageBodyWorkers {
     public void init() {
         initReaders();
         initWriters();
+        if (readerCache != null) {
+            readerCache.clear();
+            writerCache.clear();
+        }
     }
 
     private void initReaders() {
@@ -287,7 +428,29 @@ public class MessageBodyFactory implements MessageBodyWorkers {
     public <T> MessageBodyReader<T> getMessageBodyReader(Class<T> c, Type t, 
             Annotation[] as, 
             MediaType mediaType) {
+        if (readerCache == null) {
+            return resolveMessageBodyReader(c, t, as, mediaType);
+        }
+
+        final WorkerKey key = new WorkerKey(c, t, as, mediaType);
+        MessageBodyReader reader = readerCache.get(key);
+        if (reader == null) {
+            reader = resolveMessageBodyReader(c, t, as, mediaType);
+            if (reader == null) {
+                reader = NULL_MESSAGE_BODY_READER;
+            }
+
+            // Copy the annotations so the key is not affected if the
+            // caller subsequently modifies the array
+            readerCache.put(new WorkerKey(c, t, (as != null) ? as.clone() : null, mediaType), reader);
+        }
+
+        return (reader != NULL_MESSAGE_BODY_READER) ? reader : null;
+    }
 
+    private <T> MessageBodyReader<T> resolveMessageBodyReader(Class<T> c, Type t,
+            Annotation[] as,
+            MediaType mediaType) {
         MessageBodyReader reader;
 
         if(!customReaderProviders.isEmpty()) {
@@ -352,7 +515,29 @@ public class MessageBodyFactory implements MessageBodyWorkers {
     public <T> MessageBodyWriter<T> getMessageBodyWriter(Class<T> c, Type t,
             Annotation[] as,
             MediaType mediaType) {
+        if (writerCache == null) {
+            return resolveMessageBodyWriter(c, t, as, mediaType);
+        }
+
+        final WorkerKey key = new WorkerKey(c, t, as, mediaType);
+        MessageBodyWriter writer = writerCache.get(key);
+        if (writer == null) {
+            writer = resolveMessageBodyWriter(c, t, as, mediaType);
+            if (writer == null) {
+                writer = NULL_MESSAGE_BODY_WRITER;
+            }
+
+            // Copy the annotations so the key is not affected if the
+            // caller subsequently modifies the array
+            writerCache.put(new WorkerKey(c, t, (as != null) ? as.clone() : null, mediaType), writer);
+        }
 
+        return (writer != NULL_MESSAGE_BODY_WRITER) ? writer : null;
+    }
+
+    private <T> MessageBodyWriter<T> resolveMessageBodyWriter(Class<T> c, Type t,
+            Annotation[] as,
+            MediaType mediaType) {
         MessageBodyWriter p;
 
         if(!customWriterProviders.isEmpty()) {
@@ -0,0 +1,332 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.core.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A pool of arrays, used as buffers, that are grouped into size classes.
+ * <p>
+ * The size classes are the powers of two from {@link #MIN_LENGTH} to
+ * {@link #MAX_LENGTH}. An array is acquired with a length of at least a
+ * required length, rounded up to the length of a size class, and should be
+ * released, once no longer used, for reuse by a subsequent acquisition.
+ * An array of a length greater than {@link #MAX_LENGTH} is not pooled.
+ * <p>
+ * Each thread caches one released array for each size class, which is
+ * reused by the next acquisition by that thread without synchronization.
+ * Further released arrays are shared between threads, up to a limit for
+ * each size class, beyond which the arrays are left to be garbage collected.
+ * <p>
+ * If the system property {@link #DEBUG_SYSTEM_PROPERTY} is set to "true"
+ * then pools track acquired arrays and log, at level {@link Level#WARNING},
+ * the stack trace of the acquisition of an array that was garbage collected
+ * without being released, and log the release of an array that was not
+ * acquired or was already released.
+ * <p>
+ * The pools {@link #BYTES} and {@link #CHARS} are utilized by
+ * {@link ReaderWriter}.
+ *
+ * @param <A> the array type.
+ */
+public abstract class BufferPool<A> {
+    private static final Logger LOGGER = Logger.getLogger(BufferPool.class.getName());
+
+    /**
+     * The system property to enable leak detection.
+     */
+    public static final String DEBUG_SYSTEM_PROPERTY =
+            "com.sun.jersey.core.util.BufferPool.Debug";
+
+    /**
+     * The length of the smallest size class.
+     */
+    public static final int MIN_LENGTH = 256;
+
+    /**
+     * The length of the largest size class.
+     */
+    public static final int MAX_LENGTH = 64 * 1024;
+
+    /**
+     * The default number of arrays of each size class that are shared between threads.
+     */
+    public static final int DEFAULT_MAX_SHARED = 64;
+
+    private static final int SIZE_CLASSES =
+            Integer.numberOfTrailingZeros(MAX_LENGTH) - Integer.numberOfTrailingZeros(MIN_LENGTH) + 1;
+
+    private static final boolean DEBUG = Boolean.getBoolean(DEBUG_SYSTEM_PROPERTY);
+
+    /**
+     * The pool of byte arrays.
+     */
+    public static final BufferPool<byte[]> BYTES = new BufferPool<byte[]>(DEFAULT_MAX_SHARED, DEBUG) {
+        @Override
+        protected byte[] allocate(int length) {
+            return new byte[length];
+        }
+
+        @Override
+        protected int length(byte[] a) {
+            return a.length;
+        }
+    };
+
+    /**
+     * The pool of char arrays.
+     */
+    public static final BufferPool<char[]> CHARS = new BufferPool<char[]>(DEFAULT_MAX_SHARED, DEBUG) {
+        @Override
+        protected char[] allocate(int length) {
+            return new char[length];
+        }
+
+        @Override
+        protected int length(char[] a) {
+            return a.length;
+        }
+    };
+
+    private final int maxShared;
+
+    private final List<Queue<A>> shared;
+
+    private final AtomicInteger[] sharedCounts;
+
+    private final ThreadLocal<Object[]> cache = new ThreadLocal<Object[]>();
+
+    private final LeakDetector detector;
+
+    /**
+     * Create a pool.
+     *
+     * @param maxShared the maximum number of arrays of each size class
+     *        that are shared between threads.
+     * @param debug true if acquired arrays are tracked to detect leaks.
+     */
+    protected BufferPool(int maxShared, boolean debug) {
+        this.maxShared = maxShared;
+        this.shared = new ArrayList<Queue<A>>(SIZE_CLASSES);
+        this.sharedCounts = new AtomicInteger[SIZE_CLASSES];
+        for (int i = 0; i < SIZE_CLASSES; i++) {
+            shared.add(new ConcurrentLinkedQueue<A>());
+            sharedCounts[i] = new AtomicInteger();
+        }
+        this.detector = debug ? new LeakDetector() : null;
+    }
+
+    /**
+     * Allocate a new array.
+     *
+     * @param length the length of the array.
+     * @return the array.
+     */
+    protected abstract A allocate(int length);
+
+    /**
+     * Get the length of an array.
+     *
+     * @param a the array.
+     * @return the length of the array.
+     */
+    protected abstract int length(A a);
+
+    /**
+     * Acquire an array.
+     *
+     * @param minLength the minimum length of the array.
+     * @return the array, whose length is the length of the smallest size
+     *         class that is greater than or equal to <code>minLength</code>,
+     *         or <code>minLength</code> if greater than {@link #MAX_LENGTH}.
+     *         The contents of the array are undefined.
+     */
+    @SuppressWarnings("unchecked")
+    public A acquire(int minLength) {
+        final int c = sizeClass(minLength);
+        if (c == -1)
+            return allocate(minLength);
+
+        A a = null;
+        final Object[] local = cache.get();
+        if (local != null && local[c] != null) {
+            a = (A) local[c];
+            local[c] = null;
+        } else {
+            a = shared.get(c).poll();
+            if (a != null)
+                sharedCounts[c].decrementAndGet();
+        }
+        if (a == null)
+            a = allocate(MIN_LENGTH << c);
+
+        if (detector != null)
+            detector.acquired(a);
+        return a;
+    }
+
+    /**
+     * Release an array, previously acquired from this pool, for reuse.
+     * The array must not be used after it has been released.
+     *
+     * @param a the array, may be null.
+     */
+    public void release(A a) {
+        if (a == null)
+            return;
+        final int length = length(a);
+        final int c = sizeClass(length);
+        if (c == -1 || (MIN_LENGTH << c) != length)
+            return;
+
+        if (detector != null && !detector.released(a))
+            return;
+
+        Object[] local = cache.get();
+        if (local == null)
+            cache.set(local = new Object[SIZE_CLASSES]);
+        if (local[c] == null) {
+            local[c] = a;
+        } else if (sharedCounts[c].incrementAndGet() <= maxShared) {
+            shared.get(c).offer(a);
+        } else {
+            sharedCounts[c].decrementAndGet();
+        }
+    }
+
+    /**
+     * Get the number of acquired arrays that have not been released.
+     *
+     * @return the number of acquired arrays that have not been released,
+     *         or -1 if leak detection is not enabled.
+     */
+    public int getOutstanding() {
+        return (detector != null) ? detector.outstanding() : -1;
+    }
+
+    private static int sizeClass(int length) {
+        if (length > MAX_LENGTH)
+            return -1;
+        if (length <= MIN_LENGTH)
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros(length - 1) - Integer.numberOfTrailingZeros(MIN_LENGTH);
+    }
+
+    private static final class LeakDetector {
+        private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+        // Keyed by identity hash code, the arrays are weakly referenced
+        private final Map<Integer, List<Acquisition>> acquisitions =
+                new HashMap<Integer, List<Acquisition>>();
+
+        synchronized void acquired(Object a) {
+            expunge();
+            final Integer k = System.identityHashCode(a);
+            List<Acquisition> l = acquisitions.get(k);
+            if (l == null)
+                acquisitions.put(k, l = new ArrayList<Acquisition>(1));
+            l.add(new Acquisition(a, queue));
+        }
+
+        synchronized boolean released(Object a) {
+            expunge();
+            final List<Acquisition> l = acquisitions.get(System.identityHashCode(a));
+            if (l != null) {
+                for (Iterator<Acquisition> i = l.iterator(); i.hasNext(); ) {
+                    final Acquisition r = i.next();
+                    if (r.get() == a) {
+                        i.remove();
+                        r.clear();
+                        if (l.isEmpty())
+                            acquisitions.remove(System.identityHashCode(a));
+                        return true;
+                    }
+                }
+            }
+            LOGGER.log(Level.WARNING, "Release of a buffer that is not acquired",
+                    new IllegalStateException());
+            return false;
+        }
+
+        synchronized int outstanding() {
+            expunge();
+            int n = 0;
+            for (List<Acquisition> l : acquisitions.values())
+                n += l.size();
+            return n;
+        }
+
+        private void expunge() {
+            Acquisition r;
+            while ((r = (Acquisition) queue.poll()) != null) {
+                final List<Acquisition> l = acquisitions.get(r.hash);
+                if (l != null && l.remove(r)) {
+                    if (l.isEmpty())
+                        acquisitions.remove(r.hash);
+                    LOGGER.log(Level.WARNING, "A buffer was garbage collected without being released, " +
+                            "the buffer was acquired at:", r.stackTrace);
+                }
+            }
+        }
+    }
+
+    private static final class Acquisition extends WeakReference<Object> {
+        final Integer hash;
+
+        final Throwable stackTrace = new Throwable();
+
+        Acquisition(Object a, ReferenceQueue<Object> queue) {
+            super(a, queue);
+            this.hash = System.identityHashCode(a);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.core.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe cache, of bounded size, that may be accessed concurrently
+ * without locking.
+ * <p>
+ * When the cache is full an entry is evicted using the second chance
+ * algorithm, an approximation of least recently used eviction: an entry that
+ * has been got since the last eviction is retained, and marked as not got,
+ * otherwise the entry is evicted. Only one thread evicts entries at a time,
+ * other threads putting values do not wait for the eviction to complete,
+ * so the size of the cache may briefly exceed the maximum size.
+ * <p>
+ * Null keys and values are not supported.
+ *
+ * @param <K> the type of keys.
+ * @param <V> the type of values.
+ */
+public final class ConcurrentBoundedCache<K, V> {
+
+    private static final class Entry<V> {
+        final V value;
+
+        volatile boolean got;
+
+        Entry(V value) {
+            this.value = value;
+        }
+    }
+
+    private final ConcurrentMap<K, Entry<V>> map = new ConcurrentHashMap<K, Entry<V>>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final int maxSize;
+
+    /**
+     * Create a cache.
+     *
+     * @param maxSize the maximum number of entries.
+     */
+    public ConcurrentBoundedCache(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be greater than zero");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get a cached value.
+     *
+     * @param key the key.
+     * @return the value, otherwise null if there is no value cached for the
+     *         key.
+     */
+    public V get(K key) {
+        final Entry<V> e = map.get(key);
+        if (e == null) {
+            return null;
+        }
+        // Avoid writing to the entry if it has already been got
+        if (!e.got) {
+            e.got = true;
+        }
+        return e.value;
+    }
+
+    /**
+     * Cache a value, evicting entries if the cache is full.
+     *
+     * @param key the key.
+     * @param value the value.
+     */
+    public void put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        if (map.put(key, new Entry<V>(value)) == null
+                && size.incrementAndGet() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Remove a cached value.
+     *
+     * @param key the key.
+     * @return the value removed, otherwise null if there was no value cached
+     *         for the key.
+     */
+    public V remove(K key) {
+        final Entry<V> e = map.remove(key);
+        if (e == null) {
+            return null;
+        }
+        size.decrementAndGet();
+        return e.value;
+    }
+
+    /**
+     * Remove all cached values.
+     */
+    public void clear() {
+        for (K key : map.keySet()) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Get the number of cached values.
+     *
+     * @return the number of cached values.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            // The first pass gives entries that have been got a second
+            // chance, subsequent passes evict regardless so that the eviction
+            // completes even if entries are concurrently got
+            for (boolean secondChance = true; size.get() > maxSize; secondChance = false) {
+                final Iterator<Map.Entry<K, Entry<V>>> i = map.entrySet().iterator();
+                while (i.hasNext() && size.get() > maxSize) {
+                    final Map.Entry<K, Entry<V>> me = i.next();
+                    final Entry<V> e = me.getValue();
+                    if (secondChance && e.got) {
+                        e.got = false;
+                    } else if (map.remove(me.getKey(), e)) {
+                        size.decrementAndGet();
+                    }
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
@@ -92,6 +92,22 @@ public interface FeaturesAndProperties {
     public static final String FEATURE_PRE_1_4_PROVIDER_PRECEDENCE
             = "com.sun.jersey.config.feature.Pre14ProviderPrecedence";
 
+    /**
+     * If true then the message body reader and writer selected for a
+     * combination of Java type, generic type, annotations and media type
+     * will be cached, including the absence of a reader or writer, otherwise
+     * readers and writers will be selected for each entity that is read or
+     * written.
+     * <p>
+     * This feature should only be enabled if the <code>isReadable</code> and
+     * <code>isWriteable</code> methods of all message body readers and
+     * writers return the same values for the same arguments.
+     * <p>
+     * The default value is false.
+     */
+    public static final String FEATURE_ENABLE_MESSAGE_BODY_WORKERS_CACHE
+            = "com.sun.jersey.config.feature.EnableMessageBodyWorkersCache";
+
     /**
      * Get the map of features associated with the client.
      *
@@ -0,0 +1,71 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.core.util;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Implemented by an {@link java.io.OutputStream} that can write a region of
+ * a file more efficiently than by reading the bytes of the region into a
+ * buffer and writing the buffer, for example by using
+ * {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel) },
+ * a memory-mapped region of the file or the sendfile support of the
+ * underlying HTTP container.
+ * <p>
+ * Message body writers should write regions of files using
+ * {@link ReaderWriter#writeTo(java.io.File, long, long, java.io.OutputStream) },
+ * which utilizes this interface if implemented by the output stream.
+ */
+public interface FileRegionWriter {
+
+    /**
+     * Write a region of a file.
+     *
+     * @param file the file.
+     * @param position the position in the file of the first byte of the
+     *        region.
+     * @param count the number of bytes in the region.
+     * @throws IOException if there is an error reading the file or writing
+     *         the bytes.
+     */
+    void writeFileRegion(File file, long position, long count) throws IOException;
+}
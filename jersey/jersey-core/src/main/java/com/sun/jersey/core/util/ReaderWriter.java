@@ -41,6 +41,9 @@
 package com.sun.jersey.core.util;
 
 import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -48,6 +51,8 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import javax.ws.rs.core.MediaType;
 
@@ -57,6 +62,7 @@ import javax.ws.rs.core.MediaType;
  * If a byte or character array is utilized then the size of the array
  * is by default the value of {@link #DEFAULT_BUFFER_SIZE}. This value can
  * be set using the system property {@link #BUFFER_SIZE_SYSTEM_PROPERTY}.
+ * Arrays are acquired from, and released to, {@link BufferPool}.
  *
  * @author Paul.Sandoz@Sun.Com
  */
@@ -110,9 +116,62 @@ public final class ReaderWriter {
      */
     public static final void writeTo(InputStream in, OutputStream out) throws IOException {
         int read;
-        final byte[] data = new byte[BUFFER_SIZE];
-        while ((read = in.read(data)) != -1)
-            out.write(data, 0, read);
+        final byte[] data = BufferPool.BYTES.acquire(BUFFER_SIZE);
+        try {
+            while ((read = in.read(data)) != -1)
+                out.write(data, 0, read);
+        } finally {
+            BufferPool.BYTES.release(data);
+        }
+    }
+
+    /**
+     * Read a region of a file and write the bytes of the region to an
+     * output stream.
+     * <p>
+     * If the output stream implements {@link FileRegionWriter} then the
+     * region is written using
+     * {@link FileRegionWriter#writeFileRegion(java.io.File, long, long) },
+     * otherwise the bytes are read into a buffer and written.
+     *
+     * @param file the file to read from.
+     * @param position the position in the file of the first byte of the
+     *        region.
+     * @param count the number of bytes in the region.
+     * @param out the output stream to write to.
+     * @throws IOException if there is an error reading or writing bytes, or
+     *         the end of the file is reached before all the bytes of the
+     *         region are read.
+     */
+    public static final void writeTo(File file, long position, long count,
+            OutputStream out) throws IOException {
+        if (out instanceof FileRegionWriter) {
+            ((FileRegionWriter) out).writeFileRegion(file, position, count);
+            return;
+        }
+
+        final FileInputStream in = new FileInputStream(file);
+        final byte[] data = BufferPool.BYTES.acquire((int) Math.min(BUFFER_SIZE, Math.max(count, 1)));
+        try {
+            final FileChannel fc = in.getChannel();
+            final ByteBuffer b = ByteBuffer.wrap(data);
+            while (count > 0) {
+                b.clear();
+                if (count < b.capacity()) {
+                    b.limit((int) count);
+                }
+                final int read = fc.read(b, position);
+                if (read == -1) {
+                    throw new EOFException("End of file " + file + " reached at position " + position);
+                }
+                out.write(data, 0, read);
+                position += read;
+                count -= read;
+            }
+        } finally {
+            BufferPool.BYTES.release(data);
+            in.close();
+        }
     }
 
     /**
@@ -124,9 +183,13 @@ public final class ReaderWriter {
      */
     public static final void writeTo(Reader in, Writer out) throws IOException {
         int read;
-        final char[] data = new char[BUFFER_SIZE];
-        while ((read = in.read(data)) != -1)
-            out.write(data, 0, read);
+        final char[] data = BufferPool.CHARS.acquire(BUFFER_SIZE);
+        try {
+            while ((read = in.read(data)) != -1)
+                out.write(data, 0, read);
+        } finally {
+            BufferPool.CHARS.release(data);
+        }
     }
 
     /**
@@ -166,10 +229,14 @@ public final class ReaderWriter {
      */
     public static final String readFromAsString(Reader reader) throws IOException {
         StringBuilder sb = new StringBuilder();
-        char[] c = new char[BUFFER_SIZE];
-        int l;
-        while ((l = reader.read(c)) != -1) {
-            sb.append(c, 0, l);
+        char[] c = BufferPool.CHARS.acquire(BUFFER_SIZE);
+        try {
+            int l;
+            while ((l = reader.read(c)) != -1) {
+                sb.append(c, 0, l);
+            }
+        } finally {
+            BufferPool.CHARS.release(c);
         }
         return sb.toString();
     }
@@ -0,0 +1,424 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.core.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A buffer of bytes that is held in memory up to a threshold and spills
+ * to a temporary file beyond that threshold.
+ * <p>
+ * Bytes are written to the buffer using the {@link OutputStream} methods.
+ * While the number of bytes written is less than or equal to the threshold
+ * the bytes are held in a list of chunks, of size
+ * {@link ReaderWriter#BUFFER_SIZE} and acquired from {@link BufferPool#BYTES},
+ * thus avoiding the copying performed by {@link java.io.ByteArrayOutputStream}
+ * when growing and when obtaining the bytes. When the threshold is exceeded the chunks are written to a
+ * temporary file, the chunks are released, and further bytes are written
+ * to the file.
+ * <p>
+ * The buffered bytes may be read, any number of times, from the
+ * re-readable input stream returned by {@link #getInputStream() }.
+ * <p>
+ * The threshold is by default the value of {@link #DEFAULT_THRESHOLD}. This
+ * value can be set using the system property {@link #THRESHOLD_SYSTEM_PROPERTY}.
+ * <p>
+ * The chunks are released, and the temporary file, if any, is deleted when
+ * {@link #release() } is called. If a buffer is garbage collected without
+ * being released then the chunks are garbage collected, rather than reused,
+ * and the temporary file, if any, is deleted when finalized. Only a buffer
+ * that spills to a temporary file registers an object for finalization.
+ */
+public final class SpillingBuffer extends OutputStream {
+    /**
+     * The system property to set the default threshold, in bytes, above
+     * which buffered bytes are spilled to a temporary file.
+     * <p>
+     * If the property value is not a non-negative integer then the default
+     * threshold declared by {@link #DEFAULT_THRESHOLD} will be utilized.
+     */
+    public static final String THRESHOLD_SYSTEM_PROPERTY =
+            "com.sun.jersey.core.util.SpillingBuffer.Threshold";
+
+    /**
+     * The default threshold, 1 MiB.
+     */
+    public static final int DEFAULT_THRESHOLD = 1024 * 1024;
+
+    /**
+     * The threshold above which buffered bytes are spilled to a temporary file.
+     */
+    public static final int THRESHOLD = getDefaultThreshold();
+
+    private static int getDefaultThreshold() {
+        String v = System.getProperty(
+                THRESHOLD_SYSTEM_PROPERTY,
+                Integer.toString(DEFAULT_THRESHOLD));
+        try {
+            int i = Integer.valueOf(v);
+            if (i < 0)
+                throw new NumberFormatException();
+            return i;
+        } catch (NumberFormatException ex) {
+            return DEFAULT_THRESHOLD;
+        }
+    }
+
+    private final int threshold;
+
+    private final int chunkSize;
+
+    private List<byte[]> chunks = new ArrayList<byte[]>();
+
+    private long size;
+
+    private File file;
+
+    private OutputStream fileOut;
+
+    // Only referenced so that it is finalized with this buffer
+    private FileDeleter fileDeleter;
+
+    private boolean closed;
+
+    private boolean released;
+
+    /**
+     * Create a buffer with the default threshold of {@link #THRESHOLD}.
+     */
+    public SpillingBuffer() {
+        this(THRESHOLD);
+    }
+
+    /**
+     * Create a buffer.
+     *
+     * @param threshold the number of bytes above which buffered bytes
+     *        are spilled to a temporary file. A value of 0 declares that
+     *        all bytes are buffered in a temporary file.
+     * @throws IllegalArgumentException if the threshold is negative.
+     */
+    public SpillingBuffer(int threshold) {
+        if (threshold < 0)
+            throw new IllegalArgumentException("Negative threshold: " + threshold);
+        this.threshold = threshold;
+        this.chunkSize = ReaderWriter.BUFFER_SIZE;
+    }
+
+    /**
+     * Create a buffer containing all the bytes read from an input stream.
+     * The input stream is not closed.
+     *
+     * @param in the input stream to read from.
+     * @param threshold the number of bytes above which buffered bytes
+     *        are spilled to a temporary file.
+     * @return the buffer.
+     * @throws IOException if there is an error reading or buffering bytes.
+     */
+    public static SpillingBuffer readFrom(InputStream in, int threshold) throws IOException {
+        final SpillingBuffer b = new SpillingBuffer(threshold);
+        try {
+            ReaderWriter.writeTo(in, b);
+            b.close();
+        } catch (IOException ex) {
+            b.release();
+            throw ex;
+        }
+        return b;
+    }
+
+    /**
+     * Get the number of bytes buffered.
+     *
+     * @return the number of bytes buffered.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Get the temporary file holding the buffered bytes.
+     *
+     * @return the temporary file, or null if the bytes are held in memory.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte)b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed)
+            throw new IOException("Buffer closed");
+        if (len == 0)
+            return;
+
+        if (file == null && size + len > threshold)
+            spill();
+
+        if (file != null) {
+            fileOut.write(b, off, len);
+            size += len;
+            return;
+        }
+
+        while (len > 0) {
+            final int o = (int)(size % chunkSize);
+            if (o == 0)
+                chunks.add(BufferPool.BYTES.acquire(chunkSize));
+            final int n = Math.min(chunkSize - o, len);
+            System.arraycopy(b, off, chunks.get(chunks.size() - 1), o, n);
+            off += n;
+            len -= n;
+            size += n;
+        }
+    }
+
+    private void spill() throws IOException {
+        file = File.createTempFile("jersey-buffer", null);
+        fileDeleter = new FileDeleter(file);
+        fileOut = new FileOutputStream(file);
+        long remaining = size;
+        for (byte[] chunk : chunks) {
+            final int n = (int)Math.min(chunkSize, remaining);
+            fileOut.write(chunk, 0, n);
+            remaining -= n;
+        }
+        releaseChunks();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (fileOut != null)
+            fileOut.flush();
+    }
+
+    /**
+     * Complete the writing of bytes to this buffer. Any subsequent write
+     * will result in an {@link IOException}.
+     *
+     * @throws IOException if there is an error closing the temporary file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        if (fileOut != null)
+            fileOut.close();
+    }
+
+    /**
+     * Get a re-readable input stream of the buffered bytes.
+     * <p>
+     * The buffer is {@link #close() closed} if not already closed. Each
+     * call returns an independent input stream positioned at the first
+     * buffered byte.
+     *
+     * @return the input stream.
+     * @throws IOException if there is an error closing the buffer.
+     */
+    public Input getInputStream() throws IOException {
+        close();
+        return new Input();
+    }
+
+    /**
+     * Release the buffered bytes and delete the temporary file, if any.
+     * Any subsequent read from an input stream of this buffer will result
+     * in an {@link IOException}.
+     */
+    public void release() {
+        if (released)
+            return;
+        released = true;
+        closed = true;
+        releaseChunks();
+        if (fileOut != null) {
+            try {
+                fileOut.close();
+            } catch (IOException ex) {
+                // Ignore, the file is deleted
+            }
+        }
+        if (file != null)
+            file.delete();
+    }
+
+    private void releaseChunks() {
+        if (chunks == null)
+            return;
+        for (byte[] chunk : chunks)
+            BufferPool.BYTES.release(chunk);
+        chunks = null;
+    }
+
+    /**
+     * Deletes the temporary file of a buffer that is garbage collected
+     * without being released.
+     */
+    private static final class FileDeleter {
+        private final File file;
+
+        FileDeleter(File file) {
+            this.file = file;
+        }
+
+        @Override
+        @SuppressWarnings("FinalizeDeclaration")
+        protected void finalize() throws Throwable {
+            file.delete();
+            super.finalize();
+        }
+    }
+
+    /**
+     * A re-readable input stream of the buffered bytes.
+     * <p>
+     * Like {@link java.io.ByteArrayInputStream} mark and reset are supported,
+     * the mark is initially the position of the first byte, and the stream
+     * may be read again after being closed. Closing the stream closes the
+     * file handle, if any, that is otherwise retained while reading; a
+     * subsequent read reopens it.
+     */
+    public final class Input extends InputStream {
+        private long position;
+
+        private long mark;
+
+        private RandomAccessFile raf;
+
+        private Input() {
+        }
+
+        /**
+         * Get the buffer of this input stream.
+         *
+         * @return the buffer.
+         */
+        public SpillingBuffer getBuffer() {
+            return SpillingBuffer.this;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return (read(b, 0, 1) == -1) ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (released)
+                throw new IOException("Buffer released");
+            if (len == 0)
+                return 0;
+            if (position >= size)
+                return -1;
+
+            len = (int)Math.min(len, size - position);
+            if (file != null) {
+                if (raf == null)
+                    raf = new RandomAccessFile(file, "r");
+                raf.seek(position);
+                len = raf.read(b, off, len);
+                if (len == -1)
+                    throw new IOException("Temporary file " + file + " truncated");
+            } else {
+                final int o = (int)(position % chunkSize);
+                len = Math.min(len, chunkSize - o);
+                System.arraycopy(chunks.get((int)(position / chunkSize)), o, b, off, len);
+            }
+            position += len;
+            return len;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0)
+                return 0;
+            n = Math.min(n, size - position);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int)Math.min(size - position, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public void mark(int readlimit) {
+            mark = position;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            position = mark;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } finally {
+                    raf = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.sun.jersey.core.util;
+
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import junit.framework.TestCase;
+
+public class BufferPoolTest extends TestCase {
+
+    private static BufferPool<byte[]> pool(int maxShared, boolean debug) {
+        return new BufferPool<byte[]>(maxShared, debug) {
+            @Override
+            protected byte[] allocate(int length) {
+                return new byte[length];
+            }
+
+            @Override
+            protected int length(byte[] a) {
+                return a.length;
+            }
+        };
+    }
+
+    public void testSizeClasses() {
+        BufferPool<byte[]> p = pool(4, false);
+        assertEquals(BufferPool.MIN_LENGTH, p.acquire(0).length);
+        assertEquals(BufferPool.MIN_LENGTH, p.acquire(1).length);
+        assertEquals(BufferPool.MIN_LENGTH, p.acquire(BufferPool.MIN_LENGTH).length);
+        assertEquals(BufferPool.MIN_LENGTH * 2, p.acquire(BufferPool.MIN_LENGTH + 1).length);
+        assertEquals(8192, p.acquire(8192).length);
+        assertEquals(16384, p.acquire(8193).length);
+        assertEquals(BufferPool.MAX_LENGTH, p.acquire(BufferPool.MAX_LENGTH).length);
+        assertEquals(BufferPool.MAX_LENGTH + 1, p.acquire(BufferPool.MAX_LENGTH + 1).length);
+        assertEquals(-1, p.getOutstanding());
+    }
+
+    public void testReuseByThread() {
+        BufferPool<byte[]> p = pool(0, false);
+        byte[] a = p.acquire(8192);
+        p.release(a);
+        assertSame(a, p.acquire(8000));
+        assertNotSame(a, p.acquire(8000));
+    }
+
+    public void testReuseAcrossThreads() throws Exception {
+        final BufferPool<byte[]> p = pool(1, false);
+        final byte[] a = p.acquire(1024);
+        final byte[] b = p.acquire(1024);
+        p.release(a);
+        // Shared as the thread cache of the size class is occupied by a
+        p.release(b);
+
+        final byte[][] acquired = new byte[2][];
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                acquired[0] = p.acquire(1024);
+                acquired[1] = p.acquire(1024);
+            }
+        };
+        t.start();
+        t.join();
+        assertSame(b, acquired[0]);
+        assertNotSame(a, acquired[1]);
+        assertNotSame(b, acquired[1]);
+    }
+
+    public void testForeignArraysNotPooled() {
+        BufferPool<byte[]> p = pool(4, false);
+        byte[] a = new byte[1000];
+        p.release(a);
+        assertNotSame(a, p.acquire(1000));
+    }
+
+    public void testLeakDetection() throws Exception {
+        final int[] warnings = new int[1];
+        Handler h = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                warnings[0]++;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger l = Logger.getLogger(BufferPool.class.getName());
+        l.addHandler(h);
+        try {
+            BufferPool<byte[]> p = pool(4, true);
+            byte[] a = p.acquire(1024);
+            assertEquals(1, p.getOutstanding());
+            p.release(a);
+            assertEquals(0, p.getOutstanding());
+            assertEquals(0, warnings[0]);
+
+            // Released twice
+            p.release(a);
+            assertEquals(1, warnings[0]);
+
+            // Acquired and not released
+            p.acquire(4096);
+            p.acquire(8192);
+            for (int i = 0; i < 50 && p.getOutstanding() > 0; i++) {
+                System.gc();
+                Thread.sleep(20);
+            }
+            assertEquals(0, p.getOutstanding());
+            assertEquals(3, warnings[0]);
+        } finally {
+            l.removeHandler(h);
+        }
+    }
+}
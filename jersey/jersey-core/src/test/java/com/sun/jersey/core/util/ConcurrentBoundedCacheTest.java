@@ -0,0 +1,143 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.core.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.TestCase;
+
+public class ConcurrentBoundedCacheTest extends TestCase {
+
+    public void testGetPut() {
+        ConcurrentBoundedCache<String, String> c = new ConcurrentBoundedCache<String, String>(2);
+        assertNull(c.get("a"));
+
+        c.put("a", "A");
+        assertEquals("A", c.get("a"));
+        assertEquals(1, c.size());
+
+        c.put("a", "AA");
+        assertEquals("AA", c.get("a"));
+        assertEquals(1, c.size());
+    }
+
+    public void testEvictSecondChance() {
+        ConcurrentBoundedCache<String, String> c = new ConcurrentBoundedCache<String, String>(2);
+        c.put("a", "A");
+        c.put("b", "B");
+        // Get "a" so that it is not evicted
+        assertEquals("A", c.get("a"));
+
+        c.put("c", "C");
+        assertEquals(2, c.size());
+        assertEquals("A", c.get("a"));
+    }
+
+    public void testEvictAllGot() {
+        ConcurrentBoundedCache<String, String> c = new ConcurrentBoundedCache<String, String>(2);
+        c.put("a", "A");
+        c.put("b", "B");
+        c.get("a");
+        c.get("b");
+
+        c.put("c", "C");
+        assertEquals(2, c.size());
+    }
+
+    public void testRemoveAndClear() {
+        ConcurrentBoundedCache<String, String> c = new ConcurrentBoundedCache<String, String>(2);
+        c.put("a", "A");
+        c.put("b", "B");
+
+        assertEquals("A", c.remove("a"));
+        assertNull(c.get("a"));
+        assertNull(c.remove("a"));
+        assertEquals(1, c.size());
+
+        c.clear();
+        assertEquals(0, c.size());
+        assertNull(c.get("b"));
+    }
+
+    public void testIllegalSize() {
+        try {
+            new ConcurrentBoundedCache<String, String>(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final int maxSize = 16;
+        final ConcurrentBoundedCache<Integer, Integer> c = new ConcurrentBoundedCache<Integer, Integer>(maxSize);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final int threads = 4;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 10000; i++) {
+                            Integer key = (i * 7 + offset) % 100;
+                            Integer value = c.get(key);
+                            if (value != null && !value.equals(key)) {
+                                throw new AssertionError(value + " != " + key);
+                            }
+                            c.put(key, key);
+                        }
+                    } catch (Throwable th) {
+                        failure.set(th);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        done.await();
+
+        assertNull(failure.get());
+        // A final put evicts any entries exceeding the maximum size
+        c.put(-1, -1);
+        assertTrue(c.size() <= maxSize);
+    }
+}
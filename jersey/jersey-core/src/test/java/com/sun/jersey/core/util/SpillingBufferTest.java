@@ -0,0 +1,147 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.sun.jersey.core.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class SpillingBufferTest extends TestCase {
+
+    private static byte[] bytes(int n) {
+        byte[] b = new byte[n];
+        new Random(n).nextBytes(b);
+        return b;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[333];
+        int n;
+        while ((n = in.read(b)) != -1)
+            out.write(b, 0, n);
+        return out.toByteArray();
+    }
+
+    public void testEmpty() throws IOException {
+        SpillingBuffer b = new SpillingBuffer(16);
+        InputStream in = b.getInputStream();
+        assertEquals(0, b.size());
+        assertEquals(0, in.available());
+        assertEquals(-1, in.read());
+        assertNull(b.getFile());
+    }
+
+    public void testInMemory() throws IOException {
+        byte[] data = bytes(ReaderWriter.BUFFER_SIZE * 3 + 17);
+        SpillingBuffer b = new SpillingBuffer(data.length);
+        b.write(data[0]);
+        b.write(data, 1, data.length - 1);
+        InputStream in = b.getInputStream();
+
+        assertNull(b.getFile());
+        assertEquals(data.length, b.size());
+        assertEquals(data.length, in.available());
+        assertTrue(Arrays.equals(data, read(in)));
+    }
+
+    public void testSpill() throws IOException {
+        byte[] data = bytes(ReaderWriter.BUFFER_SIZE * 3 + 17);
+        SpillingBuffer b = new SpillingBuffer(ReaderWriter.BUFFER_SIZE + 1);
+        for (int i = 0; i < data.length; i += 1000)
+            b.write(data, i, Math.min(1000, data.length - i));
+        InputStream in = b.getInputStream();
+
+        File f = b.getFile();
+        assertNotNull(f);
+        assertTrue(f.exists());
+        assertEquals(data.length, f.length());
+        assertTrue(Arrays.equals(data, read(in)));
+
+        b.release();
+        assertFalse(f.exists());
+        try {
+            in.reset();
+            in.read();
+            fail();
+        } catch (IOException ex) {
+        }
+    }
+
+    public void testReRead() throws IOException {
+        for (int threshold : new int[] {0, 1 << 20}) {
+            byte[] data = bytes(20000);
+            SpillingBuffer b = SpillingBuffer.readFrom(new ByteArrayInputStream(data), threshold);
+            InputStream in = b.getInputStream();
+            assertEquals(threshold == 0, b.getFile() != null);
+
+            assertTrue(Arrays.equals(data, read(in)));
+            in.close();
+            in.reset();
+            assertTrue(Arrays.equals(data, read(in)));
+
+            in.reset();
+            assertEquals(10000, in.skip(10000));
+            in.mark(0);
+            assertEquals(data[10000] & 0xff, in.read());
+            in.reset();
+            assertTrue(Arrays.equals(Arrays.copyOfRange(data, 10000, data.length), read(in)));
+
+            assertTrue(Arrays.equals(data, read(b.getInputStream())));
+            b.release();
+        }
+    }
+
+    public void testWriteAfterClose() throws IOException {
+        SpillingBuffer b = new SpillingBuffer();
+        b.write(1);
+        b.getInputStream();
+        try {
+            b.write(2);
+            fail();
+        } catch (IOException ex) {
+        }
+    }
+}
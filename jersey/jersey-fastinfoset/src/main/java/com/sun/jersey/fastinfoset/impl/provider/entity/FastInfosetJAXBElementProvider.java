@@ -71,6 +71,11 @@ public final class FastInfosetJAXBElementProvider extends AbstractJAXBElementPro
         super(ps, MediaTypes.FAST_INFOSET);
     }
     
+    @Override
+    protected boolean isPoolingSupported() {
+        return true;
+    }
+
     protected final JAXBElement<?> readFrom(Class<?> type, MediaType mediaType,
             Unmarshaller u, InputStream entityStream)
             throws JAXBException {
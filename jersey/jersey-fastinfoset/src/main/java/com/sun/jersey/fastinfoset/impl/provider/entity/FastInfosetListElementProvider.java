@@ -62,6 +62,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.Collection;
+import java.util.Iterator;
 
 /**
  *
@@ -75,6 +76,11 @@ public class FastInfosetListElementProvider extends AbstractListElementProvider
         super(ps, MediaTypes.FAST_INFOSET);
     }
 
+    @Override
+    protected boolean isPoolingSupported() {
+        return true;
+    }
+
     @Override
     protected final XMLStreamReader getXMLStreamReader(Class<?> elementType, MediaType mediaType, Unmarshaller u,
             InputStream entityStream)
@@ -91,6 +97,14 @@ public class FastInfosetListElementProvider extends AbstractListElementProvider
             MediaType mediaType, Charset c,
             Marshaller m, OutputStream entityStream)
             throws JAXBException, IOException {
+        writeList(elementType, t.iterator(), mediaType, c, m, entityStream);
+    }
+
+    @Override
+    public final void writeList(Class<?> elementType, Iterator<?> t,
+            MediaType mediaType, Charset c,
+            Marshaller m, OutputStream entityStream)
+            throws JAXBException, IOException {
         final XMLStreamWriter xsw = new StAXDocumentSerializer(entityStream);
         
         final String rootElement = getRootElementName(elementType);
@@ -98,8 +112,11 @@ public class FastInfosetListElementProvider extends AbstractListElementProvider
         try {
             xsw.writeStartDocument();
             xsw.writeStartElement(rootElement);
-            for (Object o : t)
-                m.marshal(o, xsw);
+            for (int i = 1; t.hasNext(); i++) {
+                m.marshal(t.next(), xsw);
+                if (i % FLUSH_INTERVAL == 0)
+                    xsw.flush();
+            }
             xsw.writeEndElement();
             xsw.writeEndDocument();
             xsw.flush();
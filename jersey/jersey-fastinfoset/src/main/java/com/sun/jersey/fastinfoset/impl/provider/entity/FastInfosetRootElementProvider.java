@@ -71,6 +71,11 @@ public final class FastInfosetRootElementProvider extends AbstractRootElementPro
         super(ps, MediaTypes.FAST_INFOSET);
     }
     
+    @Override
+    protected boolean isPoolingSupported() {
+        return true;
+    }
+
     @Override
     protected final Object readFrom(Class<Object> type, MediaType mediaType,
             Unmarshaller u, InputStream entityStream)
@@ -66,6 +66,32 @@ public final class GrizzlyServerFactory {
      */
     public final static String FEATURE_ALLOW_ENCODED_SLASH = "com.sun.jersey.api.container.grizzly.AllowEncodedSlashFeature";
 
+    /**
+     * {@link ResourceConfig} property declaring the {@link java.util.concurrent.Executor}
+     * that processes requests.
+     * <p>
+     * If set then the Grizzly response is suspended, the request entity, if
+     * any, is read without blocking the Grizzly worker thread, and the
+     * request is then processed, and the response written, by the executor.
+     * Thus Grizzly worker threads are not blocked by resource methods
+     * or by clients that send request entities slowly.
+     * <p>
+     * If not set (the default behavior) requests are processed on Grizzly
+     * worker threads.
+     */
+    public final static String PROPERTY_EXECUTOR = "com.sun.jersey.api.container.grizzly.Executor";
+
+    /**
+     * {@link ResourceConfig} property declaring the maximum size, in bytes,
+     * of a request entity that is read without blocking before the request
+     * is processed when {@link #PROPERTY_EXECUTOR} is set. The remainder of
+     * a larger request entity is read by the executor.
+     * <p>
+     * The value may be an {@link Integer} or a {@link String}. The default
+     * value is 65536.
+     */
+    public final static String PROPERTY_MAX_BUFFERED_ENTITY_SIZE = "com.sun.jersey.api.container.grizzly.MaxBufferedEntitySize";
+
     /**
      * Creates a new {@link HttpServer} which will manage all root resource and
      * provider classes found by searching the classes referenced in the java
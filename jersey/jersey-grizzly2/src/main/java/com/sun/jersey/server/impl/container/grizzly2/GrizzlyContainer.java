@@ -40,13 +40,22 @@
 
 package com.sun.jersey.server.impl.container.grizzly2;
 
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.GenericEntity;
@@ -55,11 +64,16 @@ import javax.ws.rs.core.UriBuilder;
 import org.glassfish.grizzly.http.server.Request;
 import org.glassfish.grizzly.http.server.Response;
 import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.io.NIOInputStream;
+import org.glassfish.grizzly.http.server.io.OutputBuffer;
+import org.glassfish.grizzly.http.server.io.ReadHandler;
 
 import com.sun.jersey.api.container.grizzly2.GrizzlyServerFactory;
 
 import com.sun.jersey.api.core.ResourceConfig;
 import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.core.util.FileRegionWriter;
+import com.sun.jersey.core.util.ReaderWriter;
 import com.sun.jersey.server.impl.ThreadLocalInvoker;
 
 import com.sun.jersey.spi.container.*;
@@ -82,16 +96,104 @@ public final class GrizzlyContainer extends HttpHandler implements
         }
     }
 
-    private final static class Writer implements ContainerResponseWriter {
+    private static final Logger LOGGER = Logger.getLogger(GrizzlyContainer.class.getName());
+
+    private static final int DEFAULT_MAX_BUFFERED_ENTITY_SIZE = 65536;
+
+    /**
+     * File regions smaller than this size are copied rather than mapped.
+     */
+    private static final long MIN_MAPPED_REGION_SIZE = 65536;
+
+    private static final long MAX_MAPPED_REGION_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * An output stream that writes regions of files as memory-mapped
+     * buffers, which are written to the connection without being copied to
+     * the heap.
+     */
+    private final static class FileRegionOutputStream extends OutputStream implements FileRegionWriter {
+
+        final Response response;
+
+        final OutputStream out;
+
+        FileRegionOutputStream(final Response response) {
+            this.response = response;
+            this.out = response.getOutputStream();
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        @Override
+        public void writeFileRegion(final File file, long position, long count) throws IOException {
+            if (count < MIN_MAPPED_REGION_SIZE) {
+                ReaderWriter.writeTo(file, position, count, out);
+                return;
+            }
+
+            final OutputBuffer ob = response.getOutputBuffer();
+            final FileInputStream in = new FileInputStream(file);
+            try {
+                final FileChannel fc = in.getChannel();
+                if (position + count > fc.size()) {
+                    throw new EOFException("The region of the file " + file + " ends after the end of the file");
+                }
+                while (count > 0) {
+                    final long size = Math.min(count, MAX_MAPPED_REGION_SIZE);
+                    ob.writeByteBuffer(fc.map(FileChannel.MapMode.READ_ONLY, position, size));
+                    position += size;
+                    count -= size;
+                }
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    private final static class Writer implements AsyncContainerResponseWriter {
 
         final Response response;
 
-        Writer(final Response response) {
+        boolean suspended;
+
+        Writer(final Response response, final boolean suspended) {
             this.response = response;
+            this.suspended = suspended;
+        }
+
+        @Override
+        public boolean suspend() {
+            if (!suspended) {
+                response.suspend();
+                suspended = true;
+            }
+            return true;
         }
 
         @Override
         public void finish() throws IOException {
+            if (suspended) {
+                resume(response);
+            }
         }
 
         @Override
@@ -115,12 +217,16 @@ public final class GrizzlyContainer extends HttpHandler implements
                 response.setContentType(contentType);
             }
 
-            return response.getOutputStream();
+            return new FileRegionOutputStream(response);
         }
     }
 
     private volatile WebApplication application;
 
+    private final Executor executor;
+
+    private final int maxBufferedEntitySize;
+
     private final ThreadLocalInvoker<Request> requestInvoker =
             new ThreadLocalInvoker<Request>();
 
@@ -142,6 +248,22 @@ public final class GrizzlyContainer extends HttpHandler implements
 
         setAllowEncodedSlash(resourceConfig.getFeature(GrizzlyServerFactory.FEATURE_ALLOW_ENCODED_SLASH));
 
+        final Object e = resourceConfig.getProperty(GrizzlyServerFactory.PROPERTY_EXECUTOR);
+        if (e != null && !(e instanceof Executor)) {
+            throw new IllegalArgumentException("The property " + GrizzlyServerFactory.PROPERTY_EXECUTOR
+                    + " must be an instance of " + Executor.class.getName());
+        }
+        this.executor = (Executor) e;
+
+        final Object size = resourceConfig.getProperty(GrizzlyServerFactory.PROPERTY_MAX_BUFFERED_ENTITY_SIZE);
+        if (size instanceof Integer) {
+            this.maxBufferedEntitySize = (Integer) size;
+        } else if (size instanceof String) {
+            this.maxBufferedEntitySize = Integer.parseInt((String) size);
+        } else {
+            this.maxBufferedEntitySize = DEFAULT_MAX_BUFFERED_ENTITY_SIZE;
+        }
+
         final GenericEntity<ThreadLocal<Request>> requestThreadLocal =
                 new GenericEntity<ThreadLocal<Request>>(
                 requestInvoker.getImmutableThreadLocal()) {
@@ -179,18 +301,101 @@ public final class GrizzlyContainer extends HttpHandler implements
 
     @Override
     public void service(final Request request, final Response response) {
+        if (executor != null) {
+            response.suspend();
+            readEntityAndDispatch(request, response);
+            return;
+        }
+
         try {
             requestInvoker.set(request);
             responseInvoker.set(response);
 
-            _service(request, response);
+            _service(request, response, false);
         } finally {
             requestInvoker.set(null);
             responseInvoker.set(null);
         }
     }
 
-    private void _service(final Request request, final Response response) {
+    /**
+     * Read the request entity without blocking, until the entity has been
+     * read or the maximum buffered entity size has been reached, and then
+     * process the request using the executor.
+     */
+    private void readEntityAndDispatch(final Request request, final Response response) {
+        final NIOInputStream in = request.getNIOInputStream();
+        if (in.isFinished()) {
+            dispatch(request, response);
+            return;
+        }
+
+        final AtomicBoolean dispatched = new AtomicBoolean();
+        in.notifyAvailable(new ReadHandler() {
+            @Override
+            public void onDataAvailable() {
+                if (dispatched.compareAndSet(false, true)) {
+                    dispatch(request, response);
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                onDataAvailable();
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+                if (dispatched.compareAndSet(false, true)) {
+                    LOGGER.log(Level.WARNING, "Error reading the request entity", t);
+                    response.setStatus(400);
+                    resume(response);
+                }
+            }
+        }, maxBufferedEntitySize);
+    }
+
+    private void dispatch(final Request request, final Response response) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        requestInvoker.set(request);
+                        responseInvoker.set(response);
+
+                        _service(request, response, true);
+                    } catch (Throwable t) {
+                        // The response must be resumed, otherwise the
+                        // connection remains suspended
+                        LOGGER.log(Level.SEVERE, "Error processing the request", t);
+                        if (!response.isCommitted()) {
+                            response.setStatus(500);
+                        }
+                        resume(response);
+                        if (t instanceof Error) {
+                            throw (Error) t;
+                        }
+                    } finally {
+                        requestInvoker.set(null);
+                        responseInvoker.set(null);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            LOGGER.log(Level.WARNING, "The request could not be processed by the executor", ex);
+            response.setStatus(503);
+            resume(response);
+        }
+    }
+
+    private static void resume(final Response response) {
+        if (response.isSuspended()) {
+            response.resume();
+        }
+    }
+
+    private void _service(final Request request, final Response response, final boolean suspended) {
         final WebApplication _application = application;
 
         final URI baseUri = getBaseUri(request);
@@ -213,7 +418,7 @@ public final class GrizzlyContainer extends HttpHandler implements
                     request.getMethod().getMethodString(), baseUri, requestUri,
                     getHeaders(request), request.getInputStream());
 
-            _application.handleRequest(cRequest, new Writer(response));
+            _application.handleRequest(cRequest, new Writer(response, suspended));
         } catch (final IOException ex) {
             throw new RuntimeException(ex);
         }
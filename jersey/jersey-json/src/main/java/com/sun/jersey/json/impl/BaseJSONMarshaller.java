@@ -54,6 +54,7 @@ import javax.xml.stream.XMLStreamWriter;
 import com.sun.jersey.api.json.JSONConfigurated;
 import com.sun.jersey.api.json.JSONConfiguration;
 import com.sun.jersey.api.json.JSONMarshaller;
+import com.sun.jersey.json.impl.writer.NaturalJsonWriter;
 
 /**
  * @author Jakub Podlesak (jakub.podlesak at oracle.com)
@@ -103,6 +104,12 @@ public class BaseJSONMarshaller implements JSONMarshaller, JSONConfigurated {
             throw new IllegalArgumentException("The writer is null");
         }
 
+        if (jsonConfig.getNotation() == JSONConfiguration.Notation.NATURAL
+                && NaturalJsonWriter.isSupported(jaxbContext, jaxbMarshaller, o.getClass())) {
+            NaturalJsonWriter.marshal(o, writer, jsonConfig, jaxbContext);
+            return;
+        }
+
         jaxbMarshaller.marshal(o, getXMLStreamWriter(writer, o.getClass()));
     }
 
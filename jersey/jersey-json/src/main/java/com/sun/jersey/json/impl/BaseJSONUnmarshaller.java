@@ -56,6 +56,7 @@ import javax.xml.stream.XMLStreamReader;
 import com.sun.jersey.api.json.JSONConfigurated;
 import com.sun.jersey.api.json.JSONConfiguration;
 import com.sun.jersey.api.json.JSONUnmarshaller;
+import com.sun.jersey.json.impl.reader.NaturalJsonBinder;
 
 /**
  * @author Jakub Podlesak (jakub.podlesak at oracle.com)
@@ -96,6 +97,11 @@ public class BaseJSONUnmarshaller implements JSONUnmarshaller, JSONConfigurated
     }
 
     public <T> T unmarshalFromJSON(Reader reader, Class<T> expectedType) throws JAXBException {
+        if (jsonConfig.getNotation() == JSONConfiguration.Notation.NATURAL && jsonConfig.isRootUnwrapping()
+                && NaturalJsonBinder.isSupported(jaxbContext, jaxbUnmarshaller, expectedType)) {
+            return NaturalJsonBinder.unmarshal(reader, jsonConfig, jaxbContext, expectedType);
+        }
+
         if (jsonConfig.isRootUnwrapping() || !expectedType.isAnnotationPresent(XmlRootElement.class)) {
             return unmarshalJAXBElementFromJSON(reader, expectedType).getValue();
         } else {
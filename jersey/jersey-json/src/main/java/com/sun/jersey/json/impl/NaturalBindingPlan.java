@@ -0,0 +1,625 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.sun.jersey.json.impl;
+
+import java.awt.Image;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.activation.DataHandler;
+import javax.xml.bind.JAXBContext;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.transform.Source;
+
+import com.sun.jersey.api.json.JSONJAXBContext;
+import com.sun.xml.bind.api.AccessorException;
+import com.sun.xml.bind.v2.ClassFactory;
+import com.sun.xml.bind.v2.model.core.ID;
+import com.sun.xml.bind.v2.model.runtime.RuntimeAttributePropertyInfo;
+import com.sun.xml.bind.v2.model.runtime.RuntimeClassInfo;
+import com.sun.xml.bind.v2.model.runtime.RuntimeElementPropertyInfo;
+import com.sun.xml.bind.v2.model.runtime.RuntimeNonElement;
+import com.sun.xml.bind.v2.model.runtime.RuntimeNonElementRef;
+import com.sun.xml.bind.v2.model.runtime.RuntimePropertyInfo;
+import com.sun.xml.bind.v2.model.runtime.RuntimeTypeInfoSet;
+import com.sun.xml.bind.v2.model.runtime.RuntimeTypeRef;
+import com.sun.xml.bind.v2.model.runtime.RuntimeValuePropertyInfo;
+import com.sun.xml.bind.v2.runtime.JAXBContextImpl;
+import com.sun.xml.bind.v2.runtime.JaxBeanInfo;
+import com.sun.xml.bind.v2.runtime.Transducer;
+import com.sun.xml.bind.v2.runtime.reflect.Accessor;
+import com.sun.xml.bind.v2.runtime.reflect.ListIterator;
+import com.sun.xml.bind.v2.runtime.reflect.Lister;
+
+/**
+ * A binding plan of a JAXB bean class for the direct unmarshalling and
+ * marshalling of JSON in the natural notation, by
+ * {@link com.sun.jersey.json.impl.reader.NaturalJsonBinder} and
+ * {@link com.sun.jersey.json.impl.writer.NaturalJsonWriter}.
+ * <p>
+ * A plan maps the JSON field names of a bean, namely the local names of the
+ * XML attributes and elements of its properties, to the accessors,
+ * transducers and listers of the runtime model of the JAXB reference
+ * implementation, the same model used by {@link JaxbRiXmlStructure}.
+ * A plan is only built for classes whose properties are all mapped to
+ * attributes, a value or elements of a single type without adapters,
+ * default values or element wrappers, and with no subclasses or
+ * event callbacks. Classes with other mappings are unmarshalled and
+ * marshalled by the JAXB unmarshaller and marshaller over an XML stream
+ * reader or writer.
+ */
+public final class NaturalBindingPlan {
+
+    private static final Logger LOGGER = Logger.getLogger(NaturalBindingPlan.class.getName());
+
+    private static final Object UNSUPPORTED = new Object();
+
+    /**
+     * The types whose values are written as JSON numbers or booleans
+     * rather than strings, as by {@link com.sun.jersey.json.impl.writer.Stax2JacksonWriter}.
+     */
+    private static final Set<Type> NON_STRING_TYPES = new HashSet<Type>(Arrays.<Type>asList(
+            byte.class, short.class, int.class, long.class, float.class, double.class, boolean.class,
+            Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, Boolean.class,
+            BigInteger.class, BigDecimal.class));
+
+    /**
+     * The types whose values are formatted by the transducers using the
+     * context of the JAXB marshaller, such as the schema type or the
+     * attachment marshaller.
+     */
+    private static final Class<?>[] CONTEXTUAL_TYPES = {
+            Date.class, Calendar.class, XMLGregorianCalendar.class, byte[].class,
+            Image.class, DataHandler.class, Source.class
+    };
+
+    /**
+     * The plans per JAXB context, or {@link #UNSUPPORTED} if the JAXB context
+     * is not one of the reference implementation.
+     * <p>
+     * The JAXB contexts are weakly referenced so that the plans do not keep
+     * them from being garbage collected, and looking up the plans of a
+     * JAXB context does not lock.
+     */
+    private static final ConcurrentMap<ContextKey, Object> PLANS = new ConcurrentHashMap<ContextKey, Object>();
+
+    /**
+     * The keys of {@link #PLANS} whose JAXB context has been garbage collected.
+     */
+    private static final ReferenceQueue<JAXBContext> COLLECTED_CONTEXTS = new ReferenceQueue<JAXBContext>();
+
+    /**
+     * A weak reference to a JAXB context that is compared by identity.
+     */
+    private static final class ContextKey extends WeakReference<JAXBContext> {
+
+        private final int hash;
+
+        ContextKey(final JAXBContext jaxbContext, final ReferenceQueue<JAXBContext> queue) {
+            super(jaxbContext, queue);
+            this.hash = System.identityHashCode(jaxbContext);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof ContextKey)) {
+                return false;
+            }
+            final JAXBContext jaxbContext = get();
+            return jaxbContext != null && jaxbContext == ((ContextKey) o).get();
+        }
+    }
+
+    /**
+     * The binding of a property.
+     */
+    public static final class Binding {
+
+        private final String name;
+
+        private final Accessor accessor;
+
+        private final Transducer transducer;
+
+        private final Lister lister;
+
+        private final int pack;
+
+        private final boolean nonString;
+
+        private final boolean nillable;
+
+        private NaturalBindingPlan plan;
+
+        Binding(String name, Accessor accessor, Transducer transducer, Lister lister, int pack,
+                Type valueType, boolean nillable) {
+            this.name = name;
+            this.accessor = accessor;
+            this.transducer = transducer;
+            this.lister = lister;
+            this.pack = pack;
+            this.nonString = NON_STRING_TYPES.contains(valueType);
+            this.nillable = nillable;
+        }
+
+        /**
+         * Get the JSON field name of the property.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the plan of the bean type of the property, otherwise
+         * {@code null} if the property is of a simple type.
+         */
+        public NaturalBindingPlan getPlan() {
+            return plan;
+        }
+
+        public boolean isCollection() {
+            return lister != null;
+        }
+
+        /**
+         * Check whether the simple values of the property are written as
+         * JSON numbers or booleans.
+         */
+        public boolean isNonString() {
+            return nonString;
+        }
+
+        /**
+         * Check whether a {@code null} value of the property is written as
+         * a nil element.
+         */
+        public boolean isNillable() {
+            return nillable;
+        }
+
+        /**
+         * Get the value of the property.
+         */
+        public Object get(Object bean) throws AccessorException {
+            return accessor.get(bean);
+        }
+
+        /**
+         * Get the text of a simple value.
+         */
+        public String print(Object value) throws AccessorException {
+            return transducer.print(value).toString();
+        }
+
+        /**
+         * Get an iterator over the items of the value of a collection
+         * property.
+         */
+        public ListIterator<?> iterator(Object value) {
+            return lister.iterator(value, null);
+        }
+
+        /**
+         * Set, or add to a collection property, a simple value. As for JAXB a
+         * value that cannot be parsed is ignored.
+         */
+        public void setText(Object bean, Object[] packs, String text) throws AccessorException {
+            final Object value;
+            try {
+                value = transducer.parse(text);
+            } catch (Exception ex) {
+                return;
+            }
+            set(bean, packs, value);
+        }
+
+        /**
+         * Set, or add to a collection property, a value.
+         */
+        public void set(Object bean, Object[] packs, Object value) throws AccessorException {
+            if (lister == null) {
+                accessor.set(bean, value);
+            } else {
+                lister.addToPack(startPacking(bean, packs), value);
+            }
+        }
+
+        /**
+         * Start packing the items of a collection property, if not already
+         * started.
+         */
+        public Object startPacking(Object bean, Object[] packs) throws AccessorException {
+            if (packs[pack] == null) {
+                packs[pack] = lister.startPacking(bean, accessor);
+            }
+            return packs[pack];
+        }
+    }
+
+    private final Class<?> type;
+
+    private final Map<String, Binding> attributes = new LinkedHashMap<String, Binding>();
+
+    private final Map<String, Binding> elements = new LinkedHashMap<String, Binding>();
+
+    private final List<Binding> collections = new ArrayList<Binding>();
+
+    private Binding value;
+
+    private boolean recursive;
+
+    private String unsupported;
+
+    private NaturalBindingPlan(Class<?> type) {
+        this.type = type;
+    }
+
+    /**
+     * Get the binding of an attribute.
+     */
+    public Binding getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    /**
+     * Get the bindings of the attributes in the order they are marshalled.
+     */
+    public Iterable<Binding> getAttributes() {
+        return attributes.values();
+    }
+
+    /**
+     * Get the binding of an element.
+     */
+    public Binding getElement(String name) {
+        return elements.get(name);
+    }
+
+    /**
+     * Get the bindings of the elements in the order they are marshalled.
+     */
+    public Iterable<Binding> getElements() {
+        return elements.values();
+    }
+
+    /**
+     * Get the binding of the value, otherwise {@code null}.
+     */
+    public Binding getValue() {
+        return value;
+    }
+
+    /**
+     * Check whether an instance of the class may reference itself, directly
+     * or indirectly.
+     */
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    /**
+     * Get the number of collection properties, whose items are packed
+     * while the bean is unmarshalled.
+     */
+    public int getPacks() {
+        return collections.size();
+    }
+
+    public Object newInstance() {
+        return ClassFactory.create(type);
+    }
+
+    /**
+     * Finish the packing of the items of the collection properties.
+     */
+    public void endPacking(Object bean, Object[] packs) throws AccessorException {
+        for (int i = 0; i < packs.length; i++) {
+            if (packs[i] != null) {
+                final Binding b = collections.get(i);
+                b.lister.endPacking(packs[i], bean, b.accessor);
+            }
+        }
+    }
+
+    /**
+     * Get the binding plan of a class.
+     *
+     * @param jaxbContext the JAXB context.
+     * @param type the class.
+     * @return the plan, otherwise {@code null} if the JAXB context is not one
+     *         of the reference implementation or the class cannot be
+     *         unmarshalled and marshalled directly.
+     */
+    public static NaturalBindingPlan get(JAXBContext jaxbContext, final Class<?> type) {
+        if (jaxbContext instanceof JSONJAXBContext) {
+            jaxbContext = ((JSONJAXBContext) jaxbContext).getOriginalJaxbContext();
+        }
+
+        Object cache = PLANS.get(new ContextKey(jaxbContext, null));
+        if (cache == null) {
+            Reference<? extends JAXBContext> collected;
+            while ((collected = COLLECTED_CONTEXTS.poll()) != null) {
+                PLANS.remove(collected);
+            }
+
+            cache = isReferenceImplementation(jaxbContext)
+                    ? new ConcurrentHashMap<Class<?>, Object>() : UNSUPPORTED;
+            final Object existing = PLANS.putIfAbsent(new ContextKey(jaxbContext, COLLECTED_CONTEXTS), cache);
+            if (existing != null) {
+                cache = existing;
+            }
+        }
+
+        return (cache == UNSUPPORTED) ? null : get(jaxbContext, type, (Map<Class<?>, Object>) cache);
+    }
+
+    private static boolean isReferenceImplementation(final JAXBContext jaxbContext) {
+        try {
+            return JSONHelper.getJaxbProvider(jaxbContext) == SupportedJaxbProvider.JAXB_RI;
+        } catch (IllegalStateException ex) {
+            return false;
+        }
+    }
+
+    private static NaturalBindingPlan get(final JAXBContext jaxbContext, final Class<?> type,
+                                          final Map<Class<?>, Object> cache) {
+        Object plan = cache.get(type);
+        if (plan == null) {
+            synchronized (cache) {
+                plan = cache.get(type);
+                if (plan == null) {
+                    final Map<Class<?>, NaturalBindingPlan> plans = new LinkedHashMap<Class<?>, NaturalBindingPlan>();
+                    String unsupported;
+                    try {
+                        final JAXBContextImpl context = (JAXBContextImpl) jaxbContext;
+                        build(context, context.getTypeInfoSet(), type, plans, new HashSet<Class<?>>(), cache);
+
+                        unsupported = null;
+                        for (NaturalBindingPlan p : plans.values()) {
+                            if (p.unsupported != null) {
+                                unsupported = p.type.getName() + ": " + p.unsupported;
+                                break;
+                            }
+                        }
+                    } catch (Exception ex) {
+                        unsupported = ex.toString();
+                    }
+
+                    if (unsupported == null) {
+                        // The plans of all classes reachable from the class are supported
+                        cache.putAll(plans);
+                    } else {
+                        if (LOGGER.isLoggable(Level.FINE)) {
+                            LOGGER.fine("The class " + type.getName() +
+                                    " is not bound directly to JSON, " + unsupported);
+                        }
+                        cache.put(type, UNSUPPORTED);
+                    }
+                    plan = cache.get(type);
+                }
+            }
+        }
+        return (plan instanceof NaturalBindingPlan) ? (NaturalBindingPlan) plan : null;
+    }
+
+    private static NaturalBindingPlan build(final JAXBContextImpl context, final RuntimeTypeInfoSet typeInfoSet,
+                                            final Class<?> type, final Map<Class<?>, NaturalBindingPlan> plans,
+                                            final Set<Class<?>> path, final Map<Class<?>, Object> cache) {
+        final Object cached = cache.get(type);
+        if (cached instanceof NaturalBindingPlan) {
+            return (NaturalBindingPlan) cached;
+        }
+
+        NaturalBindingPlan plan = plans.get(type);
+        if (plan != null) {
+            if (path.contains(type)) {
+                // Every cycle of references between classes goes through a class
+                // reached again while building its own plan
+                plan.recursive = true;
+            }
+            return plan;
+        }
+        plan = new NaturalBindingPlan(type);
+        plans.put(type, plan);
+
+        if (cached != null) {
+            plan.unsupported = "a referenced class is not supported";
+            return plan;
+        }
+
+        final RuntimeNonElement typeInfo = typeInfoSet.getClassInfo(type);
+        if (!(typeInfo instanceof RuntimeClassInfo)) {
+            plan.unsupported = "not a bean class of the JAXB context";
+            return plan;
+        }
+
+        final RuntimeClassInfo classInfo = (RuntimeClassInfo) typeInfo;
+        if (classInfo.isAbstract() || classInfo.hasSubClasses() || classInfo.getFactoryMethod() != null) {
+            plan.unsupported = "abstract class, class with subclasses or factory method";
+            return plan;
+        }
+
+        final JaxBeanInfo beanInfo = context.getBeanInfo(type);
+        if (beanInfo == null || beanInfo.hasBeforeUnmarshalMethod() || beanInfo.hasAfterUnmarshalMethod()
+                || beanInfo.hasBeforeMarshalMethod() || beanInfo.hasAfterMarshalMethod()) {
+            plan.unsupported = "event callbacks";
+            return plan;
+        }
+
+        // The properties of the base classes come first
+        final List<RuntimeClassInfo> hierarchy = new ArrayList<RuntimeClassInfo>();
+        for (RuntimeClassInfo ci = classInfo; ci != null; ci = ci.getBaseClass()) {
+            if (ci.hasAttributeWildcard() || ci.getLocatorField() != null) {
+                plan.unsupported = "attribute wildcard or locator";
+                return plan;
+            }
+            hierarchy.add(0, ci);
+        }
+
+        path.add(type);
+        try {
+            for (RuntimeClassInfo ci : hierarchy) {
+                for (RuntimePropertyInfo p : ci.getProperties()) {
+                    plan.unsupported = plan.add(context, typeInfoSet, p, plans, path, cache);
+                    if (plan.unsupported != null) {
+                        return plan;
+                    }
+                }
+            }
+        } finally {
+            path.remove(type);
+        }
+        return plan;
+    }
+
+    /**
+     * Add the binding of a property.
+     *
+     * @return the reason why the property is not supported, otherwise
+     *         {@code null}.
+     */
+    private String add(final JAXBContextImpl context, final RuntimeTypeInfoSet typeInfoSet,
+                       final RuntimePropertyInfo p, final Map<Class<?>, NaturalBindingPlan> plans,
+                       final Set<Class<?>> path, final Map<Class<?>, Object> cache) {
+        if (p.getAdapter() != null || p.id() == ID.IDREF || p.getExpectedMimeType() != null) {
+            return "property " + p.getName() + " with an adapter, IDREF or MIME type";
+        }
+
+        switch (p.kind()) {
+            case ATTRIBUTE: {
+                final RuntimeAttributePropertyInfo ap = (RuntimeAttributePropertyInfo) p;
+                final String name = ap.getXmlName().getLocalPart();
+                final Transducer transducer = getTransducer(ap);
+                if (ap.isCollection() || transducer == null
+                        || "type".equals(name) || attributes.containsKey(name)) {
+                    return "attribute property " + p.getName();
+                }
+                attributes.put(name, new Binding(name, ap.getAccessor(), transducer, null, -1,
+                        ap.getRawType(), false));
+                return null;
+            }
+            case VALUE: {
+                final RuntimeValuePropertyInfo vp = (RuntimeValuePropertyInfo) p;
+                final Transducer transducer = getTransducer(vp);
+                if (vp.isCollection() || transducer == null || value != null) {
+                    return "value property " + p.getName();
+                }
+                // The value is written as a string, the type of the element being the bean class
+                value = new Binding("$", vp.getAccessor(), transducer, null, -1, null, false);
+                return null;
+            }
+            case ELEMENT: {
+                final RuntimeElementPropertyInfo ep = (RuntimeElementPropertyInfo) p;
+                if (ep.getTypes().size() != 1 || ep.isValueList() || ep.getXmlName() != null) {
+                    return "element property " + p.getName() + " with several types, a list value or a wrapper";
+                }
+
+                final RuntimeTypeRef ref = ep.getTypes().get(0);
+                final String name = ref.getTagName().getLocalPart();
+                if (ref.getDefaultValue() != null || "$".equals(name) || elements.containsKey(name)) {
+                    return "element property " + p.getName() + " with a default value or a conflicting name";
+                }
+
+                final RuntimeNonElement target = ref.getTarget();
+                final Transducer transducer = (target instanceof RuntimeClassInfo) ? null : getTransducer(ref);
+                if (!(target instanceof RuntimeClassInfo) && transducer == null) {
+                    return "element property " + p.getName() + " of an unsupported type";
+                }
+
+                final Lister lister = ep.isCollection() ? Lister.create(ep.getRawType(), ep.id(), null) : null;
+                final Binding b = new Binding(name, ep.getAccessor(), transducer, lister,
+                        (lister != null) ? collections.size() : -1,
+                        ep.isCollection() ? ep.getIndividualType() : ep.getRawType(), ref.isNillable());
+                if (lister != null) {
+                    collections.add(b);
+                }
+                elements.put(name, b);
+
+                if (target instanceof RuntimeClassInfo) {
+                    b.plan = build(context, typeInfoSet, ((RuntimeClassInfo) target).getClazz(), plans, path, cache);
+                }
+                return null;
+            }
+            default:
+                return "property " + p.getName() + " of kind " + p.kind();
+        }
+    }
+
+    private static Transducer getTransducer(final RuntimeNonElementRef ref) {
+        final Transducer transducer = ref.getTransducer();
+        if (transducer == null || transducer.useNamespace()) {
+            return null;
+        }
+
+        final Type type = ref.getTarget().getType();
+        for (Class<?> c : CONTEXTUAL_TYPES) {
+            if (type instanceof Class && c.isAssignableFrom((Class<?>) type)) {
+                return null;
+            }
+        }
+        return transducer;
+    }
+}
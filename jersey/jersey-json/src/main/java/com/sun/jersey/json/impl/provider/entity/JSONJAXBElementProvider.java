@@ -115,6 +115,11 @@ public class JSONJAXBElementProvider extends AbstractJAXBElementProvider {
         }
     }
 
+    @Override
+    protected boolean isPoolingSupported() {
+        return true;
+    }
+
     @Override
     protected final JAXBElement<?> readFrom(Class<?> type, MediaType mediaType,
             Unmarshaller u, InputStream entityStream)
@@ -55,6 +55,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ws.rs.Consumes;
@@ -118,8 +119,18 @@ public class JSONListElementProvider extends AbstractListElementProvider {
         }
     }
 
+    @Override
+    protected boolean isPoolingSupported() {
+        return true;
+    }
+
     @Override
     public final void writeList(Class<?> elementType, Collection<?> t, MediaType mediaType, Charset c, Marshaller m, OutputStream entityStream) throws JAXBException, IOException {
+        writeList(elementType, t.iterator(), mediaType, c, m, entityStream);
+    }
+
+    @Override
+    public final void writeList(Class<?> elementType, Iterator<?> t, MediaType mediaType, Charset c, Marshaller m, OutputStream entityStream) throws JAXBException, IOException {
         final OutputStreamWriter osw = new OutputStreamWriter(entityStream, c);
 
         JSONConfiguration origJsonConfig = JSONConfiguration.DEFAULT;
@@ -141,8 +152,11 @@ public class JSONListElementProvider extends AbstractListElementProvider {
             }
             jxsw.writeStartDocument();
             jxsw.writeStartElement(invisibleRootName);
-            for (Object o : t) {
-                    m.marshal(o, jxsw);
+            for (int i = 1; t.hasNext(); i++) {
+                m.marshal(t.next(), jxsw);
+                if (i % FLUSH_INTERVAL == 0) {
+                    jxsw.flush();
+                }
             }
             jxsw.writeEndElement();
             jxsw.writeEndDocument();
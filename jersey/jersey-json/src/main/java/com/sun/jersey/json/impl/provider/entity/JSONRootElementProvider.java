@@ -144,6 +144,11 @@ public class JSONRootElementProvider extends AbstractRootElementProvider {
     }
     
     
+    @Override
+    protected boolean isPoolingSupported() {
+        return true;
+    }
+
     @Override
     protected final Object readFrom(Class<Object> type, MediaType mediaType,
             Unmarshaller u, InputStream entityStream)
@@ -0,0 +1,261 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.json.impl.reader;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.UnmarshalException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import com.sun.jersey.api.json.JSONConfiguration;
+import com.sun.jersey.json.impl.NaturalBindingPlan;
+import com.sun.jersey.json.impl.NaturalBindingPlan.Binding;
+import com.sun.xml.bind.api.AccessorException;
+import com.sun.xml.bind.v2.runtime.unmarshaller.UnmarshallerImpl;
+
+/**
+ * Unmarshals JAXB beans directly from the tokens of JSON in the natural
+ * notation, without emulating an {@link javax.xml.stream.XMLStreamReader}
+ * over the JSON tokens and pushing the XML events through the JAXB
+ * unmarshaller.
+ * <p>
+ * Beans are unmarshalled using binding plans, computed once per JAXB context
+ * and class from the runtime model of the JAXB reference implementation.
+ * Classes that have mappings that require the full JAXB unmarshaller, and
+ * unmarshallers with a schema, a listener or a custom event handler, are not
+ * supported and should be unmarshalled using {@link JsonXmlStreamReader}.
+ */
+public final class NaturalJsonBinder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    static {
+        // The caller owns the reader
+        JSON_FACTORY.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    }
+
+    private final JSONConfiguration config;
+
+    private NaturalJsonBinder(final JSONConfiguration config) {
+        this.config = config;
+    }
+
+    /**
+     * Check whether an instance of a class can be unmarshalled directly.
+     *
+     * @param jaxbContext the JAXB context.
+     * @param jaxbUnmarshaller the JAXB unmarshaller that would otherwise
+     *        be used.
+     * @param type the class of the instance.
+     * @return {@code true} if the instance can be unmarshalled using
+     *         {@link #unmarshal(Reader, JSONConfiguration, JAXBContext, Class)}.
+     */
+    public static boolean isSupported(final JAXBContext jaxbContext, final Unmarshaller jaxbUnmarshaller,
+                                      final Class<?> type) {
+        if (NaturalBindingPlan.get(jaxbContext, type) == null) {
+            return false;
+        }
+
+        try {
+            // As for the default event handler of the reference implementation,
+            // values that cannot be parsed are ignored
+            return jaxbUnmarshaller.getSchema() == null && jaxbUnmarshaller.getListener() == null
+                    && jaxbUnmarshaller.getEventHandler() instanceof UnmarshallerImpl;
+        } catch (JAXBException ex) {
+            return false;
+        } catch (UnsupportedOperationException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Unmarshal an instance of a class from JSON in the natural notation
+     * with an unwrapped root.
+     *
+     * @param reader the reader of the JSON.
+     * @param config the JSON configuration.
+     * @param jaxbContext the JAXB context.
+     * @param type the class of the instance, which must be supported.
+     * @return the instance.
+     * @throws JAXBException if the JSON cannot be unmarshalled.
+     */
+    public static <T> T unmarshal(final Reader reader, final JSONConfiguration config,
+                                  final JAXBContext jaxbContext, final Class<T> type) throws JAXBException {
+        final NaturalBindingPlan plan = NaturalBindingPlan.get(jaxbContext, type);
+        if (plan == null) {
+            throw new IllegalArgumentException("The class " + type.getName() + " is not supported");
+        }
+
+        try {
+            final JsonParser parser = JSON_FACTORY.createJsonParser(reader);
+            try {
+                final JsonToken token = parser.nextToken();
+                if (token == null) {
+                    throw new UnmarshalException("Error creating JSON-based XMLStreamReader",
+                            new XMLStreamException("JSON expression can not be empty!"));
+                }
+                if (token == JsonToken.START_ARRAY || token == JsonToken.VALUE_NULL) {
+                    throw new UnmarshalException(
+                            new XMLStreamException("Unexpected token: " + token + ", expected a JSON object"));
+                }
+
+                final Object o = new NaturalJsonBinder(config).readBean(parser, token, plan);
+
+                final JsonToken trailing = parser.nextToken();
+                if (trailing != null) {
+                    throw new UnmarshalException(new XMLStreamException("Unexpected token: " + trailing));
+                }
+                return type.cast(o);
+            } finally {
+                parser.close();
+            }
+        } catch (IOException ex) {
+            throw new UnmarshalException(ex);
+        } catch (AccessorException ex) {
+            throw new UnmarshalException(ex);
+        }
+    }
+
+    /**
+     * Read a bean from an object, or from a simple value that is the value
+     * of the bean, if any.
+     */
+    private Object readBean(final JsonParser parser, final JsonToken token, final NaturalBindingPlan plan)
+            throws IOException, AccessorException, JAXBException {
+        if (token == JsonToken.START_OBJECT) {
+            return readObject(parser, plan);
+        }
+
+        final Object bean = plan.newInstance();
+        if (plan.getValue() != null && token != JsonToken.VALUE_NULL) {
+            plan.getValue().setText(bean, null, parser.getText());
+        }
+        return bean;
+    }
+
+    /**
+     * Read the fields of an object, the current token being the start of
+     * the object, up to and including the end of the object.
+     */
+    private Object readObject(final JsonParser parser, final NaturalBindingPlan plan)
+            throws IOException, AccessorException, JAXBException {
+        final Object bean = plan.newInstance();
+        final Object[] packs = (plan.getPacks() > 0) ? new Object[plan.getPacks()] : null;
+
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_OBJECT) {
+            if (token != JsonToken.FIELD_NAME) {
+                throw new UnmarshalException(new XMLStreamException("Unexpected token: " + token));
+            }
+            final String name = parser.getCurrentName();
+            token = parser.nextToken();
+
+            Binding b;
+            if (config.isUsingPrefixesAtNaturalAttributes() && name.length() > 1 && name.charAt(0) == '@') {
+                readAttribute(parser, token, plan.getAttribute(name.substring(1)), bean);
+            } else if ((b = plan.getAttribute(name)) != null) {
+                readAttribute(parser, token, b, bean);
+            } else if ("$".equals(name) && plan.getValue() != null) {
+                readAttribute(parser, token, plan.getValue(), bean);
+            } else if ((b = plan.getElement(name)) != null && token != JsonToken.VALUE_NULL) {
+                if (token == JsonToken.START_ARRAY) {
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (token == JsonToken.START_ARRAY) {
+                            throw new UnmarshalException(
+                                    new XMLStreamException("Nested JSON arrays are not supported for the element " + name));
+                        }
+                        readItem(parser, token, b, bean, packs);
+                    }
+                } else {
+                    readItem(parser, token, b, bean, packs);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (packs != null) {
+            plan.endPacking(bean, packs);
+        }
+        return bean;
+    }
+
+    private void readAttribute(final JsonParser parser, final JsonToken token,
+                               final Binding b, final Object bean)
+            throws IOException, AccessorException, JAXBException {
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            throw new UnmarshalException(new IOException("Not an XML value, expected primitive value!"));
+        }
+        if (b != null && token != JsonToken.VALUE_NULL) {
+            b.setText(bean, null, parser.getText());
+        }
+    }
+
+    /**
+     * Read a single value, or an item of an array, of an element.
+     */
+    private void readItem(final JsonParser parser, final JsonToken token,
+                          final Binding b, final Object bean, final Object[] packs)
+            throws IOException, AccessorException, JAXBException {
+        final NaturalBindingPlan plan = b.getPlan();
+        if (plan != null) {
+            b.set(bean, packs, readBean(parser, token, plan));
+        } else if (token == JsonToken.START_OBJECT) {
+            // An object in place of a simple value has no text
+            parser.skipChildren();
+            if (b.isCollection()) {
+                b.startPacking(bean, packs);
+            } else {
+                b.setText(bean, packs, "");
+            }
+        } else {
+            b.setText(bean, packs, (token == JsonToken.VALUE_NULL) ? "" : parser.getText());
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.json.impl.writer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.MarshalException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+import com.sun.jersey.api.json.JSONConfiguration;
+import com.sun.jersey.json.impl.JSONHelper;
+import com.sun.jersey.json.impl.NaturalBindingPlan;
+import com.sun.jersey.json.impl.NaturalBindingPlan.Binding;
+import com.sun.xml.bind.api.AccessorException;
+import com.sun.xml.bind.v2.runtime.MarshallerImpl;
+import com.sun.xml.bind.v2.runtime.reflect.ListIterator;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Marshals JAXB beans directly to JSON tokens in the natural notation,
+ * without pushing the XML events of the JAXB marshaller through
+ * {@link Stax2JacksonWriter}, which has to buffer the state of the elements
+ * and merge strings to reconstruct arrays.
+ * <p>
+ * Beans are marshalled using the binding plans shared with
+ * {@link com.sun.jersey.json.impl.reader.NaturalJsonBinder} and produce the
+ * same JSON as {@link Stax2JacksonWriter}. Classes that have mappings that
+ * require the full JAXB marshaller, and marshallers with a schema, a listener
+ * or a custom event handler, are not supported and should be marshalled using
+ * {@link Stax2JacksonWriter}.
+ */
+public final class NaturalJsonWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    static {
+        // The caller owns the writer
+        JSON_FACTORY.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    private final JsonGenerator generator;
+
+    private final boolean attrsWithPrefix;
+
+    /**
+     * The beans of recursive classes being marshalled, to detect cycles.
+     */
+    private Map<Object, Object> visiting;
+
+    private NaturalJsonWriter(final JsonGenerator generator, final JSONConfiguration config) {
+        this.generator = generator;
+        this.attrsWithPrefix = config.isUsingPrefixesAtNaturalAttributes();
+    }
+
+    /**
+     * Check whether an instance of a class can be marshalled directly.
+     *
+     * @param jaxbContext the JAXB context.
+     * @param jaxbMarshaller the JAXB marshaller that would otherwise be used.
+     * @param type the class of the instance.
+     * @return {@code true} if the instance can be marshalled using
+     *         {@link #marshal(Object, Writer, JSONConfiguration, JAXBContext)}.
+     */
+    public static boolean isSupported(final JAXBContext jaxbContext, final Marshaller jaxbMarshaller,
+                                      final Class<?> type) {
+        if (!type.isAnnotationPresent(XmlRootElement.class) || NaturalBindingPlan.get(jaxbContext, type) == null) {
+            return false;
+        }
+
+        try {
+            return jaxbMarshaller.getSchema() == null && jaxbMarshaller.getListener() == null
+                    && jaxbMarshaller.getEventHandler() instanceof MarshallerImpl;
+        } catch (JAXBException ex) {
+            return false;
+        } catch (UnsupportedOperationException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Marshal an instance of a class to JSON in the natural notation.
+     *
+     * @param o the instance, whose class must be supported.
+     * @param writer the writer of the JSON, which is flushed but not closed.
+     * @param config the JSON configuration.
+     * @param jaxbContext the JAXB context.
+     * @throws JAXBException if the instance cannot be marshalled.
+     */
+    public static void marshal(final Object o, final Writer writer, final JSONConfiguration config,
+                               final JAXBContext jaxbContext) throws JAXBException {
+        final Class<?> type = o.getClass();
+        final NaturalBindingPlan plan = NaturalBindingPlan.get(jaxbContext, type);
+        if (plan == null) {
+            throw new IllegalArgumentException("The class " + type.getName() + " is not supported");
+        }
+
+        try {
+            final JsonGenerator generator = JSON_FACTORY.createJsonGenerator(writer);
+            if (config.isHumanReadableFormatting()) {
+                generator.useDefaultPrettyPrinter();
+            }
+
+            final NaturalJsonWriter w = new NaturalJsonWriter(generator, config);
+            if (config.isRootUnwrapping()) {
+                w.writeBean(o, plan);
+            } else {
+                generator.writeStartObject();
+                generator.writeFieldName(JSONHelper.getRootElementName((Class<Object>) type));
+                w.writeBean(o, plan);
+                generator.writeEndObject();
+            }
+            generator.flush();
+        } catch (IOException ex) {
+            throw new MarshalException(ex);
+        } catch (AccessorException ex) {
+            throw new MarshalException(ex);
+        } catch (SAXException ex) {
+            throw new MarshalException(ex);
+        }
+    }
+
+    /**
+     * Write a bean as an object, or as a string if the bean has a value and
+     * no attributes.
+     */
+    private void writeBean(final Object bean, final NaturalBindingPlan plan)
+            throws IOException, AccessorException, JAXBException, SAXException {
+        if (plan.isRecursive()) {
+            if (visiting == null) {
+                visiting = new IdentityHashMap<Object, Object>();
+            }
+            if (visiting.put(bean, bean) != null) {
+                throw new MarshalException("A cycle is detected in the object graph of " + bean);
+            }
+        }
+
+        boolean started = false;
+        for (Binding b : plan.getAttributes()) {
+            final Object value = b.get(bean);
+            if (value != null) {
+                started = startObject(started);
+                generator.writeFieldName(attrsWithPrefix ? "@" + b.getName() : b.getName());
+                writeText(b.print(value), b.isNonString());
+            }
+        }
+
+        final Binding valueBinding = plan.getValue();
+        if (valueBinding != null) {
+            final Object value = valueBinding.get(bean);
+            if (value == null) {
+                throw new MarshalException("Object must have some value in its @XmlValue field: " + bean);
+            }
+            if (started) {
+                generator.writeFieldName(valueBinding.getName());
+            }
+            generator.writeString(valueBinding.print(value));
+        }
+
+        for (Binding b : plan.getElements()) {
+            final Object value = b.get(bean);
+            if (!b.isCollection()) {
+                if (value != null) {
+                    started = startObject(started);
+                    generator.writeFieldName(b.getName());
+                    writeItem(b, value);
+                } else if (b.isNillable()) {
+                    started = startObject(started);
+                    generator.writeFieldName(b.getName());
+                    writeNil(b);
+                }
+            } else if (value != null) {
+                final ListIterator<?> i = b.iterator(value);
+                if (i.hasNext()) {
+                    started = startObject(started);
+                    generator.writeFieldName(b.getName());
+                    generator.writeStartArray();
+                    do {
+                        final Object item = i.next();
+                        if (item != null) {
+                            writeItem(b, item);
+                        } else {
+                            writeNil(b);
+                        }
+                    } while (i.hasNext());
+                    generator.writeEndArray();
+                }
+            }
+        }
+
+        if (valueBinding == null || started) {
+            // A bean with no attributes, value or elements is an empty object
+            startObject(started);
+            generator.writeEndObject();
+        }
+
+        if (plan.isRecursive()) {
+            visiting.remove(bean);
+        }
+    }
+
+    private boolean startObject(final boolean started) throws IOException {
+        if (!started) {
+            generator.writeStartObject();
+        }
+        return true;
+    }
+
+    private void writeItem(final Binding b, final Object value)
+            throws IOException, AccessorException, JAXBException, SAXException {
+        if (b.getPlan() != null) {
+            writeBean(value, b.getPlan());
+        } else {
+            writeText(b.print(value), b.isNonString());
+        }
+    }
+
+    /**
+     * Write a nil element, as the nil attribute of the XML schema instance
+     * namespace.
+     */
+    private void writeNil(final Binding b) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(attrsWithPrefix ? "@nil" : "nil");
+        writeText("true", b.isNonString());
+        generator.writeEndObject();
+    }
+
+    private void writeText(final String text, final boolean nonString) throws IOException {
+        if (nonString) {
+            // The lexical forms of numbers and booleans are valid JSON
+            generator.writeNumber(text);
+        } else {
+            generator.writeString(text);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.json.impl.reader;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.bind.UnmarshalException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.ValidationEvent;
+import javax.xml.bind.ValidationEventHandler;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import com.sun.jersey.api.json.JSONConfiguration;
+import com.sun.jersey.api.json.JSONJAXBContext;
+import com.sun.jersey.json.impl.AttrAndCharDataBean;
+import com.sun.jersey.json.impl.ComplexBeanWithAttributes;
+import com.sun.jersey.json.impl.ComplexBeanWithAttributes2;
+import com.sun.jersey.json.impl.ComplexBeanWithAttributes3;
+import com.sun.jersey.json.impl.ComplexBeanWithAttributes4;
+import com.sun.jersey.json.impl.EncodedContentBean;
+import com.sun.jersey.json.impl.IntArray;
+import com.sun.jersey.json.impl.JSONHelper;
+import com.sun.jersey.json.impl.ListAndNonListBean;
+import com.sun.jersey.json.impl.ListEmptyBean;
+import com.sun.jersey.json.impl.ListWrapperBean;
+import com.sun.jersey.json.impl.PureCharDataBean;
+import com.sun.jersey.json.impl.RegisterMessage;
+import com.sun.jersey.json.impl.SimpleBean;
+import com.sun.jersey.json.impl.SimpleBeanWithAttributes;
+import com.sun.jersey.json.impl.SimpleBeanWithJustOneAttribute;
+import com.sun.jersey.json.impl.SimpleBeanWithJustOneAttributeAndValue;
+import com.sun.jersey.json.impl.SimpleBeanWithObjectAttributes;
+import com.sun.jersey.json.impl.Stax2JsonFactory;
+import com.sun.jersey.json.impl.TreeModel;
+import com.sun.jersey.json.impl.TwoListsWrapperBean;
+import com.sun.jersey.json.impl.User;
+import com.sun.jersey.json.impl.UserTable;
+
+import junit.framework.TestCase;
+
+public class NaturalJsonBinderTest extends TestCase {
+
+    @XmlRootElement
+    public static class ItemBean {
+        @XmlAttribute
+        public String a;
+        public int i;
+        public String s;
+        public List<String> l;
+        public List<Integer> li;
+        public ItemBean c;
+        public List<ItemBean> cs;
+    }
+
+    @XmlRootElement
+    public static class WrappedListBean {
+        @XmlElementWrapper(name = "items")
+        public List<String> item;
+    }
+
+    public NaturalJsonBinderTest(String testName) {
+        super(testName);
+    }
+
+    public void testBeans() throws Exception {
+        for (Object bean : Arrays.asList(
+                AttrAndCharDataBean.createTestInstance(),
+                ComplexBeanWithAttributes.createTestInstance(),
+                ComplexBeanWithAttributes2.createTestInstance(),
+                ComplexBeanWithAttributes3.createTestInstance(),
+                ComplexBeanWithAttributes4.createTestInstance(),
+                EncodedContentBean.createTestInstance(),
+                IntArray.createTestInstance(),
+                ListAndNonListBean.createTestInstance(),
+                ListEmptyBean.createTestInstance(),
+                ListWrapperBean.createTestInstance(),
+                PureCharDataBean.createTestInstance(),
+                RegisterMessage.createTestInstance(),
+                SimpleBean.createTestInstance(),
+                SimpleBeanWithAttributes.createTestInstance(),
+                SimpleBeanWithJustOneAttribute.createTestInstance(),
+                SimpleBeanWithJustOneAttributeAndValue.createTestInstance(),
+                SimpleBeanWithObjectAttributes.createTestInstance(),
+                TreeModel.createTestInstance(),
+                TwoListsWrapperBean.createTestInstance(),
+                User.createTestInstance(),
+                UserTable.createTestInstance())) {
+            _testBean(bean);
+        }
+    }
+
+    public void testValues() throws Exception {
+        final ItemBean b = _unmarshal(JSONConfiguration.natural().build(), ItemBean.class,
+                "{\"a\":\"x\",\"i\":\" 7 \",\"s\":true,\"l\":[\"x\",null,\"y\"],\"li\":[1,null,2],"
+                        + "\"c\":\"text\",\"cs\":[{\"i\":1},null],\"unknown\":{\"z\":[1,{\"y\":2}]}}");
+
+        assertEquals("x", b.a);
+        assertEquals(7, b.i);
+        assertEquals("true", b.s);
+        assertEquals(Arrays.asList("x", "", "y"), b.l);
+        assertEquals(Arrays.asList(1, 0, 2), b.li);
+        assertNotNull(b.c);
+        assertEquals(0, b.c.i);
+        assertEquals(2, b.cs.size());
+        assertEquals(1, b.cs.get(0).i);
+        assertNotNull(b.cs.get(1));
+    }
+
+    public void testInvalidValues() throws Exception {
+        final ItemBean b = _unmarshal(JSONConfiguration.natural().build(), ItemBean.class,
+                "{\"i\":\"abc\",\"s\":{\"z\":1},\"l\":{\"x\":1}}");
+
+        assertEquals(0, b.i);
+        assertEquals("", b.s);
+        assertEquals(0, b.l.size());
+    }
+
+    public void testArrayOfSingleValue() throws Exception {
+        final ItemBean b = _unmarshal(JSONConfiguration.natural().build(), ItemBean.class,
+                "{\"i\":[1,2,3],\"s\":[\"a\",\"b\"]}");
+
+        assertEquals(3, b.i);
+        assertEquals("b", b.s);
+    }
+
+    public void testAttributePrefix() throws Exception {
+        assertNull(_unmarshal(JSONConfiguration.natural().build(), ItemBean.class, "{\"@a\":\"x\"}").a);
+        assertEquals("x", _unmarshal(JSONConfiguration.natural().usePrefixesAtNaturalAttributes().build(),
+                ItemBean.class, "{\"@a\":\"x\"}").a);
+    }
+
+    public void testInvalidJson() throws Exception {
+        for (String json : Arrays.asList("", "[]", "null", "{\"a\":{}}", "{\"i\":[[1]]}", "{}{")) {
+            try {
+                _unmarshal(JSONConfiguration.natural().build(), ItemBean.class, json);
+                fail(json);
+            } catch (UnmarshalException ex) {
+                // expected
+            }
+        }
+    }
+
+    public void testUnsupported() throws Exception {
+        final JSONConfiguration config = JSONConfiguration.natural().build();
+        final JSONJAXBContext context = new JSONJAXBContext(config, WrappedListBean.class, ItemBean.class);
+
+        assertFalse(NaturalJsonBinder.isSupported(context, context.createUnmarshaller(), WrappedListBean.class));
+        final WrappedListBean b = context.createJSONUnmarshaller().unmarshalFromJSON(
+                new StringReader("{\"items\":{\"item\":[\"x\",\"y\"]}}"), WrappedListBean.class);
+        assertEquals(Arrays.asList("x", "y"), b.item);
+
+        final Unmarshaller u = context.createUnmarshaller();
+        assertTrue(NaturalJsonBinder.isSupported(context, u, ItemBean.class));
+        u.setEventHandler(new ValidationEventHandler() {
+            public boolean handleEvent(ValidationEvent event) {
+                return false;
+            }
+        });
+        assertFalse(NaturalJsonBinder.isSupported(context, u, ItemBean.class));
+    }
+
+    private <T> T _unmarshal(final JSONConfiguration config, final Class<T> type, final String json) throws Exception {
+        final JSONJAXBContext context = new JSONJAXBContext(config, type);
+
+        assertTrue(NaturalJsonBinder.isSupported(context, context.createUnmarshaller(), type));
+        return context.createJSONUnmarshaller().unmarshalFromJSON(new StringReader(json), type);
+    }
+
+    private void _testBean(final Object bean) throws Exception {
+        final Class<?> type = bean.getClass();
+        final JSONConfiguration config = JSONConfiguration.natural().build();
+        final JSONJAXBContext context = new JSONJAXBContext(config, type);
+
+        final StringWriter writer = new StringWriter();
+        context.createJSONMarshaller().marshallToJSON(bean, writer);
+        final String json = writer.toString();
+
+        assertTrue(type.getName(), NaturalJsonBinder.isSupported(context, context.createUnmarshaller(), type));
+        assertEquals(json, bean, NaturalJsonBinder.unmarshal(new StringReader(json), config, context, type));
+
+        // The JAXB unmarshaller of the legacy reader
+        final Object expected = context.createUnmarshaller().unmarshal(Stax2JsonFactory.createReader(
+                new StringReader(json), config, JSONHelper.getRootElementName((Class<Object>) type), type, context), type).getValue();
+        assertEquals(json, expected, NaturalJsonBinder.unmarshal(new StringReader(json), config, context, type));
+    }
+}
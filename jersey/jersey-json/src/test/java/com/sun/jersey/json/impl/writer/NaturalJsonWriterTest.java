@@ -0,0 +1,289 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.json.impl.writer;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.bind.MarshalException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.ValidationEvent;
+import javax.xml.bind.ValidationEventHandler;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlValue;
+
+import com.sun.jersey.api.json.JSONConfiguration;
+import com.sun.jersey.api.json.JSONJAXBContext;
+import com.sun.jersey.json.impl.AttrAndCharDataBean;
+import com.sun.jersey.json.impl.ComplexBeanWithAttributes;
+import com.sun.jersey.json.impl.ComplexBeanWithAttributes2;
+import com.sun.jersey.json.impl.ComplexBeanWithAttributes3;
+import com.sun.jersey.json.impl.ComplexBeanWithAttributes4;
+import com.sun.jersey.json.impl.EncodedContentBean;
+import com.sun.jersey.json.impl.IntArray;
+import com.sun.jersey.json.impl.ListAndNonListBean;
+import com.sun.jersey.json.impl.ListEmptyBean;
+import com.sun.jersey.json.impl.ListWrapperBean;
+import com.sun.jersey.json.impl.PureCharDataBean;
+import com.sun.jersey.json.impl.RegisterMessage;
+import com.sun.jersey.json.impl.SimpleBean;
+import com.sun.jersey.json.impl.SimpleBeanWithAttributes;
+import com.sun.jersey.json.impl.SimpleBeanWithJustOneAttribute;
+import com.sun.jersey.json.impl.SimpleBeanWithJustOneAttributeAndValue;
+import com.sun.jersey.json.impl.SimpleBeanWithObjectAttributes;
+import com.sun.jersey.json.impl.Stax2JsonFactory;
+import com.sun.jersey.json.impl.TreeModel;
+import com.sun.jersey.json.impl.TwoListsWrapperBean;
+import com.sun.jersey.json.impl.User;
+import com.sun.jersey.json.impl.UserTable;
+
+import junit.framework.TestCase;
+
+public class NaturalJsonWriterTest extends TestCase {
+
+    public static class Item {
+        public int i;
+        public String s;
+    }
+
+    public static class Empty {
+    }
+
+    public static class Text {
+        @XmlAttribute
+        public String a;
+        @XmlValue
+        public int v;
+    }
+
+    public static class Attributes {
+        @XmlAttribute
+        public Integer a;
+        @XmlAttribute
+        public Boolean b;
+    }
+
+    @XmlRootElement
+    public static class Bean {
+        @XmlAttribute
+        public String at;
+        @XmlAttribute
+        public Integer ai;
+        public Integer w;
+        public String s;
+        public List<String> l;
+        public List<Integer> li;
+        public Item c;
+        public List<Item> cs;
+        public Empty e;
+        public List<Empty> es;
+        public Text t;
+        public List<Text> ts;
+        public Attributes a;
+        public double d;
+        public float f;
+        public long lg;
+        public char ch;
+        public BigDecimal bd;
+        public Boolean bo;
+        public String[] arr;
+        public int[] iarr;
+        @XmlElement(nillable = true)
+        public String n;
+    }
+
+    @XmlRootElement
+    public static class Node {
+        public String name;
+        public Node next;
+    }
+
+    @XmlRootElement
+    public static class DateBean {
+        public Date date;
+    }
+
+    @XmlRootElement
+    public static class WrappedListBean {
+        @XmlElementWrapper(name = "items")
+        public List<String> item;
+    }
+
+    public NaturalJsonWriterTest(String testName) {
+        super(testName);
+    }
+
+    public void testBeans() throws Exception {
+        for (Object bean : Arrays.asList(
+                AttrAndCharDataBean.createTestInstance(),
+                ComplexBeanWithAttributes.createTestInstance(),
+                ComplexBeanWithAttributes2.createTestInstance(),
+                ComplexBeanWithAttributes3.createTestInstance(),
+                ComplexBeanWithAttributes4.createTestInstance(),
+                EncodedContentBean.createTestInstance(),
+                IntArray.createTestInstance(),
+                ListAndNonListBean.createTestInstance(),
+                ListEmptyBean.createTestInstance(),
+                ListWrapperBean.createTestInstance(),
+                PureCharDataBean.createTestInstance(),
+                RegisterMessage.createTestInstance(),
+                SimpleBean.createTestInstance(),
+                SimpleBeanWithAttributes.createTestInstance(),
+                SimpleBeanWithJustOneAttribute.createTestInstance(),
+                SimpleBeanWithJustOneAttributeAndValue.createTestInstance(),
+                SimpleBeanWithObjectAttributes.createTestInstance(),
+                TreeModel.createTestInstance(),
+                TwoListsWrapperBean.createTestInstance(),
+                User.createTestInstance(),
+                UserTable.createTestInstance())) {
+            _testBean(bean);
+        }
+    }
+
+    public void testEmptyValues() throws Exception {
+        final Bean b = new Bean();
+        _testBean(b);
+
+        b.s = "";
+        b.l = new ArrayList<String>();
+        b.li = new ArrayList<Integer>();
+        b.cs = new ArrayList<Item>();
+        b.c = new Item();
+        b.e = new Empty();
+        b.es = Arrays.asList(new Empty(), new Empty());
+        b.t = new Text();
+        b.ts = Arrays.asList(new Text());
+        b.a = new Attributes();
+        _testBean(b);
+    }
+
+    public void testNullItems() throws Exception {
+        final Bean b = new Bean();
+        b.l = Arrays.asList("", null, "x");
+        b.li = Arrays.asList(1, null);
+        b.cs = Arrays.asList(new Item(), null);
+        b.arr = new String[] {"a", null};
+        _testBean(b);
+    }
+
+    public void testValues() throws Exception {
+        final Bean b = new Bean();
+        b.at = "t";
+        b.ai = 5;
+        b.w = 7;
+        b.s = "a\"b\n";
+        b.t = new Text();
+        b.t.a = "q";
+        b.a = new Attributes();
+        b.a.a = 3;
+        b.a.b = true;
+        b.d = 10;
+        b.f = 1.5f;
+        b.lg = 1L << 40;
+        b.ch = 'c';
+        b.bd = new BigDecimal("1.50");
+        b.bo = false;
+        b.iarr = new int[] {1, 2};
+        b.n = "n";
+        _testBean(b);
+    }
+
+    public void testCycle() throws Exception {
+        final Node n = new Node();
+        n.name = "n";
+        n.next = new Node();
+        _testBean(n);
+
+        n.next.next = n;
+        final JSONJAXBContext context = new JSONJAXBContext(JSONConfiguration.natural().build(), Node.class);
+        try {
+            context.createJSONMarshaller().marshallToJSON(n, new StringWriter());
+            fail();
+        } catch (MarshalException ex) {
+            // expected
+        }
+    }
+
+    public void testUnsupported() throws Exception {
+        final JSONJAXBContext context = new JSONJAXBContext(JSONConfiguration.natural().build(),
+                WrappedListBean.class, Bean.class);
+        assertFalse(NaturalJsonWriter.isSupported(context, context.createMarshaller(), WrappedListBean.class));
+        assertFalse(NaturalJsonWriter.isSupported(new JSONJAXBContext(DateBean.class), context.createMarshaller(),
+                DateBean.class));
+
+        final Marshaller m = context.createMarshaller();
+        assertTrue(NaturalJsonWriter.isSupported(context, m, Bean.class));
+        m.setEventHandler(new ValidationEventHandler() {
+            public boolean handleEvent(ValidationEvent event) {
+                return true;
+            }
+        });
+        assertFalse(NaturalJsonWriter.isSupported(context, m, Bean.class));
+    }
+
+    private void _testBean(final Object bean) throws Exception {
+        _testBean(JSONConfiguration.natural().build(), bean);
+        _testBean(JSONConfiguration.natural().rootUnwrapping(false).build(), bean);
+        _testBean(JSONConfiguration.natural().usePrefixesAtNaturalAttributes().build(), bean);
+        _testBean(JSONConfiguration.natural().humanReadableFormatting(true).build(), bean);
+    }
+
+    private void _testBean(final JSONConfiguration config, final Object bean) throws Exception {
+        final Class<?> type = bean.getClass();
+        final JSONJAXBContext context = new JSONJAXBContext(config, type);
+        assertTrue(type.getName(), NaturalJsonWriter.isSupported(context, context.createMarshaller(), type));
+
+        final StringWriter expected = new StringWriter();
+        context.createMarshaller().marshal(bean, Stax2JsonFactory.createWriter(expected, config, type, context));
+
+        final StringWriter actual = new StringWriter();
+        context.createJSONMarshaller().marshallToJSON(bean, actual);
+
+        assertEquals(expected.toString(), actual.toString());
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.api.container.filter;
+
+import java.io.File;
+import java.security.SecureRandom;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Random;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+
+import com.sun.jersey.core.header.reader.HttpHeaderReader;
+import com.sun.jersey.server.impl.container.filter.ByteRanges;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+
+/**
+ * A byte range filter.
+ * <p/>
+ * If the response to a GET or HEAD request has a status code of 200 and
+ * an entity that is a {@link File} then an "Accept-Ranges" header of "bytes"
+ * is added to the response.
+ * <p/>
+ * If such a response is to a GET request that contains a "Range" header
+ * then the response is modified to contain only the requested ranges of
+ * the file and the status code is set to 206 (Partial Content). A single
+ * range is returned with a "Content-Range" header, multiple ranges are returned
+ * as a "multipart/byteranges" entity. If none of the ranges can be satisfied
+ * then the status code is set to 416 (Requested Range Not Satisfiable).
+ * If the request contains an "If-Range" header that does not match the
+ * "ETag" or "Last-Modified" header of the response, or the "Range" header
+ * is not valid or declares too many ranges, then the complete file is returned.
+ * <p/>
+ * The ranges are written using
+ * {@link com.sun.jersey.core.util.ReaderWriter#writeTo(java.io.File, long, long, java.io.OutputStream) }
+ * and so are transferred without copying where supported by the container.
+ * <p/>
+ * When an application is deployed as a Servlet or Filter this Jersey filter can be
+ * registered using the following initialization parameter:
+ * <blockquote><pre>
+ *     &lt;init-param&gt;
+ *         &lt;param-name&gt;com.sun.jersey.spi.container.ContainerResponseFilters&lt;/param-name&gt;
+ *         &lt;param-value&gt;com.sun.jersey.api.container.filter.RangeFilter&lt;/param-value&gt;
+ *     &lt;/init-param&gt;
+ * </pre></blockquote>
+ * This filter must not be registered before a filter that modifies the
+ * response entity, such as {@link GZIPContentEncodingFilter}.
+ *
+ * @see com.sun.jersey.api.container.filter
+ */
+public class RangeFilter implements ContainerResponseFilter {
+
+    /**
+     * The maximum number of ranges of a "Range" header. If a request
+     * declares more ranges the complete file is returned.
+     */
+    public static final int MAX_RANGES = 16;
+
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+
+    private static final String CONTENT_RANGE = "Content-Range";
+
+    private static final String IF_RANGE = "If-Range";
+
+    private static final String RANGE = "Range";
+
+    private static final String BYTES_UNIT = "bytes";
+
+    private static final MediaType MULTIPART_BYTERANGES = new MediaType("multipart", "byteranges");
+
+    private static final Random RANDOM = new SecureRandom();
+
+    public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+        final String method = request.getMethod();
+        if (response.getStatus() != 200 || !(response.getEntity() instanceof File)
+                || !(method.equals("GET") || method.equals("HEAD")))
+            return response;
+
+        response.getHttpHeaders().putSingle(ACCEPT_RANGES, BYTES_UNIT);
+
+        final String range = request.getHeaderValue(RANGE);
+        if (range == null || !method.equals("GET"))
+            return response;
+
+        final String ifRange = request.getHeaderValue(IF_RANGE);
+        if (ifRange != null && !isIfRangeMatch(ifRange.trim(), response))
+            return response;
+
+        final File file = (File) response.getEntity();
+        final long length = file.length();
+
+        final long[] ranges = parseRanges(range, length);
+        if (ranges == null)
+            return response;
+
+        if (ranges.length == 0) {
+            response.setStatus(416);
+            response.setEntity(null);
+            response.getHttpHeaders().remove(HttpHeaders.CONTENT_TYPE);
+            response.getHttpHeaders().putSingle(CONTENT_RANGE, BYTES_UNIT + " */" + length);
+            return response;
+        }
+
+        MediaType mediaType = response.getMediaType();
+        if (mediaType == null) {
+            mediaType = response.getMessageBodyWorkers().getMessageBodyWriterMediaType(
+                    File.class, File.class, response.getAnnotations(),
+                    request.getAcceptableMediaTypes());
+            if (mediaType == null || mediaType.isWildcardType() || mediaType.isWildcardSubtype())
+                mediaType = MediaType.APPLICATION_OCTET_STREAM_TYPE;
+        }
+
+        final ByteRanges entity = new ByteRanges(file, length, ranges, mediaType,
+                Long.toHexString(RANDOM.nextLong()));
+        response.setStatus(206);
+        response.setEntity(entity);
+        if (entity.isMultipart()) {
+            response.getHttpHeaders().putSingle(HttpHeaders.CONTENT_TYPE, new MediaType(
+                    MULTIPART_BYTERANGES.getType(), MULTIPART_BYTERANGES.getSubtype(),
+                    Collections.singletonMap("boundary", entity.getBoundary())));
+        } else {
+            response.getHttpHeaders().putSingle(HttpHeaders.CONTENT_TYPE, mediaType);
+            response.getHttpHeaders().putSingle(CONTENT_RANGE, entity.getContentRange(0));
+        }
+        return response;
+    }
+
+    private static boolean isIfRangeMatch(String ifRange, ContainerResponse response) {
+        if (ifRange.startsWith("\"")) {
+            final Object eTag = response.getHttpHeaders().getFirst(HttpHeaders.ETAG);
+            // Only a strong entity tag matches
+            return eTag != null && ifRange.equals(ContainerResponse.getHeaderValue(eTag));
+        } else if (ifRange.startsWith("W/")) {
+            return false;
+        }
+
+        final Object lastModified = response.getHttpHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+        if (lastModified == null)
+            return false;
+
+        try {
+            final Date d = (lastModified instanceof Date)
+                    ? (Date) lastModified
+                    : HttpHeaderReader.readDate(ContainerResponse.getHeaderValue(lastModified));
+            return d.getTime() / 1000 == HttpHeaderReader.readDate(ifRange).getTime() / 1000;
+        } catch (ParseException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Parse the value of a "Range" header.
+     *
+     * @param range the value of the "Range" header.
+     * @param length the length of the entity.
+     * @return the first and last byte positions, inclusive, of each
+     *         satisfiable range, an empty array if no range is satisfiable, or
+     *         null if the header is not valid, is not in units of bytes or
+     *         declares more than {@link #MAX_RANGES} ranges.
+     */
+    static long[] parseRanges(String range, long length) {
+        final int eq = range.indexOf('=');
+        if (eq == -1 || !range.substring(0, eq).trim().equalsIgnoreCase(BYTES_UNIT))
+            return null;
+
+        final String[] specs = range.substring(eq + 1).split(",");
+        if (specs.length > MAX_RANGES)
+            return null;
+
+        final long[] ranges = new long[specs.length * 2];
+        int n = 0;
+        for (String spec : specs) {
+            spec = spec.trim();
+            final int dash = spec.indexOf('-');
+            if (dash == -1)
+                return null;
+
+            final long first, last;
+            try {
+                if (dash == 0) {
+                    final long suffix = parsePosition(spec.substring(1));
+                    if (suffix == 0)
+                        continue;
+                    first = Math.max(0, length - suffix);
+                    last = length - 1;
+                } else {
+                    first = parsePosition(spec.substring(0, dash));
+                    if (dash == spec.length() - 1) {
+                        last = length - 1;
+                    } else {
+                        final long l = parsePosition(spec.substring(dash + 1));
+                        if (l < first)
+                            return null;
+                        last = Math.min(l, length - 1);
+                    }
+                }
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+
+            if (first < length && first <= last) {
+                ranges[n++] = first;
+                ranges[n++] = last;
+            }
+        }
+
+        final long[] satisfiable = new long[n];
+        System.arraycopy(ranges, 0, satisfiable, 0, n);
+        return satisfiable;
+    }
+
+    private static long parsePosition(String s) {
+        if (s.length() == 0)
+            throw new NumberFormatException();
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9')
+                throw new NumberFormatException();
+        }
+        return Long.parseLong(s);
+    }
+}
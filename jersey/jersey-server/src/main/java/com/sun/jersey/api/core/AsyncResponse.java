@@ -0,0 +1,146 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.api.core;
+
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+
+/**
+ * The asynchronous response of a request, which enables a resource method
+ * to suspend the processing of a request and resume it later, possibly
+ * from another thread.
+ * <p>
+ * This interface can be injected, as a resource method parameter or as
+ * a field of a per-request resource, using the {@link Context} annotation.
+ * <p>
+ * A resource method suspends the request by invoking one of the
+ * <code>suspend</code> methods and then returns. The return value, if any,
+ * of the resource method is ignored. The thread of the HTTP container
+ * is released, if the HTTP container supports asynchronous processing
+ * (see {@link com.sun.jersey.spi.container.AsyncContainerResponseWriter}),
+ * otherwise the thread waits until the request is resumed or the
+ * suspension times out.
+ * <p>
+ * When the request is resumed the response filters are applied, the
+ * response is written and per-request resources are destroyed, on the
+ * thread that resumed the request.
+ * <blockquote><pre>
+ *     &#64;GET
+ *     &#64;Produces("text/plain")
+ *     public void get(final &#64;Context AsyncResponse ar) {
+ *         ar.suspend(30, TimeUnit.SECONDS);
+ *         executor.submit(new Runnable() {
+ *             public void run() {
+ *                 ar.resume(longRunningOperation());
+ *             }
+ *         });
+ *     }
+ * </pre></blockquote>
+ */
+public interface AsyncResponse {
+
+    /**
+     * Suspend the request, without a timeout.
+     *
+     * @throws IllegalStateException if the request is already suspended or
+     *         if this method is not invoked on the thread of the resource
+     *         method before the resource method returns.
+     */
+    void suspend() throws IllegalStateException;
+
+    /**
+     * Suspend the request.
+     * <p>
+     * If the request is not resumed before the timeout expires then the
+     * request is resumed with a 503 (Service Unavailable) response.
+     *
+     * @param timeout the timeout, if 0 then the request will not time out.
+     * @param unit the unit of the timeout.
+     * @throws IllegalStateException if the request is already suspended or
+     *         if this method is not invoked on the thread of the resource
+     *         method before the resource method returns.
+     */
+    void suspend(long timeout, TimeUnit unit) throws IllegalStateException;
+
+    /**
+     * Resume the request with a response.
+     * <p>
+     * If the response is an instance of {@link Response} then it is
+     * the response, otherwise it is the entity of a 200 (OK) response
+     * or, if null, a 204 (No Content) response. If the media type
+     * of the entity is not declared then the media type selected for the
+     * resource method is used.
+     *
+     * @param response the response.
+     * @return true if the request was resumed, otherwise false if the
+     *         request is not suspended or has already been resumed.
+     */
+    boolean resume(Object response);
+
+    /**
+     * Resume the request with an exception.
+     * <p>
+     * The exception is mapped to a response in the same manner as an
+     * exception thrown by a resource method. If the exception cannot
+     * be mapped then the response is a 500 (Internal Server Error) response.
+     *
+     * @param t the exception.
+     * @return true if the request was resumed, otherwise false if the
+     *         request is not suspended or has already been resumed.
+     */
+    boolean resume(Throwable t);
+
+    /**
+     * Determine if the request is suspended and has not been resumed.
+     *
+     * @return true if the request is suspended, otherwise false.
+     */
+    boolean isSuspended();
+
+    /**
+     * Determine if the request has been resumed, either explicitly or because
+     * the suspension timed out.
+     *
+     * @return true if the request has been resumed, otherwise false.
+     */
+    boolean isResumed();
+}
@@ -84,9 +84,10 @@ public class ClasspathResourceConfig extends ScanningResourceConfig {
      *        {@link ClasspathResourceConfig#PROPERTY_CLASSPATH}. 
      */
     public ClasspathResourceConfig(Map<String, Object> props) {
-        this(getPaths(props));
-        
+        // Set the properties first as they may configure the scanning
         setPropertiesAndFeatures(props);
+
+        init(getPaths(props));
     }
 
     /**
@@ -0,0 +1,158 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.api.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A mutable implementation of {@link DefaultResourceConfig} that declares
+ * the root resource and provider classes listed in indexes written by the
+ * {@link ResourceIndexProcessor} annotation processor, thus avoiding the
+ * scanning of packages or the classpath for classes when the application
+ * is initialized.
+ * <p>
+ * All indexes, the resources {@link #INDEX_RESOURCE}, visible to the
+ * context class loader are loaded. For example, this class may be declared
+ * as the resource configuration class of a Servlet as follows:
+ * <blockquote><pre>
+ *     &lt;init-param&gt;
+ *         &lt;param-name&gt;com.sun.jersey.config.property.resourceConfigClass&lt;/param-name&gt;
+ *         &lt;param-value&gt;com.sun.jersey.api.core.IndexedResourceConfig&lt;/param-value&gt;
+ *     &lt;/init-param&gt;
+ * </pre></blockquote>
+ */
+public class IndexedResourceConfig extends DefaultResourceConfig {
+    private static final Logger LOGGER =
+            Logger.getLogger(IndexedResourceConfig.class.getName());
+
+    /**
+     * The name of the resource declaring the binary names of root resource
+     * and provider classes, one per line. Lines beginning with '#' are
+     * ignored.
+     */
+    public static final String INDEX_RESOURCE = "META-INF/jersey/resource-index";
+
+    /**
+     * Declare the root resource and provider classes of the indexes.
+     *
+     * @throws IllegalArgumentException if an index cannot be read, or a
+     *         class declared by an index cannot be loaded.
+     */
+    public IndexedResourceConfig() {
+        super(getClasses(getClassLoader()));
+    }
+
+    /**
+     * Declare the root resource and provider classes of the indexes,
+     * and the properties and features.
+     *
+     * @param props the property bag.
+     * @throws IllegalArgumentException if an index cannot be read, or a
+     *         class declared by an index cannot be loaded.
+     */
+    public IndexedResourceConfig(Map<String, Object> props) {
+        this();
+        setPropertiesAndFeatures(props);
+    }
+
+    /**
+     * Get the root resource and provider classes of the indexes visible to
+     * a class loader.
+     *
+     * @param classLoader the class loader from which the indexes and classes
+     *        are loaded.
+     * @return the classes, in the order they are declared.
+     * @throws IllegalArgumentException if an index cannot be read, or a
+     *         class declared by an index cannot be loaded.
+     */
+    public static Set<Class<?>> getClasses(ClassLoader classLoader) {
+        final Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
+        try {
+            final Enumeration<URL> indexes = classLoader.getResources(INDEX_RESOURCE);
+            while (indexes.hasMoreElements()) {
+                final URL index = indexes.nextElement();
+                if (LOGGER.isLoggable(Level.CONFIG)) {
+                    LOGGER.log(Level.CONFIG, "Loading the resource index " + index);
+                }
+
+                final BufferedReader r = new BufferedReader(
+                        new InputStreamReader(index.openStream(), "UTF-8"));
+                try {
+                    String line;
+                    while ((line = r.readLine()) != null) {
+                        line = line.trim();
+                        if (line.length() == 0 || line.charAt(0) == '#')
+                            continue;
+
+                        classes.add(classLoader.loadClass(line));
+                    }
+                } finally {
+                    r.close();
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Unable to read the resource index " + INDEX_RESOURCE, ex);
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalArgumentException("A class declared by the resource index " + INDEX_RESOURCE +
+                    " could not be loaded", ex);
+        }
+
+        if (classes.isEmpty()) {
+            LOGGER.log(Level.INFO, "No root resource or provider classes found in the resource index " +
+                    INDEX_RESOURCE + ".");
+        }
+        return classes;
+    }
+
+    private static ClassLoader getClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return (classLoader == null) ? IndexedResourceConfig.class.getClassLoader() : classLoader;
+    }
+}
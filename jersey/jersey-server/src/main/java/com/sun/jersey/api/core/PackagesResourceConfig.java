@@ -86,9 +86,10 @@ public class PackagesResourceConfig extends ScanningResourceConfig {
      *        {@link PackagesResourceConfig#PROPERTY_PACKAGES}. 
      */
     public PackagesResourceConfig(Map<String, Object> props) {
-        this(getPackages(props));
-        
+        // Set the properties first as they may configure the scanning
         setPropertiesAndFeatures(props);
+
+        init(getPackages(props));
     }
     
     private void init(String[] packages) {
@@ -125,6 +125,37 @@ public abstract class ResourceConfig extends Application implements FeaturesAndP
     public static final String FEATURE_MATCH_MATRIX_PARAMS 
             = "com.sun.jersey.config.feature.IgnoreMatrixParams";
     
+    /**
+     * If true then the request URI path will be matched to the URI templates
+     * declared by root resource classes, sub-resource methods and
+     * sub-resource locators using a trie of the literal prefixes of
+     * the templates. Only the regular expressions of templates whose literal
+     * prefix is a prefix of the path are matched, in the same order as the
+     * default linear matching algorithm, so the result of matching is
+     * unchanged.
+     * <p>
+     * This is recommended for applications with a large number of root
+     * resource classes or sub-resources.
+     * <p>
+     * The default value is false.
+     */
+    public static final String FEATURE_AUTOMATA_MATCHING
+            = "com.sun.jersey.config.feature.AutomataMatching";
+
+    /**
+     * If true then resource methods and sub-resource methods will be invoked
+     * by classes generated for each Java method rather than reflectively, if
+     * the Java method and its declaring class are public.
+     * <p>
+     * A generated {@link com.sun.jersey.spi.container.JavaMethodInvoker} is
+     * passed to those resource method dispatch providers that implement
+     * {@link com.sun.jersey.spi.container.ResourceMethodCustomInvokerDispatchProvider}.
+     * <p>
+     * The default value is false.
+     */
+    public static final String FEATURE_GENERATED_METHOD_INVOKERS
+            = "com.sun.jersey.config.feature.GeneratedMethodInvokers";
+
     /**
      * If true then the matching algorithm will attempt to match and accept
      * any static content or templates associated with a resource that were
@@ -206,6 +237,28 @@ public abstract class ResourceConfig extends Application implements FeaturesAndP
     public static final String FEATURE_TRACE_PER_REQUEST
             = "com.sun.jersey.config.feature.TracePerRequest";
 
+    /**
+     * If true the rules, and the resource method dispatchers, of root
+     * resource classes are created when first required to match a request
+     * rather than when the Web application is initiated.
+     * <p>
+     * The rules of a class are created once, a request that requires the
+     * rules of a class that are being created by another request waits for
+     * those rules. The rules of sub-resource classes are always created when
+     * first required.
+     * <p>
+     * Errors in a root resource class that would otherwise be reported
+     * when the Web application is initiated, such as ambiguous resource
+     * methods, are reported when the rules are created, and the request
+     * fails. The paths declared by {@link #PROPERTY_WARMUP_PATHS} are
+     * warmed up when the Web application is initiated, thus errors in the
+     * classes of those paths are reported when initiated.
+     * <p>
+     * The default value is false.
+     */
+    public static final String FEATURE_LAZY_RESOURCE_RULES
+            = "com.sun.jersey.config.feature.LazyResourceRules";
+
     /**
      * If set the map of file extension to media type mappings that will be
      * added to the map that is returned from {@link #getMediaTypeMappings() }.
@@ -359,6 +412,42 @@ public abstract class ResourceConfig extends Application implements FeaturesAndP
     public static final String PROPERTY_WADL_GENERATOR_CONFIG = 
             "com.sun.jersey.config.property.WadlGeneratorConfig";
 
+    /**
+     * If set the number of threads used to initiate the Web application.
+     * <p>
+     * The value MUST be an instance of {@link java.lang.Integer} or a
+     * {@link java.lang.String} that is a decimal integer.
+     * <p>
+     * If the value is greater than 1 then the class files found when scanning
+     * for root resource and provider classes are parsed, and the classes
+     * loaded, in parallel, and the abstract resource models of the root
+     * resource classes are created and validated in parallel. The results are
+     * merged in the order the classes are declared, such that the rules,
+     * and the errors and warnings reported, are the same as for a sequential
+     * initiation. The rules are built sequentially.
+     * <p>
+     * If the property is absent, or the value is less than or equal to 1, then
+     * the Web application is initiated sequentially.
+     */
+    public static final String PROPERTY_INITIATION_THREADS =
+            "com.sun.jersey.config.property.initiationThreads";
+
+    /**
+     * If set the paths that are warmed up when the Web application is
+     * initiated, such that the first request to a path does not incur the
+     * cost of creating the rules, resource method dispatchers and injectors
+     * of the resource classes required to match that path.
+     * <p>
+     * The type of this property must be a String or String[] that contains
+     * one or more paths, separated by any of {@link #COMMON_DELIMITERS}.
+     * A path is relative to the base URI of the Web application, for example
+     * "orders/123/items". Sub-resources are warmed up if a sub-resource
+     * locator matches the path and the return type of the sub-resource
+     * locator method is a concrete class.
+     */
+    public static final String PROPERTY_WARMUP_PATHS =
+            "com.sun.jersey.config.property.WarmupPaths";
+
     /**
      * Common delimiters used by various properties.
      */
@@ -747,6 +836,62 @@ public abstract class ResourceConfig extends Application implements FeaturesAndP
         return getFilterList(PROPERTY_RESOURCE_FILTER_FACTORIES);
     }
 
+    /**
+     * Get the number of threads used to initiate the Web application.
+     * <p>
+     * See {@link #PROPERTY_INITIATION_THREADS}.
+     *
+     * @return the number of threads, 1 if the Web application is to be
+     *         initiated sequentially.
+     * @throws IllegalArgumentException if the property value is not an
+     *         integer.
+     */
+    public int getInitiationThreads() {
+        final Object o = getProperty(PROPERTY_INITIATION_THREADS);
+        if (o == null) {
+            return 1;
+        }
+
+        final int threads;
+        if (o instanceof Integer) {
+            threads = (Integer)o;
+        } else if (o instanceof String) {
+            try {
+                threads = Integer.parseInt(((String)o).trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException(PROPERTY_INITIATION_THREADS +
+                        " must have a property value that is an integer", ex);
+            }
+        } else {
+            throw new IllegalArgumentException(PROPERTY_INITIATION_THREADS + " must " +
+                    "have a property value of type Integer or String");
+        }
+        return Math.max(threads, 1);
+    }
+
+    /**
+     * Get the paths that are warmed up when the Web application is initiated.
+     * <p>
+     * See {@link #PROPERTY_WARMUP_PATHS}.
+     *
+     * @return the paths, an empty array if there are no paths.
+     * @throws IllegalArgumentException if the property value is not a
+     *         String or String[].
+     */
+    public String[] getWarmupPaths() {
+        final Object o = getProperty(PROPERTY_WARMUP_PATHS);
+        if (o == null) {
+            return new String[0];
+        } else if (o instanceof String) {
+            return getElements(new String[] {(String)o}, COMMON_DELIMITERS);
+        } else if (o instanceof String[]) {
+            return getElements((String[])o, COMMON_DELIMITERS);
+        } else {
+            throw new IllegalArgumentException(PROPERTY_WARMUP_PATHS + " must " +
+                    "have a property value of type String or String[]");
+        }
+    }
+
     private List getFilterList(String propertyName) {
         final Object o = getProperty(propertyName);
         if (o == null) {
@@ -0,0 +1,205 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.api.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import javax.ws.rs.Path;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * An annotation processor that writes an index of the root resource and
+ * provider classes of an application, which is loaded by
+ * {@link IndexedResourceConfig} without scanning for classes.
+ * <p>
+ * The index is written to the class output as the resource
+ * {@link IndexedResourceConfig#INDEX_RESOURCE}. It declares the binary names
+ * of the same classes that a {@link PackagesResourceConfig} would find: public
+ * classes, or public static nested classes, annotated with {@link Path} or
+ * {@link Provider}.
+ * <p>
+ * The processor is not registered as a service and must be declared when
+ * compiling the application, for example with Maven:
+ * <blockquote><pre>
+ *     &lt;plugin&gt;
+ *         &lt;groupId&gt;org.apache.maven.plugins&lt;/groupId&gt;
+ *         &lt;artifactId&gt;maven-compiler-plugin&lt;/artifactId&gt;
+ *         &lt;configuration&gt;
+ *             &lt;annotationProcessors&gt;
+ *                 &lt;annotationProcessor&gt;com.sun.jersey.api.core.ResourceIndexProcessor&lt;/annotationProcessor&gt;
+ *             &lt;/annotationProcessors&gt;
+ *         &lt;/configuration&gt;
+ *     &lt;/plugin&gt;
+ * </pre></blockquote>
+ * or with javac using the option
+ * "-processor com.sun.jersey.api.core.ResourceIndexProcessor".
+ * <p>
+ * An existing index in the class output is merged with the classes being
+ * compiled, so that an incremental compilation of some classes retains the
+ * other classes of the application. A class of an existing index is retained
+ * only if it can still be found and is still annotated with {@link Path} or
+ * {@link Provider}.
+ */
+@SupportedAnnotationTypes({"javax.ws.rs.Path", "javax.ws.rs.ext.Provider"})
+public class ResourceIndexProcessor extends AbstractProcessor {
+
+    private final Set<String> classNames = new TreeSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!classNames.isEmpty()) {
+                writeIndex();
+            }
+            return false;
+        }
+
+        add(roundEnv.getElementsAnnotatedWith(Path.class));
+        add(roundEnv.getElementsAnnotatedWith(Provider.class));
+        return false;
+    }
+
+    private void add(Set<? extends Element> elements) {
+        for (Element e : elements) {
+            if (isIndexed(e)) {
+                classNames.add(processingEnv.getElementUtils().getBinaryName((TypeElement) e).toString());
+            }
+        }
+    }
+
+    private static boolean isIndexed(Element e) {
+        if (e.getKind() != ElementKind.CLASS || !e.getModifiers().contains(Modifier.PUBLIC)) {
+            return false;
+        }
+        // A nested class must be static to be instantiated
+        if (e.getEnclosingElement().getKind().isClass()
+                && !e.getModifiers().contains(Modifier.STATIC)) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Add the classes of an existing index, if any, that can be found and
+     * that are still annotated.
+     */
+    private void mergeIndex() {
+        final List<String> existing = new ArrayList<String>();
+        try {
+            final FileObject f = processingEnv.getFiler().getResource(
+                    StandardLocation.CLASS_OUTPUT, "", IndexedResourceConfig.INDEX_RESOURCE);
+            final BufferedReader r = new BufferedReader(new InputStreamReader(f.openInputStream(), "UTF-8"));
+            try {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    line = line.trim();
+                    if (line.length() > 0 && !line.startsWith("#")) {
+                        existing.add(line);
+                    }
+                }
+            } finally {
+                r.close();
+            }
+        } catch (IOException ex) {
+            // There is no existing index
+            return;
+        }
+
+        final Elements elements = processingEnv.getElementUtils();
+        for (String className : existing) {
+            if (classNames.contains(className)) {
+                continue;
+            }
+            // The canonical name of a nested class is required
+            final TypeElement e = elements.getTypeElement(className.replace('$', '.'));
+            if (e != null && isIndexed(e)
+                    && (e.getAnnotation(Path.class) != null || e.getAnnotation(Provider.class) != null)
+                    && elements.getBinaryName(e).contentEquals(className)) {
+                classNames.add(className);
+            }
+        }
+    }
+
+    private void writeIndex() {
+        mergeIndex();
+        try {
+            final FileObject f = processingEnv.getFiler().createResource(
+                    StandardLocation.CLASS_OUTPUT, "", IndexedResourceConfig.INDEX_RESOURCE);
+            final Writer w = new OutputStreamWriter(f.openOutputStream(), "UTF-8");
+            try {
+                w.write("# Root resource and provider classes, written by " + getClass().getName() + "\n");
+                for (String className : classNames) {
+                    w.write(className);
+                    w.write('\n');
+                }
+            } finally {
+                w.close();
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write " + IndexedResourceConfig.INDEX_RESOURCE + ": " + ex);
+        }
+    }
+}
@@ -40,7 +40,9 @@
 
 package com.sun.jersey.api.core;
 
+import com.sun.jersey.core.reflection.ReflectionHelper;
 import com.sun.jersey.core.spi.scanning.Scanner;
+import com.sun.jersey.server.impl.InitiationExecutorHelper;
 import com.sun.jersey.spi.container.ReloadListener;
 import com.sun.jersey.spi.scanning.AnnotationScannerListener;
 import com.sun.jersey.spi.scanning.PathProviderScannerListener;
@@ -50,6 +52,7 @@ import javax.ws.rs.ext.Provider;
 import java.lang.annotation.Annotation;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -70,16 +73,30 @@ public class ScanningResourceConfig extends DefaultResourceConfig implements Rel
     /**
      * Initialize and scan for root resource and provider classes
      * using a scanner.
+     * <p>
+     * If the value of {@link #getInitiationThreads() } is greater than 1
+     * then the class files found by the scanner are processed in parallel.
      *
      * @param scanner the scanner.
      */
     public void init(final Scanner scanner) {
         this.scanner = scanner;
 
-        final AnnotationScannerListener asl = new PathProviderScannerListener();
-        scanner.scan(asl);
-
-        getClasses().addAll(asl.getAnnotatedClasses());
+        final int threads = getInitiationThreads();
+        final ExecutorService executor = (threads > 1)
+                ? InitiationExecutorHelper.newExecutor(threads)
+                : null;
+        try {
+            final AnnotationScannerListener asl = new PathProviderScannerListener(
+                    ReflectionHelper.getContextClassLoader(), executor);
+            scanner.scan(asl);
+
+            getClasses().addAll(asl.getAnnotatedClasses());
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
         
         if (LOGGER.isLoggable(Level.INFO) && !getClasses().isEmpty()) {
             final Set<Class> rootResourceClasses = get(Path.class);
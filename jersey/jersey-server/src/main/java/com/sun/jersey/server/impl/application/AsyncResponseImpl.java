@@ -0,0 +1,246 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.server.impl.application;
+
+import com.sun.jersey.api.core.AsyncResponse;
+import com.sun.jersey.spi.container.AsyncContainerResponseWriter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * The asynchronous response of a request.
+ * <p>
+ * The request may be resumed before or after the resource method returns.
+ * When the resource method returns {@link #detach(ContainerResponse) }
+ * is invoked on the thread of the container to determine whether the
+ * thread may return or must continue processing the request.
+ */
+final class AsyncResponseImpl implements AsyncResponse {
+
+    private final WebApplicationImpl app;
+
+    private final WebApplicationContext context;
+
+    private boolean dispatched;
+
+    private boolean suspended;
+
+    private long timeout;
+
+    private boolean resumed;
+
+    private Object value;
+
+    private boolean detached;
+
+    private boolean cancelled;
+
+    private ScheduledFuture<?> timeoutFuture;
+
+    private Object contentType;
+
+    AsyncResponseImpl(WebApplicationImpl app, WebApplicationContext context) {
+        this.app = app;
+        this.context = context;
+    }
+
+    @Override
+    public void suspend() {
+        suspend(0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void suspend(long timeout, TimeUnit unit) {
+        if (suspended) {
+            throw new IllegalStateException("The request is already suspended");
+        }
+        if (dispatched) {
+            throw new IllegalStateException("The request can only be suspended by the resource method");
+        }
+        if (timeout < 0) {
+            throw new IllegalArgumentException("The timeout is negative");
+        }
+
+        this.suspended = true;
+        this.timeout = unit.toMillis(timeout);
+    }
+
+    @Override
+    public boolean resume(Object response) {
+        return resumeWith(response);
+    }
+
+    @Override
+    public boolean resume(Throwable t) {
+        if (t == null) {
+            throw new IllegalArgumentException("The exception is null");
+        }
+        return resumeWith(t);
+    }
+
+    @Override
+    public synchronized boolean isSuspended() {
+        return suspended && !resumed && !cancelled;
+    }
+
+    @Override
+    public synchronized boolean isResumed() {
+        return resumed;
+    }
+
+    private boolean resumeWith(Object value) {
+        synchronized (this) {
+            if (!suspended || resumed || cancelled) {
+                return false;
+            }
+
+            this.resumed = true;
+            this.value = value;
+            if (timeoutFuture != null) {
+                timeoutFuture.cancel(false);
+            }
+
+            if (!detached) {
+                // The thread of the container will process the response
+                notifyAll();
+                return true;
+            }
+        }
+
+        app.resumeRequest(context, value, contentType);
+        return true;
+    }
+
+    /**
+     * Invoked on the thread of the container after the resource method
+     * has been dispatched.
+     *
+     * @param response the container response.
+     * @return true if the thread of the container may return and the
+     *         response will be written when the request is resumed,
+     *         otherwise false if the thread of the container shall write the
+     *         response, which is the resumed response if {@link #isResumed() }
+     *         returns true.
+     */
+    synchronized boolean detach(ContainerResponse response) {
+        dispatched = true;
+        if (!suspended) {
+            return false;
+        }
+
+        // Retain the media type selected for the resource method
+        contentType = response.getHttpHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
+        if (resumed) {
+            return false;
+        }
+
+        // The response is suspended while holding the lock such that
+        // resumption either occurs before or after the request is detached
+        final ContainerResponseWriter writer = response.getContainerResponseWriter();
+        if (writer instanceof AsyncContainerResponseWriter
+                && ((AsyncContainerResponseWriter) writer).suspend()) {
+            detached = true;
+            if (timeout > 0) {
+                timeoutFuture = app.getAsyncTimeoutExecutor().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        resumeWith(getTimeoutResponse());
+                    }
+                }, timeout, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        }
+
+        // Wait for the request to be resumed
+        final long deadline = System.currentTimeMillis() + timeout;
+        try {
+            while (!resumed) {
+                if (timeout == 0) {
+                    wait();
+                } else {
+                    final long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    wait(remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!resumed) {
+            resumed = true;
+            value = getTimeoutResponse();
+        }
+        return false;
+    }
+
+    /**
+     * Invoked on the thread of the container, instead of
+     * {@link #detach(ContainerResponse) }, if an exception was mapped to the
+     * response when dispatching the request. The request is not suspended,
+     * the mapped response is written by the thread of the container and
+     * any subsequent resumption is ignored.
+     */
+    synchronized void cancel() {
+        dispatched = true;
+        if (suspended && !resumed) {
+            cancelled = true;
+        }
+    }
+
+    synchronized Object getValue() {
+        return value;
+    }
+
+    synchronized Object getContentType() {
+        return contentType;
+    }
+
+    private static Response getTimeoutResponse() {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+    }
+}
@@ -42,6 +42,9 @@ package com.sun.jersey.server.impl.application;
 import com.sun.jersey.api.model.AbstractResourceMethod;
 import com.sun.jersey.core.spi.component.ProviderServices;
 import com.sun.jersey.impl.ImplMessages;
+import com.sun.jersey.server.impl.model.method.dispatch.GeneratedJavaMethodInvokerFactory;
+import com.sun.jersey.spi.container.JavaMethodInvoker;
+import com.sun.jersey.spi.container.ResourceMethodCustomInvokerDispatchProvider;
 import com.sun.jersey.spi.container.ResourceMethodDispatchAdapter;
 import com.sun.jersey.spi.container.ResourceMethodDispatchProvider;
 import com.sun.jersey.spi.dispatch.RequestDispatcher;
@@ -60,13 +63,33 @@ public final class ResourceMethodDispatcherFactory implements ResourceMethodDisp
     
     private final Set<ResourceMethodDispatchProvider> dispatchers;
 
-    private ResourceMethodDispatcherFactory(ProviderServices providerServices) {
+    private final GeneratedJavaMethodInvokerFactory invokerFactory;
+
+    private ResourceMethodDispatcherFactory(ProviderServices providerServices,
+            boolean generateInvokers) {
         dispatchers = providerServices.getProvidersAndServices(
                 ResourceMethodDispatchProvider.class);
+        invokerFactory = (generateInvokers) ? new GeneratedJavaMethodInvokerFactory() : null;
     }
 
     public static ResourceMethodDispatchProvider create(ProviderServices providerServices) {
-        ResourceMethodDispatchProvider p = new ResourceMethodDispatcherFactory(providerServices);
+        return create(providerServices, false);
+    }
+
+    /**
+     * Create the resource method dispatch provider.
+     *
+     * @param providerServices the provider services.
+     * @param generateInvokers if true then a generated {@link JavaMethodInvoker}
+     *        is passed to dispatch providers that are also instances of
+     *        {@link ResourceMethodCustomInvokerDispatchProvider}, otherwise
+     *        Java methods are invoked reflectively.
+     * @return the resource method dispatch provider.
+     */
+    public static ResourceMethodDispatchProvider create(ProviderServices providerServices,
+            boolean generateInvokers) {
+        ResourceMethodDispatchProvider p = new ResourceMethodDispatcherFactory(providerServices,
+                generateInvokers);
 
         for (ResourceMethodDispatchAdapter a :
                 providerServices.getProvidersAndServices(ResourceMethodDispatchAdapter.class)) {
@@ -81,9 +104,14 @@ public final class ResourceMethodDispatcherFactory implements ResourceMethodDisp
     public RequestDispatcher create(AbstractResourceMethod abstractResourceMethod) {
         // Mark the errors so it is possible to reset
         Errors.mark();
+        final JavaMethodInvoker invoker = (invokerFactory != null)
+                ? invokerFactory.getInvoker(abstractResourceMethod.getMethod())
+                : null;
         for (ResourceMethodDispatchProvider rmdp : dispatchers) {
             try {
-                RequestDispatcher d = rmdp.create(abstractResourceMethod);
+                RequestDispatcher d = (invoker != null && rmdp instanceof ResourceMethodCustomInvokerDispatchProvider)
+                        ? ((ResourceMethodCustomInvokerDispatchProvider) rmdp).create(abstractResourceMethod, invoker)
+                        : rmdp.create(abstractResourceMethod);
                 if (d != null) {
                     // Reset any errors, if any, produced from previous dispatch
                     // providers
@@ -136,6 +136,30 @@ public final class WebApplicationContext implements UriRuleContext, ExtendedUriI
         return responseFilters;
     }
 
+    private AsyncResponseImpl asyncResponse;
+
+    /**
+     * Get the asynchronous response, creating it if necessary.
+     *
+     * @return the asynchronous response.
+     */
+    AsyncResponseImpl getAsyncResponse() {
+        if (asyncResponse == null) {
+            asyncResponse = new AsyncResponseImpl(app, this);
+        }
+        return asyncResponse;
+    }
+
+    /**
+     * Get the asynchronous response, if it has been obtained by the
+     * application.
+     *
+     * @return the asynchronous response, otherwise null.
+     */
+    AsyncResponseImpl getAsyncResponseIfPresent() {
+        return asyncResponse;
+    }
+
     // HttpContext
 
     @Override
@@ -45,6 +45,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
@@ -54,13 +55,23 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
@@ -69,6 +80,7 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.ContextResolver;
@@ -84,6 +96,7 @@ import com.sun.jersey.api.NotFoundException;
 import com.sun.jersey.api.container.ContainerException;
 import com.sun.jersey.api.container.MappableContainerException;
 import com.sun.jersey.api.container.filter.UriConnegFilter;
+import com.sun.jersey.api.core.AsyncResponse;
 import com.sun.jersey.api.core.ExtendedUriInfo;
 import com.sun.jersey.api.core.HttpContext;
 import com.sun.jersey.api.core.InjectParam;
@@ -113,6 +126,7 @@ import com.sun.jersey.core.spi.factory.MessageBodyFactory;
 import com.sun.jersey.core.util.FeaturesAndProperties;
 import com.sun.jersey.impl.ImplMessages;
 import com.sun.jersey.server.impl.BuildId;
+import com.sun.jersey.server.impl.InitiationExecutorHelper;
 import com.sun.jersey.server.impl.ThreadLocalHttpContext;
 import com.sun.jersey.server.impl.component.IoCResourceFactory;
 import com.sun.jersey.server.impl.component.ResourceFactory;
@@ -136,6 +150,8 @@ import com.sun.jersey.server.impl.modelapi.validation.BasicValidator;
 import com.sun.jersey.server.impl.monitoring.MonitoringProviderFactory;
 import com.sun.jersey.server.impl.resource.PerRequestFactory;
 import com.sun.jersey.server.impl.template.TemplateFactory;
+import com.sun.jersey.server.impl.uri.PathPattern;
+import com.sun.jersey.server.impl.uri.PathTemplate;
 import com.sun.jersey.server.impl.uri.rules.RootResourceClassesRule;
 import com.sun.jersey.server.impl.wadl.WadlApplicationContextInjectionProxy;
 import com.sun.jersey.server.impl.wadl.WadlFactory;
@@ -185,6 +201,16 @@ public final class WebApplicationImpl implements WebApplication {
     private final ConcurrentMap<Class, UriRules<UriRule>> rulesMap =
             new ConcurrentHashMap<Class, UriRules<UriRule>>();
 
+    private boolean lazyRules;
+
+    /**
+     * The issues of abstract resources validated in parallel when
+     * initiating, to be reported when the rules are created.
+     * Guarded by abstractResourceMap.
+     */
+    private final Map<Class, List<ResourceModelIssue>> validationIssueMap =
+            new HashMap<Class, List<ResourceModelIssue>>();
+
     private final ConcurrentMap<Class, ResourceComponentProvider> providerMap =
             new ConcurrentHashMap<Class, ResourceComponentProvider>();
 
@@ -353,6 +379,26 @@ public final class WebApplicationImpl implements WebApplication {
             }
         });
 
+        injectableFactory.add(new InjectableProvider<Context, Type>() {
+            @Override
+            public ComponentScope getScope() {
+                return ComponentScope.PerRequest;
+            }
+
+            @Override
+            public Injectable<AsyncResponse> getInjectable(ComponentContext ic, Context a, Type c) {
+                if (c != AsyncResponse.class)
+                    return null;
+
+                return new Injectable<AsyncResponse>() {
+                    @Override
+                    public AsyncResponse getValue() {
+                        return ((WebApplicationContext)context.get()).getAsyncResponse();
+                    }
+                };
+            }
+        });
+
         injectableFactory.add(new InjectableProvider<Context, Type>() {
             @Override
             public ComponentScope getScope() {
@@ -544,30 +590,35 @@ public final class WebApplicationImpl implements WebApplication {
         assert c != null;
 
         // Try the non-blocking read, the most common operation
-        UriRules<UriRule> r = rulesMap.get(c);
+        final UriRules<UriRule> r = rulesMap.get(c);
         if (r != null) {
             return r;
         }
 
-        // Not present use a synchronized block to ensure that only one
-        // instance is created and put to the map
+        // Not present, use a synchronized block to ensure that only one
+        // instance is created and put to the map. The rules are created
+        // under the lock that guards the abstract resources since creating
+        // rules obtains resource filters, dispatchers and injectables from
+        // factories, such as ProviderFactory, that are not thread-safe.
+        // Nothing is put to the map if the creation fails, so the rules are
+        // created again, and errors reported, when next required
         synchronized (abstractResourceMap) {
             // One or more threads may have been blocking on the synchronized
             // block, re-check the map
-            r = rulesMap.get(c);
-            if (r != null) {
-                return r;
+            UriRules<UriRule> rules = rulesMap.get(c);
+            if (rules != null) {
+                return rules;
             }
 
-            r = Errors.processWithErrors(new Errors.Closure<ResourceUriRules>() {
+            rules = Errors.processWithErrors(new Errors.Closure<ResourceUriRules>() {
                 @Override
                 public ResourceUriRules f() {
                     return newResourceUriRules(getAbstractResource(c));
                 }
             }).getRules();
-            rulesMap.put(c, r);
+            rulesMap.put(c, rules);
+            return rules;
         }
-        return r;
     }
 
     /* package */ ResourceComponentProvider getResourceComponentProvider(final Class c) {
@@ -676,13 +727,17 @@ public final class WebApplicationImpl implements WebApplication {
     }
 
     /* package */ void initiateResource(Class c) {
-        getUriRules(c);
+        if (!lazyRules) {
+            getUriRules(c);
+        }
         getOrCreateResourceComponentProvider(c, true);
     }
 
     /* package */ void initiateResource(AbstractResource ar, final Object resource) {
         final Class c = ar.getResourceClass();
-        getUriRules(c);
+        if (!lazyRules) {
+            getUriRules(c);
+        }
 
         if (!singletonMap.containsKey(c)) {
             singletonMap.put(c, new ResourceComponentProvider() {
@@ -712,6 +767,92 @@ public final class WebApplicationImpl implements WebApplication {
         }
     }
 
+    /**
+     * Warm up paths such that the first request to a path does not incur
+     * the cost of creating the rules, resource method dispatchers and
+     * injectors of the resource classes required to match that path.
+     * <p>
+     * No resource method or sub-resource locator is invoked. A sub-resource
+     * is warmed up if a sub-resource locator matches the path and the
+     * return type of the sub-resource locator method is a concrete class.
+     * <p>
+     * This method may be called after the Web application is initiated and
+     * before the container accepts requests, or concurrently with the
+     * handling of requests. See also
+     * {@link com.sun.jersey.api.core.ResourceConfig#PROPERTY_WARMUP_PATHS}.
+     *
+     * @param paths the paths, relative to the base URI of the Web
+     *        application, for example "orders/123/items".
+     * @throws IllegalStateException if the Web application is not initiated.
+     * @throws com.sun.jersey.spi.inject.Errors.ErrorMessagesException if
+     *         there are errors in a resource class of a path.
+     */
+    public void warmup(final String... paths) {
+        if (rootsRule == null) {
+            throw new IllegalStateException("The Web application is not initiated");
+        }
+
+        // Errors are reported, and the rules are not retained, per class
+        for (String path : paths) {
+            warmupPath(path);
+        }
+    }
+
+    private void warmupPath(final String path) {
+        final String p = path.startsWith("/") ? path : "/" + path;
+        for (final AbstractResource ar : abstractRootResources) {
+            if (!ar.isRootResource()) {
+                continue;
+            }
+
+            final String rest = matchRightHandPath(ar.getPath().getValue(), p);
+            if (rest != null) {
+                warmupResource(ar.getResourceClass(), rest, new HashSet<Class>());
+            }
+        }
+    }
+
+    private void warmupResource(final Class c, final String path, final Set<Class> visited) {
+        // The rules of a class include the dispatchers of the resource methods
+        // and the injectors of the sub-resource locators
+        getUriRules(c);
+        if (path.length() == 0 || path.equals("/") || !visited.add(c)) {
+            return;
+        }
+
+        final AbstractResource ar;
+        synchronized (abstractResourceMap) {
+            ar = getAbstractResource(c);
+        }
+        for (final AbstractSubResourceLocator locator : ar.getSubResourceLocators()) {
+            final String rest = matchRightHandPath(locator.getPath().getValue(), path);
+            final Class<?> returnType = locator.getMethod().getReturnType();
+            if (rest != null && !returnType.isInterface() && !returnType.isPrimitive()
+                    && !Modifier.isAbstract(returnType.getModifiers())
+                    && returnType != Object.class && returnType != Class.class) {
+                warmupResource(returnType, rest, visited);
+            }
+        }
+    }
+
+    private static String matchRightHandPath(final String template, final String path) {
+        final PathPattern p;
+        try {
+            p = new PathPattern(new PathTemplate(template));
+        } catch (IllegalArgumentException ex) {
+            // Reported when the rules are created
+            return null;
+        }
+
+        // The last capturing group is the right hand path
+        final Matcher m = Pattern.compile(p.getRegex()).matcher(path);
+        if (!m.matches()) {
+            return null;
+        }
+        final String rest = m.group(m.groupCount());
+        return (rest == null) ? "" : rest;
+    }
+
     /* package */ Set<AbstractResource> getAbstractRootResources() {
         return abstractRootResources;
     }
@@ -723,9 +864,14 @@ public final class WebApplicationImpl implements WebApplication {
     private ResourceUriRules newResourceUriRules(final AbstractResource ar) {
         assert null != ar;
 
-        BasicValidator validator = new BasicValidator();
-        validator.validate(ar);
-        for (ResourceModelIssue issue : validator.getIssueList()) {
+        List<ResourceModelIssue> issues;
+        synchronized (abstractResourceMap) {
+            issues = validationIssueMap.remove(ar.getResourceClass());
+        }
+        if (issues == null) {
+            issues = validate(ar);
+        }
+        for (ResourceModelIssue issue : issues) {
             Errors.error(issue.getMessage(), issue.isFatal());
         }
         return new ResourceUriRules(
@@ -738,6 +884,12 @@ public final class WebApplicationImpl implements WebApplication {
                 ar);
     }
 
+    private static List<ResourceModelIssue> validate(final AbstractResource ar) {
+        final BasicValidator validator = new BasicValidator();
+        validator.validate(ar);
+        return validator.getIssueList();
+    }
+
     protected ResourceMethodDispatchProvider getDispatchProvider() {
         return dispatcherFactory;
     }
@@ -1199,7 +1351,9 @@ public final class WebApplicationImpl implements WebApplication {
 
         // Obtain all message body readers/writers
         this.bodyFactory = new MessageBodyFactory(providerServices,
-                getFeaturesAndProperties().getFeature(FeaturesAndProperties.FEATURE_PRE_1_4_PROVIDER_PRECEDENCE));
+                getFeaturesAndProperties().getFeature(FeaturesAndProperties.FEATURE_PRE_1_4_PROVIDER_PRECEDENCE),
+                getFeaturesAndProperties().getFeature(FeaturesAndProperties.FEATURE_ENABLE_MESSAGE_BODY_WORKERS_CACHE)
+                        ? MessageBodyFactory.DEFAULT_CACHE_SIZE : 0);
         injectableFactory.add(
                 new ContextInjectableProvider<MessageBodyWorkers>(
                         MessageBodyWorkers.class, bodyFactory));
@@ -1261,7 +1415,8 @@ public final class WebApplicationImpl implements WebApplication {
         filterFactory = new FilterFactory(providerServices);
 
         // Initiate resource method dispatchers
-        dispatcherFactory = ResourceMethodDispatcherFactory.create(providerServices);
+        dispatcherFactory = ResourceMethodDispatcherFactory.create(providerServices,
+                resourceConfig.getFeature(ResourceConfig.FEATURE_GENERATED_METHOD_INVOKERS));
 
         dispatchingListener = new DispatchingListenerProxy();
 
@@ -1354,9 +1509,20 @@ public final class WebApplicationImpl implements WebApplication {
         createAbstractResourceModelStructures();
 
         // Obtain all root resource rules
+        this.lazyRules = resourceConfig.getFeature(ResourceConfig.FEATURE_LAZY_RESOURCE_RULES);
         RulesMap<UriRule> rootRules = new RootResourceUriRules(this,
                 resourceConfig, wadlFactory, injectableFactory).getRules();
-        this.rootsRule = new RootResourceClassesRule(rootRules);
+        this.rootsRule = new RootResourceClassesRule(rootRules,
+                resourceConfig.getFeature(ResourceConfig.FEATURE_AUTOMATA_MATCHING));
+
+        // Warm up the declared paths, errors are reported as for the
+        // root resource classes
+        for (String path : resourceConfig.getWarmupPaths()) {
+            warmupPath(path);
+        }
+        synchronized (abstractResourceMap) {
+            validationIssueMap.clear();
+        }
 
         if(!resourceConfig.getFeature(ResourceConfig.FEATURE_DISABLE_WADL)) {
             wadlApplicationContextInjectionProxy.init(wadlFactory);
@@ -1413,13 +1579,124 @@ public final class WebApplicationImpl implements WebApplication {
                 WebApplicationContext(this, request, response);
 
         context.set(localContext);
+        boolean detached = false;
         try {
-            _handleRequest(localContext, request, response);
+            final boolean mapped = _handleRequest(localContext, request, response);
+
+            final AsyncResponseImpl asyncResponse = localContext.getAsyncResponseIfPresent();
+            if (asyncResponse != null && mapped) {
+                // The response of the exception is written even if the
+                // request was suspended before the exception was thrown
+                asyncResponse.cancel();
+            } else if (asyncResponse != null) {
+                detached = asyncResponse.detach(response);
+                if (detached) {
+                    // The response will be written when the request is resumed
+                    return;
+                }
+
+                if (asyncResponse.isResumed()) {
+                    setResumedResponse(response, asyncResponse.getValue(),
+                            asyncResponse.getContentType());
+                }
+            }
+
+            _handleResponse(localContext, request, response);
+        } finally {
+            if (!detached) {
+                PerRequestFactory.destroy(localContext);
+                closeableFactory.close(localContext);
+                localContext.getContainerRequest().releaseBuffers();
+            }
+            context.set(null);
+        }
+    }
+
+    /**
+     * Write the response of a request that is resumed after the thread of
+     * the container has returned.
+     *
+     * @param localContext the context of the request.
+     * @param value the value the request was resumed with.
+     * @param contentType the media type selected for the resource method,
+     *        may be null.
+     */
+    void resumeRequest(final WebApplicationContext localContext, Object value, Object contentType) {
+        final HttpContext oldContext = context.get();
+        context.set(localContext);
+
+        final ContainerRequest request = localContext.getContainerRequest();
+        ContainerResponse response = localContext.getContainerResponse();
+        try {
+            setResumedResponse(response, value, contentType);
+            _handleResponse(localContext, request, response);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "The response of the resumed request could not be written", e);
+
+            // Ensure the container completes the response
+            response = localContext.getContainerResponse();
+            try {
+                response.getContainerResponseWriter().finish();
+            } catch (Exception ex) {
+                LOGGER.log(Level.FINE, "The response of the resumed request could not be finished", ex);
+            }
         } finally {
             PerRequestFactory.destroy(localContext);
             closeableFactory.close(localContext);
-            context.set(null);
+            localContext.getContainerRequest().releaseBuffers();
+            context.set(oldContext);
+        }
+    }
+
+    private void setResumedResponse(ContainerResponse response, Object value, Object contentType) {
+        if (value instanceof Response) {
+            response.setResponse((Response)value);
+        } else if (value instanceof Throwable) {
+            final Throwable t = (Throwable)value;
+            if (t instanceof WebApplicationException) {
+                response.mapWebApplicationException((WebApplicationException)t);
+            } else if (t instanceof MappableContainerException && t.getCause() != null) {
+                if (!response.mapException(t.getCause())) {
+                    onUnmappedResumedException(response, t.getCause());
+                }
+            } else if (!response.mapException(t)) {
+                onUnmappedResumedException(response, t);
+            }
+            return;
+        } else {
+            response.setResponse((value != null) ? Response.ok(value).build() : null);
+        }
+
+        if (response.getEntity() != null && contentType != null &&
+                response.getHttpHeaders().getFirst(HttpHeaders.CONTENT_TYPE) == null) {
+            response.getHttpHeaders().putSingle(HttpHeaders.CONTENT_TYPE, contentType);
+        }
+    }
+
+    private void onUnmappedResumedException(ContainerResponse response, Throwable t) {
+        LOGGER.log(Level.SEVERE, "The exception the request was resumed with could not be mapped to a response", t);
+        response.setResponse(Response.serverError().build());
+    }
+
+    private ScheduledExecutorService asyncTimeoutExecutor;
+
+    /**
+     * Get the executor that times out suspended requests.
+     *
+     * @return the executor.
+     */
+    synchronized ScheduledExecutorService getAsyncTimeoutExecutor() {
+        if (asyncTimeoutExecutor == null) {
+            asyncTimeoutExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    final Thread t = new Thread(r, "jersey-async-timeout");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
         }
+        return asyncTimeoutExecutor;
     }
 
     private WebApplicationContext handleMatchResourceRequest(URI u) {
@@ -1450,6 +1727,13 @@ public final class WebApplicationImpl implements WebApplication {
         }
 
         cpFactory.destroy();
+
+        synchronized (this) {
+            if (asyncTimeoutExecutor != null) {
+                asyncTimeoutExecutor.shutdownNow();
+                asyncTimeoutExecutor = null;
+            }
+        }
     }
 
     // Traceable
@@ -1464,11 +1748,15 @@ public final class WebApplicationImpl implements WebApplication {
         context.get().trace(message);
     }
 
-    private void _handleRequest(final WebApplicationContext localContext,
+    /**
+     * @return true if an exception was mapped to the response.
+     */
+    private boolean _handleRequest(final WebApplicationContext localContext,
                                 ContainerRequest request, ContainerResponse response) throws IOException {
         try {
             requestListener.onRequest(Thread.currentThread().getId(), request);
             _handleRequest(localContext, request);
+            return false;
         } catch (WebApplicationException e) {
             response.mapWebApplicationException(e);
         } catch (MappableContainerException e) {
@@ -1480,7 +1768,11 @@ public final class WebApplicationImpl implements WebApplication {
                 throw e;
             }
         }
+        return true;
+    }
 
+    private void _handleResponse(final WebApplicationContext localContext,
+                                 ContainerRequest request, ContainerResponse response) throws IOException {
         try {
             // Process response filters from resources
             for (ContainerResponseFilter f : localContext.getResponseFilters()) {
@@ -1580,6 +1872,10 @@ public final class WebApplicationImpl implements WebApplication {
 
 
     private void createAbstractResourceModelStructures() {
+        final int threads = resourceConfig.getInitiationThreads();
+        if (threads > 1) {
+            createAbstractResourcesInParallel(threads);
+        }
 
         final Set<AbstractResource> rootARs = new HashSet<AbstractResource>();
 
@@ -1611,6 +1907,69 @@ public final class WebApplicationImpl implements WebApplication {
         explicitAbstractRootResources = Collections.unmodifiableMap(explicitRootARs);
     }
 
+    /**
+     * Create and validate the abstract resources of the root resource classes
+     * in parallel.
+     * <p>
+     * The abstract resources are added in the order the classes are
+     * declared, and the issues of validation are retained to be reported when
+     * the rules are created, such that the result is the same as if the
+     * abstract resources were created sequentially. If the creation of an
+     * abstract resource fails then it, and those that follow, are created
+     * sequentially, thus reporting the failure in the same manner.
+     */
+    private void createAbstractResourcesInParallel(final int threads) {
+        final Set<Class> classes = new LinkedHashSet<Class>();
+        for (final Object o : resourceConfig.getRootResourceSingletons()) {
+            classes.add(o.getClass());
+        }
+        classes.addAll(resourceConfig.getRootResourceClasses());
+        for (final Object o : resourceConfig.getExplicitRootResources().values()) {
+            classes.add((o instanceof Class) ? (Class)o : o.getClass());
+        }
+        classes.removeAll(abstractResourceMap.keySet());
+        if (classes.size() < 2) {
+            return;
+        }
+
+        final ExecutorService executor = InitiationExecutorHelper.newExecutor(threads);
+        try {
+            final List<Future<AbstractResource>> futures = new ArrayList<Future<AbstractResource>>(classes.size());
+            for (final Class c : classes) {
+                futures.add(executor.submit(new Callable<AbstractResource>() {
+                    @Override
+                    public AbstractResource call() {
+                        return IntrospectionModeller.createResource(c);
+                    }
+                }));
+            }
+
+            final List<Future<List<ResourceModelIssue>>> validations =
+                    new ArrayList<Future<List<ResourceModelIssue>>>(classes.size());
+            for (final Future<AbstractResource> f : futures) {
+                final AbstractResource ar = f.get();
+                abstractResourceMap.put(ar.getResourceClass(), ar);
+                validations.add(executor.submit(new Callable<List<ResourceModelIssue>>() {
+                    @Override
+                    public List<ResourceModelIssue> call() {
+                        return validate(ar);
+                    }
+                }));
+            }
+
+            int i = 0;
+            for (final Class c : classes) {
+                validationIssueMap.put(c, validations.get(i++).get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            // Create the remaining abstract resources sequentially
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private void callAbstractResourceModelListenersOnLoaded(ProviderServices providerServices) {
         for (AbstractResourceModelListener aml : providerServices.getProviders(AbstractResourceModelListener.class)) {
             aml.onLoaded(armContext);
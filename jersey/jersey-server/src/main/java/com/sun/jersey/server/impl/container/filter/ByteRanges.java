@@ -0,0 +1,168 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.server.impl.container.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import com.sun.jersey.core.util.ReaderWriter;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * One or more byte ranges of a file that are written as the entity of a
+ * 206 (Partial Content) response.
+ * <p>
+ * A single range is written as the bytes of that range. Multiple ranges
+ * are written as a "multipart/byteranges" entity, each part of which declares
+ * the media type of the file and the "Content-Range" of the part.
+ *
+ * @see com.sun.jersey.api.container.filter.RangeFilter
+ */
+public final class ByteRanges {
+
+    private final File file;
+
+    private final long length;
+
+    private final long[] ranges;
+
+    private final MediaType mediaType;
+
+    private final String boundary;
+
+    /**
+     * @param file the file.
+     * @param length the length of the file.
+     * @param ranges the first and last byte positions, inclusive, of each
+     *        range.
+     * @param mediaType the media type of the file, used for the parts of a
+     *        multipart entity, may be null.
+     * @param boundary the boundary of a multipart entity, ignored if there is
+     *        only one range.
+     */
+    public ByteRanges(File file, long length, long[] ranges, MediaType mediaType, String boundary) {
+        if (ranges.length == 0 || ranges.length % 2 != 0)
+            throw new IllegalArgumentException();
+
+        this.file = file;
+        this.length = length;
+        this.ranges = ranges;
+        this.mediaType = mediaType;
+        this.boundary = boundary;
+    }
+
+    public boolean isMultipart() {
+        return ranges.length > 2;
+    }
+
+    public String getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Get the value of the "Content-Range" header of a range.
+     *
+     * @param i the index of the range.
+     * @return the value of the "Content-Range" header.
+     */
+    public String getContentRange(int i) {
+        return "bytes " + ranges[2 * i] + "-" + ranges[2 * i + 1] + "/" + length;
+    }
+
+    /**
+     * Get the number of bytes that will be written by
+     * {@link #writeTo(java.io.OutputStream) }.
+     *
+     * @return the number of bytes.
+     */
+    public long getSize() {
+        if (!isMultipart())
+            return ranges[1] - ranges[0] + 1;
+
+        long size = closeDelimiter().length;
+        for (int i = 0; i < ranges.length / 2; i++) {
+            size += partHeader(i).length + ranges[2 * i + 1] - ranges[2 * i] + 1;
+        }
+        return size;
+    }
+
+    /**
+     * Write the ranges.
+     *
+     * @param out the output stream.
+     * @throws IOException if an error occurs reading the file or writing
+     *         to the output stream.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (!isMultipart()) {
+            ReaderWriter.writeTo(file, ranges[0], ranges[1] - ranges[0] + 1, out);
+            return;
+        }
+
+        for (int i = 0; i < ranges.length / 2; i++) {
+            out.write(partHeader(i));
+            ReaderWriter.writeTo(file, ranges[2 * i], ranges[2 * i + 1] - ranges[2 * i] + 1, out);
+        }
+        out.write(closeDelimiter());
+    }
+
+    private byte[] partHeader(int i) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("\r\n--").append(boundary).append("\r\n");
+        if (mediaType != null)
+            sb.append("Content-Type: ").append(mediaType).append("\r\n");
+        sb.append("Content-Range: ").append(getContentRange(i)).append("\r\n\r\n");
+        return getBytes(sb.toString());
+    }
+
+    private byte[] closeDelimiter() {
+        return getBytes("\r\n--" + boundary + "--\r\n");
+    }
+
+    private static byte[] getBytes(String s) {
+        try {
+            return s.getBytes("US-ASCII");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
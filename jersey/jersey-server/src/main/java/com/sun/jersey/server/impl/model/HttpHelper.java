@@ -50,6 +50,7 @@ import com.sun.jersey.core.header.LanguageTag;
 import com.sun.jersey.core.header.MatchingEntityTag;
 import com.sun.jersey.core.header.QualitySourceMediaType;
 import com.sun.jersey.core.header.reader.HttpHeaderReader;
+import com.sun.jersey.core.util.ConcurrentBoundedCache;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
@@ -66,6 +67,23 @@ import javax.ws.rs.core.MediaType;
  */
 public final class HttpHelper {
 
+    /**
+     * The maximum number of distinct "Accept" and "Accept-Language" header
+     * values whose parsed form is cached.
+     */
+    private static final int HEADER_CACHE_SIZE = 256;
+
+    /**
+     * Header values longer than this are parsed but not cached.
+     */
+    private static final int MAX_CACHED_HEADER_LENGTH = 1024;
+
+    private static final ConcurrentBoundedCache<String, List<AcceptableMediaType>> ACCEPT_CACHE =
+            new ConcurrentBoundedCache<String, List<AcceptableMediaType>>(HEADER_CACHE_SIZE);
+
+    private static final ConcurrentBoundedCache<String, List<AcceptableLanguageTag>> ACCEPT_LANGUAGE_CACHE =
+            new ConcurrentBoundedCache<String, List<AcceptableLanguageTag>>(HEADER_CACHE_SIZE);
+
     /**
      * Get the content type from the "Content-Type" of an HTTP request.
      * <p>
@@ -164,18 +182,28 @@ public final class HttpHelper {
      *         is ordered with the highest quality acceptable Media type occurring first
      *         (see {@link MediaTypes#MEDIA_TYPE_COMPARATOR}).
      *         If no "Accept" is present then a list with a single item of the Media
-     *         type "*\\/*" is returned.
+     *         type "*\\/*" is returned. The list is shared between requests
+     *         with the same "Accept" and MUST not be modified.
      */
     public static List<AcceptableMediaType> getAccept(HttpRequestContext request) {
         final String accept = request.getHeaderValue(HttpHeaders.ACCEPT);
         if (accept == null || accept.length() == 0) {
             return MediaTypes.GENERAL_ACCEPT_MEDIA_TYPE_LIST;
         }
+
+        List<AcceptableMediaType> l = ACCEPT_CACHE.get(accept);
+        if (l != null) {
+            return l;
+        }
         try {
-            return HttpHeaderReader.readAcceptMediaType(accept);
+            l = Collections.unmodifiableList(HttpHeaderReader.readAcceptMediaType(accept));
         } catch (java.text.ParseException e) {
             throw clientError(ImplMessages.BAD_ACCEPT_FIELD(accept), e);
         }
+        if (accept.length() <= MAX_CACHED_HEADER_LENGTH) {
+            ACCEPT_CACHE.put(accept, l);
+        }
+        return l;
     }
     
     public static List<AcceptableMediaType> getAccept(HttpRequestContext request,
@@ -210,17 +238,28 @@ public final class HttpHelper {
      * @param request The HTTP request.
      * @return The list of LanguageTag. This list
      *         is ordered with the highest quality acceptable language tag occurring first.
+     *         The list is shared between requests with the same
+     *         "Accept-Language" and MUST not be modified.
      */
     public static List<AcceptableLanguageTag> getAcceptLanguage(HttpRequestContext request) {
         final String acceptLanguage = request.getHeaderValue(HttpHeaders.ACCEPT_LANGUAGE);
         if (acceptLanguage == null || acceptLanguage.length() == 0) {
             return Collections.singletonList(new AcceptableLanguageTag("*", null));
         }
+
+        List<AcceptableLanguageTag> l = ACCEPT_LANGUAGE_CACHE.get(acceptLanguage);
+        if (l != null) {
+            return l;
+        }
         try {
-            return HttpHeaderReader.readAcceptLanguage(acceptLanguage);
+            l = Collections.unmodifiableList(HttpHeaderReader.readAcceptLanguage(acceptLanguage));
         } catch (java.text.ParseException e) {
             throw clientError("Bad Accept-Language header value: '" + acceptLanguage + "'", e);
         }
+        if (acceptLanguage.length() <= MAX_CACHED_HEADER_LENGTH) {
+            ACCEPT_LANGUAGE_CACHE.put(acceptLanguage, l);
+        }
+        return l;
     }
 
     /**
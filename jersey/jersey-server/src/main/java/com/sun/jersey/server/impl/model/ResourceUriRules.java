@@ -155,7 +155,8 @@ public final class ResourceUriRules {
         });
 
         // Create the atomic rules, at most only one will be matched
-        final UriRules<UriRule> atomicRules = UriRulesFactory.create(rulesMap);
+        final UriRules<UriRule> atomicRules = UriRulesFactory.create(rulesMap, null,
+                resourceConfig.getFeature(ResourceConfig.FEATURE_AUTOMATA_MATCHING));
 
         // Create the end sequential rules, zero or more may be matched
         List<PatternRulePair<UriRule>> patterns = new ArrayList<PatternRulePair<UriRule>>();
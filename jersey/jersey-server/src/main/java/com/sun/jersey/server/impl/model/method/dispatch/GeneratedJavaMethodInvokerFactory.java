@@ -0,0 +1,347 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.server.impl.model.method.dispatch;
+
+import com.sun.jersey.spi.container.JavaMethodInvoker;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * A factory for {@link JavaMethodInvoker} instances that invoke a Java method
+ * directly rather than reflectively.
+ * <p>
+ * For each Java method a class implementing {@link JavaMethodInvoker} is
+ * generated, using ASM, that casts the resource instance and the
+ * parameters to the declared types and invokes the Java method with an
+ * invokevirtual or invokeinterface instruction. Thus each invoker has a
+ * single call site that can be inlined by the JIT compiler.
+ * <p>
+ * Any exception thrown by the Java method is wrapped in an
+ * {@link InvocationTargetException}, and a parameter of the wrong type or a
+ * wrong number of parameters results in an {@link IllegalArgumentException},
+ * as is the case when the Java method is invoked reflectively.
+ * <p>
+ * A class can only be generated for a public method of a public class.
+ */
+public final class GeneratedJavaMethodInvokerFactory implements Opcodes {
+
+    private static final Logger LOGGER = Logger.getLogger(GeneratedJavaMethodInvokerFactory.class.getName());
+
+    private static final String INVOKER_INTERNAL_NAME = Type.getInternalName(JavaMethodInvoker.class);
+
+    private static final String INVOKE_DESCRIPTOR = "(Ljava/lang/reflect/Method;Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;";
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private final Map<Method, JavaMethodInvoker> invokers = new HashMap<Method, JavaMethodInvoker>();
+
+    private final Map<ClassLoader, InvokerClassLoader> classLoaders = new HashMap<ClassLoader, InvokerClassLoader>();
+
+    /**
+     * Get the invoker for a Java method.
+     *
+     * @param m the Java method.
+     * @return the generated invoker, otherwise null if an invoker cannot be
+     *         generated for the Java method.
+     */
+    public synchronized JavaMethodInvoker getInvoker(Method m) {
+        if (invokers.containsKey(m)) {
+            return invokers.get(m);
+        }
+
+        JavaMethodInvoker invoker = null;
+        if (isAccessible(m)) {
+            try {
+                invoker = generate(m);
+            } catch (Throwable t) {
+                LOGGER.log(Level.CONFIG, "Unable to generate an invoker for the Java method " + m
+                        + ", the Java method will be invoked reflectively", t);
+            }
+        }
+
+        invokers.put(m, invoker);
+        return invoker;
+    }
+
+    private static boolean isAccessible(Method m) {
+        final int modifiers = m.getModifiers();
+        if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers)) {
+            return false;
+        }
+
+        for (Class c = m.getDeclaringClass(); c != null; c = c.getDeclaringClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+
+        for (Class c : m.getParameterTypes()) {
+            if (!isAccessible(c)) {
+                return false;
+            }
+        }
+        return isAccessible(m.getReturnType());
+    }
+
+    private static boolean isAccessible(Class c) {
+        while (c.isArray()) {
+            c = c.getComponentType();
+        }
+        for (; c != null; c = c.getDeclaringClass()) {
+            if (!c.isPrimitive() && !Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private JavaMethodInvoker generate(Method m) throws Exception {
+        final Class<?> declaringClass = m.getDeclaringClass();
+        final String className = declaringClass.getName() + "$JerseyInvoker$"
+                + m.getName() + "$" + COUNTER.incrementAndGet();
+
+        final byte[] b = generateClass(className.replace('.', '/'), m);
+
+        final Class<?> c = getClassLoader(declaringClass.getClassLoader()).define(className, b);
+        return (JavaMethodInvoker) c.newInstance();
+    }
+
+    private InvokerClassLoader getClassLoader(ClassLoader parent) {
+        InvokerClassLoader cl = classLoaders.get(parent);
+        if (cl == null) {
+            cl = new InvokerClassLoader(parent);
+            classLoaders.put(parent, cl);
+        }
+        return cl;
+    }
+
+    private static byte[] generateClass(String internalName, Method m) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, internalName, null,
+                "java/lang/Object", new String[] {INVOKER_INTERNAL_NAME});
+
+        // Default constructor
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // Object invoke(Method m, Object o, Object... parameters)
+        mv = cw.visitMethod(ACC_PUBLIC | ACC_VARARGS, "invoke", INVOKE_DESCRIPTOR, null,
+                new String[] {
+                    Type.getInternalName(InvocationTargetException.class),
+                    Type.getInternalName(IllegalAccessException.class)});
+        mv.visitCode();
+
+        final Label argumentsStart = new Label();
+        final Label argumentsEnd = new Label();
+        final Label argumentsHandler = new Label();
+        final Label start = new Label();
+        final Label end = new Label();
+        final Label handler = new Label();
+        final Label wrongNumberOfArguments = new Label();
+        mv.visitTryCatchBlock(argumentsStart, argumentsEnd, argumentsHandler, "java/lang/RuntimeException");
+        mv.visitTryCatchBlock(start, end, handler, "java/lang/Throwable");
+
+        // A null instance results in a NullPointerException, as is the case
+        // when the Java method is invoked reflectively
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Object", "getClass", "()Ljava/lang/Class;");
+        mv.visitInsn(POP);
+
+        // Cast the instance and the parameters, a parameter of the wrong
+        // type or a wrong number of parameters results in an
+        // IllegalArgumentException
+        mv.visitLabel(argumentsStart);
+        final Class<?> declaringClass = m.getDeclaringClass();
+        final String owner = Type.getInternalName(declaringClass);
+        final Class<?>[] parameterTypes = m.getParameterTypes();
+        if (parameterTypes.length > 0) {
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitInsn(ARRAYLENGTH);
+            pushInt(mv, parameterTypes.length);
+            mv.visitJumpInsn(IF_ICMPNE, wrongNumberOfArguments);
+        }
+
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitTypeInsn(CHECKCAST, owner);
+        for (int i = 0; i < parameterTypes.length; i++) {
+            mv.visitVarInsn(ALOAD, 3);
+            pushInt(mv, i);
+            mv.visitInsn(AALOAD);
+            unbox(mv, parameterTypes[i]);
+        }
+        mv.visitLabel(argumentsEnd);
+
+        // Only the invocation of the Java method is wrapped
+        mv.visitLabel(start);
+        mv.visitMethodInsn(declaringClass.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL,
+                owner, m.getName(), Type.getMethodDescriptor(m));
+        mv.visitLabel(end);
+        box(mv, m.getReturnType());
+        mv.visitInsn(ARETURN);
+
+        // Wrap any exception thrown when casting the instance or parameters
+        mv.visitLabel(argumentsHandler);
+        wrap(mv, IllegalArgumentException.class);
+
+        // Wrap any exception thrown by the Java method
+        mv.visitLabel(handler);
+        wrap(mv, InvocationTargetException.class);
+
+        if (parameterTypes.length > 0) {
+            mv.visitLabel(wrongNumberOfArguments);
+            throwNew(mv, IllegalArgumentException.class, "wrong number of arguments");
+        }
+
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void wrap(MethodVisitor mv, Class<? extends Throwable> c) {
+        final String internalName = Type.getInternalName(c);
+        mv.visitVarInsn(ASTORE, 4);
+        mv.visitTypeInsn(NEW, internalName);
+        mv.visitInsn(DUP);
+        mv.visitVarInsn(ALOAD, 4);
+        mv.visitMethodInsn(INVOKESPECIAL, internalName, "<init>", "(Ljava/lang/Throwable;)V");
+        mv.visitInsn(ATHROW);
+    }
+
+    private static void throwNew(MethodVisitor mv, Class<? extends Throwable> c, String message) {
+        final String internalName = Type.getInternalName(c);
+        mv.visitTypeInsn(NEW, internalName);
+        mv.visitInsn(DUP);
+        mv.visitLdcInsn(message);
+        mv.visitMethodInsn(INVOKESPECIAL, internalName, "<init>", "(Ljava/lang/String;)V");
+        mv.visitInsn(ATHROW);
+    }
+
+    private static void pushInt(MethodVisitor mv, int i) {
+        if (i <= 5) {
+            mv.visitInsn(ICONST_0 + i);
+        } else if (i <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, i);
+        } else {
+            mv.visitIntInsn(SIPUSH, i);
+        }
+    }
+
+    private static void unbox(MethodVisitor mv, Class<?> c) {
+        if (!c.isPrimitive()) {
+            if (c != Object.class) {
+                mv.visitTypeInsn(CHECKCAST, Type.getInternalName(c));
+            }
+            return;
+        }
+
+        final Class<?> w = getWrapperClass(c);
+        final String wrapper = Type.getInternalName(w);
+        mv.visitTypeInsn(CHECKCAST, wrapper);
+        mv.visitMethodInsn(INVOKEVIRTUAL, wrapper, c.getName() + "Value",
+                "()" + Type.getDescriptor(c));
+    }
+
+    private static void box(MethodVisitor mv, Class<?> c) {
+        if (c == void.class) {
+            mv.visitInsn(ACONST_NULL);
+        } else if (c.isPrimitive()) {
+            final String wrapper = Type.getInternalName(getWrapperClass(c));
+            mv.visitMethodInsn(INVOKESTATIC, wrapper, "valueOf",
+                    "(" + Type.getDescriptor(c) + ")L" + wrapper + ";");
+        }
+    }
+
+    private static Class<?> getWrapperClass(Class<?> c) {
+        if (c == boolean.class) return Boolean.class;
+        if (c == byte.class) return Byte.class;
+        if (c == char.class) return Character.class;
+        if (c == short.class) return Short.class;
+        if (c == int.class) return Integer.class;
+        if (c == long.class) return Long.class;
+        if (c == float.class) return Float.class;
+        if (c == double.class) return Double.class;
+        throw new IllegalArgumentException(c.getName());
+    }
+
+    /**
+     * Defines the generated classes.
+     * <p>
+     * Classes are loaded from the class loader of the declaring class of
+     * the Java method, except for {@link JavaMethodInvoker} that is
+     * loaded from the class loader of Jersey, which may not be
+     * visible from the class loader of the declaring class.
+     */
+    private static final class InvokerClassLoader extends ClassLoader {
+        InvokerClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.equals(JavaMethodInvoker.class.getName())) {
+                return JavaMethodInvoker.class;
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        Class<?> define(String name, byte[] b) {
+            return defineClass(name, b, 0, b.length);
+        }
+    }
+}
@@ -46,6 +46,7 @@ import com.sun.jersey.api.core.HttpResponseContext;
 import com.sun.jersey.core.header.MediaTypes;
 import com.sun.jersey.core.header.QualitySourceMediaType;
 import com.sun.jersey.core.reflection.ReflectionHelper;
+import com.sun.jersey.core.util.ConcurrentBoundedCache;
 import com.sun.jersey.server.impl.application.WebApplicationContext;
 import com.sun.jersey.server.impl.model.method.ResourceMethod;
 import com.sun.jersey.server.impl.template.ViewResourceMethod;
@@ -77,6 +78,12 @@ public final class HttpMethodRule implements UriRule {
     public static final String CONTENT_TYPE_PROPERTY =
             "com.sun.jersey.server.impl.uri.rules.HttpMethodRule.Content-Type";
 
+    /**
+     * The maximum number of distinct "Accept" and "Content-Type" header value
+     * pairs, per HTTP method, whose content negotiation result is cached.
+     */
+    private static final int MATCH_CACHE_SIZE = 64;
+
     private final Map<String, ResourceMethodListPair> map;
 
     private final String allow;
@@ -97,6 +104,9 @@ public final class HttpMethodRule implements UriRule {
 
         final List<QualitySourceMediaType> priorityMediaTypes;
 
+        final ConcurrentBoundedCache<MatchKey, Match> matchCache =
+                new ConcurrentBoundedCache<MatchKey, Match>(MATCH_CACHE_SIZE);
+
         ResourceMethodListPair(List<ResourceMethod> normal) {
             this.normal = normal;
             if (correctOrder(normal)) {
@@ -224,13 +234,8 @@ public final class HttpMethodRule implements UriRule {
             return false;
         }
 
-        // Get the list of matching methods
-        List<MediaType> accept = getSpecificAcceptableMediaTypes(
-                request.getAcceptableMediaTypes(),
-                methods.priorityMediaTypes);
-
-        final Matcher m = new Matcher();
-        final MatchStatus s = m.match(methods, request.getMediaType(), accept);
+        final Match m = match(request, methods);
+        final MatchStatus s = m.status;
 
         if (s == MatchStatus.MATCH) {
             // If there is a match choose the first method
@@ -337,15 +342,99 @@ public final class HttpMethodRule implements UriRule {
         return true;
     }
 
+    /**
+     * Get the matching resource method for the 'Content-Type' and 'Accept'
+     * of a request.
+     * <p>
+     * The match is cached using the 'Accept' and 'Content-Type' header values
+     * as the key, since the match depends only on those values. Caching is
+     * not performed if the request is an extension of {@link ContainerRequest},
+     * which might override the parsing of those header values.
+     *
+     * @param request the request.
+     * @param methods the resource methods of the HTTP method of the request.
+     * @return the match.
+     */
+    private Match match(final HttpRequestContext request, final ResourceMethodListPair methods) {
+        MatchKey key = null;
+        if (request.getClass() == ContainerRequest.class) {
+            key = new MatchKey(request.getHeaderValue(HttpHeaders.ACCEPT),
+                    request.getHeaderValue(HttpHeaders.CONTENT_TYPE));
+            final Match m = methods.matchCache.get(key);
+            if (m != null) {
+                return m;
+            }
+        }
+
+        // Get the list of matching methods
+        List<MediaType> accept = getSpecificAcceptableMediaTypes(
+                request.getAcceptableMediaTypes(),
+                methods.priorityMediaTypes);
+
+        final Match m = new Matcher().match(methods, request.getMediaType(), accept);
+        if (key != null) {
+            methods.matchCache.put(key, m);
+        }
+        return m;
+    }
+
     private enum MatchStatus {
         MATCH, NO_MATCH_FOR_CONSUME, NO_MATCH_FOR_PRODUCE
     }
 
-    private static class Matcher extends LinkedList<ResourceMethod> {
-        private MediaType mSelected = null;
+    private static final class MatchKey {
+        private final String accept;
+
+        private final String contentType;
+
+        private final int hash;
+
+        MatchKey(String accept, String contentType) {
+            this.accept = accept;
+            this.contentType = contentType;
+            this.hash = 31 * (accept != null ? accept.hashCode() : 0)
+                    + (contentType != null ? contentType.hashCode() : 0);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MatchKey)) {
+                return false;
+            }
+            final MatchKey other = (MatchKey) obj;
+            return hash == other.hash
+                    && (accept == null ? other.accept == null : accept.equals(other.accept))
+                    && (contentType == null ? other.contentType == null : contentType.equals(other.contentType));
+        }
+    }
 
-        private ResourceMethod rmSelected = null;
+    private static final class Match {
+        private final MatchStatus status;
 
+        private final MediaType mSelected;
+
+        private final ResourceMethod rmSelected;
+
+        Match(MatchStatus status, MediaType mSelected, ResourceMethod rmSelected) {
+            this.status = status;
+            this.mSelected = mSelected;
+            this.rmSelected = rmSelected;
+        }
+    }
+
+    private static final Match NO_MATCH_FOR_CONSUME = new Match(MatchStatus.NO_MATCH_FOR_CONSUME, null, null);
+
+    private static final Match NO_MATCH_FOR_PRODUCE = new Match(MatchStatus.NO_MATCH_FOR_PRODUCE, null, null);
+
+    private static class Matcher extends LinkedList<ResourceMethod> {
         /**
          * Find the subset of methods that match the 'Content-Type' and 'Accept'.
          *
@@ -354,9 +443,9 @@ public final class HttpMethodRule implements UriRule {
          * @param acceptableMediaTypes the 'Accept' as a list. This list
          *        MUST be ordered with the highest quality acceptable Media type
          *        occurring first (see {@link MediaTypes#MEDIA_TYPE_COMPARATOR}).
-         * @return the match status.
+         * @return the match.
          */
-        private MatchStatus match(
+        private Match match(
                 ResourceMethodListPair methods,
                 MediaType contentType,
                 List<MediaType> acceptableMediaTypes) {
@@ -369,7 +458,7 @@ public final class HttpMethodRule implements UriRule {
                         add(method);
 
                 if (isEmpty())
-                    return MatchStatus.NO_MATCH_FOR_CONSUME;
+                    return NO_MATCH_FOR_CONSUME;
 
                 selected = this;
             } else {
@@ -381,15 +470,13 @@ public final class HttpMethodRule implements UriRule {
                 for (ResourceMethod rm : selected) {
                     for (MediaType p : rm.getProduces()) {
                         if (p.isCompatible(amt)) {
-                            mSelected = MediaTypes.mostSpecific(p, amt);
-                            rmSelected = rm;
-                            return MatchStatus.MATCH;
+                            return new Match(MatchStatus.MATCH, MediaTypes.mostSpecific(p, amt), rm);
                         }
                     }
                 }
             }
 
-            return MatchStatus.NO_MATCH_FOR_PRODUCE;
+            return NO_MATCH_FOR_PRODUCE;
         }
     }
 
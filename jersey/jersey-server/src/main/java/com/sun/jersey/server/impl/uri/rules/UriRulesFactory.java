@@ -62,20 +62,50 @@ public final class UriRulesFactory {
     
     public static UriRules<UriRule> create(Map<PathPattern, UriRule> rulesMap,
             List<PatternRulePair<UriRule>> rules) {
+        return create(rulesMap, rules, false);
+    }
+
+    /**
+     * Create the rules from a map of path patterns to rules and a list
+     * of pattern rule pairs.
+     *
+     * @param rulesMap the map of path patterns to rules.
+     * @param rules the list of pattern rule pairs, may be null.
+     * @param automata if true the rules are matched using a trie of
+     *        the literal prefixes of the patterns, otherwise the rules are
+     *        matched linearly.
+     * @return the rules.
+     */
+    public static UriRules<UriRule> create(Map<PathPattern, UriRule> rulesMap,
+            List<PatternRulePair<UriRule>> rules, boolean automata) {
         List<PatternRulePair<UriRule>> l = new ArrayList<PatternRulePair<UriRule>>();
         for (Map.Entry<PathPattern, UriRule> e : rulesMap.entrySet())
             l.add(new PatternRulePair<UriRule>(e.getKey(), e.getValue()));
 
         if (rules != null) l.addAll(rules);
         
-        return create(l);
+        return create(l, automata);
     }
     
     public static UriRules<UriRule> create(List<PatternRulePair<UriRule>> rules) {
-        if (rules.size() < Integer.MAX_VALUE) {
-            return new AtomicMatchingPatterns<UriRule>(rules);
-        } else {
+        return create(rules, false);
+    }
+
+    /**
+     * Create the rules from a list of pattern rule pairs.
+     *
+     * @param rules the list of pattern rule pairs.
+     * @param automata if true the rules are matched using a trie of
+     *        the literal prefixes of the patterns, otherwise the rules are
+     *        matched linearly.
+     * @return the rules.
+     */
+    public static UriRules<UriRule> create(List<PatternRulePair<UriRule>> rules,
+            boolean automata) {
+        if (automata) {
             return new AutomataMatchingUriTemplateRules<UriRule>(rules);
+        } else {
+            return new AtomicMatchingPatterns<UriRule>(rules);
         }
     }
 }
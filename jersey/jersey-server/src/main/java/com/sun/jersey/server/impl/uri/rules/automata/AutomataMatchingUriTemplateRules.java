@@ -45,237 +45,204 @@ import com.sun.jersey.server.impl.uri.rules.PatternRulePair;
 import com.sun.jersey.spi.uri.rules.UriMatchResultContext;
 import com.sun.jersey.spi.uri.rules.UriRules;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
-import java.util.Stack;
+import java.util.NoSuchElementException;
+import java.util.regex.MatchResult;
 
 /**
  * UriRules implementation based on a TRIE/Finite Automata.
+ * <p>
+ * The literal prefix of the regular expression of each rule, namely the
+ * characters preceding the first capturing group or regular expression
+ * construct, is added to a trie. Matching walks the trie along the path,
+ * which takes at most O(path length) steps, to obtain the rules whose
+ * literal prefix is a prefix of the path. Only the regular expressions of
+ * those candidate rules are matched against the path.
+ * <p>
+ * Candidate rules are matched in the order they were declared, so at most
+ * one rule is matched and it is the same rule that would be matched by
+ * {@link com.sun.jersey.server.impl.uri.rules.AtomicMatchingPatterns}.
+ * Rules that have no literal prefix, or whose pattern is not an instance
+ * of {@link PathPattern}, are candidates for every path.
  *
- * This class has been made abstract because it needs to fixed in terms
- * of supporting the UriRules interface and matching using more general regular
- * expressions.
- * 
  * @author Frank D. Martinez. fmartinez@asimovt.com
  */
 public class AutomataMatchingUriTemplateRules<R> implements UriRules<R> {
+    /** Rules in declaration order */
+    private final List<PatternRulePair<R>> rules;
+
     /** Trie/Automata Index */
-    private final TrieNode<R> automata;
+    private final TrieNode automata;
 
     public AutomataMatchingUriTemplateRules(List<PatternRulePair<R>> rules) {
-        this.automata = initTrie(rules);
+        this.rules = new ArrayList<PatternRulePair<R>>(rules);
+        this.automata = initTrie(this.rules);
     }
-    
+
     public Iterator<R> match(CharSequence path, UriMatchResultContext resultContext) {
-        List<String> capturingGroupValues = new ArrayList<String>();
-        TrieNode<R> node = find(path, capturingGroupValues);
-        if (node != null) {
-            return node.getValue();
+        final int[] candidates = find(path);
+
+        if (resultContext.isTracingEnabled()) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("match path \"").append(path).append("\" -> ");
+            boolean first = true;
+            for (int i : candidates) {
+                if (!first)
+                    sb.append(", ");
+                sb.append("\"").append(rules.get(i).p.toString()).append("\"");
+                first = false;
+            }
+            resultContext.trace(sb.toString());
+        }
+
+        for (int i : candidates) {
+            final PatternRulePair<R> prp = rules.get(i);
+            final MatchResult mr = prp.p.match(path);
+            if (mr != null) {
+                resultContext.setMatchResult(mr);
+                return new SingleEntryIterator<R>(prp.r);
+            }
         }
-        return new TrieNodeValue.EmptyIterator<R>();
+
+        return new EmptyIterator<R>();
     }
 
-    /** 
-     * Trie initialization 
+    /**
+     * Trie initialization
      */
-    private TrieNode<R> initTrie(List<PatternRulePair<R>> rules) {
-        TrieNode<R> a = new TrieNode<R>();
-        for (PatternRulePair<R> prp : rules) {
-            if (prp.p instanceof PathPattern) {
-                PathPattern p = (PathPattern)prp.p;            
-                a.add(p.getTemplate().getTemplate(), prp.r, prp.p);
-            } else {
-                throw new IllegalArgumentException(
-                        "The automata matching algorithm currently only works" +
-                        "for UriPattern instance that are instances of " +
-                        "PathPattern");
-            }
+    private static <R> TrieNode initTrie(List<PatternRulePair<R>> rules) {
+        TrieNode a = new TrieNode();
+        for (int i = 0; i < rules.size(); i++) {
+            final PatternRulePair<R> prp = rules.get(i);
+            final String prefix = (prp.p instanceof PathPattern)
+                    ? getLiteralPrefix(prp.p.getRegex())
+                    : "";
+            a.add(prefix, i);
         }
         a.pack();
         return a;
     }
-    
+
     /**
-     * Backtracking state struct
+     * Trie/Automata search algorithm.
+     *
+     * @return the indexes of the candidate rules in declaration order.
      */
-    private static final class SearchState<E> {
-        
-        // Saved node
-        final TrieNode<E> node;
-        
-        // Saved arch
-        final TrieArc<E> arc;
-        
-        // Saved input position
-        final int i;
-        
-        /** Constructor */
-        public SearchState(TrieNode<E> node, TrieArc<E> arc, int i) {
-            this.node = node;
-            this.arc = arc;
-            this.i = i;
+    private int[] find(CharSequence path) {
+        TrieNode node = automata;
+        final int length = path.length();
+        for (int i = 0; i < length; i++) {
+            final TrieNode next = node.getTarget(path.charAt(i));
+            if (next == null) {
+                break;
+            }
+            node = next;
         }
-
+        return node.getCandidates();
     }
 
     /**
-     * Trie/Automata search algorithm.
+     * Get the literal prefix of a regular expression.
+     * <p>
+     * Any string matched by the regular expression is guaranteed to start
+     * with the literal prefix.
+     *
+     * @param regex the regular expression.
+     * @return the literal prefix, or an empty string if there is none.
      */
-    private TrieNode<R> find(CharSequence uri, List<String> templateValues) {
-        
-        // URI Length
-        final int length = uri.length();
-        
-        // Backtracking stack
-        final Stack<SearchState<R>> stack = new Stack<SearchState<R>>();
-        
-        // Candidates saved by the way
-        final Stack<TrieNode<R>> candidates = new Stack<TrieNode<R>>();
-        
-        // Arcs marked as visited
-        final Set<TrieArc<R>> visitedArcs = new HashSet<TrieArc<R>>();
-        
-        // Actual node
-        TrieNode<R> node = automata;
-        
-        // Actual matching arc
-        TrieArc<R> nextArc = node.getFirstArc();
-        
-        // URI character pointer
-        int i = 0;
-        
-        // =====================================================================
-        // Trie Search with backtracking
-        // NFA simulation
-        // =====================================================================
-        
-        while (true) {
-            
-            // End of input reached
-            if (i >= length) {
-                
-                // Resource matched
-                if (node.hasValue()) break; // <<< EXIT POINT <<<<<<<<<<<<<<<<<<
-                
-                // Restore backtracking state
-                nextArc = null;
-                while (!stack.isEmpty() && nextArc == null) {
-                    SearchState<R> state = stack.pop();
-                    nextArc = state.arc.next;
-                    node = state.node;
-                    i = state.i;
+    private static String getLiteralPrefix(String regex) {
+        if (hasTopLevelAlternation(regex)) {
+            return "";
+        }
+
+        final StringBuilder prefix = new StringBuilder();
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= regex.length()) {
+                    break;
                 }
-                
-                // Skip visited arcs if necesary
-                if (nextArc != null) {
-                    while (visitedArcs.contains(nextArc)) {
-                        nextArc = nextArc.next;
-                    }
-                    if (nextArc != null) visitedArcs.add(nextArc);
+                c = regex.charAt(i + 1);
+                // Escape sequences such as \d or \Q are not literals
+                if (Character.isLetterOrDigit(c)) {
+                    break;
                 }
-                
-                // No more chance to match
-                if (nextArc == null) break; // <<< EXIT POINT <<<<<<<<<<<<<<<<<<
-                
-                // Go backtrack
-                continue;
-                
-            }
-            
-            // Accept a wildcard (Parameter)
-            if (nextArc == null && node.isWildcard()) {
-                int p = 0;
-                TrieArc<R> exitArc = null;
-                while ((i+p) < length && 
-                    (exitArc = node.matchExitArc(uri, i+p)) == null) p++;
-                if (exitArc != null) {
-                    nextArc = exitArc;
+                i++;
+            } else if (c == '?' || c == '*' || c == '+' || c == '{') {
+                // The previous literal is quantified and therefore optional
+                if (prefix.length() > 0) {
+                    prefix.setLength(prefix.length() - 1);
                 }
-                i = i+p;
-                continue;
-            }
-            
-            // No wildcard and no more paths, end.
-            else if (nextArc == null && !node.isWildcard()) {
-                break; // <<< EXIT POINT <<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<
-            }
-            
-            // Save backtracking point
-            if (nextArc.next != null && node.isWildcard()) {
-                stack.push(new SearchState<R>(node, nextArc, i));
+                break;
+            } else if (".^$|()[]}".indexOf(c) != -1) {
+                break;
             }
-            
-            // Save candidate
-            if (node.hasValue()) {
-                candidates.push(node);
-            }
-            
-            // Matching cases ==================================================
-            
-            // CASE 0 ----------------------------------------------------------
-            // If wildcard matches, exit wildcard.
-            if (node.isWildcard() && nextArc.match(uri, i) > 0) {
-                i += nextArc.length();
-                node = nextArc.target;
-                nextArc = node.getFirstArc();
-                continue;
-            }
-            
-            // CASE 1 ----------------------------------------------------------
-            // If wildcard does not match, try another escape sequence. 
-            //    if nothing matches, consume input.
-            else if (node.isWildcard() && nextArc.match(uri, i) == 0) {
-                nextArc = nextArc.next;
-                if (nextArc == null) {
-                    i++;
-                }
-                continue;
-            }
-            
-            // CASE 2 ----------------------------------------------------------
-            // Fixed sequence matches, consume input and follow the arc.
-            else if (!node.isWildcard() && nextArc.match(uri, i) > 0) {
-                i += nextArc.length();
-                node = nextArc.target;
-                nextArc = node.getFirstArc();
-                continue;
-            }
-            
-            // CASE 3 ----------------------------------------------------------
-            // Fixed sequence does not match, try the next.
-            else if (!node.isWildcard() && nextArc.match(uri, i) == 0) {
-                nextArc = nextArc.next;
-                continue;
-            }
-            
+            prefix.append(c);
         }
-        
-        // =====================================================================
-        // Select a matching candidate 
-        // =====================================================================
-        
-        // A perfect match
-        if (node.hasValue()) {
-            if (node.getPattern().match(uri, templateValues)) {
-                return node;
+
+        return prefix.toString();
+    }
+
+    private static boolean hasTopLevelAlternation(String regex) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                if (c == ']') inClass = false;
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
             }
         }
-        
-        // No direct matches, looking for a secondary candidate
-        while (!candidates.isEmpty()) {
-            TrieNode<R> s = candidates.pop();
-            if (s.getPattern().match(uri, templateValues)) {
-                return s;
+        return false;
+    }
+
+    private static final class SingleEntryIterator<T> implements Iterator<T> {
+        private T t;
+
+        SingleEntryIterator(T t) {
+            this.t = t;
+        }
+
+        public boolean hasNext() {
+            return t != null;
+        }
+
+        public T next() {
+            if (hasNext()) {
+                final T _t = t;
+                t = null;
+                return _t;
+            } else {
+                throw new NoSuchElementException();
             }
         }
-        
-        // Definitively it does not match
-        templateValues.clear();
-        return null;
-        
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class EmptyIterator<T> implements Iterator<T> {
+        public boolean hasNext() {
+            return false;
+        }
+
+        public T next() {
+            throw new NoSuchElementException();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
     }
-    
-    
 }
@@ -40,239 +40,178 @@
 
 package com.sun.jersey.server.impl.uri.rules.automata;
 
-import com.sun.jersey.api.uri.UriPattern;
-import com.sun.jersey.api.uri.UriTemplate;
-import java.util.Iterator;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * Represents a trie automata node.
+ * <p>
+ * Each arc consumes exactly one character of the path. A node holds the
+ * indexes of all rules whose literal prefix is equal to the path consumed
+ * to reach the node, merged in ascending order with the indexes of all
+ * the rules held by the ancestors of the node.
+ *
  * @author Frank D. Martinez. fmartinez@asimovt.com
  */
-public final class TrieNode<T> {
+public final class TrieNode {
 
-    /** TemplateParameters pattern regexp. */
-    public static final Pattern PARAMETER_PATTERN = 
-            Pattern.compile("\\{([\\w-\\._~]+?)\\}");
-    
-    /** Wildcard character */
-    private static final char WILDCARD_CHAR = '\0';
-    
-    /** First child arc (this is a linked tree structure) */
-    private TrieArc<T> firstArc;
-    
-    /** Last child arc (this is a linked tree structure) */
-    private TrieArc<T> lastArc;
-    
-    /** arc counter */
-    private int arcs = 0;
-    
-    /** Node's data */
-    private TrieNodeValue<T> value = new TrieNodeValue<T>();
-    
-    /** Node's UriPattern used to match. */
-    private UriPattern pattern;
+    private static final char[] EMPTY_CODES = new char[0];
+
+    private static final TrieNode[] EMPTY_TARGETS = new TrieNode[0];
+
+    private static final int[] EMPTY_RULES = new int[0];
+
+    /** Sorted characters of the arcs leaving this node. */
+    private char[] codes = EMPTY_CODES;
+
+    /** Target nodes of the arcs, in the same order as {@link #codes}. */
+    private TrieNode[] targets = EMPTY_TARGETS;
+
+    /** Rules whose literal prefix terminates at this node. */
+    private int[] rules = EMPTY_RULES;
+
+    /** Rules of this node merged with the rules of all ancestors. */
+    private int[] candidates = EMPTY_RULES;
 
-    /** Tells if this node is a wildcard node */
-    private boolean wildcard = false;
-    
-    /** wildcard setter. 
-     * @param b New wildcard value.
-     */
-    protected void setWildcard(boolean b) { 
-        wildcard = b; 
-    }
-    
-    /** value setter. 
-     * @param value New value.
-     * @param template Associated template.
-     */
-    protected void setValue(T value, UriPattern pattern) {
-        this.value.set(value);
-        this.pattern = pattern;
-    }
-    
     /** Creates a new instance of TrieNode */
-    protected TrieNode() {
-        super();
+    public TrieNode() {
     }
-    
-    /** Creates a new instance of TrieNode 
-     * @param value Initial value.
-     */
-    protected TrieNode(T value) {
-        this.value.set(value);
-    }
-    
+
     /**
-     * Search for a matching escape character in a wildcard sequence.
-     * @param c Test char.
+     * Adds a rule to the tree.
+     *
+     * @param prefix the literal prefix of the rule.
+     * @param rule the index of the rule.
      */
-    protected TrieArc<T> matchExitArc(CharSequence seq, int i) {
-        TrieArc<T> arc = firstArc;
-        while (arc != null) {
-            if (arc.match(seq, i) > 0) {
-                return arc;
-            }
-            arc = arc.next;
+    public void add(CharSequence prefix, int rule) {
+        TrieNode node = this;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.addArc(prefix.charAt(i));
         }
-        return null;
+        node.rules = append(node.rules, rule);
     }
-    
+
     /**
-     * Tells if there is a value in this node.
+     * Get the node reached by following the arc for a character.
+     *
+     * @param c the character.
+     * @return the target node, otherwise null if there is no arc for
+     *         the character.
      */
-    protected boolean hasValue() {
-        return !value.isEmpty();
+    public TrieNode getTarget(char c) {
+        final int i = indexOf(c);
+        return (i < 0) ? null : targets[i];
     }
-    
+
     /**
-     * Adds an arc at the end.
-     * @param arc New arc.
+     * Get the candidate rules of this node.
+     *
+     * @return the indexes, in ascending order, of the rules whose literal
+     *         prefix is a prefix of any path that reaches this node.
      */
-    private void addArc(TrieArc<T> arc) {
-        if (firstArc == null) {
-            firstArc = arc;
-        }
-        else {
-            lastArc.next = arc;
-        }
-        lastArc = arc;
-        arcs++;
+    public int[] getCandidates() {
+        return candidates;
     }
-    
+
     /**
-     * Adds a new node in the tree.
-     * @param path Tree position (URI)
-     * @param i Current position in path.
-     * @param value Value to be added at the end of path.
-     * @param pattern UriPattern associated with value.
+     * Pack and optimize the automata.
+     * <p>
+     * This method must be called after all rules have been added and
+     * before {@link #getCandidates()} is called.
      */
-    private boolean add(CharSequence path, int i, T value, 
-            UriPattern pattern) {
-        
-        // Case 1: NULL, The Last ----------------------------------------------
-        if (i >= path.length()) {
-            setValue(value, pattern);
-            return true;
-        }
-        
-        // Case 2: Recursive add -----------------------------------------------
-        char input = path.charAt(i);
-        boolean added = false;
-        TrieArc<T> arc = firstArc;
-        while (arc != null) {
-            if (arc.match(path, i) > 0) {
-                added = arc.target.add(path, i+1, value, pattern);
-                if (added) {
-                    return added;
-                }
-            }
-            arc = arc.next;
-        }
-        
-        // Case 3: Set as wildcard ---------------------------------------------
-        TrieNode<T> node;
-        if (input == WILDCARD_CHAR) {
-            setWildcard(true);
-            return add(path, i+1, value, pattern);
-        }
-        
-        // Case 4: Just Add ----------------------------------------------------
-        else {
-            node = new TrieNode<T>();
-            addArc(new TrieArc<T>(node, input));
-            return node.add(path, i+1, value, pattern);
-        }
-        
+    public void pack() {
+        pack(EMPTY_RULES);
     }
-    
-    /**
-     * Adds a new node to the tree.
-     * @param path Matching URI
-     * @param value Value to be added.
-     * @param template Associated UriPattern.
-     */
-    protected void add(String path, T value, UriPattern pattern) {
-        
-        // Replace All parameter macro by a WILDCARD character.
-        Matcher matcher = PARAMETER_PATTERN.matcher(path);
-        String uri = matcher.replaceAll(String.valueOf(WILDCARD_CHAR));
-        
-        // If ends with '/', add the parent
-        if (uri.endsWith("/") && uri.length() > 1) {
-            add(uri.substring(0, uri.length()-1), 0, value, pattern);
+
+    private void pack(int[] inherited) {
+        candidates = merge(inherited, rules);
+        for (TrieNode target : targets) {
+            target.pack(candidates);
         }
-        
-        // Add to root
-        add(uri, 0, value, pattern);
-        
     }
-    
-    /**
-     * @see java.lang.Object#toString()
-     */
-    @Override public String toString() {
-        StringBuilder out = new StringBuilder();
-        toStringRepresentation(out, 0, new char[] {'\0'});
-        return out.toString();
-    }
-    
-    /**
-     * Builds a string representation of this subtree.
-     * @param out Output string.
-     * @param level indentation level.
-     * @param c Transition char.
-     */
-    private void toStringRepresentation(StringBuilder out, int level, char[] c) {
-        for (int i=0; i<level; i++) out.append(' ');
-        out.append("ARC(" + new String(c) + ") ->");
-        out.append(getClass().getSimpleName() + (wildcard?"*":""));
-        out.append(" ");
-        out.append(value);
-        out.append('\n');
-        TrieArc<T> arc = firstArc;
-        while (arc != null) {
-            arc.target.toStringRepresentation(out, level+2, arc.code);
-            arc = arc.next;
+
+    private TrieNode addArc(char c) {
+        int i = indexOf(c);
+        if (i >= 0) {
+            return targets[i];
         }
-    }
 
-    /** pattern getter. */
-    public UriPattern getPattern() {
-        return pattern;
-    }
+        i = -(i + 1);
+        final TrieNode node = new TrieNode();
 
-    /** value getter. */
-    public Iterator<T> getValue() {
-        return value.getIterator();
+        final char[] newCodes = new char[codes.length + 1];
+        System.arraycopy(codes, 0, newCodes, 0, i);
+        System.arraycopy(codes, i, newCodes, i + 1, codes.length - i);
+        newCodes[i] = c;
+
+        final TrieNode[] newTargets = new TrieNode[targets.length + 1];
+        System.arraycopy(targets, 0, newTargets, 0, i);
+        System.arraycopy(targets, i, newTargets, i + 1, targets.length - i);
+        newTargets[i] = node;
+
+        codes = newCodes;
+        targets = newTargets;
+        return node;
     }
 
-    /** wildcard getter. */
-    protected boolean isWildcard() {
-        return wildcard;
+    private int indexOf(char c) {
+        int low = 0;
+        int high = codes.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final char midCode = codes[mid];
+            if (midCode < c) {
+                low = mid + 1;
+            } else if (midCode > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
     }
 
-    /** firstArch getter. */
-    protected TrieArc<T> getFirstArc() {
-        return firstArc;
+    private static int[] append(int[] a, int v) {
+        final int[] copy = new int[a.length + 1];
+        System.arraycopy(a, 0, copy, 0, a.length);
+        copy[a.length] = v;
+        return copy;
     }
 
-    /** arcs getter. */
-    public int getArcs() {
-        return arcs;
+    private static int[] merge(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        } else if (a.length == 0) {
+            return b;
+        }
+
+        final int[] m = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            m[k++] = (a[i] <= b[j]) ? a[i++] : b[j++];
+        }
+        while (i < a.length) {
+            m[k++] = a[i++];
+        }
+        while (j < b.length) {
+            m[k++] = b[j++];
+        }
+        return m;
     }
-    
+
     /**
-     * Pack and optimize the automata.
+     * @see java.lang.Object#toString()
      */
-    public void pack() {
-        TrieArc<T> arc = firstArc;
-        while (arc != null) {
-            arc.pack();
-            arc = arc.next;
+    @Override public String toString() {
+        StringBuilder out = new StringBuilder();
+        toStringRepresentation(out, 0, '\0');
+        return out.toString();
+    }
+
+    private void toStringRepresentation(StringBuilder out, int level, char c) {
+        for (int i = 0; i < level; i++) out.append(' ');
+        out.append("ARC(").append(c).append(") -> ");
+        for (int r : rules) out.append(r).append(' ');
+        out.append('\n');
+        for (int i = 0; i < codes.length; i++) {
+            targets[i].toStringRepresentation(out, level + 2, codes[i]);
         }
     }
-    
 }
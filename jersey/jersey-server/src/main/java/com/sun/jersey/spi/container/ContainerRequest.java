@@ -41,7 +41,6 @@
 package com.sun.jersey.spi.container;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
@@ -89,7 +88,7 @@ import com.sun.jersey.core.header.QualitySourceMediaType;
 import com.sun.jersey.core.header.reader.HttpHeaderReader;
 import com.sun.jersey.core.reflection.ReflectionHelper;
 import com.sun.jersey.core.util.MultivaluedMapImpl;
-import com.sun.jersey.core.util.ReaderWriter;
+import com.sun.jersey.core.util.SpillingBuffer;
 import com.sun.jersey.server.impl.VariantSelector;
 import com.sun.jersey.server.impl.model.HttpHelper;
 import com.sun.jersey.spi.MessageBodyWorkers;
@@ -116,6 +115,12 @@ public class ContainerRequest implements HttpRequestContext {
 
     public static final String VARY_HEADER = "Vary";
 
+    /**
+     * The property whose value is the list of buffers of entities that are
+     * released by {@link #releaseBuffers() }.
+     */
+    private static final String BUFFERS_PROPERTY = ContainerRequest.class.getName() + ".buffers";
+
     private final WebApplication wa;
 
     private final boolean isTraceEnabled;
@@ -308,6 +313,34 @@ public class ContainerRequest implements HttpRequestContext {
         return wa.getMessageBodyWorkers();
     }
 
+    /**
+     * Release the buffers of the entities set using
+     * {@link #setEntity(java.lang.Class, java.lang.reflect.Type, java.lang.annotation.Annotation[], javax.ws.rs.core.MediaType, javax.ws.rs.core.MultivaluedMap, java.lang.Object) }
+     * or buffered by {@link #getFormParameters() }, deleting any temporary
+     * files. The entity input stream must not be read after the buffers are
+     * released.
+     * <p>
+     * This method is invoked by the web application when the request goes
+     * out of scope.
+     */
+    public void releaseBuffers() {
+        final List<SpillingBuffer> buffers = (List<SpillingBuffer>) getProperties().remove(BUFFERS_PROPERTY);
+        if (buffers != null) {
+            for (SpillingBuffer b : buffers) {
+                b.release();
+            }
+        }
+    }
+
+    private void addBuffer(SpillingBuffer b) {
+        List<SpillingBuffer> buffers = (List<SpillingBuffer>) getProperties().get(BUFFERS_PROPERTY);
+        if (buffers == null) {
+            buffers = new ArrayList<SpillingBuffer>(1);
+            getProperties().put(BUFFERS_PROPERTY, buffers);
+        }
+        buffers.add(b);
+    }
+
     // Traceable
     @Override
     public boolean isTracingEnabled() {
@@ -424,14 +457,14 @@ public class ContainerRequest implements HttpRequestContext {
             if (decodedQueryParameters != null)
                 return decodedQueryParameters;
 
-            return decodedQueryParameters = UriComponent.decodeQuery(
-                    getRequestUri(), true);
+            return decodedQueryParameters = UriComponent.decodeQueryLazily(
+                    getRequestUri().getRawQuery(), true);
         } else {
             if (encodedQueryParameters != null)
                 return encodedQueryParameters;
 
-            return encodedQueryParameters = UriComponent.decodeQuery(
-                    getRequestUri(), false);
+            return encodedQueryParameters = UriComponent.decodeQueryLazily(
+                    getRequestUri().getRawQuery(), false);
         }
     }
 
@@ -537,15 +570,16 @@ public class ContainerRequest implements HttpRequestContext {
                     ReflectionHelper.objectToString(writer)));
         }
 
-        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        final SpillingBuffer buffer = new SpillingBuffer();
 
         try {
-            writer.writeTo(entity, type, genericType, annotations, mediaType, httpHeaders, byteArrayOutputStream);
+            writer.writeTo(entity, type, genericType, annotations, mediaType, httpHeaders, buffer);
+            this.entity = buffer.getInputStream();
+            addBuffer(buffer);
         } catch (IOException e) {
+            buffer.release();
             throw new MappableContainerException(e);
         }
-
-        this.entity = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
     }
 
     @Override
@@ -590,22 +624,25 @@ public class ContainerRequest implements HttpRequestContext {
     public Form getFormParameters() {
         if (MediaTypes.typeEquals(MediaType.APPLICATION_FORM_URLENCODED_TYPE, getMediaType())) {
             InputStream in = getEntityInputStream();
-            if (in.getClass() != ByteArrayInputStream.class) {
+            if (in.getClass() != ByteArrayInputStream.class && in.getClass() != SpillingBuffer.Input.class) {
                 // Buffer input
-                ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
                 try {
-                    ReaderWriter.writeTo(in, byteArrayOutputStream);
+                    final SpillingBuffer buffer = SpillingBuffer.readFrom(in, SpillingBuffer.THRESHOLD);
+                    addBuffer(buffer);
+                    in = buffer.getInputStream();
                 } catch (IOException e) {
                     throw new IllegalArgumentException(e);
                 }
 
-                in = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
                 setEntityInputStream(in);
             }
 
-            ByteArrayInputStream byteArrayInputStream = (ByteArrayInputStream) in;
             Form f = getEntity(Form.class);
-            byteArrayInputStream.reset();
+            try {
+                in.reset();
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e);
+            }
             return f;
         } else {
             return new Form();
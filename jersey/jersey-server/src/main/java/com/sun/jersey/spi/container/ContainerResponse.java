@@ -47,8 +47,11 @@ import com.sun.jersey.api.core.HttpResponseContext;
 import com.sun.jersey.api.core.TraceInformation;
 import com.sun.jersey.core.reflection.ReflectionHelper;
 import com.sun.jersey.core.spi.factory.ResponseImpl;
+import com.sun.jersey.core.util.FileRegionWriter;
+import com.sun.jersey.core.util.ReaderWriter;
 import com.sun.jersey.server.impl.uri.rules.HttpMethodRule;
 import com.sun.jersey.spi.MessageBodyWorkers;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
@@ -113,7 +116,7 @@ public class ContainerResponse implements HttpResponseContext {
 
     private Annotation[] annotations = EMPTY_ANNOTATIONS;
 
-    private final class CommittingOutputStream extends OutputStream {
+    private final class CommittingOutputStream extends OutputStream implements FileRegionWriter {
         private final long size;
 
         private OutputStream o;
@@ -139,6 +142,12 @@ public class ContainerResponse implements HttpResponseContext {
             o.write(b);
         }
 
+        @Override
+        public void writeFileRegion(File file, long position, long count) throws IOException {
+            commitWrite();
+            ReaderWriter.writeTo(file, position, count, o);
+        }
+
         @Override
         public void flush() throws IOException {
             commitWrite();
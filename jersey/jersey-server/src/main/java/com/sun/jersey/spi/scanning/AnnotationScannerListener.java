@@ -39,16 +39,25 @@
  */
 package com.sun.jersey.spi.scanning;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.sun.jersey.core.osgi.OsgiRegistry;
 import com.sun.jersey.core.reflection.ReflectionHelper;
 import com.sun.jersey.core.spi.scanning.ScannerListener;
+import com.sun.jersey.core.util.ReaderWriter;
 
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.Attribute;
@@ -69,6 +78,11 @@ import org.objectweb.asm.Opcodes;
  * <p>
  * Such an annotated Java class of a Java class file is loaded if the class
  * is public or is an inner class that is static and public.
+ * <p>
+ * If the listener is created with an executor then Java class files are
+ * processed, and the annotated Java classes loaded, in parallel using that
+ * executor. The set of annotated classes is in the same order as if the Java
+ * class files were processed sequentially.
  *
  * @author Paul.Sandoz@Sun.Com
  */
@@ -81,6 +95,10 @@ public class AnnotationScannerListener implements ScannerListener {
 
     private final AnnotatedClassVisitor classVisitor;
 
+    private final ExecutorService executor;
+
+    private final List<Future<List<Class<?>>>> pending;
+
     /**
      * Create a scanner listener to check for annotated Java classes in Java
      * class files.
@@ -103,18 +121,60 @@ public class AnnotationScannerListener implements ScannerListener {
      */
     public AnnotationScannerListener(ClassLoader classloader,
                                      Class<? extends Annotation>... annotations) {
+        this(classloader, null, annotations);
+    }
+
+    /**
+     * Create a scanner listener to check for annotated Java classes in Java
+     * class files.
+     *
+     * @param classloader the class loader to use to load Java classes that
+     *        are annotated with any one of the annotations.
+     * @param executor the executor to process Java class files in parallel,
+     *        or null if Java class files are processed sequentially. The
+     *        executor is not shut down by this listener.
+     * @param annotations the set of annotation classes to check on Java class
+     *        files.
+     */
+    public AnnotationScannerListener(ClassLoader classloader, ExecutorService executor,
+                                     Class<? extends Annotation>... annotations) {
         this.classloader = classloader;
         this.classes = new LinkedHashSet<Class<?>>();
         this.annotations = getAnnotationSet(annotations);
-        this.classVisitor = new AnnotatedClassVisitor();
+        this.classVisitor = new AnnotatedClassVisitor(classes);
+        this.executor = executor;
+        this.pending = new ArrayList<Future<List<Class<?>>>>();
     }
 
     /**
      * Get the set of annotated classes.
+     * <p>
+     * If Java class files are processed in parallel then this method
+     * waits for the processing of the Java class files scanned so far
+     * to complete.
      *
      * @return the set of annotated classes.
+     * @throws RuntimeException if an annotated class could not be loaded.
      */
     public Set<Class<?>> getAnnotatedClasses() {
+        try {
+            for (Future<List<Class<?>>> f : pending) {
+                classes.addAll(f.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while processing class files", ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            pending.clear();
+        }
         return classes;
     }
 
@@ -133,13 +193,34 @@ public class AnnotationScannerListener implements ScannerListener {
     }
 
     public void onProcess(String name, InputStream in) throws IOException {
-        new ClassReader(in).accept(classVisitor, 0);
+        if (executor == null) {
+            new ClassReader(in).accept(classVisitor, 0);
+            return;
+        }
+
+        // The input stream is only valid for the duration of this method
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReaderWriter.writeTo(in, out);
+        final byte[] b = out.toByteArray();
+        pending.add(executor.submit(new Callable<List<Class<?>>>() {
+            @Override
+            public List<Class<?>> call() {
+                final List<Class<?>> l = new ArrayList<Class<?>>(1);
+                new ClassReader(b).accept(new AnnotatedClassVisitor(l), 0);
+                return l;
+            }
+        }));
     }
 
     //
 
     private final class AnnotatedClassVisitor implements ClassVisitor {
 
+        /**
+         * The annotated classes found.
+         */
+        private final Collection<Class<?>> annotatedClasses;
+
         /**
          * The name of the visited class.
          */
@@ -153,6 +234,10 @@ public class AnnotationScannerListener implements ScannerListener {
          */
         private boolean isAnnotated;
 
+        AnnotatedClassVisitor(Collection<Class<?>> annotatedClasses) {
+            this.annotatedClasses = annotatedClasses;
+        }
+
         public void visit(int version, int access, String name,
                           String signature, String superName, String[] interfaces) {
             className = name;
@@ -183,7 +268,7 @@ public class AnnotationScannerListener implements ScannerListener {
             if (isScoped && isAnnotated) {
                 // Correctly scoped and annotated
                 // add to the set of matching classes.
-                classes.add(getClassForName(className.replaceAll("/", ".")));
+                annotatedClasses.add(getClassForName(className.replaceAll("/", ".")));
             }
         }
 
@@ -41,6 +41,7 @@ package com.sun.jersey.spi.scanning;
 
 import javax.ws.rs.Path;
 import javax.ws.rs.ext.Provider;
+import java.util.concurrent.ExecutorService;
 
 /**
  * An annotation-based scanning listener for classes annotated with
@@ -69,4 +70,17 @@ public final class PathProviderScannerListener extends AnnotationScannerListener
     public PathProviderScannerListener(ClassLoader classloader) {
         super(classloader, Path.class, Provider.class);
     }
+
+    /**
+     * Create a scanning listener to check for Java classes in Java
+     * class files annotated with {@link Path} or {@link Provider}.
+     *
+     * @param classloader the class loader to use to load Java classes that
+     *        are annotated with any one of the annotations.
+     * @param executor the executor to process Java class files in parallel,
+     *        or null if Java class files are processed sequentially.
+     */
+    public PathProviderScannerListener(ClassLoader classloader, ExecutorService executor) {
+        super(classloader, executor, Path.class, Provider.class);
+    }
 }
@@ -71,9 +71,10 @@ public class WebAppResourceConfig extends ScanningResourceConfig {
      * @param sc the servlet context.
      */
     public WebAppResourceConfig(Map<String, Object> props, ServletContext sc) {
-        this(getPaths(props), sc);
-        
+        // Set the properties first as they may configure the scanning
         setPropertiesAndFeatures(props);
+
+        init(getPaths(props), sc);
     }
 
     /**
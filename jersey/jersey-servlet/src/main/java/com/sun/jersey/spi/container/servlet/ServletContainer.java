@@ -246,6 +246,31 @@ public class ServletContainer extends HttpServlet implements Filter {
     public static final String FEATURE_FILTER_FORWARD_ON_404
             = "com.sun.jersey.config.feature.FilterForwardOn404";
 
+    /**
+     * If true then requests that are suspended by resource methods, using
+     * {@link com.sun.jersey.api.core.AsyncResponse}, are processed
+     * asynchronously using the Servlet 3.0 API. The request thread is
+     * released and the response is written, and the asynchronous processing
+     * completed, when the request is resumed.
+     * <p>
+     * The servlet or filter must declare that asynchronous processing is
+     * supported, for example by declaring
+     * <code>&lt;async-supported&gt;true&lt;/async-supported&gt;</code> in
+     * the web.xml. If this feature is false, or asynchronous processing is
+     * not supported, then the request thread waits until a suspended request
+     * is resumed.
+     * <p>
+     * Injected instances of {@link HttpServletRequest} and
+     * {@link HttpServletResponse} may only be used on the request thread,
+     * and not on the thread that resumes a request.
+     * <p>
+     * This feature requires a Servlet 3.0 container.
+     * <p>
+     * The default value is false.
+     */
+    public static final String FEATURE_ASYNC_SUPPORTED
+            = "com.sun.jersey.config.feature.AsyncSupported";
+
     /**
      * The filter context path.
      * <p>
@@ -526,7 +551,9 @@ public class ServletContainer extends HttpServlet implements Filter {
      * @param response the {@link HttpServletResponse} object that
      *        contains the response the Web component returns
      *        to the client.
-     * @return the status code of the response.
+     * @return the status code of the response, otherwise -1 if the request
+     *         is suspended and the response will be written when the request
+     *         is resumed.
      * @exception IOException if an input or output error occurs
      *            while the Web component is handling the
      *            HTTP request.
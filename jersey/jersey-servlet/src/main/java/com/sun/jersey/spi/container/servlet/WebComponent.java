@@ -68,6 +68,7 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.SecurityContext;
 
 import javax.naming.NamingException;
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -96,6 +97,7 @@ import com.sun.jersey.server.impl.managedbeans.ManagedBeanComponentProviderFacto
 import com.sun.jersey.server.impl.model.method.dispatch.FormDispatchProvider;
 import com.sun.jersey.server.impl.monitoring.GlassFishMonitoringInitializer;
 import com.sun.jersey.server.probes.UriRuleProbeProvider;
+import com.sun.jersey.spi.container.AsyncContainerResponseWriter;
 import com.sun.jersey.spi.container.ContainerListener;
 import com.sun.jersey.spi.container.ContainerNotifier;
 import com.sun.jersey.spi.container.ContainerRequest;
@@ -156,6 +158,8 @@ public class WebComponent implements ContainerListener {
 
     private boolean useSetStatusOn404 = false;
 
+    private boolean asyncSupported = false;
+
     private WebApplication application;
 
     public WebComponent() {
@@ -207,6 +211,8 @@ public class WebComponent implements ContainerListener {
             useSetStatusOn404 = true;
         }
 
+        asyncSupported = resourceConfig.getFeature(ServletContainer.FEATURE_ASYNC_SUPPORTED);
+
         load();
 
         Object o = resourceConfig.getProperties().get(
@@ -235,7 +241,7 @@ public class WebComponent implements ContainerListener {
             application.destroy();
     }
 
-    private final static class Writer extends OutputStream implements ContainerResponseWriter {
+    private static class Writer extends OutputStream implements ContainerResponseWriter {
         final HttpServletResponse response;
 
         final boolean useSetStatusOn404;
@@ -348,6 +354,76 @@ public class WebComponent implements ContainerListener {
                 }
             }
         }
+
+        /**
+         * Determine whether the response was suspended, in which case the
+         * response is written, possibly from another thread, when the request
+         * is resumed.
+         * <p>
+         * The web application suspends the response, and detaches the request,
+         * atomically with respect to the resumption of the request, thus this
+         * method must only be invoked after the web application returns.
+         *
+         * @return true if the response was suspended.
+         */
+        boolean isSuspended() {
+            return false;
+        }
+    }
+
+    /**
+     * The writer used when {@link ServletContainer#FEATURE_ASYNC_SUPPORTED}
+     * is enabled. This class is separate from {@link Writer} so that the
+     * Servlet 3.0 API is only required when the feature is enabled.
+     */
+    private final static class AsyncWriter extends Writer implements AsyncContainerResponseWriter {
+        final HttpServletRequest request;
+
+        volatile AsyncContext asyncContext;
+
+        AsyncWriter(boolean useSetStatusOn404, HttpServletRequest request, HttpServletResponse response) {
+            super(useSetStatusOn404, response);
+            this.request = request;
+        }
+
+        public boolean suspend() {
+            if (!request.isAsyncSupported()) {
+                LOGGER.warning("The request cannot be processed asynchronously, " +
+                        "the servlet or filter does not declare that asynchronous processing is supported. " +
+                        "The request thread will wait until the request is resumed.");
+                return false;
+            }
+
+            final AsyncContext ac;
+            try {
+                ac = request.startAsync();
+            } catch (IllegalStateException e) {
+                LOGGER.log(Level.WARNING, "The request cannot be processed asynchronously. " +
+                        "The request thread will wait until the request is resumed.", e);
+                return false;
+            }
+            // The suspended request is timed out by the web application
+            ac.setTimeout(0);
+            asyncContext = ac;
+            return true;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            try {
+                super.finish();
+            } finally {
+                final AsyncContext ac = asyncContext;
+                if (ac != null) {
+                    ac.complete();
+                }
+            }
+        }
+
+        @Override
+        boolean isSuspended() {
+            return asyncContext != null;
+        }
     }
 
     /**
@@ -361,7 +437,9 @@ public class WebComponent implements ContainerListener {
      * @param response   the {@link HttpServletResponse} object that
      *                   contains the response the Web component returns
      *                   to the client.
-     * @return the status code of the response.
+     * @return the status code of the response, otherwise -1 if the request
+     *         is suspended and the response will be written when the request
+     *         is resumed.
      * @throws IOException      if an input or output error occurs
      *                          while the Web component is handling the
      *                          HTTP request.
@@ -412,9 +490,11 @@ public class WebComponent implements ContainerListener {
             requestInvoker.set(request);
             responseInvoker.set(response);
 
-            final Writer w = new Writer(useSetStatusOn404, response);
+            final Writer w = (asyncSupported)
+                    ? new AsyncWriter(useSetStatusOn404, request, response)
+                    : new Writer(useSetStatusOn404, response);
             _application.handleRequest(cRequest, w);
-            return w.cResponse.getStatus();
+            return (w.isSuspended()) ? -1 : w.cResponse.getStatus();
         } catch (MappableContainerException ex) {
             traceOnException(cRequest, response);
             throw new ServletException(ex.getCause());
@@ -0,0 +1,311 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.sun.jersey.spi.container.servlet;
+
+import com.sun.jersey.api.core.AsyncResponse;
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.api.core.ResourceConfig;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import junit.framework.TestCase;
+
+/**
+ * Tests the suspension and resumption of requests using the asynchronous
+ * processing of Servlet 3.0, see {@link ServletContainer#FEATURE_ASYNC_SUPPORTED}.
+ */
+public class AsyncServletTest extends TestCase {
+
+    public AsyncServletTest(String testName) {
+        super(testName);
+    }
+
+    static volatile AsyncResponse suspended;
+
+    @Path("/")
+    public static class AsyncResource {
+        @GET
+        @Path("suspend")
+        @Produces("text/plain")
+        public void suspend(@Context AsyncResponse ar) {
+            ar.suspend();
+            suspended = ar;
+        }
+
+        @GET
+        @Path("timeout")
+        public void timeout(@Context AsyncResponse ar) {
+            ar.suspend(100, TimeUnit.MILLISECONDS);
+        }
+
+        @GET
+        @Path("immediately")
+        @Produces("text/plain")
+        public void immediately(@Context AsyncResponse ar) {
+            ar.suspend();
+            ar.resume("immediately");
+        }
+
+        @GET
+        @Path("error")
+        public void error(@Context AsyncResponse ar) {
+            ar.suspend();
+            suspended = ar;
+            throw new WebApplicationException(409);
+        }
+    }
+
+    /**
+     * Records the invocations of the servlet request, servlet response and
+     * asynchronous context.
+     */
+    private static class Exchange implements InvocationHandler {
+        final boolean asyncSupported;
+
+        final ByteArrayOutputStream entity = new ByteArrayOutputStream();
+
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        final Map<String, Object> invocations = new ConcurrentHashMap<String, Object>();
+
+        volatile int status;
+
+        Exchange(boolean asyncSupported) {
+            this.asyncSupported = asyncSupported;
+        }
+
+        HttpServletRequest request() {
+            return proxy(HttpServletRequest.class, this);
+        }
+
+        HttpServletResponse response() {
+            return proxy(HttpServletResponse.class, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final String name = method.getName();
+            invocations.put(name, (args != null && args.length > 0 && args[0] != null) ? args[0] : name);
+            if (name.equals("getMethod")) {
+                return "GET";
+            } else if (name.equals("getHeaderNames")) {
+                return Collections.enumeration(Collections.<String>emptyList());
+            } else if (name.equals("getInputStream")) {
+                final ByteArrayInputStream in = new ByteArrayInputStream(new byte[0]);
+                return new ServletInputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        return in.read();
+                    }
+                };
+            } else if (name.equals("getOutputStream")) {
+                return new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        entity.write(b);
+                    }
+                };
+            } else if (name.equals("isAsyncSupported")) {
+                return asyncSupported;
+            } else if (name.equals("startAsync")) {
+                return proxy(AsyncContext.class, this);
+            } else if (name.equals("complete")) {
+                completed.countDown();
+            } else if (name.equals("setStatus") || name.equals("sendError")) {
+                status = (Integer) args[0];
+            }
+            return defaultValue(method.getReturnType());
+        }
+    }
+
+    private static Object defaultValue(Class<?> c) {
+        if (c == boolean.class) {
+            return false;
+        } else if (c == int.class) {
+            return 0;
+        } else if (c == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static <T> T proxy(Class<T> c, InvocationHandler h) {
+        return c.cast(Proxy.newProxyInstance(c.getClassLoader(), new Class[] {c}, h));
+    }
+
+    private static final URI BASE_URI = URI.create("http://localhost/");
+
+    private WebComponent wc;
+
+    private void initiate() throws Exception {
+        final ResourceConfig rc = new DefaultResourceConfig(AsyncResource.class);
+        rc.getFeatures().put(ServletContainer.FEATURE_ASYNC_SUPPORTED, true);
+        wc = new WebComponent(rc);
+        wc.init(new WebServletConfig(null) {
+            @Override
+            public String getName() {
+                return "async";
+            }
+
+            @Override
+            public String getInitParameter(String name) {
+                return null;
+            }
+
+            @Override
+            public Enumeration getInitParameterNames() {
+                return Collections.enumeration(Collections.<String>emptyList());
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return proxy(ServletContext.class, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return defaultValue(method.getReturnType());
+                    }
+                });
+            }
+        });
+        suspended = null;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (wc != null) {
+            wc.destroy();
+        }
+        super.tearDown();
+    }
+
+    private int service(String path, Exchange e) throws Exception {
+        return wc.service(BASE_URI, BASE_URI.resolve(path), e.request(), e.response());
+    }
+
+    public void testSuspendResume() throws Exception {
+        initiate();
+
+        final Exchange e = new Exchange(true);
+        assertEquals(-1, service("suspend", e));
+        assertTrue(e.invocations.containsKey("startAsync"));
+        assertEquals(0L, e.invocations.get("setTimeout"));
+        assertEquals(1, e.completed.getCount());
+
+        assertNotNull(suspended);
+        assertTrue(suspended.resume("resumed"));
+        assertTrue(e.completed.await(10, TimeUnit.SECONDS));
+        assertEquals(200, e.status);
+        assertEquals("resumed", e.entity.toString("UTF-8"));
+    }
+
+    public void testResumeBeforeReturn() throws Exception {
+        initiate();
+
+        final Exchange e = new Exchange(true);
+        assertEquals(200, service("immediately", e));
+        assertFalse(e.invocations.containsKey("startAsync"));
+        assertEquals("immediately", e.entity.toString("UTF-8"));
+    }
+
+    public void testTimeout() throws Exception {
+        initiate();
+
+        final Exchange e = new Exchange(true);
+        assertEquals(-1, service("timeout", e));
+        assertTrue(e.completed.await(10, TimeUnit.SECONDS));
+        assertEquals(503, e.status);
+    }
+
+    public void testError() throws Exception {
+        initiate();
+
+        final Exchange e = new Exchange(true);
+        assertEquals(409, service("error", e));
+        assertFalse(e.invocations.containsKey("startAsync"));
+        assertEquals(409, e.status);
+
+        assertNotNull(suspended);
+        assertFalse(suspended.resume("resumed"));
+    }
+
+    public void testAsyncNotSupported() throws Exception {
+        initiate();
+
+        final Exchange e = new Exchange(false);
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (suspended == null) {
+                        Thread.sleep(10);
+                    }
+                } catch (InterruptedException ex) {
+                }
+                suspended.resume("resumed");
+            }
+        }.start();
+
+        // The request thread waits until the request is resumed
+        assertEquals(200, service("suspend", e));
+        assertFalse(e.invocations.containsKey("startAsync"));
+        assertEquals("resumed", e.entity.toString("UTF-8"));
+    }
+}
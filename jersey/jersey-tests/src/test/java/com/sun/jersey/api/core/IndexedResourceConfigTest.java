@@ -0,0 +1,210 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.api.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import javax.ws.rs.Path;
+import junit.framework.TestCase;
+
+public class IndexedResourceConfigTest extends TestCase {
+
+    private static final String[][] SOURCES = {
+        {"index/RootResource.java",
+            "package index; @javax.ws.rs.Path(\"root\") public class RootResource {" +
+            "  @javax.ws.rs.GET public String get() { return \"root\"; } }"},
+        {"index/PackageResource.java",
+            "package index; @javax.ws.rs.Path(\"package\") class PackageResource {}"},
+        {"index/Outer.java",
+            "package index; public class Outer {" +
+            "  @javax.ws.rs.Path(\"static\") public static class StaticResource {}" +
+            "  @javax.ws.rs.Path(\"inner\") public class InnerResource {} }"},
+        {"index/SubResource.java",
+            "package index; public class SubResource {" +
+            "  @javax.ws.rs.Path(\"sub\") public String get() { return \"sub\"; } }"},
+        {"index/StringProvider.java",
+            "package index; @javax.ws.rs.ext.Provider public class StringProvider {}"}
+    };
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("jersey-index", null);
+        dir.delete();
+        dir.mkdir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(dir);
+    }
+
+    public void testProcessor() throws Exception {
+        final ClassLoader cl = compile();
+
+        final List<String> names = new ArrayList<String>();
+        for (Class<?> c : IndexedResourceConfig.getClasses(cl)) {
+            names.add(c.getName());
+        }
+        assertEquals(Arrays.asList("index.Outer$StaticResource", "index.RootResource", "index.StringProvider"),
+                names);
+    }
+
+    public void testIncrementalCompilation() throws Exception {
+        compile();
+        // Remove a class, and the annotation of a class, of the index
+        new File(dir, "index/StringProvider.class").delete();
+        new File(dir, "index/StringProvider.java").delete();
+        final ClassLoader cl = compile(
+                new String[] {"index/RootResource.java",
+                    "package index; public class RootResource {}"},
+                new String[] {"index/NewResource.java",
+                    "package index; @javax.ws.rs.Path(\"new\") public class NewResource {}"});
+
+        final List<String> names = new ArrayList<String>();
+        for (Class<?> c : IndexedResourceConfig.getClasses(cl)) {
+            names.add(c.getName());
+        }
+        assertEquals(Arrays.asList("index.NewResource", "index.Outer$StaticResource"), names);
+    }
+
+    public void testResourceConfig() throws Exception {
+        final ClassLoader cl = compile();
+
+        final Thread t = Thread.currentThread();
+        final ClassLoader ocl = t.getContextClassLoader();
+        t.setContextClassLoader(cl);
+        try {
+            final HashMap<String, Object> props = new HashMap<String, Object>();
+            props.put(ResourceConfig.FEATURE_TRACE, true);
+            final IndexedResourceConfig rc = new IndexedResourceConfig(props);
+
+            assertTrue(rc.getFeature(ResourceConfig.FEATURE_TRACE));
+            assertEquals(3, rc.getClasses().size());
+            assertEquals(2, rc.getRootResourceClasses().size());
+            assertEquals(1, rc.getProviderClasses().size());
+            assertEquals("index.StringProvider", rc.getProviderClasses().iterator().next().getName());
+        } finally {
+            t.setContextClassLoader(ocl);
+        }
+    }
+
+    public void testNoIndex() {
+        final ClassLoader cl = new URLClassLoader(new URL[0], null);
+
+        assertTrue(IndexedResourceConfig.getClasses(cl).isEmpty());
+    }
+
+    public void testUnknownClass() throws Exception {
+        final File index = new File(dir, IndexedResourceConfig.INDEX_RESOURCE);
+        index.getParentFile().mkdirs();
+        write(index, "# comment\n\nindex.Unknown\n");
+        final ClassLoader cl = new URLClassLoader(new URL[] {dir.toURI().toURL()}, null);
+
+        try {
+            IndexedResourceConfig.getClasses(cl);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getCause() instanceof ClassNotFoundException);
+        }
+    }
+
+    private ClassLoader compile() throws Exception {
+        return compile(SOURCES);
+    }
+
+    private ClassLoader compile(String[]... sources) throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final StandardJavaFileManager fm = compiler.getStandardFileManager(null, null, null);
+        try {
+            final List<File> files = new ArrayList<File>();
+            for (String[] source : sources) {
+                final File f = new File(dir, source[0]);
+                f.getParentFile().mkdirs();
+                write(f, source[1]);
+                files.add(f);
+            }
+
+            final String jaxrs = new File(Path.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fm, null,
+                    Arrays.asList("-d", dir.getPath(), "-classpath", jaxrs + File.pathSeparator + dir.getPath()),
+                    null, fm.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(Collections.singleton(new ResourceIndexProcessor()));
+            assertTrue(task.call());
+        } finally {
+            fm.close();
+        }
+        return new URLClassLoader(new URL[] {dir.toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    private static void write(File f, String s) throws IOException {
+        final Writer w = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+        try {
+            w.write(s);
+        } finally {
+            w.close();
+        }
+    }
+
+    private static void delete(File f) {
+        final File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) {
+                delete(c);
+            }
+        }
+        f.delete();
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.impl.application;
+
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.api.core.ResourceConfig;
+import com.sun.jersey.api.model.AbstractMethod;
+import com.sun.jersey.impl.AbstractResourceTester;
+import com.sun.jersey.server.impl.application.WebApplicationImpl;
+import com.sun.jersey.spi.container.ResourceFilter;
+import com.sun.jersey.spi.container.ResourceFilterFactory;
+import com.sun.jersey.spi.inject.Errors;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+
+public class LazyResourceRulesTest extends AbstractResourceTester {
+
+    public LazyResourceRulesTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Counts the resource methods of each class for which resource filters
+     * are obtained, which occurs when the rules of the class are created.
+     */
+    public static class CountingResourceFilterFactory implements ResourceFilterFactory {
+        final ConcurrentMap<Class, AtomicInteger> counts = new ConcurrentHashMap<Class, AtomicInteger>();
+
+        volatile long delay;
+
+        @Override
+        public List<ResourceFilter> create(AbstractMethod am) {
+            final Class c = am.getResource().getResourceClass();
+            counts.putIfAbsent(c, new AtomicInteger());
+            counts.get(c).incrementAndGet();
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return null;
+        }
+
+        int count(Class c) {
+            final AtomicInteger i = counts.get(c);
+            return (i == null) ? 0 : i.get();
+        }
+    }
+
+    @Path("one")
+    public static class ResourceOne {
+        @GET
+        public String get() {
+            return "one";
+        }
+
+        @Path("sub")
+        public SubResource getSub() {
+            return new SubResource();
+        }
+
+        @Path("any")
+        public Object getAny() {
+            return new SubResource();
+        }
+    }
+
+    @Path("two")
+    public static class ResourceTwo {
+        @GET
+        public String get() {
+            return "two";
+        }
+    }
+
+    public static class SubResource {
+        @GET
+        public String get() {
+            return "sub";
+        }
+    }
+
+    @Path("ambiguous")
+    public static class AmbiguousResource {
+        @GET
+        public String get1() {
+            return null;
+        }
+
+        @GET
+        public String get2() {
+            return null;
+        }
+    }
+
+    private CountingResourceFilterFactory initiate(boolean lazy, String warmupPaths, Class... classes) {
+        final CountingResourceFilterFactory rff = new CountingResourceFilterFactory();
+        final ResourceConfig rc = new DefaultResourceConfig(classes);
+        rc.getFeatures().put(ResourceConfig.FEATURE_LAZY_RESOURCE_RULES, lazy);
+        rc.getResourceFilterFactories().add(rff);
+        if (warmupPaths != null) {
+            rc.getProperties().put(ResourceConfig.PROPERTY_WARMUP_PATHS, warmupPaths);
+        }
+        initiateWebApplication(rc);
+        return rff;
+    }
+
+    public void testEagerRules() {
+        CountingResourceFilterFactory rff = initiate(false, null, ResourceOne.class, ResourceTwo.class);
+
+        assertEquals(3, rff.count(ResourceOne.class));
+        assertEquals(1, rff.count(ResourceTwo.class));
+        assertEquals(0, rff.count(SubResource.class));
+
+        assertEquals("sub", resource("one/sub").get(String.class));
+        assertEquals(3, rff.count(ResourceOne.class));
+        assertEquals(1, rff.count(SubResource.class));
+    }
+
+    public void testLazyRules() {
+        CountingResourceFilterFactory rff = initiate(true, null, ResourceOne.class, ResourceTwo.class);
+
+        assertEquals(0, rff.count(ResourceOne.class));
+        assertEquals(0, rff.count(ResourceTwo.class));
+
+        assertEquals("one", resource("one").get(String.class));
+        assertEquals("one", resource("one").get(String.class));
+        assertEquals(3, rff.count(ResourceOne.class));
+        assertEquals(0, rff.count(ResourceTwo.class));
+
+        assertEquals("two", resource("two").get(String.class));
+        assertEquals(1, rff.count(ResourceTwo.class));
+    }
+
+    public void testWarmupPaths() {
+        CountingResourceFilterFactory rff = initiate(true, "one/sub, /two/x",
+                ResourceOne.class, ResourceTwo.class);
+
+        assertEquals(3, rff.count(ResourceOne.class));
+        assertEquals(1, rff.count(ResourceTwo.class));
+        assertEquals(1, rff.count(SubResource.class));
+
+        assertEquals("sub", resource("one/sub").get(String.class));
+        assertEquals(1, rff.count(SubResource.class));
+    }
+
+    public void testWarmup() {
+        CountingResourceFilterFactory rff = initiate(true, null, ResourceOne.class, ResourceTwo.class);
+
+        ((WebApplicationImpl) w).warmup("one/any", "three");
+        assertEquals(3, rff.count(ResourceOne.class));
+        assertEquals(0, rff.count(ResourceTwo.class));
+        assertEquals(0, rff.count(SubResource.class));
+
+        ((WebApplicationImpl) w).warmup("one/sub/more");
+        assertEquals(3, rff.count(ResourceOne.class));
+        assertEquals(1, rff.count(SubResource.class));
+    }
+
+    public void testLazyErrors() {
+        initiate(true, null, ResourceOne.class, AmbiguousResource.class);
+
+        List<Errors.ErrorMessage> messages = catches(new Closure() {
+            @Override
+            public void f() {
+                ((WebApplicationImpl) w).warmup("ambiguous");
+            }
+        }, Errors.ErrorMessagesException.class).messages;
+        assertEquals(1, messages.size());
+
+        // The rules are not retained, each request reports the errors
+        for (int i = 0; i < 2; i++) {
+            catches(new Closure() {
+                @Override
+                public void f() {
+                    resource("ambiguous").get(String.class);
+                }
+            }, Errors.ErrorMessagesException.class);
+        }
+        assertEquals("one", resource("one").get(String.class));
+    }
+
+    public void testWarmupPathErrors() {
+        catches(new Closure() {
+            @Override
+            public void f() {
+                initiate(true, "ambiguous", ResourceOne.class, AmbiguousResource.class);
+            }
+        }, Errors.ErrorMessagesException.class);
+    }
+
+    public void testConcurrentFirstRequests() throws Exception {
+        final CountingResourceFilterFactory rff = initiate(true, null, ResourceOne.class, ResourceTwo.class);
+        rff.delay = 50;
+
+        final int n = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < n; i++) {
+            final String path = (i % 2 == 0) ? "one" : "two";
+            final Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        results.add(resource(path).get(String.class));
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertEquals(n, results.size());
+        assertEquals(3, rff.count(ResourceOne.class));
+        assertEquals(1, rff.count(ResourceTwo.class));
+    }
+}
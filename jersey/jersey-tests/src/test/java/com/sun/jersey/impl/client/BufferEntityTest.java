@@ -0,0 +1,130 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.impl.client;
+
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.core.util.SpillingBuffer;
+import com.sun.jersey.impl.AbstractResourceTester;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+public class BufferEntityTest extends AbstractResourceTester {
+
+    static final byte[] ENTITY = new byte[100000];
+
+    static {
+        new Random(1).nextBytes(ENTITY);
+    }
+
+    @Path("/")
+    public static class EntityResource {
+        @GET
+        @Produces("application/octet-stream")
+        public byte[] get() {
+            return ENTITY;
+        }
+    }
+
+    public BufferEntityTest(String testName) {
+        super(testName);
+    }
+
+    public void testBufferInMemory() throws Exception {
+        initiateWebApplication(EntityResource.class);
+
+        ClientResponse cr = resource("/").get(ClientResponse.class);
+        cr.bufferEntity();
+        SpillingBuffer.Input in = (SpillingBuffer.Input)cr.getEntityInputStream();
+        assertNull(in.getBuffer().getFile());
+        _testReRead(cr);
+    }
+
+    public void testBufferSpilled() throws Exception {
+        initiateWebApplication(EntityResource.class);
+
+        ClientConfig cc = new DefaultClientConfig();
+        cc.getProperties().put(ClientConfig.PROPERTY_BUFFER_ENTITY_THRESHOLD, 1024);
+        ClientResponse cr = resource("/", cc).get(ClientResponse.class);
+        cr.bufferEntity();
+        SpillingBuffer.Input in = (SpillingBuffer.Input)cr.getEntityInputStream();
+        assertNotNull(in.getBuffer().getFile());
+        assertEquals(ENTITY.length, in.getBuffer().getFile().length());
+        _testReRead(cr);
+
+        in.getBuffer().release();
+        assertFalse(in.getBuffer().getFile().exists());
+    }
+
+    public void testCloseReleasesBuffer() throws Exception {
+        initiateWebApplication(EntityResource.class);
+
+        ClientConfig cc = new DefaultClientConfig();
+        cc.getProperties().put(ClientConfig.PROPERTY_BUFFER_ENTITY_THRESHOLD, 1024);
+        ClientResponse cr = resource("/", cc).get(ClientResponse.class);
+        cr.bufferEntity();
+        SpillingBuffer.Input in = (SpillingBuffer.Input)cr.getEntityInputStream();
+        File f = in.getBuffer().getFile();
+        _testReRead(cr);
+        assertTrue(f.exists());
+
+        cr.close();
+        assertFalse(f.exists());
+        try {
+            in.read();
+            fail();
+        } catch (IOException ex) {
+        }
+    }
+
+    private void _testReRead(ClientResponse cr) throws Exception {
+        assertTrue(cr.hasEntity());
+        assertTrue(Arrays.equals(ENTITY, cr.getEntity(byte[].class)));
+        cr.getEntityInputStream().reset();
+        assertTrue(Arrays.equals(ENTITY, cr.getEntity(byte[].class)));
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.impl.client;
+
+import com.sun.jersey.api.client.AsyncWebResource;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.async.TypeListener;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.client.pool.NioClient;
+import com.sun.jersey.client.pool.NioClientHandler;
+import com.sun.jersey.impl.container.grizzly.AbstractGrizzlyServerTester;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+
+public class NioClientHandlerTest extends AbstractGrizzlyServerTester {
+
+    private static final int LARGE = 1024 * 1024;
+
+    private static volatile CountDownLatch latch;
+
+    @Path("/")
+    public static class Resource {
+        @GET
+        public String get() {
+            return "GET";
+        }
+
+        @POST
+        public String post(String entity) {
+            return entity;
+        }
+
+        @DELETE
+        public void delete() {
+        }
+
+        @Path("large")
+        @GET
+        public byte[] getLarge() {
+            return new byte[LARGE];
+        }
+
+        @Path("chunked")
+        @GET
+        public StreamingOutput getChunked() {
+            return new StreamingOutput() {
+                public void write(OutputStream out) throws IOException {
+                    for (int i = 0; i < 64; i++) {
+                        out.write(new byte[LARGE / 64]);
+                        out.flush();
+                    }
+                }
+            };
+        }
+
+        @Path("missing")
+        @GET
+        public Response getMissing() {
+            return Response.status(404).entity("missing").build();
+        }
+
+        @Path("redirect")
+        @GET
+        public Response redirect(@Context UriInfo ui) {
+            return Response.seeOther(ui.getBaseUri()).build();
+        }
+
+        @Path("redirect")
+        @POST
+        public Response redirectPost(@Context UriInfo ui, String entity) {
+            return Response.seeOther(ui.getBaseUri()).build();
+        }
+
+        @Path("wait")
+        @GET
+        public String await() throws InterruptedException {
+            latch.await(10, TimeUnit.SECONDS);
+            return "WAIT";
+        }
+    }
+
+    private NioClient client;
+
+    public NioClientHandlerTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        latch = new CountDownLatch(1);
+        startServer(new DefaultResourceConfig(Resource.class));
+    }
+
+    @Override
+    public void tearDown() {
+        latch.countDown();
+        if (client != null) {
+            client.destroy();
+        }
+        super.tearDown();
+    }
+
+    private NioClient createClient(ClientConfig cc) {
+        client = NioClient.create(cc);
+        return client;
+    }
+
+    public void testMethods() {
+        WebResource r = createClient(new DefaultClientConfig()).resource(getUri().build());
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("GET", r.get(String.class));
+            assertEquals("POST", r.post(String.class, "POST"));
+        }
+        assertEquals("HEAD", 200, r.head().getStatus());
+        assertEquals(204, r.delete(ClientResponse.class).getStatus());
+    }
+
+    public void testResponseEntity() {
+        WebResource r = createClient(new DefaultClientConfig()).resource(getUri().build());
+
+        assertEquals(LARGE, r.path("large").get(byte[].class).length);
+        assertEquals(LARGE, r.path("chunked").get(byte[].class).length);
+
+        ClientResponse cr = r.path("missing").get(ClientResponse.class);
+        assertEquals(404, cr.getStatus());
+        assertTrue(cr.hasEntity());
+        assertEquals("missing", cr.getEntity(String.class));
+    }
+
+    public void testMaxResponseEntitySize() {
+        ClientConfig cc = new DefaultClientConfig();
+        cc.getProperties().put(NioClientHandler.PROPERTY_MAX_RESPONSE_ENTITY_SIZE, LARGE - 1);
+        WebResource r = createClient(cc).resource(getUri().build());
+
+        for (String path : new String[] {"large", "chunked"}) {
+            try {
+                r.path(path).get(byte[].class);
+                fail();
+            } catch (ClientHandlerException ex) {
+                assertTrue(ex.getCause() instanceof IOException);
+            }
+        }
+        assertEquals("GET", r.get(String.class));
+    }
+
+    public void testRedirect() {
+        WebResource r = createClient(new DefaultClientConfig()).resource(getUri().build());
+
+        assertEquals("GET", r.path("redirect").get(String.class));
+
+        client.setFollowRedirects(false);
+        assertEquals(303, r.path("redirect").get(ClientResponse.class).getStatus());
+    }
+
+    public void testRedirectWithEntity() {
+        WebResource r = createClient(new DefaultClientConfig()).resource(getUri().build());
+
+        assertEquals(303, r.path("redirect").post(ClientResponse.class, "POST").getStatus());
+    }
+
+    public void testResolveFromEventLoop() throws Exception {
+        final AsyncWebResource r = createClient(new DefaultClientConfig()).asyncResource(getUri().build());
+        // A different host so that the address is resolved
+        final AsyncWebResource other = client.asyncResource(getUri().host("127.0.0.1").build());
+
+        final Future<String>[] nested = new Future[1];
+        final CountDownLatch done = new CountDownLatch(1);
+        r.get(new TypeListener<String>(String.class) {
+            public void onComplete(Future<String> f) throws InterruptedException {
+                nested[0] = other.get(String.class);
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("GET", nested[0].get(5, TimeUnit.SECONDS));
+    }
+
+    public void testAsync() throws Exception {
+        AsyncWebResource r = createClient(new DefaultClientConfig()).asyncResource(getUri().build());
+
+        Future<String> f = r.get(String.class);
+        assertEquals("GET", f.get());
+
+        final String[] thread = new String[1];
+        final CountDownLatch done = new CountDownLatch(1);
+        f = r.post(new TypeListener<String>(String.class) {
+            public void onComplete(Future<String> f) throws InterruptedException {
+                thread[0] = Thread.currentThread().getName();
+                done.countDown();
+            }
+        }, "POST");
+        assertEquals("POST", f.get());
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(thread[0], thread[0].startsWith("jersey-client-nio-"));
+        assertEquals(0, client.getClientHandler().getInFlightRequests());
+    }
+
+    public void testAsyncConcurrent() throws Exception {
+        AsyncWebResource r = createClient(new DefaultClientConfig()).asyncResource(getUri().build());
+
+        Future<String> w = r.path("wait").get(String.class);
+        Future<String> g = r.get(String.class);
+        assertEquals("GET", g.get(5, TimeUnit.SECONDS));
+        assertFalse(w.isDone());
+
+        latch.countDown();
+        assertEquals("WAIT", w.get(5, TimeUnit.SECONDS));
+    }
+
+    public void testAsyncFiltered() throws Exception {
+        createClient(new DefaultClientConfig()).addFilter(new ClientFilter() {
+            @Override
+            public ClientResponse handle(ClientRequest cr) {
+                return getNext().handle(cr);
+            }
+        });
+        AsyncWebResource r = client.asyncResource(getUri().build());
+
+        final String[] thread = new String[1];
+        Future<String> f = r.get(new TypeListener<String>(String.class) {
+            public void onComplete(Future<String> f) throws InterruptedException {
+                thread[0] = Thread.currentThread().getName();
+            }
+        });
+        assertEquals("GET", f.get());
+        Thread.sleep(100);
+        assertFalse(thread[0], thread[0].startsWith("jersey-client-nio-"));
+    }
+
+    public void testMaxInFlightRequests() throws Exception {
+        DefaultClientConfig cc = new DefaultClientConfig();
+        cc.getProperties().put(NioClientHandler.PROPERTY_MAX_IN_FLIGHT_REQUESTS, 1);
+        final AsyncWebResource r = createClient(cc).asyncResource(getUri().build());
+
+        Future<String> w = r.path("wait").get(String.class);
+        assertEquals(1, client.getClientHandler().getInFlightRequests());
+
+        final String[] result = new String[1];
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    result[0] = r.get(String.class).get();
+                } catch (Exception ex) {
+                    result[0] = ex.toString();
+                }
+            }
+        };
+        t.start();
+        t.join(300);
+        assertTrue(t.isAlive());
+
+        latch.countDown();
+        assertEquals("WAIT", w.get(5, TimeUnit.SECONDS));
+        t.join(5000);
+        assertEquals("GET", result[0]);
+    }
+
+    public void testReadTimeout() throws Exception {
+        createClient(new DefaultClientConfig()).setReadTimeout(200);
+        AsyncWebResource r = client.asyncResource(getUri().build());
+
+        try {
+            r.path("wait").get(String.class).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof ClientHandlerException);
+            assertTrue(ex.getCause().getCause() instanceof SocketTimeoutException);
+        }
+        latch.countDown();
+        assertEquals("GET", client.resource(getUri().build()).get(String.class));
+    }
+
+    public void testCancel() throws Exception {
+        AsyncWebResource r = createClient(new DefaultClientConfig()).asyncResource(getUri().build());
+
+        Future<String> w = r.path("wait").get(String.class);
+        assertTrue(w.cancel(true));
+        assertTrue(w.isCancelled());
+        assertEquals(0, client.getClientHandler().getInFlightRequests());
+
+        latch.countDown();
+        assertEquals("GET", r.get(String.class).get(5, TimeUnit.SECONDS));
+    }
+
+    public void testServerClosedConnection() {
+        WebResource r = createClient(new DefaultClientConfig()).resource(getUri().build());
+
+        assertEquals("GET", r.get(String.class));
+
+        stopServer();
+        startServer(new DefaultResourceConfig(Resource.class));
+
+        assertEquals("GET", r.get(String.class));
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.impl.client;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.client.pool.ConnectionPool;
+import com.sun.jersey.client.pool.PooledClient;
+import com.sun.jersey.client.pool.PooledClientHandler;
+import com.sun.jersey.impl.container.grizzly.AbstractGrizzlyServerTester;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+public class PooledClientHandlerTest extends AbstractGrizzlyServerTester {
+
+    private static final int LARGE = 1024 * 1024;
+
+    @Path("/")
+    public static class Resource {
+        @GET
+        public String get() {
+            return "GET";
+        }
+
+        @POST
+        public String post(String entity) {
+            return entity;
+        }
+
+        @DELETE
+        public void delete() {
+        }
+
+        @Path("large")
+        @GET
+        public byte[] getLarge() {
+            return new byte[LARGE];
+        }
+
+        @Path("missing")
+        @GET
+        public Response getMissing() {
+            return Response.status(404).entity("missing").build();
+        }
+
+        @Path("redirect")
+        @GET
+        public Response redirect(@Context UriInfo ui) {
+            return Response.seeOther(ui.getBaseUri()).build();
+        }
+    }
+
+    private PooledClient client;
+
+    public PooledClientHandlerTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        startServer(new DefaultResourceConfig(Resource.class));
+    }
+
+    @Override
+    public void tearDown() {
+        if (client != null) {
+            client.destroy();
+        }
+        super.tearDown();
+    }
+
+    private PooledClient createClient(ClientConfig cc) {
+        client = PooledClient.create(cc);
+        return client;
+    }
+
+    public void testReuse() {
+        ConnectionPool pool = createClient(new DefaultClientConfig()).getConnectionPool();
+        WebResource r = client.resource(getUri().build());
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("GET", r.get(String.class));
+            assertEquals("POST", r.post(String.class, "POST"));
+        }
+        assertEquals("HEAD", 200, r.head().getStatus());
+        assertEquals(204, r.delete(ClientResponse.class).getStatus());
+
+        assertEquals(1, pool.getCreatedConnections());
+        assertEquals(11, pool.getReusedConnections());
+        assertEquals(0, pool.getLeasedConnections());
+        assertEquals(1, pool.getIdleConnections());
+        assertEquals(1, pool.getIdleConnections(getUri().build()));
+        assertSame(pool, client.getProperties().get(PooledClientHandler.PROPERTY_CONNECTION_POOL));
+    }
+
+    public void testRequestEntity() {
+        ConnectionPool pool = createClient(new DefaultClientConfig()).getConnectionPool();
+        WebResource r = client.resource(getUri().build());
+
+        // Unknown size, buffered
+        InputStream in = new ByteArrayInputStream("BUFFERED".getBytes());
+        assertEquals("BUFFERED", r.post(String.class, in));
+
+        // Unknown size, chunked
+        client.getProperties().put(ClientConfig.PROPERTY_CHUNKED_ENCODING_SIZE, 3);
+        in = new ByteArrayInputStream("CHUNKED".getBytes());
+        assertEquals("CHUNKED", r.post(String.class, in));
+
+        assertEquals(1, pool.getCreatedConnections());
+    }
+
+    public void testResponseEntity() {
+        ConnectionPool pool = createClient(new DefaultClientConfig()).getConnectionPool();
+        WebResource r = client.resource(getUri().build());
+
+        assertEquals(LARGE, r.path("large").get(byte[].class).length);
+
+        ClientResponse cr = r.path("missing").get(ClientResponse.class);
+        assertEquals(404, cr.getStatus());
+        assertTrue(cr.hasEntity());
+        assertEquals("missing", cr.getEntity(String.class));
+
+        assertEquals(1, pool.getCreatedConnections());
+        assertEquals(0, pool.getLeasedConnections());
+    }
+
+    public void testClose() {
+        ConnectionPool pool = createClient(new DefaultClientConfig()).getConnectionPool();
+        WebResource r = client.resource(getUri().build());
+
+        // A short entity is drained and the connection is reused
+        ClientResponse cr = r.get(ClientResponse.class);
+        assertEquals(1, pool.getLeasedConnections());
+        cr.close();
+        assertEquals(0, pool.getLeasedConnections());
+        assertEquals(1, pool.getIdleConnections());
+
+        // A large entity is not drained and the connection is closed
+        cr = r.path("large").get(ClientResponse.class);
+        cr.close();
+        assertEquals(0, pool.getLeasedConnections());
+        assertEquals(0, pool.getIdleConnections());
+
+        assertEquals("GET", r.get(String.class));
+        assertEquals(2, pool.getCreatedConnections());
+    }
+
+    public void testMaxConnectionsPerRoute() {
+        DefaultClientConfig cc = new DefaultClientConfig();
+        cc.getProperties().put(PooledClientHandler.PROPERTY_MAX_CONNECTIONS_PER_ROUTE, 1);
+        cc.getProperties().put(PooledClientHandler.PROPERTY_CONNECTION_WAIT_TIMEOUT, 100);
+        ConnectionPool pool = createClient(cc).getConnectionPool();
+        WebResource r = client.resource(getUri().build());
+
+        ClientResponse cr = r.get(ClientResponse.class);
+        try {
+            r.get(String.class);
+            fail();
+        } catch (ClientHandlerException ex) {
+            assertTrue(ex.getCause() instanceof SocketTimeoutException);
+        }
+
+        assertEquals("GET", cr.getEntity(String.class));
+        assertEquals("GET", r.get(String.class));
+        assertEquals(1, pool.getCreatedConnections());
+    }
+
+    public void testIdleTimeout() throws Exception {
+        DefaultClientConfig cc = new DefaultClientConfig();
+        cc.getProperties().put(PooledClientHandler.PROPERTY_IDLE_TIMEOUT, 100);
+        ConnectionPool pool = createClient(cc).getConnectionPool();
+        WebResource r = client.resource(getUri().build());
+
+        assertEquals("GET", r.get(String.class));
+        Thread.sleep(300);
+        assertEquals("GET", r.get(String.class));
+
+        assertEquals(2, pool.getCreatedConnections());
+        assertEquals(1, pool.getEvictedConnections());
+    }
+
+    public void testServerClosedConnection() {
+        ConnectionPool pool = createClient(new DefaultClientConfig()).getConnectionPool();
+        WebResource r = client.resource(getUri().build());
+
+        assertEquals("GET", r.get(String.class));
+
+        stopServer();
+        startServer(new DefaultResourceConfig(Resource.class));
+
+        assertEquals("GET", r.get(String.class));
+        assertEquals(2, pool.getCreatedConnections());
+    }
+
+    public void testServerClosedConnectionBetweenChunks() throws Exception {
+        final ServerSocket ss = new ServerSocket(0);
+        final Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    final Socket s = ss.accept();
+                    final BufferedReader in = new BufferedReader(
+                            new InputStreamReader(s.getInputStream(), "ISO-8859-1"));
+                    String line;
+                    while ((line = in.readLine()) != null && line.length() > 0) {
+                    }
+                    final OutputStream out = s.getOutputStream();
+                    out.write(("HTTP/1.1 200 OK\r\n" +
+                            "Content-Type: text/plain\r\n" +
+                            "Transfer-Encoding: chunked\r\n\r\n" +
+                            "3\r\nabc").getBytes("ISO-8859-1"));
+                    out.flush();
+                    s.close();
+                } catch (IOException ex) {
+                }
+            }
+        };
+        t.start();
+
+        try {
+            ConnectionPool pool = createClient(new DefaultClientConfig()).getConnectionPool();
+            WebResource r = client.resource("http://localhost:" + ss.getLocalPort() + "/");
+            try {
+                r.get(String.class);
+                fail();
+            } catch (ClientHandlerException ex) {
+                assertTrue(ex.getCause() instanceof IOException);
+            }
+            assertEquals(0, pool.getLeasedConnections());
+            assertEquals(0, pool.getIdleConnections());
+        } finally {
+            t.join(5000);
+            ss.close();
+        }
+    }
+
+    public void testRedirect() {
+        ConnectionPool pool = createClient(new DefaultClientConfig()).getConnectionPool();
+        WebResource r = client.resource(getUri().build());
+
+        assertEquals("GET", r.path("redirect").get(String.class));
+
+        client.setFollowRedirects(false);
+        assertEquals(303, r.path("redirect").get(ClientResponse.class).getStatus());
+        assertEquals(1, pool.getCreatedConnections());
+    }
+}
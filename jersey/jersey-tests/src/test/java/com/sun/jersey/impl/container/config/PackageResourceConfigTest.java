@@ -49,6 +49,7 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -113,6 +114,20 @@ public class PackageResourceConfigTest extends AbstractConfigTester {
         assertEquals(4, rc.getClasses().size());
     }
     
+    public void testAllInParallel() {
+        String[] packages = {"com.sun.jersey.impl.container.config"};
+        ResourceConfig sequential = new PackagesResourceConfig(packages);
+
+        Map<String, Object> m = new HashMap<String, Object>();
+        m.put(PackagesResourceConfig.PROPERTY_PACKAGES, packages);
+        m.put(ResourceConfig.PROPERTY_INITIATION_THREADS, "4");
+        ResourceConfig rc = new PackagesResourceConfig(m);
+
+        assertEquals(4, rc.getInitiationThreads());
+        assertEquals(new ArrayList<Class<?>>(sequential.getClasses()),
+                new ArrayList<Class<?>>(rc.getClasses()));
+    }
+
     public void testJarTopLevel() throws Exception {
         ClassLoader cl = createClassLoader("target/test-classes/",
                 "com/sun/jersey/impl/container/config/toplevel/PublicRootResourceClass.class",
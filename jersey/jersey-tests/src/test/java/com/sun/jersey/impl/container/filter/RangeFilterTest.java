@@ -0,0 +1,201 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.impl.container.filter;
+
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.container.filter.RangeFilter;
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.api.core.ResourceConfig;
+import com.sun.jersey.impl.AbstractResourceTester;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+public class RangeFilterTest extends AbstractResourceTester {
+
+    private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    static File file;
+
+    @Path("/")
+    public static class FileResource {
+        @GET
+        @Produces("text/plain")
+        public Response get() {
+            return Response.ok(file).tag("tag").build();
+        }
+    }
+
+    public RangeFilterTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("range", ".txt");
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(CONTENT.getBytes("US-ASCII"));
+        } finally {
+            out.close();
+        }
+
+        ResourceConfig rc = new DefaultResourceConfig(FileResource.class);
+        rc.getProperties().put(ResourceConfig.PROPERTY_CONTAINER_RESPONSE_FILTERS,
+                Arrays.asList(new RangeFilter()));
+        initiateWebApplication(rc);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+        super.tearDown();
+    }
+
+    private ClientResponse get(String range) {
+        WebResource r = resource("/", false);
+        return (range == null)
+                ? r.get(ClientResponse.class)
+                : r.header("Range", range).get(ClientResponse.class);
+    }
+
+    public void testNoRange() {
+        ClientResponse cr = get(null);
+        assertEquals(200, cr.getStatus());
+        assertEquals("bytes", cr.getHeaders().getFirst("Accept-Ranges"));
+        assertEquals(CONTENT, cr.getEntity(String.class));
+    }
+
+    public void testSingleRange() {
+        ClientResponse cr = get("bytes=2-5");
+        assertEquals(206, cr.getStatus());
+        assertEquals("bytes 2-5/36", cr.getHeaders().getFirst("Content-Range"));
+        assertEquals(MediaType.TEXT_PLAIN_TYPE, cr.getType());
+        assertEquals("2345", cr.getEntity(String.class));
+    }
+
+    public void testOpenRange() {
+        ClientResponse cr = get("bytes=30-");
+        assertEquals(206, cr.getStatus());
+        assertEquals("bytes 30-35/36", cr.getHeaders().getFirst("Content-Range"));
+        assertEquals("uvwxyz", cr.getEntity(String.class));
+    }
+
+    public void testSuffixRange() {
+        ClientResponse cr = get("bytes=-3");
+        assertEquals(206, cr.getStatus());
+        assertEquals("bytes 33-35/36", cr.getHeaders().getFirst("Content-Range"));
+        assertEquals("xyz", cr.getEntity(String.class));
+    }
+
+    public void testRangeBeyondEnd() {
+        ClientResponse cr = get("bytes=34-100");
+        assertEquals(206, cr.getStatus());
+        assertEquals("bytes 34-35/36", cr.getHeaders().getFirst("Content-Range"));
+        assertEquals("yz", cr.getEntity(String.class));
+    }
+
+    public void testMultipleRanges() {
+        ClientResponse cr = get("bytes=0-1, 10-12");
+        assertEquals(206, cr.getStatus());
+        assertEquals("multipart", cr.getType().getType());
+        assertEquals("byteranges", cr.getType().getSubtype());
+        String boundary = cr.getType().getParameters().get("boundary");
+        assertNotNull(boundary);
+
+        String expected =
+                "\r\n--" + boundary + "\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "Content-Range: bytes 0-1/36\r\n\r\n" +
+                "01" +
+                "\r\n--" + boundary + "\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "Content-Range: bytes 10-12/36\r\n\r\n" +
+                "abc" +
+                "\r\n--" + boundary + "--\r\n";
+        assertEquals(expected, cr.getEntity(String.class));
+    }
+
+    public void testUnsatisfiableRange() {
+        ClientResponse cr = get("bytes=36-40");
+        assertEquals(416, cr.getStatus());
+        assertEquals("bytes */36", cr.getHeaders().getFirst("Content-Range"));
+    }
+
+    public void testInvalidRange() {
+        assertEquals(200, get("bytes=5-2").getStatus());
+        assertEquals(200, get("bytes=a-b").getStatus());
+        assertEquals(200, get("lines=1-2").getStatus());
+
+        StringBuilder sb = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= RangeFilter.MAX_RANGES; i++) {
+            sb.append(",").append(i).append("-").append(i);
+        }
+        assertEquals(200, get(sb.toString()).getStatus());
+    }
+
+    public void testIfRange() {
+        ClientResponse cr = resource("/", false).header("Range", "bytes=0-1").
+                header("If-Range", new EntityTag("tag").toString()).get(ClientResponse.class);
+        assertEquals(206, cr.getStatus());
+        assertEquals("01", cr.getEntity(String.class));
+
+        cr = resource("/", false).header("Range", "bytes=0-1").
+                header("If-Range", new EntityTag("other").toString()).get(ClientResponse.class);
+        assertEquals(200, cr.getStatus());
+        assertEquals(CONTENT, cr.getEntity(String.class));
+    }
+
+    public void testHead() throws IOException {
+        ClientResponse cr = resource("/", false).header("Range", "bytes=0-1").head();
+        assertEquals(200, cr.getStatus());
+        assertEquals("bytes", cr.getHeaders().getFirst("Accept-Ranges"));
+    }
+}
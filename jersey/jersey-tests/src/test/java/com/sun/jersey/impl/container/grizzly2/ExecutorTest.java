@@ -0,0 +1,210 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.sun.jersey.impl.container.grizzly2;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.container.grizzly2.GrizzlyServerFactory;
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.api.core.ResourceConfig;
+import com.sun.jersey.impl.test.util.JerseyTestHelper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import junit.framework.TestCase;
+import org.glassfish.grizzly.http.server.HttpServer;
+
+/**
+ * Tests the processing of requests by the executor declared by
+ * {@link GrizzlyServerFactory#PROPERTY_EXECUTOR}.
+ */
+public class ExecutorTest extends TestCase {
+
+    public ExecutorTest(String testName) {
+        super(testName);
+    }
+
+    @Path("/")
+    public static class Resource {
+        @GET
+        @Path("thread")
+        public String thread() {
+            return Thread.currentThread().getName();
+        }
+
+        @POST
+        @Path("echo")
+        public byte[] echo(byte[] entity) {
+            return entity;
+        }
+
+        @GET
+        @Path("error")
+        public ErrorEntity error() {
+            return new ErrorEntity();
+        }
+    }
+
+    static class TestError extends Error {
+    }
+
+    public static class ErrorEntity {
+    }
+
+    /**
+     * Fails with an error that is not wrapped by the web application.
+     */
+    @Provider
+    public static class ErrorEntityWriter implements MessageBodyWriter<ErrorEntity> {
+        @Override
+        public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return type == ErrorEntity.class;
+        }
+
+        @Override
+        public long getSize(ErrorEntity t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(ErrorEntity t, Class<?> type, Type genericType, Annotation[] annotations,
+                MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) {
+            throw new TestError();
+        }
+    }
+
+    private final int port = JerseyTestHelper.getEnvVariable("JERSEY_HTTP_PORT", 9997);
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    private WebResource startServer(Executor e, int maxBufferedEntitySize) {
+        final ResourceConfig rc = new DefaultResourceConfig(Resource.class, ErrorEntityWriter.class);
+        rc.getProperties().put(GrizzlyServerFactory.PROPERTY_EXECUTOR, e);
+        rc.getProperties().put(GrizzlyServerFactory.PROPERTY_MAX_BUFFERED_ENTITY_SIZE, maxBufferedEntitySize);
+
+        final URI u = UriBuilder.fromUri("http://localhost/").port(port).build();
+        try {
+            server = GrizzlyServerFactory.createHttpServer(u, rc);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        final Client c = Client.create();
+        c.setReadTimeout(10000);
+        return c.resource(u);
+    }
+
+    private ExecutorService newExecutor() {
+        executor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "test-executor");
+            }
+        });
+        return executor;
+    }
+
+    @Override
+    public void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testDispatch() {
+        final WebResource r = startServer(newExecutor(), 1024);
+
+        assertEquals("test-executor", r.path("thread").get(String.class));
+    }
+
+    public void testRejected() {
+        final WebResource r = startServer(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        }, 1024);
+
+        assertEquals(503, r.path("thread").get(ClientResponse.class).getStatus());
+    }
+
+    public void testEntityBuffering() {
+        final WebResource r = startServer(newExecutor(), 1024);
+
+        // Entities smaller than, and larger than, the buffered entity size
+        for (int size : new int[] {0, 100, 1024, 100 * 1024}) {
+            final byte[] entity = new byte[size];
+            for (int i = 0; i < size; i++) {
+                entity[i] = (byte) i;
+            }
+            assertTrue(Arrays.equals(entity, r.path("echo").post(byte[].class, entity)));
+        }
+    }
+
+    public void testError() {
+        final WebResource r = startServer(newExecutor(), 1024);
+
+        // The response is resumed if the executor thread fails with an error
+        assertEquals(500, r.path("error").get(ClientResponse.class).getStatus());
+        assertEquals("test-executor", r.path("thread").get(String.class));
+    }
+}
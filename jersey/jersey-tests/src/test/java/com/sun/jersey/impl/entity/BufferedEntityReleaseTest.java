@@ -0,0 +1,143 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.sun.jersey.impl.entity;
+
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.api.core.HttpContext;
+import com.sun.jersey.api.core.ResourceConfig;
+import com.sun.jersey.api.representation.Form;
+import com.sun.jersey.core.header.OutBoundHeaders;
+import com.sun.jersey.core.util.SpillingBuffer;
+import com.sun.jersey.impl.AbstractResourceTester;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Tests that the buffers of request entities are released when the request
+ * goes out of scope.
+ */
+public class BufferedEntityReleaseTest extends AbstractResourceTester {
+
+    public BufferedEntityReleaseTest(String testName) {
+        super(testName);
+    }
+
+    static volatile SpillingBuffer buffer;
+
+    private static void retainBuffer(HttpContext hc) {
+        final InputStream in = ((ContainerRequest) hc.getRequest()).getEntityInputStream();
+        buffer = ((SpillingBuffer.Input) in).getBuffer();
+    }
+
+    @Path("/")
+    public static class Resource {
+        @POST
+        @Path("entity")
+        public String entity(@Context HttpContext hc, String entity) {
+            retainBuffer(hc);
+            return entity;
+        }
+
+        @POST
+        @Path("form")
+        public String form(@Context HttpContext hc) {
+            final Form f = hc.getRequest().getFormParameters();
+            retainBuffer(hc);
+            return f.getFirst("a");
+        }
+    }
+
+    /**
+     * Replaces the entity of the request.
+     */
+    public static class SetEntityFilter implements ContainerRequestFilter {
+        @Override
+        public ContainerRequest filter(ContainerRequest request) {
+            if (request.getPath().equals("entity")) {
+                request.setEntity(String.class, String.class, new Annotation[0],
+                        MediaType.TEXT_PLAIN_TYPE, new OutBoundHeaders(), "filtered");
+            } else {
+                // Ensure the form entity is buffered
+                request.setEntityInputStream(new BufferedInputStream(request.getEntityInputStream()));
+            }
+            return request;
+        }
+    }
+
+    private void initiate() {
+        final ResourceConfig rc = new DefaultResourceConfig(Resource.class);
+        rc.getProperties().put(ResourceConfig.PROPERTY_CONTAINER_REQUEST_FILTERS, SetEntityFilter.class.getName());
+        initiateWebApplication(rc);
+        buffer = null;
+    }
+
+    private static void assertReleased(SpillingBuffer b) throws IOException {
+        assertNotNull(b);
+        try {
+            b.getInputStream().read();
+            fail();
+        } catch (IOException ex) {
+        }
+    }
+
+    public void testSetEntity() throws IOException {
+        initiate();
+
+        assertEquals("filtered", resource("/entity").type(MediaType.TEXT_PLAIN_TYPE).post(String.class, "entity"));
+        assertReleased(buffer);
+    }
+
+    public void testFormParameters() throws IOException {
+        initiate();
+
+        final Form f = new Form();
+        f.add("a", "value");
+        assertEquals("value", resource("/form").type(MediaType.APPLICATION_FORM_URLENCODED_TYPE).post(String.class, f));
+        assertReleased(buffer);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.impl.entity;
+
+import com.sun.jersey.api.client.GenericType;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.impl.AbstractResourceTester;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+/**
+ * Tests for writing lists of JAXB beans from iterators and iterables.
+ */
+public class JAXBListStreamingTest extends AbstractResourceTester {
+
+    static final AtomicInteger closed = new AtomicInteger();
+
+    public static class BeanIterator implements Iterator<JAXBBean>, Closeable {
+        private final int n;
+        private int i;
+
+        public BeanIterator(int n) {
+            this.n = n;
+        }
+
+        public boolean hasNext() {
+            return i < n;
+        }
+
+        public JAXBBean next() {
+            if (i == n)
+                throw new NoSuchElementException();
+            return new JAXBBean(Integer.toString(i++));
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public void close() {
+            closed.incrementAndGet();
+        }
+    }
+
+    @Path("/")
+    @Produces({"application/xml", "application/json", "application/fastinfoset"})
+    public static class StreamingResource {
+        @GET
+        public Iterator<JAXBBean> get(@QueryParam("n") int n) {
+            return new BeanIterator(n);
+        }
+
+        @GET
+        @Path("iterable")
+        public Iterable<JAXBBean> getIterable(@QueryParam("n") final int n) {
+            return new Iterable<JAXBBean>() {
+                public Iterator<JAXBBean> iterator() {
+                    return new BeanIterator(n);
+                }
+            };
+        }
+
+        @GET
+        @Path("list")
+        public List<JAXBBean> getList(@QueryParam("n") int n) {
+            final List<JAXBBean> l = new ArrayList<JAXBBean>();
+            for (Iterator<JAXBBean> i = new BeanIterator(n); i.hasNext(); )
+                l.add(i.next());
+            return l;
+        }
+    }
+
+    public JAXBListStreamingTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        closed.set(0);
+    }
+
+    public void testXml() {
+        _test("application/xml");
+    }
+
+    public void testJson() {
+        _test("application/json");
+    }
+
+    public void testFastInfoset() {
+        _test("application/fastinfoset");
+    }
+
+    private void _test(String mediaType) {
+        initiateWebApplication(StreamingResource.class);
+        final WebResource r = resource("/");
+
+        for (int n : new int[] {0, 1, 1000}) {
+            final String q = Integer.toString(n);
+            final byte[] expected = r.path("list").queryParam("n", q).accept(mediaType).get(byte[].class);
+
+            assertTrue(Arrays.equals(expected, r.queryParam("n", q).accept(mediaType).get(byte[].class)));
+            assertTrue(Arrays.equals(expected, r.path("iterable").queryParam("n", q).accept(mediaType).get(byte[].class)));
+
+            final Collection<JAXBBean> l = r.queryParam("n", q).accept(mediaType).get(
+                    new GenericType<Collection<JAXBBean>>() {
+                    });
+            assertEquals(n, l.size());
+            if (n > 0)
+                assertEquals(new JAXBBean(Integer.toString(n - 1)), new ArrayList<JAXBBean>(l).get(n - 1));
+        }
+
+        // The iterators of the iterator and the iterable resources
+        assertEquals(3 * 3, closed.get());
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.impl.entity;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.core.spi.component.ProviderFactory;
+import com.sun.jersey.core.spi.component.ProviderServices;
+import com.sun.jersey.core.spi.factory.InjectableProviderFactory;
+import com.sun.jersey.core.spi.factory.MessageBodyFactory;
+import com.sun.jersey.core.util.FeaturesAndProperties;
+import com.sun.jersey.spi.MessageBodyWorkers;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import junit.framework.TestCase;
+
+/**
+ * Tests caching of resolved readers and writers by {@link MessageBodyFactory},
+ * which is disabled by default.
+ */
+public class MessageBodyFactoryTest extends TestCase {
+
+    @Consumes("text/plain")
+    @Produces("text/plain")
+    public static class CountingProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+        int readable;
+
+        int writeable;
+
+        public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            readable++;
+            return type == String.class;
+        }
+
+        public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations,
+                MediaType mediaType, MultivaluedMap<String, String> httpHeaders,
+                InputStream entityStream) throws IOException {
+            return null;
+        }
+
+        public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            writeable++;
+            return type == String.class;
+        }
+
+        public long getSize(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return -1;
+        }
+
+        public void writeTo(Object t, Class<?> type, Type genericType, Annotation[] annotations,
+                MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+                OutputStream entityStream) throws IOException {
+        }
+    }
+
+    /**
+     * A provider whose readability and writeability change.
+     */
+    @Consumes("text/plain")
+    @Produces("text/plain")
+    public static class UnstableProvider extends CountingProvider {
+        boolean supported = true;
+
+        @Override
+        public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return super.isReadable(type, genericType, annotations, mediaType) && supported;
+        }
+
+        @Override
+        public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return super.isWriteable(type, genericType, annotations, mediaType) && supported;
+        }
+    }
+
+    private static MessageBodyFactory createFactory(final Object provider, int cacheSize) {
+        final MessageBodyFactory f = new MessageBodyFactory(createProviderServices(provider), false, cacheSize);
+        f.init();
+        return f;
+    }
+
+    private static ProviderServices createProviderServices(final Object provider) {
+        return new ProviderServices(
+                new ProviderFactory(new InjectableProviderFactory()),
+                Collections.<Class<?>>emptySet(),
+                Collections.singleton(provider)) {
+            @Override
+            public <T> Set<T> getServices(Class<T> p) {
+                return new LinkedHashSet<T>();
+            }
+        };
+    }
+
+    public void testWriterCache() {
+        final CountingProvider p = new CountingProvider();
+        final MessageBodyFactory f = createFactory(p, MessageBodyFactory.DEFAULT_CACHE_SIZE);
+
+        assertSame(p, f.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        final int n = p.writeable;
+        assertSame(p, f.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertEquals(n, p.writeable);
+
+        assertNull(f.getMessageBodyWriter(Integer.class, Integer.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        final int m = p.writeable;
+        assertNull(f.getMessageBodyWriter(Integer.class, Integer.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertEquals(m, p.writeable);
+
+        f.init();
+        assertSame(p, f.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertTrue(p.writeable > m);
+    }
+
+    public void testReaderCache() {
+        final CountingProvider p = new CountingProvider();
+        final MessageBodyFactory f = createFactory(p, MessageBodyFactory.DEFAULT_CACHE_SIZE);
+
+        assertSame(p, f.getMessageBodyReader(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        final int n = p.readable;
+        assertSame(p, f.getMessageBodyReader(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertEquals(n, p.readable);
+
+        assertNull(f.getMessageBodyReader(Integer.class, Integer.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        final int m = p.readable;
+        assertNull(f.getMessageBodyReader(Integer.class, Integer.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertEquals(m, p.readable);
+    }
+
+    public void testMediaTypeParametersAreDistinct() {
+        final CountingProvider p = new CountingProvider();
+        final MessageBodyFactory f = createFactory(p, MessageBodyFactory.DEFAULT_CACHE_SIZE);
+
+        f.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE);
+        final int n = p.writeable;
+        f.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.valueOf("text/plain;charset=UTF-8"));
+        assertTrue(p.writeable > n);
+    }
+
+    public void testFullCacheKeepsUsedWriter() {
+        final CountingProvider p = new CountingProvider();
+        final MessageBodyFactory f = createFactory(p, 2);
+
+        f.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE);
+        f.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE);
+        f.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.valueOf("text/plain;v=1"));
+        f.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.valueOf("text/plain;v=2"));
+
+        final int n = p.writeable;
+        assertSame(p, f.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertEquals(n, p.writeable);
+    }
+
+    public void testCacheDisabled() {
+        final CountingProvider p = new CountingProvider();
+        final MessageBodyFactory f = createFactory(p, 0);
+
+        assertSame(p, f.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        final int n = p.writeable;
+        assertSame(p, f.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertTrue(p.writeable > n);
+    }
+
+    public void testCacheDisabledByDefault() {
+        final UnstableProvider p = new UnstableProvider();
+        final MessageBodyFactory f = new MessageBodyFactory(createProviderServices(p), false);
+        f.init();
+
+        assertUnstable(p, f);
+    }
+
+    public void testClientCacheDisabledByDefault() {
+        final UnstableProvider p = new UnstableProvider();
+        final ClientConfig cc = new DefaultClientConfig();
+        cc.getSingletons().add(p);
+
+        assertUnstable(p, Client.create(cc).getMessageBodyWorkers());
+    }
+
+    public void testClientCacheEnabled() {
+        final UnstableProvider p = new UnstableProvider();
+        final ClientConfig cc = new DefaultClientConfig();
+        cc.getSingletons().add(p);
+        cc.getFeatures().put(FeaturesAndProperties.FEATURE_ENABLE_MESSAGE_BODY_WORKERS_CACHE, true);
+        final MessageBodyWorkers w = Client.create(cc).getMessageBodyWorkers();
+
+        assertSame(p, w.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        p.supported = false;
+        // The cached writer is returned although the writer is no longer
+        // writeable
+        assertSame(p, w.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+    }
+
+    private static void assertUnstable(UnstableProvider p, MessageBodyWorkers w) {
+        assertSame(p, w.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertSame(p, w.getMessageBodyReader(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+
+        p.supported = false;
+        assertNotSame(p, w.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertNotSame(p, w.getMessageBodyReader(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+
+        p.supported = true;
+        assertSame(p, w.getMessageBodyWriter(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+        assertSame(p, w.getMessageBodyReader(String.class, String.class,
+                new Annotation[0], MediaType.TEXT_PLAIN_TYPE));
+    }
+}
@@ -318,4 +318,43 @@ public class PathAndResourceMethodErrorsTest extends AbstractResourceTester {
 
         assertEquals(1, messages.size());
     }
+
+    @Path("/validation")
+    public static class ValidationErrorsResource {
+
+        @GET
+        public void get() { }
+
+        @GET
+        @Path("entity")
+        public String get(String entity) { return entity; }
+    }
+
+    private List<Errors.ErrorMessage> initiateWithErrors(final Object threads) {
+        return catches(new Closure() {
+            @Override
+            public void f() {
+                ResourceConfig rc = new DefaultResourceConfig(
+                        PathErrorsResource.class,
+                        AmbiguousResourceMethodsGET.class,
+                        AmbiguousResourceMethodsProducesGET.class,
+                        AmbiguousSubResourceMethodsGET.class,
+                        ValidationErrorsResource.class);
+                rc.getSingletons().add(new PathErrorsThreeResource());
+                rc.getExplicitRootResources().put("/{four}", AmbiguousResourceMethodsConsumesPUT.class);
+                if (threads != null) {
+                    rc.getProperties().put(ResourceConfig.PROPERTY_INITIATION_THREADS, threads);
+                }
+
+                initiateWebApplication(rc);
+            }
+        }).messages;
+    }
+
+    public void testParallelInitiationErrors() {
+        List<Errors.ErrorMessage> messages = initiateWithErrors(null);
+
+        assertEquals(messages, initiateWithErrors(4));
+        assertEquals(messages, initiateWithErrors("2"));
+    }
 }
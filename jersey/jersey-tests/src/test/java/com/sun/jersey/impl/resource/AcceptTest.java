@@ -110,6 +110,20 @@ public class AcceptTest extends AbstractResourceTester {
         assertEquals("baz", s);
     }
 
+    public void testAcceptGetRepeated() {
+        initiateWebApplication(Resource.class);
+        WebResource r = resource("/");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("foo", r.accept("application/foo").get(String.class));
+            assertEquals("bar", r.accept("application/foo;q=0.4", "application/bar").
+                    get(String.class));
+            assertEquals("foo", r.accept("application/foo", "application/bar;q=0.4").
+                    get(String.class));
+            assertEquals("wildcard", r.accept("application/wildcard").get(String.class));
+        }
+    }
+
     public void testAcceptGetWildCard() {
         initiateWebApplication(Resource.class);
         WebResource r = resource("/");
@@ -0,0 +1,292 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.impl.resource;
+
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.core.AsyncResponse;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.impl.AbstractResourceTester;
+import com.sun.jersey.spi.container.AsyncContainerResponseWriter;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+
+/**
+ * Tests the suspension and resumption of requests using {@link AsyncResponse}.
+ */
+public class AsyncResponseTest extends AbstractResourceTester {
+
+    public AsyncResponseTest(String testName) {
+        super(testName);
+    }
+
+    static volatile AsyncResponse suspended;
+
+    private static void resumeLater(final AsyncResponse ar, final Object value) {
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                }
+                if (value instanceof Throwable) {
+                    ar.resume((Throwable) value);
+                } else {
+                    ar.resume(value);
+                }
+            }
+        }.start();
+    }
+
+    @Path("/")
+    public static class AsyncResource {
+        @GET
+        @Path("later")
+        @Produces("text/plain")
+        public void later(@Context AsyncResponse ar) {
+            ar.suspend(10, TimeUnit.SECONDS);
+            resumeLater(ar, "later");
+        }
+
+        @GET
+        @Path("immediately")
+        @Produces("text/plain")
+        public void immediately(@Context AsyncResponse ar) {
+            ar.suspend();
+            assertTrue(ar.isSuspended());
+            assertTrue(ar.resume("immediately"));
+            assertFalse(ar.resume("again"));
+            assertTrue(ar.isResumed());
+        }
+
+        @GET
+        @Path("exception")
+        public void exception(@Context AsyncResponse ar) {
+            ar.suspend(10, TimeUnit.SECONDS);
+            resumeLater(ar, new WebApplicationException(409));
+        }
+
+        @GET
+        @Path("timeout")
+        public void timeout(@Context AsyncResponse ar) {
+            ar.suspend(100, TimeUnit.MILLISECONDS);
+        }
+
+        @GET
+        @Path("not-suspended")
+        @Produces("text/plain")
+        public String notSuspended(@Context AsyncResponse ar) {
+            assertFalse(ar.resume("resumed"));
+            return "not-suspended";
+        }
+
+        @GET
+        @Path("container")
+        @Produces("text/plain")
+        public void container(@Context AsyncResponse ar) {
+            ar.suspend();
+            suspended = ar;
+        }
+
+        @GET
+        @Path("suspend-and-throw")
+        public void suspendAndThrow(@Context AsyncResponse ar) {
+            ar.suspend(10, TimeUnit.SECONDS);
+            suspended = ar;
+            throw new WebApplicationException(409);
+        }
+    }
+
+    public void testResumeFromAnotherThread() {
+        initiateWebApplication(AsyncResource.class);
+
+        ClientResponse cr = resource("/later").get(ClientResponse.class);
+        assertEquals(200, cr.getStatus());
+        assertEquals("text/plain", cr.getType().toString());
+        assertEquals("later", cr.getEntity(String.class));
+    }
+
+    public void testResumeBeforeReturn() {
+        initiateWebApplication(AsyncResource.class);
+
+        assertEquals("immediately", resource("/immediately").get(String.class));
+    }
+
+    public void testResumeWithException() {
+        initiateWebApplication(AsyncResource.class);
+
+        ClientResponse cr = resource("/exception", false).get(ClientResponse.class);
+        assertEquals(409, cr.getStatus());
+    }
+
+    public void testTimeout() {
+        initiateWebApplication(AsyncResource.class);
+
+        ClientResponse cr = resource("/timeout", false).get(ClientResponse.class);
+        assertEquals(503, cr.getStatus());
+    }
+
+    public void testNotSuspended() {
+        initiateWebApplication(AsyncResource.class);
+
+        assertEquals("not-suspended", resource("/not-suspended").get(String.class));
+    }
+
+    public void testSuspendAndThrow() {
+        initiateWebApplication(AsyncResource.class);
+
+        ClientResponse cr = resource("/suspend-and-throw", false).get(ClientResponse.class);
+        assertEquals(409, cr.getStatus());
+    }
+
+    private static class AsyncWriter implements AsyncContainerResponseWriter {
+        final ByteArrayOutputStream entity = new ByteArrayOutputStream();
+
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        volatile boolean isSuspended;
+
+        volatile int status;
+
+        @Override
+        public boolean suspend() {
+            isSuspended = true;
+            return true;
+        }
+
+        @Override
+        public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response) throws IOException {
+            status = response.getStatus();
+            return entity;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            finished.countDown();
+        }
+    }
+
+    public void testAsyncContainer() throws Exception {
+        initiateWebApplication(AsyncResource.class);
+
+        suspended = null;
+        AsyncWriter writer = new AsyncWriter();
+        ContainerRequest request = new ContainerRequest(w, "GET", BASE_URI,
+                BASE_URI.resolve("container"), new InBoundHeaders(),
+                new ByteArrayInputStream(new byte[0]));
+        w.handleRequest(request, writer);
+
+        assertTrue(writer.isSuspended);
+        assertEquals(1, writer.finished.getCount());
+        assertNotNull(suspended);
+        assertTrue(suspended.isSuspended());
+
+        assertTrue(suspended.resume("container"));
+        assertTrue(writer.finished.await(10, TimeUnit.SECONDS));
+        assertEquals(200, writer.status);
+        assertEquals("container", writer.entity.toString("UTF-8"));
+    }
+
+    public void testAsyncContainerSuspendAndThrow() throws Exception {
+        initiateWebApplication(AsyncResource.class);
+
+        suspended = null;
+        AsyncWriter writer = new AsyncWriter();
+        ContainerRequest request = new ContainerRequest(w, "GET", BASE_URI,
+                BASE_URI.resolve("suspend-and-throw"), new InBoundHeaders(),
+                new ByteArrayInputStream(new byte[0]));
+        w.handleRequest(request, writer);
+
+        // The mapped response is written and the request is not suspended
+        assertFalse(writer.isSuspended);
+        assertEquals(409, writer.status);
+        assertNotNull(suspended);
+        assertFalse(suspended.isSuspended());
+        assertFalse(suspended.resume("resumed"));
+    }
+
+    public void testAsyncContainerResumeWhileSuspending() throws Exception {
+        initiateWebApplication(AsyncResource.class);
+
+        suspended = null;
+        final CountDownLatch resuming = new CountDownLatch(1);
+        AsyncWriter writer = new AsyncWriter() {
+            @Override
+            public boolean suspend() {
+                // Resume concurrently with the suspension of the response
+                new Thread() {
+                    @Override
+                    public void run() {
+                        resuming.countDown();
+                        suspended.resume("container");
+                    }
+                }.start();
+                try {
+                    resuming.await();
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                }
+                return super.suspend();
+            }
+        };
+        ContainerRequest request = new ContainerRequest(w, "GET", BASE_URI,
+                BASE_URI.resolve("container"), new InBoundHeaders(),
+                new ByteArrayInputStream(new byte[0]));
+        w.handleRequest(request, writer);
+
+        // The suspended response is written when resumed
+        assertTrue(writer.isSuspended);
+        assertTrue(writer.finished.await(10, TimeUnit.SECONDS));
+        assertEquals(200, writer.status);
+        assertEquals("container", writer.entity.toString("UTF-8"));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.impl.resource;
+
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.api.core.ResourceConfig;
+import com.sun.jersey.impl.AbstractResourceTester;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+
+/**
+ * Tests matching with {@link ResourceConfig#FEATURE_AUTOMATA_MATCHING} enabled.
+ */
+public class AutomataMatchingResourceTest extends AbstractResourceTester {
+
+    public AutomataMatchingResourceTest(String testName) {
+        super(testName);
+    }
+
+    @Path("/")
+    public static class RootResource {
+        @GET
+        public String get() {
+            return "root";
+        }
+
+        @Path("{id}")
+        @GET
+        public String getId(@PathParam("id") String id) {
+            return "root:" + id;
+        }
+    }
+
+    @Path("customers")
+    public static class CustomersResource {
+        @GET
+        public String get() {
+            return "customers";
+        }
+
+        @Path("{id: \\d+}")
+        @GET
+        public String getId(@PathParam("id") String id) {
+            return "customer:" + id;
+        }
+
+        @Path("{id: \\d+}/orders")
+        @GET
+        public String getOrders(@PathParam("id") String id) {
+            return "orders:" + id;
+        }
+    }
+
+    @Path("customersearch")
+    public static class CustomerSearchResource {
+        @GET
+        public String get() {
+            return "customersearch";
+        }
+    }
+
+    @Path("c{x}")
+    public static class CResource {
+        @GET
+        public String get(@PathParam("x") String x) {
+            return "c:" + x;
+        }
+    }
+
+    private void initiate() {
+        ResourceConfig rc = new DefaultResourceConfig(RootResource.class,
+                CustomersResource.class, CustomerSearchResource.class,
+                CResource.class);
+        rc.getFeatures().put(ResourceConfig.FEATURE_AUTOMATA_MATCHING, true);
+        initiateWebApplication(rc);
+    }
+
+    public void testRootResources() {
+        initiate();
+
+        assertEquals("root", resource("/").get(String.class));
+        assertEquals("customers", resource("/customers").get(String.class));
+        assertEquals("customersearch", resource("/customersearch").get(String.class));
+        assertEquals("c:ustomer", resource("/customer").get(String.class));
+        assertEquals("c:ars", resource("/cars").get(String.class));
+        assertEquals("root:other", resource("/other").get(String.class));
+    }
+
+    public void testSubResourceMethods() {
+        initiate();
+
+        assertEquals("customer:42", resource("/customers/42").get(String.class));
+        assertEquals("orders:42", resource("/customers/42/orders").get(String.class));
+
+        ClientResponse response = resource("/customers/abc", false).get(ClientResponse.class);
+        assertEquals(404, response.getStatus());
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.impl.resource;
+
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.api.core.ResourceConfig;
+import com.sun.jersey.impl.AbstractResourceTester;
+import com.sun.jersey.server.impl.model.method.dispatch.GeneratedJavaMethodInvokerFactory;
+import com.sun.jersey.spi.container.JavaMethodInvoker;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+/**
+ * Tests invocation of resource methods with
+ * {@link ResourceConfig#FEATURE_GENERATED_METHOD_INVOKERS} enabled.
+ */
+public class GeneratedMethodInvokersTest extends AbstractResourceTester {
+
+    public GeneratedMethodInvokersTest(String testName) {
+        super(testName);
+    }
+
+    public static interface Named {
+        @GET
+        @Path("name")
+        String getName();
+    }
+
+    @Path("/")
+    public static class PublicResource implements Named {
+        static int count;
+
+        public String getName() {
+            return "name";
+        }
+
+        @GET
+        public String get() {
+            return "get";
+        }
+
+        @GET
+        @Path("add/{x}/{y}")
+        public String add(@PathParam("x") int x, @PathParam("y") long y) {
+            return Long.toString(x + y);
+        }
+
+        @GET
+        @Path("not")
+        public String not(@QueryParam("b") boolean b) {
+            return Boolean.toString(!b);
+        }
+
+        public long multiply(int x, double y) {
+            return (long) (x * y);
+        }
+
+        @POST
+        @Path("count")
+        public void count() {
+            count++;
+        }
+
+        @GET
+        @Path("response")
+        public Response response() {
+            return Response.status(201).entity("response").build();
+        }
+
+        @GET
+        @Path("exception")
+        public String exception() {
+            throw new WebApplicationException(409);
+        }
+
+        @GET
+        @Path("invoker")
+        public String invoker() {
+            return new Throwable().getStackTrace()[1].getClassName();
+        }
+    }
+
+    static class NonPublicResource {
+        public String get() {
+            return "nonpublic";
+        }
+    }
+
+    private void initiate(Class<?>... classes) {
+        ResourceConfig rc = new DefaultResourceConfig(classes);
+        rc.getFeatures().put(ResourceConfig.FEATURE_GENERATED_METHOD_INVOKERS, true);
+        initiateWebApplication(rc);
+    }
+
+    public void testReturnTypes() {
+        initiate(PublicResource.class);
+
+        assertEquals("get", resource("/").get(String.class));
+        assertEquals("name", resource("/name").get(String.class));
+        assertEquals("3", resource("/add/1/2").get(String.class));
+        assertEquals("false", resource("/not?b=true").get(String.class));
+
+        ClientResponse cr = resource("/response", false).get(ClientResponse.class);
+        assertEquals(201, cr.getStatus());
+        assertEquals("response", cr.getEntity(String.class));
+    }
+
+    public void testGeneratedInvoker() {
+        initiate(PublicResource.class);
+
+        String invoker = resource("/invoker").get(String.class);
+        assertTrue(invoker, invoker.startsWith(PublicResource.class.getName() + "$JerseyInvoker$invoker$"));
+    }
+
+    public void testVoid() {
+        initiate(PublicResource.class);
+
+        PublicResource.count = 0;
+        ClientResponse cr = resource("/count", false).post(ClientResponse.class);
+        assertEquals(204, cr.getStatus());
+        assertEquals(1, PublicResource.count);
+    }
+
+    public void testExceptions() {
+        initiate(PublicResource.class);
+
+        ClientResponse cr = resource("/exception", false).get(ClientResponse.class);
+        assertEquals(409, cr.getStatus());
+    }
+
+    public void testPrimitiveReturnType() throws Exception {
+        Method m = PublicResource.class.getMethod("multiply", int.class, double.class);
+        JavaMethodInvoker invoker = new GeneratedJavaMethodInvokerFactory().getInvoker(m);
+        assertNotNull(invoker);
+        assertEquals(7L, invoker.invoke(m, new PublicResource(), 2, 3.5));
+    }
+
+    public void testIllegalArguments() throws Exception {
+        Method m = PublicResource.class.getMethod("multiply", int.class, double.class);
+        JavaMethodInvoker invoker = new GeneratedJavaMethodInvokerFactory().getInvoker(m);
+        assertNotNull(invoker);
+
+        assertIllegalArgument(invoker, m, new Object(), 2, 3.5);
+        assertIllegalArgument(invoker, m, new PublicResource(), "2", 3.5);
+        assertIllegalArgument(invoker, m, new PublicResource(), null, 3.5);
+        assertIllegalArgument(invoker, m, new PublicResource(), 2);
+        assertIllegalArgument(invoker, m, new PublicResource(), 2, 3.5, 4);
+        assertIllegalArgument(invoker, m, new PublicResource(), (Object[]) null);
+
+        try {
+            invoker.invoke(m, null, 2, 3.5);
+            fail();
+        } catch (NullPointerException e) {
+        }
+    }
+
+    private void assertIllegalArgument(JavaMethodInvoker invoker, Method m, Object o, Object... parameters)
+            throws Exception {
+        try {
+            invoker.invoke(m, o, parameters);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testInvocationTargetException() throws Exception {
+        Method m = PublicResource.class.getMethod("exception");
+        JavaMethodInvoker invoker = new GeneratedJavaMethodInvokerFactory().getInvoker(m);
+        assertNotNull(invoker);
+
+        try {
+            invoker.invoke(m, new PublicResource());
+            fail();
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof WebApplicationException);
+        }
+    }
+
+    public void testNonPublicClass() throws Exception {
+        Method m = NonPublicResource.class.getMethod("get");
+        assertNull(new GeneratedJavaMethodInvokerFactory().getInvoker(m));
+    }
+}
@@ -777,4 +777,28 @@ public class UriBuilderTest extends TestCase {
         assertEquals("http://user@localhost", UriBuilder.fromUri("http://user@localhost").build
                 ("nothingreally").toString());
     }
+
+    public void testCompiledTemplateReuse() {
+        for (int i = 0; i < 2; i++) {
+            UriBuilder ub = UriBuilder.fromUri("http://localhost:8080/app").
+                    path("users/{id: [0-9]+}/{name}/{name}").
+                    queryParam("q", "{q}");
+
+            assertEquals(URI.create("http://localhost:8080/app/users/" + i + "/a%20b/a%20b?q=x%26y"),
+                    ub.build(i, "a b", "x&y"));
+
+            Map<String, Object> m = new HashMap<String, Object>();
+            m.put("id", i);
+            m.put("name", "a%20b");
+            m.put("q", "x");
+            assertEquals(URI.create("http://localhost:8080/app/users/" + i + "/a%20b/a%20b?q=x"),
+                    ub.buildFromEncodedMap(m));
+
+            try {
+                ub.build(i);
+                fail();
+            } catch (IllegalArgumentException ex) {
+            }
+        }
+    }
 }
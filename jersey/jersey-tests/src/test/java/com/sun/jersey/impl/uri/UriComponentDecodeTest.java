@@ -184,6 +184,48 @@ public class UriComponentDecodeTest extends TestCase {
 
         for (int i = 0; i < query.length; i += 2)
             assertEquals(query[i + 1], queryParameters.getFirst(query[i]));
+
+        // Look up each parameter before any other operation
+        queryParameters = UriComponent.decodeQueryLazily(q, decode);
+        for (int i = 0; i < query.length; i += 2)
+            assertEquals(query[i + 1], queryParameters.getFirst(query[i]));
+        assertNull(queryParameters.get("absent"));
+        assertEquals(query.length / 2, queryParameters.size());
+        assertEquals(UriComponent.decodeQuery(q, decode), queryParameters);
+    }
+
+    public void testDecodeQueryLazily() {
+        MultivaluedMap<String, String> queryParameters =
+                UriComponent.decodeQueryLazily("a=1&b=x+y&a=2&c%20d=%41&a", true);
+
+        assertEquals(3, queryParameters.get("a").size());
+        assertEquals("x y", queryParameters.getFirst("b"));
+        assertEquals("A", queryParameters.getFirst("c d"));
+        assertTrue(queryParameters.containsKey("a"));
+        assertFalse(queryParameters.containsKey("c%20d"));
+
+        // Modified values are retained when all parameters are decoded
+        queryParameters.get("a").add("3");
+        assertEquals(3, queryParameters.size());
+        assertEquals(4, queryParameters.get("a").size());
+        assertEquals("1", queryParameters.getFirst("a"));
+        assertEquals("", queryParameters.get("a").get(2));
+
+        queryParameters.putSingle("b", "z");
+        assertEquals("z", queryParameters.getFirst("b"));
+    }
+
+    public void testDecodeQueryLazilyMalformed() {
+        MultivaluedMap<String, String> queryParameters =
+                UriComponent.decodeQueryLazily("a=1&b=%X", true);
+
+        // Only the looked up parameter is decoded
+        assertEquals("1", queryParameters.getFirst("a"));
+        try {
+            queryParameters.getFirst("b");
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
     }
 
     public void testDecodeMatrix() {
@@ -40,6 +40,7 @@
 
 package com.sun.jersey.impl.uri.rules;
 
+import com.sun.jersey.api.uri.UriTemplate;
 import com.sun.jersey.server.impl.uri.rules.PatternRulePair;
 import com.sun.jersey.server.impl.uri.PathPattern;
 import com.sun.jersey.server.impl.uri.rules.automata.AutomataMatchingUriTemplateRules;
@@ -50,17 +51,20 @@ import java.util.Map;
 
 /**
  *
- * This class has been made abstract because it needs to fixed in terms
- * of supporting the UriRules interface and matching using more general regular
- * expressions.
- * 
  * @author mnesarco
  */
-public abstract class AutomataMatchingTest extends AbstractMatchingTester {
+public class AutomataMatchingTest extends AbstractMatchingTester {
     
     public AutomataMatchingTest(String testName) {
         super(testName);
     }
+
+    public boolean isTracingEnabled() {
+        return false;
+    }
+
+    public void trace(String message) {
+    }
     
     private class AutomataRulesBuilder extends RulesBuilder {
         protected UriRules<String> _build() {
@@ -74,4 +78,49 @@ public abstract class AutomataMatchingTest extends AbstractMatchingTester {
     protected RulesBuilder create() {
         return new AutomataRulesBuilder();
     }    
+
+    public void testExplicitRegexWithLiteralPrefix() {
+        add(new UriTemplate("/a{p1: \\d+}"), "/a{p1: \\d+}")
+        .add(new UriTemplate("/ab{p1}"), "/ab{p1}")
+        .add(new UriTemplate("/{p1}"), "/{p1}").
+                build();
+
+        String s = match("/a123");
+        assertEquals("/a{p1: \\d+}", s);
+        assertEquals("123", matchResult.group(1));
+
+        s = match("/abc");
+        assertEquals("/ab{p1}", s);
+        assertEquals("c", matchResult.group(1));
+
+        s = match("/ax");
+        assertEquals("/{p1}", s);
+        assertEquals("ax", matchResult.group(1));
+
+        s = match("/b/c");
+        assertEquals("/{p1}", s);
+        assertEquals("b", matchResult.group(1));
+        assertEquals("/c", matchResult.group(2));
+    }
+
+    public void testReservedCharactersInLiteralPrefix() {
+        add(new UriTemplate("/a.b"), "/a.b")
+        .add(new UriTemplate("/a-b/{p1}"), "/a-b/{p1}").
+                build();
+
+        assertEquals("/a.b", match("/a.b"));
+        assertNull(match("/axb"));
+        assertEquals("/a-b/{p1}", match("/a-b/c"));
+        assertEquals("c", matchResult.group(1));
+    }
+
+    public void testNoMatch() {
+        add(new UriTemplate("/a"), "/a")
+        .add(new UriTemplate("/b/{p1}"), "/b/{p1}").
+                build();
+
+        assertNull(match("/c"));
+        assertNull(match("/b"));
+        assertNull(match(""));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,253 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.jersey.impl.xml;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.Providers;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.api.core.ResourceConfig;
+import com.sun.jersey.core.provider.jaxb.AbstractRootElementProvider;
+import com.sun.jersey.core.util.FeaturesAndProperties;
+import com.sun.jersey.impl.AbstractResourceTester;
+
+/**
+ * Checks that the properties of pooled marshallers are reset between uses.
+ */
+public class MarshallerPoolTest extends AbstractResourceTester {
+
+    public MarshallerPoolTest(String testName) {
+        super(testName);
+    }
+
+    @Path("/")
+    public static class Resource {
+
+        @Path("root")
+        @GET
+        @Produces("application/xml")
+        public RootElement getRoot() {
+            RootElement re = new RootElement();
+            re.name = "jmeno";
+            re.value = "hodnota";
+            return re;
+        }
+
+        @Path("root")
+        @POST
+        @Produces("application/xml")
+        public RootElement postRoot(RootElement re) {
+            return re;
+        }
+
+        @Path("list")
+        @GET
+        @Produces("application/xml")
+        public List<RootElement> getList() {
+            return Arrays.asList(getRoot());
+        }
+
+        @Path("root-utf16")
+        @GET
+        @Produces("application/xml;charset=UTF-16")
+        public RootElement getRootUTF16() {
+            return getRoot();
+        }
+
+        @Path("list-utf16")
+        @GET
+        @Produces("application/xml;charset=UTF-16")
+        public List<RootElement> getListUTF16() {
+            return getList();
+        }
+
+        @Path("pooled")
+        @GET
+        @Produces("application/x-pooled+xml")
+        public RootElement getPooled() {
+            return getRoot();
+        }
+
+        @Path("unpooled")
+        @GET
+        @Produces("application/x-unpooled+xml")
+        public RootElement getUnpooled() {
+            return getRoot();
+        }
+    }
+
+    static final List<Marshaller> marshallers = new ArrayList<Marshaller>();
+
+    static volatile boolean schemaLocation;
+
+    public static class UnpooledProvider extends AbstractRootElementProvider {
+        public UnpooledProvider(@Context Providers ps) {
+            super(ps, MediaType.valueOf("application/x-unpooled+xml"));
+        }
+
+        @Override
+        protected void writeTo(Object t, MediaType mediaType, Charset c,
+                Marshaller m, OutputStream entityStream) throws JAXBException {
+            marshallers.add(m);
+            m.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, "urn:schema schema.xsd");
+            super.writeTo(t, mediaType, c, m, entityStream);
+        }
+    }
+
+    public static class PooledProvider extends AbstractRootElementProvider {
+        public PooledProvider(@Context Providers ps) {
+            super(ps, MediaType.valueOf("application/x-pooled+xml"));
+        }
+
+        @Override
+        protected boolean isPoolingSupported() {
+            return true;
+        }
+
+        @Override
+        protected void writeTo(Object t, MediaType mediaType, Charset c,
+                Marshaller m, OutputStream entityStream) throws JAXBException {
+            marshallers.add(m);
+            assertEquals(Boolean.FALSE, m.getProperty(Marshaller.JAXB_FORMATTED_OUTPUT));
+            assertNull(m.getProperty(Marshaller.JAXB_SCHEMA_LOCATION));
+            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            if (schemaLocation) {
+                m.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, "urn:schema schema.xsd");
+            }
+            super.writeTo(t, mediaType, c, m, entityStream);
+        }
+    }
+
+    public void testEncoding() throws Exception {
+        initiateWebApplication(Resource.class);
+
+        for (String path : new String[] {"/root", "/list"}) {
+            byte[] b = resource(path + "-utf16").get(byte[].class);
+            assertTrue(new String(b, "UTF-16").contains("jmeno"));
+
+            b = resource(path).get(byte[].class);
+            assertTrue(new String(b, "UTF-8").contains("jmeno"));
+        }
+    }
+
+    public void testFormattedOutput() throws Exception {
+        ResourceConfig rc = new DefaultResourceConfig(Resource.class);
+        rc.getFeatures().put(FeaturesAndProperties.FEATURE_FORMATTED, true);
+        initiateWebApplication(rc);
+
+        String s = resource("/root").get(String.class);
+        assertTrue(s.contains("\n"));
+
+        initiateWebApplication(Resource.class);
+
+        s = resource("/root").get(String.class);
+        assertFalse(s.contains("\n"));
+    }
+
+    public void testPooled() throws Exception {
+        initiateWebApplication(Resource.class, PooledProvider.class);
+
+        marshallers.clear();
+        schemaLocation = false;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(resource("/pooled").get(String.class).contains("\n"));
+        }
+
+        // The marshaller is reused, and reset, for each request
+        assertEquals(3, marshallers.size());
+        assertSame(marshallers.get(0), marshallers.get(1));
+        assertSame(marshallers.get(0), marshallers.get(2));
+
+        // The marshaller cannot be reset if the schema location is set
+        marshallers.clear();
+        schemaLocation = true;
+        try {
+            for (int i = 0; i < 2; i++) {
+                assertTrue(resource("/pooled").get(String.class).contains("schema.xsd"));
+            }
+        } finally {
+            schemaLocation = false;
+        }
+        assertEquals(2, marshallers.size());
+        assertNotSame(marshallers.get(0), marshallers.get(1));
+    }
+
+    public void testUnpooled() throws Exception {
+        initiateWebApplication(Resource.class, UnpooledProvider.class);
+
+        marshallers.clear();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(resource("/unpooled").get(String.class).contains("schema.xsd"));
+        }
+
+        assertEquals(3, marshallers.size());
+        assertNotSame(marshallers.get(0), marshallers.get(1));
+        assertNotSame(marshallers.get(0), marshallers.get(2));
+        assertNotSame(marshallers.get(1), marshallers.get(2));
+    }
+
+    public void testRoundTrip() throws Exception {
+        initiateWebApplication(Resource.class);
+
+        for (int i = 0; i < 3; i++) {
+            RootElement re = new RootElement();
+            re.name = "name" + i;
+            re.value = "value" + i;
+
+            re = resource("/root").type("application/xml").post(RootElement.class, re);
+            assertEquals("name" + i, re.name);
+            assertEquals("value" + i, re.value);
+        }
+    }
+}